@@ -8,12 +8,16 @@ import javax.annotation.Nullable;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The main configuration file for the server.
  */
 public class GlobalConfig extends Configuration {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(GlobalConfig.class);
+
 	/////////////
 	// General //
 	/////////////
@@ -25,7 +29,8 @@ public class GlobalConfig extends Configuration {
 	@NotEmpty
 	private String frontendUrl;
 	private long pollInterval = 10 * 60;
-	private long vacuumInterval = 25 * 60 * 60;
+	@Min(1)
+	private long dbMaintenanceInterval = 10 * 60;
 
 	/////////////////
 	// Directories //
@@ -34,6 +39,11 @@ public class GlobalConfig extends Configuration {
 	private Path dataDir = Path.of("data");
 	private Path cacheDir = Path.of("cache");
 	private Path tmpDir = Path.of("tmp");
+	@Min(0)
+	private long archiveCacheSizeMiB = 2048;
+	@Min(0)
+	private int archivePrefetchAmount = 4;
+	private boolean archiveGitStub = true;
 
 	////////////
 	// Runner //
@@ -46,6 +56,13 @@ public class GlobalConfig extends Configuration {
 	private int runnerPort = 3546;
 	@Min(1)
 	private long disconnectedRunnerGracePeriodSeconds = 600;
+	@Min(1)
+	@Max(16384)
+	private int runnerTransferChunkSizeKiB = 64;
+	@Min(1)
+	private int runnerTransferMaxChunksInFlight = 4;
+	private boolean runnerTransferDirectBuffers = false;
+	private boolean runnerTaskPrefetch = false;
 
 	/////////////////////////
 	// Significant commits //
@@ -120,12 +137,28 @@ public class GlobalConfig extends Configuration {
 		this.pollInterval = pollInterval;
 	}
 
-	public Duration getVacuumInterval() {
-		return Duration.ofSeconds(vacuumInterval);
+	/**
+	 * @return the interval between database maintenance runs
+	 */
+	public Duration getDbMaintenanceInterval() {
+		return Duration.ofSeconds(dbMaintenanceInterval);
+	}
+
+	public void setDbMaintenanceInterval(long dbMaintenanceInterval) {
+		this.dbMaintenanceInterval = dbMaintenanceInterval;
 	}
 
+	/**
+	 * The database is no longer VACUUMed periodically, so this option is ignored. It is still
+	 * accepted so that existing config files don't fail to load.
+	 *
+	 * @param vacuumInterval ignored
+	 * @deprecated use {@link #setDbMaintenanceInterval(long)} instead
+	 */
+	@Deprecated
 	public void setVacuumInterval(long vacuumInterval) {
-		this.vacuumInterval = vacuumInterval;
+		LOGGER.warn("The config option vacuumInterval is deprecated and ignored, the database is now "
+			+ "maintained every dbMaintenanceInterval instead");
 	}
 
 	/////////////////
@@ -159,6 +192,40 @@ public class GlobalConfig extends Configuration {
 		this.tmpDir = tmpDir;
 	}
 
+	/**
+	 * @return the maximum total size of the cached commit archives in bytes
+	 */
+	public long getArchiveCacheSize() {
+		return archiveCacheSizeMiB * 1024 * 1024;
+	}
+
+	public void setArchiveCacheSizeMiB(long archiveCacheSizeMiB) {
+		this.archiveCacheSizeMiB = archiveCacheSizeMiB;
+	}
+
+	/**
+	 * @return how many of the next commit tasks in the queue should have their archives prepared in
+	 * 	advance
+	 */
+	public int getArchivePrefetchAmount() {
+		return archivePrefetchAmount;
+	}
+
+	public void setArchivePrefetchAmount(int archivePrefetchAmount) {
+		this.archivePrefetchAmount = archivePrefetchAmount;
+	}
+
+	/**
+	 * @return whether archives sent to runners should contain a minimal {@code .git} directory
+	 */
+	public boolean getArchiveGitStub() {
+		return archiveGitStub;
+	}
+
+	public void setArchiveGitStub(boolean archiveGitStub) {
+		this.archiveGitStub = archiveGitStub;
+	}
+
 	////////////
 	// Runner //
 	////////////
@@ -197,6 +264,50 @@ public class GlobalConfig extends Configuration {
 		this.disconnectedRunnerGracePeriodSeconds = disconnectedRunnerGracePeriodSeconds;
 	}
 
+	/**
+	 * @return the size of the chunks tar files are sent to runners in (in bytes)
+	 */
+	public int getRunnerTransferChunkSize() {
+		return runnerTransferChunkSizeKiB * 1024;
+	}
+
+	public void setRunnerTransferChunkSizeKiB(int runnerTransferChunkSizeKiB) {
+		this.runnerTransferChunkSizeKiB = runnerTransferChunkSizeKiB;
+	}
+
+	/**
+	 * @return how many chunks of a single transfer may wait to be sent before further writes block
+	 */
+	public int getRunnerTransferMaxChunksInFlight() {
+		return runnerTransferMaxChunksInFlight;
+	}
+
+	public void setRunnerTransferMaxChunksInFlight(int runnerTransferMaxChunksInFlight) {
+		this.runnerTransferMaxChunksInFlight = runnerTransferMaxChunksInFlight;
+	}
+
+	/**
+	 * @return whether the chunk buffers should be allocated outside of the java heap
+	 */
+	public boolean getRunnerTransferDirectBuffers() {
+		return runnerTransferDirectBuffers;
+	}
+
+	public void setRunnerTransferDirectBuffers(boolean runnerTransferDirectBuffers) {
+		this.runnerTransferDirectBuffers = runnerTransferDirectBuffers;
+	}
+
+	/**
+	 * @return whether runners may download their next task while they are still benchmarking
+	 */
+	public boolean getRunnerTaskPrefetch() {
+		return runnerTaskPrefetch;
+	}
+
+	public void setRunnerTaskPrefetch(boolean runnerTaskPrefetch) {
+		this.runnerTaskPrefetch = runnerTaskPrefetch;
+	}
+
 	/////////////////////////
 	// Significant commits //
 	/////////////////////////
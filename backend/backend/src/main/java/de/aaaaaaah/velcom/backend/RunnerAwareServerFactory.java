@@ -3,6 +3,7 @@ package de.aaaaaaah.velcom.backend;
 import de.aaaaaaah.velcom.backend.data.benchrepo.BenchRepo;
 import de.aaaaaaah.velcom.backend.runner.Dispatcher;
 import de.aaaaaaah.velcom.backend.runner.ServerMasterWebsocketServlet;
+import de.aaaaaaah.velcom.backend.runner.single.TransferBufferPool;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
 import io.dropwizard.jetty.HttpConnectorFactory;
 import io.dropwizard.jetty.MutableServletContextHandler;
@@ -60,7 +61,17 @@ public class RunnerAwareServerFactory implements ServerFactory {
 		MutableServletContextHandler handler = new MutableServletContextHandler();
 		handler.getServletContext().addServlet(
 			"Runner Websocket servlet",
-			new ServerMasterWebsocketServlet(dispatcher, serializer, config.getRunnerToken(), benchRepo)
+			new ServerMasterWebsocketServlet(
+				dispatcher,
+				serializer,
+				config.getRunnerToken(),
+				benchRepo,
+				new TransferBufferPool(
+					config.getRunnerTransferChunkSize(),
+					config.getRunnerTransferMaxChunksInFlight(),
+					config.getRunnerTransferDirectBuffers()
+				)
+			)
 		)
 			.addMapping("/runner-connector");
 		handlerMap.put(connector, handler);
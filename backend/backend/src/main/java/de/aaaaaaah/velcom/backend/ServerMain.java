@@ -8,11 +8,15 @@ import de.aaaaaaah.velcom.backend.access.benchmarkaccess.BenchmarkWriteAccess;
 import de.aaaaaaah.velcom.backend.access.caches.AvailableDimensionsCache;
 import de.aaaaaaah.velcom.backend.access.caches.LatestRunCache;
 import de.aaaaaaah.velcom.backend.access.caches.RunCache;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.committaccess.CommitReadAccess;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.DimensionWriteAccess;
 import de.aaaaaaah.velcom.backend.access.repoaccess.RepoWriteAccess;
 import de.aaaaaaah.velcom.backend.access.taskaccess.TaskWriteAccess;
 import de.aaaaaaah.velcom.backend.data.benchrepo.BenchRepo;
+import de.aaaaaaah.velcom.backend.data.events.EventHub;
+import de.aaaaaaah.velcom.backend.data.ingest.RunIngester;
+import de.aaaaaaah.velcom.backend.data.ingest.RunJournal;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
 import de.aaaaaaah.velcom.backend.data.recentruns.SignificantRunsCollector;
 import de.aaaaaaah.velcom.backend.data.runcomparison.RunComparator;
@@ -27,6 +31,7 @@ import de.aaaaaaah.velcom.backend.restapi.endpoints.CommitEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.CompareEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.DebugEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.DimensionsEndpoint;
+import de.aaaaaaah.velcom.backend.restapi.endpoints.EventsEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.GraphComparisonEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.GraphDetailEndpoint;
 import de.aaaaaaah.velcom.backend.restapi.endpoints.GraphStatusComparisonEndpoint;
@@ -47,6 +52,8 @@ import de.aaaaaaah.velcom.backend.restapi.exception.NoSuchTaskExceptionMapper;
 import de.aaaaaaah.velcom.backend.restapi.exception.TaskAlreadyExistsExceptionMapper;
 import de.aaaaaaah.velcom.backend.runner.Dispatcher;
 import de.aaaaaaah.velcom.backend.storage.ManagedDirs;
+import de.aaaaaaah.velcom.backend.storage.archive.ArchiveCache;
+import de.aaaaaaah.velcom.backend.storage.db.DatabaseMaintainer;
 import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
 import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
 import de.aaaaaaah.velcom.backend.storage.tar.TarFileStorage;
@@ -129,33 +136,51 @@ public class ServerMain extends Application<GlobalConfig> {
 		DatabaseStorage databaseStorage = new DatabaseStorage(managedDirs.getJdbcUrl());
 		RepoStorage repoStorage = new RepoStorage(managedDirs.getReposDir());
 		TarFileStorage tarFileStorage = new TarFileStorage(managedDirs.getTarsDir());
+		ArchiveCache archiveCache = new ArchiveCache(
+			managedDirs.getArchiveCacheDir(),
+			configuration.getArchiveCacheSize()
+		);
 
 		// Caches
 		AvailableDimensionsCache availableDimensionsCache = new AvailableDimensionsCache();
 		LatestRunCache latestRunCache = new LatestRunCache();
 		RunCache runCache = new RunCache();
+		SeriesCache seriesCache = new SeriesCache();
 
 		// Access layer
 		TaskWriteAccess taskAccess = new TaskWriteAccess(databaseStorage, tarFileStorage);
 		CommitReadAccess commitAccess = new CommitReadAccess(databaseStorage);
 		DimensionWriteAccess dimensionAccess = new DimensionWriteAccess(databaseStorage,
-			availableDimensionsCache, runCache);
+			availableDimensionsCache, runCache, seriesCache);
 		RepoWriteAccess repoAccess = new RepoWriteAccess(databaseStorage, availableDimensionsCache,
-			runCache, latestRunCache);
+			runCache, latestRunCache, seriesCache);
 		ArchiveReadAccess archiveAccess = new ArchiveReadAccess(
 			managedDirs.getArchivesDir(),
 			repoStorage,
 			tarFileStorage,
-			configuration.getBenchmarkRepoRemoteUrl()
+			archiveCache,
+			configuration.getBenchmarkRepoRemoteUrl(),
+			configuration.getArchiveGitStub()
 		);
 		BenchmarkWriteAccess benchmarkAccess = new BenchmarkWriteAccess(databaseStorage,
-			availableDimensionsCache, latestRunCache);
+			availableDimensionsCache, latestRunCache, seriesCache);
 
 		taskAccess.resetAllTaskStatuses();
 		taskAccess.cleanUpTarFiles();
+		benchmarkAccess.packLegacyValues();
 
 		// Data layer
-		Queue queue = new Queue(taskAccess, archiveAccess, benchmarkAccess);
+		EventHub eventHub = new EventHub();
+		RunIngester runIngester = new RunIngester(
+			new RunJournal(managedDirs.getRunJournalDir()),
+			benchmarkAccess,
+			taskAccess,
+			eventHub
+		);
+		runIngester.replay(); // Must happen before the queue loads its tasks
+		Queue queue = new Queue(taskAccess, archiveAccess, runIngester, eventHub,
+			configuration.getArchivePrefetchAmount());
+		runIngester.start();
 		BenchRepo benchRepo = new BenchRepo(archiveAccess);
 		SignificanceFactors significanceFactors = new SignificanceFactors(
 			configuration.getSignificanceRelativeThreshold(),
@@ -181,14 +206,19 @@ public class ServerMain extends Application<GlobalConfig> {
 			significanceDetector,
 			queue,
 			configuration.getPollInterval(),
-			configuration.getVacuumInterval(),
 			configuration.getFrontendUrl()
 		);
 
+		// Database maintenance
+		DatabaseMaintainer databaseMaintainer = new DatabaseMaintainer(databaseStorage,
+			configuration.getDbMaintenanceInterval());
+
 		// Dispatcher
 		Dispatcher dispatcher = new Dispatcher(
 			queue,
-			configuration.getDisconnectedRunnerGracePeriod()
+			eventHub,
+			configuration.getDisconnectedRunnerGracePeriod(),
+			configuration.getRunnerTaskPrefetch()
 		);
 		RunnerAwareServerFactory.getInstance().setDispatcher(dispatcher);
 		RunnerAwareServerFactory.getInstance().setBenchRepo(benchRepo);
@@ -208,9 +238,10 @@ public class ServerMain extends Application<GlobalConfig> {
 				runComparator, significanceDetector, significanceFactors),
 			new DebugEndpoint(benchmarkAccess, dispatcher),
 			new DimensionsEndpoint(dimensionAccess),
-			new GraphComparisonEndpoint(benchmarkAccess, commitAccess, dimensionAccess),
-			new GraphDetailEndpoint(commitAccess, benchmarkAccess, dimensionAccess, repoAccess, runCache,
-				latestRunCache),
+			new EventsEndpoint(eventHub, dispatcher, environment.getObjectMapper()),
+			new GraphComparisonEndpoint(benchmarkAccess, commitAccess, dimensionAccess, seriesCache),
+			new GraphDetailEndpoint(commitAccess, benchmarkAccess, dimensionAccess, repoAccess,
+				seriesCache),
 			new GraphStatusComparisonEndpoint(benchmarkAccess, commitAccess, dimensionAccess, repoAccess,
 				significanceFactors),
 			new ListenerEndpoint(listener),
@@ -218,7 +249,7 @@ public class ServerMain extends Application<GlobalConfig> {
 			new RecentRunsEndpoint(benchmarkAccess, commitAccess, dimensionAccess, runCache,
 				significantRunsCollector),
 			new RepoEndpoint(dimensionAccess, repoAccess, availableDimensionsCache,
-				listener),
+				listener, queue),
 			new RunEndpoint(benchmarkAccess, commitAccess, dimensionAccess, runCache, latestRunCache,
 				runComparator, significanceFactors, significantRunsCollector),
 			new SearchEndpoint(benchmarkAccess, commitAccess, repoAccess),
@@ -5,7 +5,11 @@ import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSou
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import de.aaaaaaah.velcom.shared.util.Either;
+import de.aaaaaaah.velcom.shared.util.Pair;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Optional;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 /**
@@ -13,6 +17,10 @@ import javax.annotation.Nullable;
  */
 public class AccessUtils {
 
+	// The full text indices use the trigram tokenizer, which can't match shorter strings
+	private static final int MIN_FTS_QUERY_LENGTH = 3;
+	private static final Pattern HEX_PATTERN = Pattern.compile("[0-9a-fA-F]*");
+
 	private AccessUtils() {
 		throw new UnsupportedOperationException();
 	}
@@ -59,4 +67,76 @@ public class AccessUtils {
 		}
 	}
 
+	/**
+	 * Packs measurement values into the format they are stored in in the database: A sequence of
+	 * little-endian doubles.
+	 *
+	 * @param values the values to pack
+	 * @return the packed values
+	 */
+	public static byte[] packValues(double[] values) {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asDoubleBuffer().put(values);
+		return buffer.array();
+	}
+
+	/**
+	 * The inverse of {@link #packValues(double[])}.
+	 *
+	 * @param data the packed values
+	 * @return the unpacked values
+	 */
+	public static double[] unpackValues(byte[] data) {
+		if (data.length % Double.BYTES != 0) {
+			throw new IllegalArgumentException(
+				"packed values must be a multiple of " + Double.BYTES + " bytes long, but are "
+					+ data.length + " bytes long");
+		}
+
+		double[] values = new double[data.length / Double.BYTES];
+		ByteBuffer.wrap(data)
+			.order(ByteOrder.LITTLE_ENDIAN)
+			.asDoubleBuffer()
+			.get(values);
+		return values;
+	}
+
+	/**
+	 * Turn a search query into an FTS5 query that matches all rows containing the search query as a
+	 * substring (ignoring case).
+	 *
+	 * @param query the search query
+	 * @return the FTS5 query, or empty if the search query is too short to be looked up in the full
+	 * 	text indices
+	 */
+	public static Optional<String> toFtsQuery(String query) {
+		String stripped = query.strip();
+		if (stripped.codePointCount(0, stripped.length()) < MIN_FTS_QUERY_LENGTH) {
+			return Optional.empty();
+		}
+
+		// Quoting the query turns it into a single phrase, so FTS5 syntax in the query is ignored
+		return Optional.of("\"" + stripped.replace("\"", "\"\"") + "\"");
+	}
+
+	/**
+	 * Find the range of lowercase hexadecimal strings of a fixed length that start with the query.
+	 * Commit hashes starting with the query can then be found with a range query, which can use an
+	 * index unlike {@code LIKE 'query%'}.
+	 *
+	 * @param query the search query
+	 * @param length the length of the hexadecimal strings
+	 * @return the smallest and largest string in the range (both inclusive), or empty if the query is
+	 * 	not a hexadecimal string of at most the given length
+	 */
+	public static Optional<Pair<String, String>> hexPrefixRange(String query, int length) {
+		String prefix = query.strip().toLowerCase();
+		if (prefix.length() > length || !HEX_PATTERN.matcher(prefix).matches()) {
+			return Optional.empty();
+		}
+
+		int padding = length - prefix.length();
+		return Optional.of(new Pair<>(prefix + "0".repeat(padding), prefix + "f".repeat(padding)));
+	}
 }
@@ -1,20 +1,26 @@
 package de.aaaaaaah.velcom.backend.access.archiveaccess;
 
+import de.aaaaaaah.velcom.backend.access.archiveaccess.entities.CommitDelta;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarRetrieveException;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarTransferException;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
+import de.aaaaaaah.velcom.backend.storage.archive.ArchiveCache;
 import de.aaaaaaah.velcom.backend.storage.repo.GuickCloning.CloneException;
 import de.aaaaaaah.velcom.backend.storage.repo.RepoStorage;
 import de.aaaaaaah.velcom.backend.storage.repo.exception.RepositoryAcquisitionException;
 import de.aaaaaaah.velcom.backend.storage.tar.TarFileStorage;
 import de.aaaaaaah.velcom.backend.util.TransferUtils;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.util.FileHelper;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
@@ -31,21 +37,35 @@ public class ArchiveReadAccess {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveReadAccess.class);
 	private static final String BENCH_REPO_DIR_NAME = "benchrepo";
+	/**
+	 * The codec cached archives are stored with. Transfers using the same codec can send the cached
+	 * file without any further processing.
+	 */
+	private static final TransferCodec CACHE_CODEC = TransferCodec.GZIP;
+	/**
+	 * If more than this fraction of a commit's files differ from the base commit, sending a full
+	 * archive is preferred over sending a delta.
+	 */
+	private static final double MAX_DELTA_FRACTION = 0.5;
 
 	private final Path rootDir;
 	private final RepoStorage repoStorage;
 	private final TarFileStorage tarFileStorage;
+	private final ArchiveCache archiveCache;
 	private final String benchRepoUrl;
+	private final boolean includeGitStub;
 
 	private final AtomicInteger nextArchivePathNr;
 
 	public ArchiveReadAccess(Path rootDir, RepoStorage repoStorage, TarFileStorage tarFileStorage,
-		String benchRepoUrl) throws IOException {
+		ArchiveCache archiveCache, String benchRepoUrl, boolean includeGitStub) throws IOException {
 
 		this.rootDir = rootDir;
 		this.repoStorage = repoStorage;
 		this.tarFileStorage = tarFileStorage;
+		this.archiveCache = archiveCache;
 		this.benchRepoUrl = benchRepoUrl;
+		this.includeGitStub = includeGitStub;
 
 		nextArchivePathNr = new AtomicInteger(0);
 
@@ -56,18 +76,21 @@ public class ArchiveReadAccess {
 	 * Transfer the tar file for a task to an {@link OutputStream}. Creates the tar file if
 	 * necessary.
 	 *
+	 * <p> Note that the provided output stream will be closed after the transfer operation is done.
+	 *
 	 * @param task the task whose tar file to transfer
+	 * @param codec the codec to encode the tar file with
 	 * @param outputStream the tar file is transferred to this stream
 	 * @throws TarRetrieveException if the tar file could not be retrieved
 	 * @throws TarTransferException if the tar file could not be transferred
 	 */
-	public void transferTask(Task task, OutputStream outputStream)
+	public void transferTask(Task task, TransferCodec codec, OutputStream outputStream)
 		throws TarRetrieveException, TarTransferException {
 		if (task.getSource().getLeft().isPresent()) {
 			CommitSource commitSource = task.getSource().getLeft().get();
-			transferCommitTask(task, commitSource, outputStream);
+			transferCommitTask(task, commitSource, codec, outputStream);
 		} else {
-			transferTarTask(task, outputStream);
+			transferTarTask(task, codec, outputStream);
 		}
 	}
 
@@ -86,34 +109,197 @@ public class ArchiveReadAccess {
 		return rootDir.resolve(repoDirName + "_" + hashAsString + "_" + numberPart);
 	}
 
-	private void transferCommitTask(Task task, CommitSource commitSource, OutputStream outputStream)
-		throws TarRetrieveException, TarTransferException {
+	private void transferCommitTask(Task task, CommitSource commitSource, TransferCodec codec,
+		OutputStream outputStream) throws TarRetrieveException, TarTransferException {
 
 		transferCommit(
 			task,
 			commitSource.getRepoId().getDirectoryName(),
 			commitSource.getHash(),
+			codec,
 			outputStream
 		);
 	}
 
-	private void transferCommit(@Nullable Task task, String repoDirName, CommitHash commitHash,
-		OutputStream outputStream) throws TarRetrieveException, TarTransferException {
+	/**
+	 * Compute the differences between a commit and a base commit a runner already has, so that only
+	 * the changed files need to be sent. Returns nothing if a full archive should be sent instead,
+	 * for example because either commit has submodules or too many files changed.
+	 *
+	 * @param commitSource the commit that should be sent
+	 * @param base the commit the runner's task repo currently contains
+	 * @return the delta, if sending it is possible and worthwhile
+	 */
+	public Optional<CommitDelta> computeCommitDelta(CommitSource commitSource, CommitHash base) {
+		String repoDirName = commitSource.getRepoId().getDirectoryName();
+		CommitHash target = commitSource.getHash();
 
-		Path archivePath = getArchivePath(repoDirName, commitHash);
+		try (Repository repository = repoStorage.acquireRepository(repoDirName)) {
+			// Submodules are cloned, so the runner's task repo wouldn't match the commit's tree. In that
+			// case, or if the delta is too large, a full tar is sent instead.
+			Optional<CommitDelta> optionalDelta = TransferUtils
+				.diffCommits(repository, base, target, MAX_DELTA_FRACTION);
+			if (optionalDelta.isEmpty()) {
+				return Optional.empty();
+			}
+			CommitDelta delta = optionalDelta.get();
+
+			if (!includeGitStub) {
+				// In case the base was sent while the git stub was still enabled
+				List<String> deletedPaths = new ArrayList<>(delta.getDeletedPaths());
+				deletedPaths.add(".git");
+				delta = new CommitDelta(base, target, delta.getChangedPaths(), deletedPaths);
+			}
+
+			return Optional.of(delta);
+		} catch (RepositoryAcquisitionException | IOException e) {
+			// Usually, the base commit is not part of this repo
+			LOGGER.debug("Could not compute delta from {} to {} in {}", base, target, repoDirName, e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Transfer the changed files of a {@link CommitDelta} as a tar file to an {@link OutputStream}.
+	 * The tar file also contains the git stub, if enabled.
+	 *
+	 * <p> Note that the provided output stream will be closed after the transfer operation is done.
+	 *
+	 * @param task the task whose commit the delta leads to
+	 * @param commitSource the commit the delta leads to
+	 * @param delta the delta to transfer
+	 * @param codec the codec to encode the tar file with
+	 * @param outputStream the tar file is transferred to this stream
+	 * @throws TarRetrieveException if the repo could not be accessed
+	 * @throws TarTransferException if the tar file could not be transferred
+	 */
+	public void transferCommitDelta(Task task, CommitSource commitSource, CommitDelta delta,
+		TransferCodec codec, OutputStream outputStream)
+		throws TarRetrieveException, TarTransferException {
+
+		String repoDirName = commitSource.getRepoId().getDirectoryName();
+
+		try (Repository repository = repoStorage.acquireRepository(repoDirName)) {
+			TransferUtils.tarCommitPaths(
+				repository,
+				delta.getTarget(),
+				delta.getChangedPaths(),
+				includeGitStub,
+				codec.encode(outputStream)
+			);
+		} catch (RepositoryAcquisitionException e) {
+			throw new TarRetrieveException(e, task);
+		} catch (IOException e) {
+			throw new TarTransferException(e, task);
+		}
+	}
+
+	/**
+	 * Returns the key under which a commit's archive is stored in the {@link ArchiveCache}. Commits
+	 * are immutable, so the archive for a specific repo and commit hash never changes. Archives with
+	 * and without a git stub are stored under different keys so changing the config doesn't lead to
+	 * outdated archives being served.
+	 *
+	 * @param repoDirName the name of the repo's directory
+	 * @param commitHash the commit hash
+	 * @return the key, which is safe to use as a file name
+	 */
+	private String getArchiveKey(String repoDirName, CommitHash commitHash) {
+		String key = repoDirName + "_" + commitHash.getHash();
+		return includeGitStub ? key + "_git" : key;
+	}
+
+	/**
+	 * Make sure the archive of a commit exists in the archive cache so it can be transferred without
+	 * having to clone and tar the commit first. Does nothing if the archive already exists.
+	 *
+	 * @param commitSource the commit whose archive to prepare
+	 * @throws TarRetrieveException if the archive could not be created
+	 */
+	public void prepareCommit(CommitSource commitSource) throws TarRetrieveException {
+		String repoDirName = commitSource.getRepoId().getDirectoryName();
+		CommitHash commitHash = commitSource.getHash();
 
 		try {
-			try {
-				TransferUtils.cloneRepo(repoStorage, repoDirName, archivePath, commitHash);
-			} catch (RepositoryAcquisitionException | CloneException | IOException e) {
-				throw new TarRetrieveException(e, task);
+			archiveCache.prepare(
+				getArchiveKey(repoDirName, commitHash),
+				out -> createCommitArchive(null, repoDirName, commitHash, out)
+			);
+		} catch (IOException e) {
+			throw new TarRetrieveException(e, null);
+		}
+	}
+
+	/**
+	 * Transfer a commit's archive from the archive cache, creating it first if necessary. If the
+	 * requested codec is the same one the archive is cached with, the cached file is copied as-is.
+	 * Otherwise, it is re-encoded while being transferred.
+	 */
+	private void transferCommit(@Nullable Task task, String repoDirName, CommitHash commitHash,
+		TransferCodec codec, OutputStream outputStream)
+		throws TarRetrieveException, TarTransferException {
+
+		InputStream archive;
+		try {
+			archive = archiveCache.retrieve(
+				getArchiveKey(repoDirName, commitHash),
+				out -> createCommitArchive(task, repoDirName, commitHash, out)
+			);
+		} catch (IOException e) {
+			throw new TarRetrieveException(e, task);
+		}
+
+		try (archive; outputStream) {
+			if (codec == CACHE_CODEC) {
+				archive.transferTo(outputStream);
+			} else {
+				try (InputStream decoded = CACHE_CODEC.decode(archive);
+					OutputStream encoded = codec.encode(outputStream)) {
+					decoded.transferTo(encoded);
+				}
 			}
+		} catch (IOException e) {
+			throw new TarTransferException(e, task);
+		}
+	}
 
-			try {
-				TransferUtils.tarRepo(archivePath, outputStream);
-			} catch (IOException e) {
-				throw new TarTransferException(e, task);
+	/**
+	 * Write a commit's archive, encoded with the {@link #CACHE_CODEC}, to the output stream. Usually,
+	 * the archive is created directly from the repo's object database. Only commits with submodules
+	 * need to be cloned and checked out first, since the submodules' contents are not available
+	 * otherwise.
+	 */
+	private void createCommitArchive(@Nullable Task task, String repoDirName, CommitHash commitHash,
+		OutputStream outputStream) throws TarRetrieveException {
+
+		boolean hasSubmodules;
+		OutputStream encoded;
+		try (Repository repository = repoStorage.acquireRepository(repoDirName)) {
+			encoded = CACHE_CODEC.encode(outputStream);
+			hasSubmodules = TransferUtils.hasSubmodules(repository, commitHash);
+			if (!hasSubmodules) {
+				TransferUtils.tarCommit(repository, commitHash, includeGitStub, encoded);
 			}
+		} catch (RepositoryAcquisitionException | IOException e) {
+			throw new TarRetrieveException(e, task);
+		}
+
+		if (hasSubmodules) {
+			LOGGER.debug("Commit {} in {} has submodules, cloning it", commitHash, repoDirName);
+			cloneAndTarCommit(task, repoDirName, commitHash, encoded);
+		}
+	}
+
+	private void cloneAndTarCommit(@Nullable Task task, String repoDirName, CommitHash commitHash,
+		OutputStream outputStream) throws TarRetrieveException {
+
+		Path archivePath = getArchivePath(repoDirName, commitHash);
+
+		try {
+			TransferUtils.cloneRepo(repoStorage, repoDirName, archivePath, commitHash);
+			TransferUtils.tarRepo(archivePath, outputStream);
+		} catch (RepositoryAcquisitionException | CloneException | IOException e) {
+			throw new TarRetrieveException(e, task);
 		} finally {
 			try {
 				FileHelper.deleteDirectoryOrFile(archivePath);
@@ -123,9 +309,11 @@ public class ArchiveReadAccess {
 		}
 	}
 
-	private void transferTarTask(Task task, OutputStream outputStream) throws TarTransferException {
-		try {
-			tarFileStorage.retrieveTarFile(task.getIdAsString(), outputStream);
+	private void transferTarTask(Task task, TransferCodec codec, OutputStream outputStream)
+		throws TarTransferException {
+
+		try (OutputStream encoded = codec.encode(outputStream)) {
+			tarFileStorage.retrieveTarFile(task.getIdAsString(), encoded);
 		} catch (IOException e) {
 			throw new TarTransferException(e, task);
 		}
@@ -157,16 +345,19 @@ public class ArchiveReadAccess {
 	/**
 	 * Transfer the bench repo's current state as a tar file to the output stream.
 	 *
+	 * <p> Note that the provided output stream will be closed after the transfer operation is done.
+	 *
+	 * @param codec the codec to encode the tar file with
 	 * @param outputStream the tar file is transferred to this stream
 	 * @throws TarRetrieveException if the tar file could not be retrieved
 	 * @throws TarTransferException if the tar file could not be transferred
 	 */
-	public void transferBenchRepo(OutputStream outputStream)
+	public void transferBenchRepo(TransferCodec codec, OutputStream outputStream)
 		throws TarRetrieveException, TarTransferException {
 
 		Optional<CommitHash> hash = getBenchRepoCommitHash();
 		if (hash.isPresent()) {
-			transferCommit(null, BENCH_REPO_DIR_NAME, hash.get(), outputStream);
+			transferCommit(null, BENCH_REPO_DIR_NAME, hash.get(), codec, outputStream);
 		} else {
 			throw new TarRetrieveException();
 		}
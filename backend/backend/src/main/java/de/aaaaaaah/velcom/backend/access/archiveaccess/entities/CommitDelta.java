@@ -0,0 +1,85 @@
+package de.aaaaaaah.velcom.backend.access.archiveaccess.entities;
+
+import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The file level differences between the trees of two commits.
+ */
+public class CommitDelta {
+
+	private final CommitHash base;
+	private final CommitHash target;
+	private final List<String> changedPaths;
+	private final List<String> deletedPaths;
+
+	/**
+	 * @param base the commit the delta applies to
+	 * @param target the commit the delta leads to
+	 * @param changedPaths the paths of all files that were added or changed in the target commit
+	 * @param deletedPaths the paths of all files that exist in the base but not in the target
+	 * 	commit
+	 */
+	public CommitDelta(CommitHash base, CommitHash target, List<String> changedPaths,
+		List<String> deletedPaths) {
+
+		this.base = Objects.requireNonNull(base);
+		this.target = Objects.requireNonNull(target);
+		this.changedPaths = List.copyOf(changedPaths);
+		this.deletedPaths = List.copyOf(deletedPaths);
+	}
+
+	public CommitHash getBase() {
+		return base;
+	}
+
+	public CommitHash getTarget() {
+		return target;
+	}
+
+	public List<String> getChangedPaths() {
+		return changedPaths;
+	}
+
+	public List<String> getDeletedPaths() {
+		return deletedPaths;
+	}
+
+	/**
+	 * @return the amount of changed and deleted paths
+	 */
+	public int getSize() {
+		return changedPaths.size() + deletedPaths.size();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		CommitDelta that = (CommitDelta) o;
+		return base.equals(that.base) &&
+			target.equals(that.target) &&
+			changedPaths.equals(that.changedPaths) &&
+			deletedPaths.equals(that.deletedPaths);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(base, target, changedPaths, deletedPaths);
+	}
+
+	@Override
+	public String toString() {
+		return "CommitDelta{" +
+			"base=" + base +
+			", target=" + target +
+			", changedPaths=" + changedPaths.size() +
+			", deletedPaths=" + deletedPaths.size() +
+			'}';
+	}
+}
@@ -9,21 +9,29 @@ import static org.jooq.codegen.db.Tables.LATEST_RUN;
 import static org.jooq.codegen.db.Tables.MEASUREMENT;
 import static org.jooq.codegen.db.Tables.MEASUREMENT_VALUE;
 import static org.jooq.codegen.db.Tables.RUN;
+import static org.jooq.impl.DSL.condition;
 import static org.jooq.impl.DSL.count;
+import static org.jooq.impl.DSL.falseCondition;
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.length;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.noCondition;
 import static org.jooq.impl.DSL.not;
 import static org.jooq.impl.DSL.select;
 import static org.jooq.impl.DSL.sum;
+import static org.jooq.impl.DSL.table;
+import static org.jooq.impl.DSL.val;
 
 import de.aaaaaaah.velcom.backend.access.AccessUtils;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Measurement;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementSummary;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Run;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunError;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunErrorType;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunSummary;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.SearchRunDescription;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.ShortRunDescription;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
@@ -37,15 +45,26 @@ import de.aaaaaaah.velcom.backend.storage.db.DBReadAccess;
 import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
 import de.aaaaaaah.velcom.shared.util.Either;
 import de.aaaaaaah.velcom.shared.util.Pair;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import javax.annotation.Nullable;
+import org.jooq.Condition;
 import org.jooq.Field;
+import org.jooq.OrderField;
 import org.jooq.Record1;
+import org.jooq.Record3;
+import org.jooq.Record6;
+import org.jooq.SelectJoinStep;
+import org.jooq.Table;
 import org.jooq.codegen.db.tables.records.RunRecord;
 
 /**
@@ -53,6 +72,14 @@ import org.jooq.codegen.db.tables.records.RunRecord;
  */
 public class BenchmarkReadAccess {
 
+	private static final int UUID_HEX_LENGTH = 32;
+
+	// The full text index over the runs' authors, runner names, runner infos and tar descriptions
+	// (see the V19 migration)
+	private static final Table<?> RUN_FTS = table(name("run_fts"));
+	private static final Field<Long> RUN_FTS_ROWID = field(name("run_fts", "rowid"), Long.class);
+	private static final Field<Double> RUN_FTS_RANK = field(name("run_fts", "rank"), Double.class);
+	private static final Field<Long> RUN_ROWID = field(name("run", "rowid"), Long.class);
 
 	protected final DatabaseStorage databaseStorage;
 
@@ -70,14 +97,23 @@ public class BenchmarkReadAccess {
 			.map(RunRecord::getId)
 			.collect(toSet());
 
-		// 1. Load measurement values (key: measurement id)
-		Map<String, List<Double>> values = db.dsl()
-			.select(MEASUREMENT.ID, MEASUREMENT_VALUE.VALUE)
+		// 1. Load values of measurements that haven't been packed yet (key: measurement id). See
+		// BenchmarkWriteAccess#packLegacyValues. The values are collected into primitive arrays right
+		// away instead of being grouped into lists of boxed doubles first.
+		Map<String, ValueCollector> legacyValues = new HashMap<>();
+		db.dsl()
+			.select(MEASUREMENT_VALUE.MEASUREMENT_ID, MEASUREMENT_VALUE.VALUE)
 			.from(MEASUREMENT)
 			.join(MEASUREMENT_VALUE)
 			.on(MEASUREMENT_VALUE.MEASUREMENT_ID.eq(MEASUREMENT.ID))
 			.where(MEASUREMENT.RUN_ID.in(runIds))
-			.fetchGroups(MEASUREMENT.ID, MEASUREMENT_VALUE.VALUE);
+			.and(MEASUREMENT.ERROR.isNull())
+			.and(MEASUREMENT.VALUE_DATA.isNull())
+			.stream()
+			.forEach(record -> legacyValues
+				.computeIfAbsent(record.value1(), id -> new ValueCollector())
+				.add(record.value2())
+			);
 
 		// 2. Load measurements
 		Map<RunId, List<Measurement>> measurements = db.dsl()
@@ -89,7 +125,10 @@ public class BenchmarkReadAccess {
 				if (record.getError() != null) {
 					content = Either.ofLeft(new MeasurementError(record.getError()));
 				} else {
-					content = Either.ofRight(new MeasurementValues(values.get(record.getId())));
+					double[] values = record.getValueData() != null
+						? AccessUtils.unpackValues(record.getValueData())
+						: legacyValues.get(record.getId()).toArray();
+					content = Either.ofRight(new MeasurementValues(values));
 				}
 
 				return new Measurement(
@@ -173,6 +212,128 @@ public class BenchmarkReadAccess {
 		});
 	}
 
+	/**
+	 * Get summaries of multiple runs by their ids. Only the precomputed statistics of each
+	 * measurement are loaded, not its values.
+	 *
+	 * @param runIds the ids of the runs to retrieve
+	 * @return a list containing summaries of only those of the runs that exist, in no particular
+	 * 	order
+	 */
+	public List<RunSummary> getRunSummaries(Collection<RunId> runIds) {
+		Set<String> runIdStrings = runIds.stream()
+			.map(RunId::getIdAsString)
+			.collect(toSet());
+
+		return databaseStorage.acquireReadTransaction(db -> {
+			Map<String, Map<Dimension, MeasurementSummary>> measurements =
+				loadMeasurementSummaries(db, runIdStrings, noCondition());
+
+			return db.dsl()
+				.select(RUN.ID, field(RUN.ERROR.isNotNull()))
+				.from(RUN)
+				.where(RUN.ID.in(runIdStrings))
+				.stream()
+				.map(record -> new RunSummary(
+					RunId.fromString(record.value1()),
+					record.value2(),
+					record.value2() ? Map.of() : measurements.getOrDefault(record.value1(), Map.of())
+				))
+				.collect(toList());
+		});
+	}
+
+	/**
+	 * Get the series of some dimensions for some commits of a repo, that is the summaries of each
+	 * commit's latest run. The summaries only contain measurements of the requested dimensions, so
+	 * only the requested dimensions are loaded from the db.
+	 *
+	 * @param repoId the repo the commits are in
+	 * @param commitHashes the commits whose latest runs to summarize
+	 * @param dimensions the dimensions to include in the summaries
+	 * @return a map containing a summary of each commit's latest run. If a commit has no associated
+	 * 	run, it is omitted from this map.
+	 */
+	public Map<CommitHash, RunSummary> getSeries(RepoId repoId, Collection<CommitHash> commitHashes,
+		Collection<Dimension> dimensions) {
+
+		Set<String> hashStrings = commitHashes.stream()
+			.map(CommitHash::getHash)
+			.collect(toSet());
+
+		Condition dimensionCondition = dimensions.stream()
+			.map(dimension -> MEASUREMENT.BENCHMARK.eq(dimension.getBenchmark())
+				.and(MEASUREMENT.METRIC.eq(dimension.getMetric())))
+			.reduce(Condition::or)
+			.orElse(falseCondition());
+
+		return databaseStorage.acquireReadTransaction(db -> {
+			List<Record3<String, String, Boolean>> runRecords = db.dsl()
+				.select(LATEST_RUN.RUN_ID, LATEST_RUN.COMMIT_HASH, field(RUN.ERROR.isNotNull()))
+				.from(LATEST_RUN)
+				.join(RUN).on(RUN.ID.eq(LATEST_RUN.RUN_ID))
+				.where(LATEST_RUN.REPO_ID.eq(repoId.getIdAsString()))
+				.and(LATEST_RUN.COMMIT_HASH.in(hashStrings))
+				.fetch();
+
+			Set<String> runIds = runRecords.stream()
+				.map(Record3::value1)
+				.collect(toSet());
+			Map<String, Map<Dimension, MeasurementSummary>> measurements =
+				loadMeasurementSummaries(db, runIds, dimensionCondition);
+
+			return runRecords.stream()
+				.collect(toMap(
+					record -> new CommitHash(record.value2()),
+					record -> new RunSummary(
+						RunId.fromString(record.value1()),
+						record.value3(),
+						record.value3() ? Map.of() : measurements.getOrDefault(record.value1(), Map.of())
+					)
+				));
+		});
+	}
+
+	/**
+	 * @return the summaries of all measurements of the given runs matching the condition, grouped by
+	 * 	run id and dimension
+	 */
+	private Map<String, Map<Dimension, MeasurementSummary>> loadMeasurementSummaries(
+		DBReadAccess db, Set<String> runIds, Condition condition) {
+
+		return db.dsl()
+			.select(
+				MEASUREMENT.RUN_ID,
+				MEASUREMENT.BENCHMARK,
+				MEASUREMENT.METRIC,
+				field(MEASUREMENT.ERROR.isNotNull()),
+				MEASUREMENT.VALUE_MEAN,
+				MEASUREMENT.VALUE_STDDEV
+			)
+			.from(MEASUREMENT)
+			.where(MEASUREMENT.RUN_ID.in(runIds))
+			.and(condition)
+			.stream()
+			.map(record -> new Pair<>(record.value1(), toMeasurementSummary(record)))
+			.collect(groupingBy(
+				Pair::getFirst,
+				toMap(pair -> pair.getSecond().getDimension(), Pair::getSecond)
+			));
+	}
+
+	private static MeasurementSummary toMeasurementSummary(
+		Record6<String, String, String, Boolean, Double, Double> record) {
+
+		// A measurement without error always has a mean, but better safe than sorry
+		boolean failed = record.value4() || record.value5() == null;
+		return new MeasurementSummary(
+			new Dimension(record.value2(), record.value3()),
+			failed,
+			failed ? null : record.value5(),
+			failed ? null : record.value6()
+		);
+	}
+
 	/**
 	 * Get all runs of a specific commit ordered by their start time.
 	 *
@@ -246,7 +407,7 @@ public class BenchmarkReadAccess {
 				.where(LATEST_RUN.REPO_ID.eq(repoId.getIdAsString()))
 				.and(LATEST_RUN.COMMIT_HASH.eq(commitHash.getHash()))
 				.fetchOptional()
-				.map(record -> RunId.fromString(record.getId()));
+				.map(record -> RunId.fromString(record.getRunId()));
 		}
 	}
 
@@ -273,56 +434,124 @@ public class BenchmarkReadAccess {
 				.stream()
 				.collect(toMap(
 					record -> new CommitHash(record.getCommitHash()),
-					record -> RunId.fromString(record.getId())
+					record -> RunId.fromString(record.getRunId())
 				));
 		}
 	}
 
+	/**
+	 * Search for runs whose id starts with the query or whose author, runner name, runner info or tar
+	 * description contain the query. Runs with a matching id come first, followed by the other runs
+	 * ordered by relevance.
+	 *
+	 * @param limit how many runs to return at most
+	 * @param repoId the repo to search in, or null to search in all repos
+	 * @param queryStr the query
+	 * @return the runs found
+	 */
 	public List<SearchRunDescription> searchRuns(Integer limit,
 		@Nullable RepoId repoId, String queryStr) {
 
+		// Surrounding whitespace is ignored, no matter how the query is matched
+		String query = queryStr.strip();
+		Condition repoCondition = repoId == null
+			? noCondition()
+			: RUN.REPO_ID.eq(repoId.getIdAsString());
+		// Run ids are stored as blobs, so their prefix is searched as a range of ids
+		Condition idCondition = AccessUtils.hexPrefixRange(query.replace("-", ""), UUID_HEX_LENGTH)
+			.map(range -> RUN.ID.between(hexToUuid(range.getFirst()), hexToUuid(range.getSecond())))
+			.orElse(falseCondition());
+
 		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
-			var query = db.dsl()
-				.select(
-					RUN.ID,
-					RUN.REPO_ID,
-					KNOWN_COMMIT.MESSAGE,
-					RUN.TAR_DESC,
-					RUN.START_TIME,
-					RUN.STOP_TIME
-				)
-				.from(RUN)
-				.leftOuterJoin(KNOWN_COMMIT)
-				.on(KNOWN_COMMIT.REPO_ID.eq(RUN.REPO_ID))
-				.and(KNOWN_COMMIT.HASH.eq(RUN.COMMIT_HASH))
-				.where(RUN.ID.contains(queryStr)
-					.or(RUN.AUTHOR.contains(queryStr))
-					.or(RUN.RUNNER_NAME.contains(queryStr))
-					.or(RUN.RUNNER_INFO.contains(queryStr))
-					.or(RUN.TAR_DESC.contains(queryStr)));
-
-			if (repoId != null) {
-				query = query.and(RUN.REPO_ID.eq(repoId.getIdAsString()));
+			List<SearchRunDescription> runs = new ArrayList<>(
+				selectSearchedRuns(db)
+					.where(idCondition)
+					.and(repoCondition)
+					.orderBy(RUN.START_TIME.desc())
+					.limit(limit)
+					.stream()
+					.map(BenchmarkReadAccess::searchedRunRecordToDescription)
+					.collect(toList())
+			);
+
+			if (runs.size() >= limit) {
+				return runs;
 			}
 
-			return query.orderBy(RUN.START_TIME.desc())
-				.limit(limit)
+			SelectJoinStep<Record6<String, String, String, String, Instant, Instant>> textQuery =
+				selectSearchedRuns(db);
+			Condition textCondition;
+			List<OrderField<?>> order = new ArrayList<>();
+
+			Optional<String> ftsQuery = AccessUtils.toFtsQuery(query);
+			if (ftsQuery.isPresent()) {
+				textQuery = textQuery.join(RUN_FTS).on(RUN_FTS_ROWID.eq(RUN_ROWID));
+				textCondition = condition("{0} MATCH {1}", RUN_FTS, val(ftsQuery.get()));
+				order.add(RUN_FTS_RANK.asc());
+			} else {
+				// The trigram tokenizer can't match queries this short, so the runs have to be scanned
+				textCondition = RUN.AUTHOR.contains(query)
+					.or(RUN.RUNNER_NAME.contains(query))
+					.or(RUN.RUNNER_INFO.contains(query))
+					.or(RUN.TAR_DESC.contains(query));
+			}
+			order.add(RUN.START_TIME.desc());
+
+			textQuery
+				.where(textCondition)
+				.andNot(idCondition)
+				.and(repoCondition)
+				.orderBy(order)
+				.limit(limit - runs.size())
 				.stream()
-				.map(record -> new SearchRunDescription(
-					RunId.fromString(record.value1()),
-					Optional.ofNullable(record.value2()).map(RepoId::fromString).orElse(null),
-					Optional.ofNullable(record.value3())
-						.map(Commit::splitMessageIntoSections)
-						.map(Pair::getFirst)
-						.orElse(null),
-					record.value4(),
-					record.value5(),
-					record.value6()
-				))
-				.collect(toList());
+				.map(BenchmarkReadAccess::searchedRunRecordToDescription)
+				.forEach(runs::add);
+
+			return runs;
 		}
 	}
 
+	private static String hexToUuid(String hex) {
+		return new UUID(
+			Long.parseUnsignedLong(hex.substring(0, 16), 16),
+			Long.parseUnsignedLong(hex.substring(16), 16)
+		).toString();
+	}
+
+	private static SelectJoinStep<Record6<String, String, String, String, Instant, Instant>>
+		selectSearchedRuns(DBReadAccess db) {
+
+		return db.dsl()
+			.select(
+				RUN.ID,
+				RUN.REPO_ID,
+				KNOWN_COMMIT.MESSAGE,
+				RUN.TAR_DESC,
+				RUN.START_TIME,
+				RUN.STOP_TIME
+			)
+			.from(RUN)
+			.leftOuterJoin(KNOWN_COMMIT)
+			.on(KNOWN_COMMIT.REPO_ID.eq(RUN.REPO_ID))
+			.and(KNOWN_COMMIT.HASH.eq(RUN.COMMIT_HASH));
+	}
+
+	private static SearchRunDescription searchedRunRecordToDescription(
+		Record6<String, String, String, String, Instant, Instant> record) {
+
+		return new SearchRunDescription(
+			RunId.fromString(record.value1()),
+			Optional.ofNullable(record.value2()).map(RepoId::fromString).orElse(null),
+			Optional.ofNullable(record.value3())
+				.map(Commit::splitMessageIntoSections)
+				.map(Pair::getFirst)
+				.orElse(null),
+			record.value4(),
+			record.value5(),
+			record.value6()
+		);
+	}
+
 	public ShortRunDescription getShortRunDescription(RunId runId) throws NoSuchRunException {
 		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
 			return db.dsl()
@@ -432,4 +661,24 @@ public class BenchmarkReadAccess {
 				.value1();
 		}
 	}
+
+	/**
+	 * Collects the values of a single measurement into a growing primitive array.
+	 */
+	private static class ValueCollector {
+
+		private double[] values = new double[8];
+		private int size = 0;
+
+		void add(double value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[size++] = value;
+		}
+
+		double[] toArray() {
+			return size == values.length ? values : Arrays.copyOf(values, size);
+		}
+	}
 }
@@ -3,17 +3,25 @@ package de.aaaaaaah.velcom.backend.access.benchmarkaccess;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static org.jooq.codegen.db.Tables.DIMENSION;
+import static org.jooq.codegen.db.Tables.LATEST_RUN;
+import static org.jooq.codegen.db.Tables.MEASUREMENT;
+import static org.jooq.codegen.db.Tables.MEASUREMENT_VALUE;
+import static org.jooq.codegen.db.Tables.RUN;
 import static org.jooq.codegen.db.tables.Task.TASK;
+import static org.jooq.impl.DSL.noCondition;
 
+import de.aaaaaaah.velcom.backend.access.AccessUtils;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewMeasurement;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunError;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunErrorType;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSource;
 import de.aaaaaaah.velcom.backend.access.caches.AvailableDimensionsCache;
 import de.aaaaaaah.velcom.backend.access.caches.LatestRunCache;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.DimensionReadAccess;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
@@ -24,48 +32,78 @@ import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskId;
 import de.aaaaaaah.velcom.backend.storage.db.DBWriteAccess;
 import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import javax.annotation.Nullable;
+import org.jooq.UpdateConditionStep;
 import org.jooq.codegen.db.tables.records.DimensionRecord;
 import org.jooq.codegen.db.tables.records.MeasurementRecord;
-import org.jooq.codegen.db.tables.records.MeasurementValueRecord;
 import org.jooq.codegen.db.tables.records.RunRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Access for adding new runs.
  */
 public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkWriteAccess.class);
+
+	private static final int PACK_BATCH_SIZE = 1000;
+
 	private final AvailableDimensionsCache availableDimensionsCache;
 	private final LatestRunCache latestRunCache;
+	private final SeriesCache seriesCache;
 
 	public BenchmarkWriteAccess(DatabaseStorage databaseStorage,
-		AvailableDimensionsCache availableDimensionsCache, LatestRunCache latestRunCache) {
+		AvailableDimensionsCache availableDimensionsCache, LatestRunCache latestRunCache,
+		SeriesCache seriesCache) {
 
 		super(databaseStorage);
 
 		this.availableDimensionsCache = availableDimensionsCache;
 		this.latestRunCache = latestRunCache;
+		this.seriesCache = seriesCache;
 	}
 
 	/**
-	 * Inserts the specified run into the database. Also deletes the task with the same id from the	 *
+	 * Inserts the specified run into the database. Also deletes the task with the same id from the
 	 * task table in the same transaction.
 	 *
 	 * @param newRun the run to insert
 	 */
 	public void insertRun(NewRun newRun) {
+		insertRuns(List.of(newRun));
+	}
+
+	/**
+	 * Inserts multiple runs into the database in a single transaction. Also deletes the tasks with
+	 * the same ids from the task table in the same transaction. If any run can't be inserted, none of
+	 * them are.
+	 *
+	 * @param newRuns the runs to insert
+	 */
+	public void insertRuns(Collection<NewRun> newRuns) {
 		databaseStorage.acquireWriteTransaction(db -> {
-			deleteTask(db, newRun.getId().toTaskId());
-			updateDimensions(db, newRun);
-			insertNewRun(db, newRun);
-			insertNewMeasurements(db, newRun);
+			for (NewRun newRun : newRuns) {
+				deleteTask(db, newRun.getId().toTaskId());
+				updateDimensions(db, newRun);
+				insertNewRun(db, newRun);
+				insertNewMeasurements(db, newRun);
+				newRun.getSource().getLeft().ifPresent(source -> updateLatestRun(db, source));
+			}
 		});
 
-		newRun.getRepoId().ifPresent(availableDimensionsCache::invalidate);
-		newRun.getSource().getLeft().ifPresent(
-			commitSource -> latestRunCache.invalidate(commitSource.getRepoId(), commitSource.getHash()));
+		for (NewRun newRun : newRuns) {
+			newRun.getRepoId().ifPresent(availableDimensionsCache::invalidate);
+			newRun.getSource().getLeft().ifPresent(commitSource -> {
+				latestRunCache.invalidate(commitSource.getRepoId(), commitSource.getHash());
+				seriesCache.invalidate(commitSource.getRepoId(), commitSource.getHash());
+			});
+		}
 	}
 
 	private void deleteTask(DBWriteAccess db, TaskId taskId) {
@@ -145,6 +183,32 @@ public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 		db.dsl().batchInsert(runRecord).execute();
 	}
 
+	/**
+	 * Recompute the latest run of a commit. The new run isn't necessarily the latest one, since
+	 * runs are ordered by their start time, not the time they were inserted.
+	 */
+	private void updateLatestRun(DBWriteAccess db, CommitSource source) {
+		String repoId = source.getRepoId().getIdAsString();
+		String commitHash = source.getHash().getHash();
+
+		db.dsl()
+			.deleteFrom(LATEST_RUN)
+			.where(LATEST_RUN.REPO_ID.eq(repoId))
+			.and(LATEST_RUN.COMMIT_HASH.eq(commitHash))
+			.execute();
+
+		db.dsl()
+			.insertInto(LATEST_RUN, LATEST_RUN.REPO_ID, LATEST_RUN.COMMIT_HASH, LATEST_RUN.RUN_ID)
+			.select(db.dsl()
+				.select(RUN.REPO_ID, RUN.COMMIT_HASH, RUN.ID)
+				.from(RUN)
+				.where(RUN.REPO_ID.eq(repoId))
+				.and(RUN.COMMIT_HASH.eq(commitHash))
+				.orderBy(RUN.START_TIME.desc())
+				.limit(1))
+			.execute();
+	}
+
 	private void insertNewMeasurements(DBWriteAccess db, NewRun run) {
 		run.getResult()
 			.getRight()
@@ -155,6 +219,8 @@ public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 	private void insertNewMeasurement(DBWriteAccess db, NewMeasurement measurement) {
 		String measurementId = UUID.randomUUID().toString();
 
+		Optional<MeasurementValues> values = measurement.getContent().getRight();
+
 		MeasurementRecord measurementRecord = new MeasurementRecord(
 			measurementId,
 			measurement.getRunId().getIdAsString(),
@@ -169,16 +235,100 @@ public class BenchmarkWriteAccess extends BenchmarkReadAccess {
 			measurement.getContent()
 				.getLeft()
 				.map(MeasurementError::getErrorMessage)
-				.orElse(null)
+				.orElse(null),
+			values.map(MeasurementValues::getCount).orElse(null),
+			values.map(MeasurementValues::getAverageValue).orElse(null),
+			values.flatMap(MeasurementValues::getStddev).orElse(null),
+			values.map(MeasurementValues::toArray).map(AccessUtils::packValues).orElse(null)
 		);
 
 		db.dsl().batchInsert(measurementRecord).execute();
+	}
+
+	/**
+	 * Moves the values of all measurements still stored one row per value in the measurement_value
+	 * table to the packed format, a few measurements at a time. Measurements are only read in the
+	 * packed format, so until this has finished, the legacy values are read too.
+	 */
+	public void packLegacyValues() {
+		// Ids are stored as blobs and converted from and to UUID strings, so there is no string that
+		// sorts before all ids. The first batch simply starts at the beginning instead.
+		String lastId = null;
+		int packedMeasurements = 0;
+		while (true) {
+			String afterId = lastId;
+			List<String> packedIds = databaseStorage.acquireWriteTransaction(db -> {
+				return packLegacyValueBatch(db, afterId);
+			});
+			if (packedIds.isEmpty()) {
+				break;
+			}
+
+			lastId = packedIds.get(packedIds.size() - 1);
+			packedMeasurements += packedIds.size();
+			LOGGER.debug("Packed values of {} measurements so far", packedMeasurements);
+		}
+
+		if (packedMeasurements > 0) {
+			LOGGER.info("Packed values of {} measurements", packedMeasurements);
+		}
+	}
 
-		List<MeasurementValueRecord> records = measurement.getContent().getRight().stream()
-			.flatMap(values -> values.getValues().stream()
-				.map(value -> new MeasurementValueRecord(measurementId, value))
-			).collect(toList());
+	/**
+	 * @param afterId the id of the last measurement of the previous batch, or null if this is the
+	 * 	first batch
+	 * @return the ids of the measurements in this batch in ascending order, or an empty list if
+	 * 	there were no measurements left to pack
+	 */
+	private List<String> packLegacyValueBatch(DBWriteAccess db, @Nullable String afterId) {
+		// Paging by id so each batch only looks at the measurements it needs
+		List<String> ids = db.dsl()
+			.select(MEASUREMENT.ID)
+			.from(MEASUREMENT)
+			.where(afterId == null ? noCondition() : MEASUREMENT.ID.gt(afterId))
+			.and(MEASUREMENT.ERROR.isNull())
+			.and(MEASUREMENT.VALUE_DATA.isNull())
+			.orderBy(MEASUREMENT.ID)
+			.limit(PACK_BATCH_SIZE)
+			.fetch(MEASUREMENT.ID);
+
+		if (ids.isEmpty()) {
+			return ids;
+		}
+
+		Map<String, List<Double>> values = db.dsl()
+			.select(MEASUREMENT_VALUE.MEASUREMENT_ID, MEASUREMENT_VALUE.VALUE)
+			.from(MEASUREMENT_VALUE)
+			.where(MEASUREMENT_VALUE.MEASUREMENT_ID.in(ids))
+			.fetchGroups(MEASUREMENT_VALUE.MEASUREMENT_ID, MEASUREMENT_VALUE.VALUE);
+
+		List<UpdateConditionStep<MeasurementRecord>> updates = ids.stream()
+			.filter(id -> {
+				// Shouldn't exist, but the next batch starts after this id anyway
+				boolean hasValues = values.containsKey(id);
+				if (!hasValues) {
+					LOGGER.warn("Measurement {} has neither an error nor values", id);
+				}
+				return hasValues;
+			})
+			.map(id -> {
+				MeasurementValues packed = new MeasurementValues(values.get(id));
+				return db.dsl()
+					.update(MEASUREMENT)
+					.set(MEASUREMENT.VALUE_COUNT, packed.getCount())
+					.set(MEASUREMENT.VALUE_MEAN, packed.getAverageValue())
+					.set(MEASUREMENT.VALUE_STDDEV, packed.getStddev().orElse(null))
+					.set(MEASUREMENT.VALUE_DATA, AccessUtils.packValues(packed.toArray()))
+					.where(MEASUREMENT.ID.eq(id));
+			})
+			.collect(toList());
+
+		db.dsl().batch(updates).execute();
+		db.dsl()
+			.deleteFrom(MEASUREMENT_VALUE)
+			.where(MEASUREMENT_VALUE.MEASUREMENT_ID.in(ids))
+			.execute();
 
-		db.dsl().batchInsert(records).execute();
+		return ids;
 	}
 }
@@ -0,0 +1,90 @@
+package de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities;
+
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * The precomputed statistics of a {@link Measurement}, without its values or error message. This is
+ * all the graphs need and is much cheaper to load than the full measurement.
+ */
+public class MeasurementSummary {
+
+	private final Dimension dimension;
+	private final boolean failed;
+	@Nullable
+	private final Double mean;
+	@Nullable
+	private final Double stddev;
+
+	/**
+	 * @param dimension the measurement's dimension
+	 * @param failed whether the measurement failed
+	 * @param mean the mean of the values. Must be present exactly if the measurement didn't fail.
+	 * @param stddev the standard deviation of the values, if there are at least two values
+	 */
+	public MeasurementSummary(Dimension dimension, boolean failed, @Nullable Double mean,
+		@Nullable Double stddev) {
+
+		if (failed != (mean == null)) {
+			throw new IllegalArgumentException("mean must be present exactly if not failed");
+		}
+
+		this.dimension = dimension;
+		this.failed = failed;
+		this.mean = mean;
+		this.stddev = stddev;
+	}
+
+	public Dimension getDimension() {
+		return dimension;
+	}
+
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return the mean of the values, or empty if the measurement failed
+	 */
+	public Optional<Double> getMean() {
+		return Optional.ofNullable(mean);
+	}
+
+	/**
+	 * @return the standard deviation of the values, if the measurement didn't fail and had at least
+	 * 	two values
+	 */
+	public Optional<Double> getStddev() {
+		return Optional.ofNullable(stddev);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		MeasurementSummary that = (MeasurementSummary) o;
+		return failed == that.failed && Objects.equals(dimension, that.dimension)
+			&& Objects.equals(mean, that.mean) && Objects.equals(stddev, that.stddev);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(dimension, failed, mean, stddev);
+	}
+
+	@Override
+	public String toString() {
+		return "MeasurementSummary{" +
+			"dimension=" + dimension +
+			", failed=" + failed +
+			", mean=" + mean +
+			", stddev=" + stddev +
+			'}';
+	}
+}
@@ -3,10 +3,12 @@ package de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Interpretation;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Unit;
 import de.aaaaaaah.velcom.backend.data.significance.SignificanceFactors;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
 
 /**
  * This class represents a successful {@link Measurement}'s state, which contains the measurement
@@ -29,21 +31,79 @@ public class MeasurementValues {
 		return sum / values.size();
 	}
 
-	private final List<Double> values;
+	private final double[] values;
+	private final double mean;
+	private final double variance;
+	private final double min;
+	private final double max;
 
 	public MeasurementValues(List<Double> values) {
-		this.values = Collections.unmodifiableList(Objects.requireNonNull(values));
-		if (this.values.isEmpty()) {
+		this(values.stream().mapToDouble(Double::doubleValue).toArray());
+	}
+
+	/**
+	 * Creates a new instance from a primitive array. The array is not copied, so it must not be
+	 * modified afterwards.
+	 *
+	 * @param values the values
+	 */
+	public MeasurementValues(double[] values) {
+		this.values = Objects.requireNonNull(values);
+		if (this.values.length == 0) {
 			throw new IllegalArgumentException("list of values must not be empty");
 		}
+
+		// Welford's algorithm, so all statistics are computed in a single pass
+		double runningMean = 0;
+		double squaredDiffSum = 0;
+		double runningMin = Double.POSITIVE_INFINITY;
+		double runningMax = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < values.length; i++) {
+			double value = values[i];
+			double delta = value - runningMean;
+			runningMean += delta / (i + 1);
+			squaredDiffSum += delta * (value - runningMean);
+			runningMin = Math.min(runningMin, value);
+			runningMax = Math.max(runningMax, value);
+		}
+
+		this.mean = runningMean;
+		this.variance = values.length < 2 ? Double.NaN : squaredDiffSum / (values.length - 1);
+		this.min = runningMin;
+		this.max = runningMax;
 	}
 
+	/**
+	 * @return an unmodifiable view of the values. The values are boxed on access.
+	 */
 	public List<Double> getValues() {
-		return values;
+		return new ValueList();
+	}
+
+	/**
+	 * @return a copy of the values
+	 */
+	public double[] toArray() {
+		return values.clone();
+	}
+
+	/**
+	 * @return the amount of values, which is always at least one
+	 */
+	public int getCount() {
+		return values.length;
 	}
 
 	public double getAverageValue() {
-		return calculateAverage(values);
+		return mean;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
 	}
 
 	/**
@@ -52,7 +112,7 @@ public class MeasurementValues {
 	 *  SignificanceFactors#getMinStddevAmount()} values
 	 */
 	public Optional<Double> getStddevWith(SignificanceFactors significanceFactors) {
-		if (values.size() >= significanceFactors.getMinStddevAmount()) {
+		if (values.length >= significanceFactors.getMinStddevAmount()) {
 			return getStddev();
 		} else {
 			return Optional.empty();
@@ -64,18 +124,12 @@ public class MeasurementValues {
 	 * 	calling this function, always use {@link SignificanceFactors#getMinStddevAmount()} to see
 	 * 	whether a standard deviation even makes sense in this situation.
 	 */
-	private Optional<Double> getStddev() {
-		int n = values.size();
-		if (n < 2) {
+	public Optional<Double> getStddev() {
+		if (values.length < 2) {
 			return Optional.empty();
 		}
 
-		double avg = getAverageValue();
-		double sum = values.stream()
-			.map(value -> (value - avg) * (value - avg))
-			.reduce(0.0, Double::sum);
-		double result = Math.sqrt(sum / (n - 1));
-		return Optional.of(result);
+		return Optional.of(Math.sqrt(variance));
 	}
 
 	/**
@@ -97,19 +151,32 @@ public class MeasurementValues {
 			return false;
 		}
 		MeasurementValues that = (MeasurementValues) o;
-		return values.equals(that.values);
+		return Arrays.equals(values, that.values);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(values);
+		return Arrays.hashCode(values);
 	}
 
 	@Override
 	public String toString() {
 		return "MeasurementValues{" +
-			"values=" + values +
+			"values=" + Arrays.toString(values) +
 			'}';
 	}
 
+	private class ValueList extends AbstractList<Double> implements RandomAccess {
+
+		@Override
+		public Double get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+	}
+
 }
@@ -0,0 +1,87 @@
+package de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities;
+
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The parts of a {@link Run} the graphs need: Whether it failed and a {@link MeasurementSummary}
+ * for each of its measurements.
+ */
+public class RunSummary {
+
+	private final RunId id;
+	private final boolean failed;
+	private final Map<Dimension, MeasurementSummary> measurements;
+
+	/**
+	 * @param id the run's id
+	 * @param failed whether the whole run failed
+	 * @param measurements the run's measurements. Must be empty if the run failed.
+	 */
+	public RunSummary(RunId id, boolean failed, Map<Dimension, MeasurementSummary> measurements) {
+		if (failed && !measurements.isEmpty()) {
+			throw new IllegalArgumentException("failed runs must not have measurements");
+		}
+
+		this.id = id;
+		this.failed = failed;
+		this.measurements = Map.copyOf(measurements);
+	}
+
+	public RunId getId() {
+		return id;
+	}
+
+	public boolean isFailed() {
+		return failed;
+	}
+
+	public Map<Dimension, MeasurementSummary> getMeasurements() {
+		return measurements;
+	}
+
+	public Optional<MeasurementSummary> getMeasurement(Dimension dimension) {
+		return Optional.ofNullable(measurements.get(dimension));
+	}
+
+	/**
+	 * @param dimension the dimension to keep
+	 * @return a summary of the same run that only contains the measurement of the given dimension
+	 */
+	public RunSummary onlyDimension(Dimension dimension) {
+		return new RunSummary(
+			id,
+			failed,
+			getMeasurement(dimension).map(it -> Map.of(dimension, it)).orElse(Map.of())
+		);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		RunSummary that = (RunSummary) o;
+		return failed == that.failed && Objects.equals(id, that.id)
+			&& Objects.equals(measurements, that.measurements);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, failed, measurements);
+	}
+
+	@Override
+	public String toString() {
+		return "RunSummary{" +
+			"id=" + id +
+			", failed=" + failed +
+			", measurements=" + measurements +
+			'}';
+	}
+}
@@ -0,0 +1,143 @@
+package de.aaaaaaah.velcom.backend.access.caches;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.BenchmarkReadAccess;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunSummary;
+import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
+import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the series of a dimension in a repo, that is the summaries of the latest runs of the
+ * repo's commits, only containing that dimension. Needs to be invalidated when runs are added or
+ * deleted, or when repos or dimensions are deleted.
+ */
+public class SeriesCache {
+
+	private static final int MAXIMUM_SERIES_PER_REPO = 1000;
+	private static final int MAXIMUM_SIZE_PER_SERIES = 10000;
+
+	private final ConcurrentHashMap<RepoId, Cache<Dimension, Cache<CommitHash, Optional<RunSummary>>>>
+		cache;
+
+	public SeriesCache() {
+		cache = new ConcurrentHashMap<>();
+	}
+
+	private Cache<Dimension, Cache<CommitHash, Optional<RunSummary>>> getCacheForRepo(
+		RepoId repoId) {
+
+		return cache.computeIfAbsent(
+			repoId,
+			missingRepoId -> Caffeine.newBuilder()
+				.maximumSize(MAXIMUM_SERIES_PER_REPO)
+				.build()
+		);
+	}
+
+	private Cache<CommitHash, Optional<RunSummary>> getCacheForSeries(RepoId repoId,
+		Dimension dimension) {
+
+		return getCacheForRepo(repoId).get(
+			dimension,
+			missingDimension -> Caffeine.newBuilder()
+				.maximumSize(MAXIMUM_SIZE_PER_SERIES)
+				.build()
+		);
+	}
+
+	/**
+	 * Get the series of some dimensions for some commits. All values missing from the cache are
+	 * loaded with a single query.
+	 *
+	 * @param benchmarkAccess the access to load missing values with
+	 * @param repoId the repo the commits are in
+	 * @param commitHashes the commits to get the values for
+	 * @param dimensions the dimensions whose series to get
+	 * @return a map containing a series for each dimension. A series maps each commit to a summary
+	 * 	of its latest run containing only the series' dimension. If a commit has no associated run,
+	 * 	it is omitted from the series.
+	 */
+	public Map<Dimension, Map<CommitHash, RunSummary>> getSeries(
+		BenchmarkReadAccess benchmarkAccess, RepoId repoId, Collection<CommitHash> commitHashes,
+		Collection<Dimension> dimensions) {
+
+		Map<Dimension, Map<CommitHash, RunSummary>> result = new HashMap<>();
+		Set<CommitHash> missingHashes = new HashSet<>();
+		Set<Dimension> missingDimensions = new HashSet<>();
+
+		for (Dimension dimension : dimensions) {
+			Map<CommitHash, Optional<RunSummary>> present = getCacheForSeries(repoId, dimension)
+				.getAllPresent(commitHashes);
+
+			Map<CommitHash, RunSummary> series = new HashMap<>();
+			present.forEach((hash, summary) -> summary.ifPresent(it -> series.put(hash, it)));
+			result.put(dimension, series);
+
+			for (CommitHash hash : commitHashes) {
+				if (!present.containsKey(hash)) {
+					missingHashes.add(hash);
+					missingDimensions.add(dimension);
+				}
+			}
+		}
+
+		if (missingHashes.isEmpty()) {
+			return result;
+		}
+
+		// This may load a few values that were already cached, but one query is a lot faster than
+		// one query per dimension.
+		Map<CommitHash, RunSummary> loaded = benchmarkAccess
+			.getSeries(repoId, missingHashes, missingDimensions);
+
+		for (Dimension dimension : missingDimensions) {
+			Cache<CommitHash, Optional<RunSummary>> seriesCache = getCacheForSeries(repoId, dimension);
+			Map<CommitHash, RunSummary> series = result.get(dimension);
+
+			for (CommitHash hash : missingHashes) {
+				Optional<RunSummary> summary = Optional.ofNullable(loaded.get(hash))
+					.map(it -> it.onlyDimension(dimension));
+				seriesCache.put(hash, summary);
+				summary.ifPresent(it -> series.put(hash, it));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Invalidate the values of a specific commit in all series of its repo.
+	 *
+	 * @param repoId the commit's repo
+	 * @param commitHash the commit hash
+	 */
+	public void invalidate(RepoId repoId, CommitHash commitHash) {
+		getCacheForRepo(repoId).asMap().values()
+			.forEach(seriesCache -> seriesCache.invalidate(commitHash));
+	}
+
+	/**
+	 * Invalidate all of a repo's series.
+	 *
+	 * @param repoId the repo's id
+	 */
+	public void invalidate(RepoId repoId) {
+		cache.remove(repoId);
+	}
+
+	/**
+	 * Invalidate all entries.
+	 */
+	public void invalidateAll() {
+		cache.clear();
+	}
+}
@@ -7,11 +7,18 @@ import static java.util.stream.Collectors.toSet;
 import static org.jooq.codegen.db.tables.CommitRelationship.COMMIT_RELATIONSHIP;
 import static org.jooq.codegen.db.tables.KnownCommit.KNOWN_COMMIT;
 import static org.jooq.codegen.db.tables.Run.RUN;
+import static org.jooq.impl.DSL.condition;
 import static org.jooq.impl.DSL.exists;
+import static org.jooq.impl.DSL.falseCondition;
 import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.noCondition;
 import static org.jooq.impl.DSL.one;
 import static org.jooq.impl.DSL.select;
+import static org.jooq.impl.DSL.table;
+import static org.jooq.impl.DSL.val;
 
+import de.aaaaaaah.velcom.backend.access.AccessUtils;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.FullCommit;
@@ -32,8 +39,15 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.OrderField;
+import org.jooq.Param;
 import org.jooq.Record1;
+import org.jooq.Record10;
 import org.jooq.SelectConditionStep;
+import org.jooq.SelectJoinStep;
+import org.jooq.Table;
 import org.jooq.codegen.db.tables.records.CommitRelationshipRecord;
 import org.jooq.codegen.db.tables.records.KnownCommitRecord;
 import org.jooq.exception.DataAccessException;
@@ -45,6 +59,19 @@ import org.jooq.exception.TooManyRowsException;
  */
 public class CommitReadAccess {
 
+	private static final int HASH_LENGTH = 40;
+	// How many generations below a commit #getFirstParentsOfBranch() initially searches
+	private static final int INITIAL_GENERATION_WINDOW = 64;
+
+	// The full text index over the commits' messages, authors and committers (see the V19 migration)
+	private static final Table<?> COMMIT_FTS = table(name("commit_fts"));
+	private static final Field<Long> COMMIT_FTS_ROWID = field(name("commit_fts", "rowid"),
+		Long.class);
+	private static final Field<Double> COMMIT_FTS_RANK = field(name("commit_fts", "rank"),
+		Double.class);
+	private static final Field<Long> KNOWN_COMMIT_ROWID = field(name("known_commit", "rowid"),
+		Long.class);
+
 	protected final DatabaseStorage databaseStorage;
 
 	public CommitReadAccess(DatabaseStorage databaseStorage) {
@@ -302,6 +329,16 @@ public class CommitReadAccess {
 		}
 	}
 
+	/**
+	 * Repo ids are stored as blobs, so plain SQL queries must bind them using the column's converter.
+	 *
+	 * @param repoId the repo id to bind
+	 * @return a bind value that can be used in plain SQL queries
+	 */
+	private static Param<String> repoIdParam(RepoId repoId) {
+		return val(repoId.getIdAsString(), KNOWN_COMMIT.REPO_ID);
+	}
+
 	/**
 	 * @param repoId the id of the root commit's repo
 	 * @param rootHash the hash of the root commit
@@ -337,9 +374,11 @@ public class CommitReadAccess {
 			+ "WHERE known_commit.tracked\n"
 			+ "";
 
+		Param<String> repoIdParam = repoIdParam(repoId);
+
 		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
 			return db.dsl()
-				.fetchLazy(query, rootHash.getHash(), repoId.getIdAsString(), repoId.getIdAsString())
+				.fetchLazy(query, rootHash.getHash(), repoIdParam, repoIdParam)
 				.stream()
 				.map(record -> (String) record.getValue(0))
 				.map(CommitHash::new)
@@ -347,9 +386,27 @@ public class CommitReadAccess {
 		}
 	}
 
+	/**
+	 * Find the commits where the history of a commit joins the history of a branch. These are all
+	 * commits reachable from the branch that are parents of commits not reachable from the branch,
+	 * which in turn are the commit itself or its ancestors.
+	 *
+	 * <p> Both the commit and its ancestors in question are usually close to the branch's tip, so the
+	 * branch's history is only searched up to a certain number of generations below the commit. If
+	 * the commit's history reaches further back, the search is repeated with a larger window.
+	 *
+	 * @param repoId the id of the commit's and branch's repo
+	 * @param branch the branch
+	 * @param rootHash the hash of the commit
+	 * @return the commits where the commit's history joins the branch's history, in no particular
+	 * 	order. Empty if the commit is reachable from the branch.
+	 */
 	public List<CommitHash> getFirstParentsOfBranch(RepoId repoId, BranchName branch,
 		CommitHash rootHash) {
 
+		// All commits below the minimum generation (binding #4 and #8) are ignored. Commits without a
+		// generation are never ignored. The resulting rows contain all reachable parents as well as all
+		// parents that were ignored because of their generation.
 		String query = "WITH RECURSIVE\n"
 			// Commits reachable from the branch
 			+ "reachable(hash) AS (\n"
@@ -364,12 +421,17 @@ public class CommitReadAccess {
 			+ "  FROM commit_relationship\n"
 			+ "  JOIN reachable\n"
 			+ "    ON reachable.hash = commit_relationship.child_hash\n"
+			+ "  JOIN known_commit\n"
+			+ "    ON known_commit.repo_id = commit_relationship.repo_id\n"
+			+ "    AND known_commit.hash = commit_relationship.parent_hash\n"
 			+ "  WHERE commit_relationship.repo_id = ?\n" // <-- Binding #3 - repo id
+			+ "  AND (known_commit.generation IS NULL\n"
+			+ "    OR known_commit.generation >= ?)\n" // <-- Binding #4 - min generation
 			+ "),\n"
 			+ "\n"
 			// The starting commit
 			+ "initial(hash) AS (\n"
-			+ "  VALUES (?)\n" // <-- Binding #4 - hash of starting commit
+			+ "  VALUES (?)\n" // <-- Binding #5 - hash of starting commit
 			+ "),\n"
 			+ "\n"
 			// Parents of the starting commit that are not reachable from the branch
@@ -378,7 +440,7 @@ public class CommitReadAccess {
 			+ "  FROM initial\n"
 			+ "  JOIN known_commit\n"
 			+ "    ON initial.hash = known_commit.hash\n"
-			+ "  WHERE known_commit.repo_id = ?\n" // <-- Binding #5 - repo id
+			+ "  WHERE known_commit.repo_id = ?\n" // <-- Binding #6 - repo id
 			+ "  AND initial.hash NOT IN reachable\n"
 			+ "  \n"
 			+ "  UNION\n"
@@ -387,31 +449,69 @@ public class CommitReadAccess {
 			+ "  FROM commit_relationship\n"
 			+ "  JOIN parents\n"
 			+ "    ON parents.hash = commit_relationship.child_hash\n"
-			+ "  WHERE commit_relationship.repo_id = ?\n" // <-- Binding #6 - repo id
+			+ "  JOIN known_commit\n"
+			+ "    ON known_commit.repo_id = commit_relationship.repo_id\n"
+			+ "    AND known_commit.hash = commit_relationship.parent_hash\n"
+			+ "  WHERE commit_relationship.repo_id = ?\n" // <-- Binding #7 - repo id
+			+ "  AND (known_commit.generation IS NULL\n"
+			+ "    OR known_commit.generation >= ?)\n" // <-- Binding #8 - min generation
 			+ "  AND commit_relationship.parent_hash NOT IN reachable\n"
 			+ ")\n"
 			+ "\n"
-			+ "SELECT commit_relationship.parent_hash\n"
+			+ "SELECT\n"
+			+ "  commit_relationship.parent_hash,\n"
+			+ "  commit_relationship.parent_hash IN reachable\n"
 			+ "FROM commit_relationship\n"
-			+ "  JOIN parents\n"
-			+ "    ON parents.hash = commit_relationship.child_hash\n"
-			+ "  JOIN reachable\n"
-			+ "    ON reachable.hash = commit_relationship.parent_hash\n"
+			+ "JOIN parents\n"
+			+ "  ON parents.hash = commit_relationship.child_hash\n"
+			+ "WHERE commit_relationship.repo_id = ?\n" // <-- Binding #9 - repo id
+			+ "AND commit_relationship.parent_hash NOT IN parents\n"
 			+ "";
 
+		Param<String> repoIdParam = repoIdParam(repoId);
+
 		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
-			return db.dsl()
-				.fetchStream(
-					query,
-					repoId.getIdAsString(),
-					branch.getName(),
-					repoId.getIdAsString(),
-					rootHash.getHash(),
-					repoId.getIdAsString(),
-					repoId.getIdAsString()
-				).map(record -> record.get(0, String.class))
-				.map(CommitHash::new)
-				.collect(toList());
+			// Null if the commit doesn't exist or doesn't have a generation yet
+			Integer rootGeneration = db.dsl()
+				.select(KNOWN_COMMIT.GENERATION)
+				.from(KNOWN_COMMIT)
+				.where(KNOWN_COMMIT.REPO_ID.eq(repoId.getIdAsString()))
+				.and(KNOWN_COMMIT.HASH.eq(rootHash.getHash()))
+				.fetchOne(KNOWN_COMMIT.GENERATION);
+
+			int window = INITIAL_GENERATION_WINDOW;
+			while (true) {
+				int minGeneration = rootGeneration == null ? 0 : Math.max(0, rootGeneration - window);
+
+				List<Pair<CommitHash, Boolean>> parents = db.dsl()
+					.fetchStream(
+						query,
+						repoIdParam,
+						branch.getName(),
+						repoIdParam,
+						minGeneration,
+						rootHash.getHash(),
+						repoIdParam,
+						repoIdParam,
+						minGeneration,
+						repoIdParam
+					).map(record -> new Pair<>(
+						new CommitHash(record.get(0, String.class)),
+						record.get(1, Boolean.class)
+					))
+					.collect(toList());
+
+				boolean windowTooSmall = parents.stream().anyMatch(parent -> !parent.getSecond());
+				if (windowTooSmall && minGeneration > 0) {
+					window *= 2;
+					continue;
+				}
+
+				return parents.stream()
+					.filter(Pair::getSecond)
+					.map(Pair::getFirst)
+					.collect(toList());
+			}
 		}
 	}
 
@@ -465,9 +565,9 @@ public class CommitReadAccess {
 			+ "FROM rec\n"
 			+ "";
 		List<Object> bindings = new ArrayList<>();
-		bindings.add(repoId.getIdAsString());
+		bindings.add(repoIdParam(repoId));
 		bindings.addAll(branchNamesStr);
-		bindings.add(repoId.getIdAsString());
+		bindings.add(repoIdParam(repoId));
 
 		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
 			Set<String> reachableHashes = db.dsl()
@@ -501,56 +601,115 @@ public class CommitReadAccess {
 		}
 	}
 
-	// TODO: 06.06.21 Add tests for this function
+	/**
+	 * Search for commits whose hash starts with the query or whose message, author or committer
+	 * contain the query. Commits with a matching hash come first, followed by the other commits
+	 * ordered by relevance.
+	 *
+	 * @param limit how many commits to return at most
+	 * @param repoId the repo to search in, or null to search in all repos
+	 * @param queryStr the query
+	 * @return the commits found and whether they have any runs
+	 */
 	public List<Pair<Commit, Boolean>> searchCommits(int limit, @Nullable RepoId repoId,
 		String queryStr) {
 
+		// Surrounding whitespace is ignored, no matter how the query is matched
+		String query = queryStr.strip();
+		Condition repoCondition = repoId == null
+			? noCondition()
+			: KNOWN_COMMIT.REPO_ID.eq(repoId.getIdAsString());
+		Condition hashCondition = AccessUtils.hexPrefixRange(query, HASH_LENGTH)
+			.map(range -> KNOWN_COMMIT.HASH.between(range.getFirst(), range.getSecond()))
+			.orElse(falseCondition());
+
 		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
-			var query = db.dsl()
-				.select(
-					KNOWN_COMMIT.REPO_ID,
-					KNOWN_COMMIT.HASH,
-					KNOWN_COMMIT.REACHABLE,
-					KNOWN_COMMIT.TRACKED,
-					KNOWN_COMMIT.AUTHOR,
-					KNOWN_COMMIT.AUTHOR_DATE,
-					KNOWN_COMMIT.COMMITTER,
-					KNOWN_COMMIT.COMMITTER_DATE,
-					KNOWN_COMMIT.MESSAGE,
-					field(exists(select(one())
-						.from(RUN)
-						.where(RUN.REPO_ID.eq(KNOWN_COMMIT.REPO_ID))
-						.and(RUN.COMMIT_HASH.eq(KNOWN_COMMIT.HASH))
-					))
-				)
-				.from(KNOWN_COMMIT)
-				.where(KNOWN_COMMIT.HASH.contains(queryStr)
-					.or(KNOWN_COMMIT.MESSAGE.contains(queryStr))
-					.or(KNOWN_COMMIT.AUTHOR.contains(queryStr))
-					.or(KNOWN_COMMIT.COMMITTER.contains(queryStr)));
+			List<Pair<Commit, Boolean>> commits = new ArrayList<>(
+				selectSearchedCommits(db)
+					.where(hashCondition)
+					.and(repoCondition)
+					.orderBy(KNOWN_COMMIT.COMMITTER_DATE.desc())
+					.limit(limit)
+					.stream()
+					.map(CommitReadAccess::searchedCommitRecordToPair)
+					.collect(toList())
+			);
 
-			if (repoId != null) {
-				query = query.and(KNOWN_COMMIT.REPO_ID.eq(repoId.getIdAsString()));
+			if (commits.size() >= limit) {
+				return commits;
 			}
 
-			return query.orderBy(KNOWN_COMMIT.COMMITTER_DATE.desc())
-				.limit(limit)
+			SelectJoinStep<Record10<String, String, Boolean, Boolean, String, Instant, String, Instant,
+				String, Boolean>> textQuery = selectSearchedCommits(db);
+			Condition textCondition;
+			List<OrderField<?>> order = new ArrayList<>();
+
+			Optional<String> ftsQuery = AccessUtils.toFtsQuery(query);
+			if (ftsQuery.isPresent()) {
+				textQuery = textQuery.join(COMMIT_FTS).on(COMMIT_FTS_ROWID.eq(KNOWN_COMMIT_ROWID));
+				textCondition = condition("{0} MATCH {1}", COMMIT_FTS, val(ftsQuery.get()));
+				order.add(COMMIT_FTS_RANK.asc());
+			} else {
+				// The trigram tokenizer can't match queries this short, so the commits have to be scanned
+				textCondition = KNOWN_COMMIT.MESSAGE.contains(query)
+					.or(KNOWN_COMMIT.AUTHOR.contains(query))
+					.or(KNOWN_COMMIT.COMMITTER.contains(query));
+			}
+			order.add(KNOWN_COMMIT.COMMITTER_DATE.desc());
+
+			textQuery
+				.where(textCondition)
+				.andNot(hashCondition)
+				.and(repoCondition)
+				.orderBy(order)
+				.limit(limit - commits.size())
 				.stream()
-				.map(record -> new Pair<>(
-					new Commit(
-						RepoId.fromString(record.value1()),
-						new CommitHash(record.value2()),
-						record.value3(),
-						record.value4(),
-						record.value5(),
-						record.value6(),
-						record.value7(),
-						record.value8(),
-						record.value9()
-					),
-					record.value10()
-				))
-				.collect(toList());
+				.map(CommitReadAccess::searchedCommitRecordToPair)
+				.forEach(commits::add);
+
+			return commits;
 		}
 	}
+
+	private static SelectJoinStep<Record10<String, String, Boolean, Boolean, String, Instant, String,
+		Instant, String, Boolean>> selectSearchedCommits(DBReadAccess db) {
+
+		return db.dsl()
+			.select(
+				KNOWN_COMMIT.REPO_ID,
+				KNOWN_COMMIT.HASH,
+				KNOWN_COMMIT.REACHABLE,
+				KNOWN_COMMIT.TRACKED,
+				KNOWN_COMMIT.AUTHOR,
+				KNOWN_COMMIT.AUTHOR_DATE,
+				KNOWN_COMMIT.COMMITTER,
+				KNOWN_COMMIT.COMMITTER_DATE,
+				KNOWN_COMMIT.MESSAGE,
+				field(exists(select(one())
+					.from(RUN)
+					.where(RUN.REPO_ID.eq(KNOWN_COMMIT.REPO_ID))
+					.and(RUN.COMMIT_HASH.eq(KNOWN_COMMIT.HASH))
+				))
+			)
+			.from(KNOWN_COMMIT);
+	}
+
+	private static Pair<Commit, Boolean> searchedCommitRecordToPair(Record10<String, String, Boolean,
+		Boolean, String, Instant, String, Instant, String, Boolean> record) {
+
+		return new Pair<>(
+			new Commit(
+				RepoId.fromString(record.value1()),
+				new CommitHash(record.value2()),
+				record.value3(),
+				record.value4(),
+				record.value5(),
+				record.value6(),
+				record.value7(),
+				record.value8(),
+				record.value9()
+			),
+			record.value10()
+		);
+	}
 }
@@ -4,6 +4,7 @@ import static org.jooq.codegen.db.tables.Dimension.DIMENSION;
 
 import de.aaaaaaah.velcom.backend.access.caches.AvailableDimensionsCache;
 import de.aaaaaaah.velcom.backend.access.caches.RunCache;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.exceptions.NoSuchDimensionException;
 import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
@@ -13,14 +14,17 @@ public class DimensionWriteAccess extends DimensionReadAccess {
 
 	private final AvailableDimensionsCache availableDimensionsCache;
 	private final RunCache runCache;
+	private final SeriesCache seriesCache;
 
 	public DimensionWriteAccess(DatabaseStorage databaseStorage,
-		AvailableDimensionsCache availableDimensionsCache, RunCache runCache) {
+		AvailableDimensionsCache availableDimensionsCache, RunCache runCache,
+		SeriesCache seriesCache) {
 
 		super(databaseStorage);
 
 		this.availableDimensionsCache = availableDimensionsCache;
 		this.runCache = runCache;
+		this.seriesCache = seriesCache;
 	}
 
 	/**
@@ -49,5 +53,6 @@ public class DimensionWriteAccess extends DimensionReadAccess {
 
 		availableDimensionsCache.invalidateAll();
 		runCache.invalidateAll();
+		seriesCache.invalidateAll();
 	}
 }
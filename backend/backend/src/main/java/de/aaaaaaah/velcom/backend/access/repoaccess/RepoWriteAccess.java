@@ -8,6 +8,7 @@ import static org.jooq.impl.DSL.field;
 import de.aaaaaaah.velcom.backend.access.caches.AvailableDimensionsCache;
 import de.aaaaaaah.velcom.backend.access.caches.LatestRunCache;
 import de.aaaaaaah.velcom.backend.access.caches.RunCache;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.BranchName;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RemoteUrl;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.Repo;
@@ -32,16 +33,18 @@ public class RepoWriteAccess extends RepoReadAccess {
 	private final AvailableDimensionsCache availableDimensionsCache;
 	private final RunCache runCache;
 	private final LatestRunCache latestRunCache;
+	private final SeriesCache seriesCache;
 
 	public RepoWriteAccess(DatabaseStorage databaseStorage,
 		AvailableDimensionsCache availableDimensionsCache, RunCache runCache,
-		LatestRunCache latestRunCache) {
+		LatestRunCache latestRunCache, SeriesCache seriesCache) {
 
 		super(databaseStorage);
 
 		this.availableDimensionsCache = availableDimensionsCache;
 		this.runCache = runCache;
 		this.latestRunCache = latestRunCache;
+		this.seriesCache = seriesCache;
 	}
 
 	/**
@@ -84,6 +87,7 @@ public class RepoWriteAccess extends RepoReadAccess {
 		runCache.invalidateAll();
 
 		latestRunCache.invalidate(repoId);
+		seriesCache.invalidate(repoId);
 	}
 
 	/**
@@ -10,7 +10,6 @@ import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskId;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskPriority;
-import de.aaaaaaah.velcom.backend.access.taskaccess.exceptions.NoSuchTaskException;
 import de.aaaaaaah.velcom.backend.access.taskaccess.exceptions.TaskCreationException;
 import de.aaaaaaah.velcom.backend.storage.db.DBReadAccess;
 import de.aaaaaaah.velcom.backend.storage.db.DBWriteAccess;
@@ -24,7 +23,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.jooq.codegen.db.tables.records.TaskRecord;
@@ -95,29 +93,34 @@ public class TaskWriteAccess extends TaskReadAccess {
 	 * @param priority the new task's priority
 	 * @param repoId the commit's repo id
 	 * @param hashes the commit hashes
+	 * @return the newly created tasks
 	 */
-	public void insertCommits(String author, TaskPriority priority, RepoId repoId,
+	public List<Task> insertCommits(String author, TaskPriority priority, RepoId repoId,
 		Collection<CommitHash> hashes) {
 
 		Set<String> hashesAsStrings = hashes.stream()
 			.map(CommitHash::getHash)
 			.collect(Collectors.toSet());
 
-		databaseStorage.acquireWriteTransaction(db -> {
+		return databaseStorage.acquireWriteTransaction(db -> {
 			Set<String> hashesAlreadyInQueue = db.dsl()
 				.selectFrom(TASK)
 				.where(TASK.REPO_ID.eq(repoId.getIdAsString()))
 				.and(TASK.COMMIT_HASH.in(hashesAsStrings))
 				.fetchSet(TASK.COMMIT_HASH);
 
-			List<TaskRecord> tasksToInsert = hashes.stream()
+			List<Task> tasksToInsert = hashes.stream()
 				.filter(hash -> !hashesAlreadyInQueue.contains(hash.getHash()))
 				.map(hash -> new CommitSource(repoId, hash))
 				.map(source -> new Task(author, priority, Either.ofLeft(source)))
+				.collect(Collectors.toList());
+
+			List<TaskRecord> records = tasksToInsert.stream()
 				.map(TaskWriteAccess::taskToTaskRecord)
 				.collect(Collectors.toList());
+			db.dsl().batchInsert(records).execute();
 
-			db.dsl().batchInsert(tasksToInsert).execute();
+			return tasksToInsert;
 		});
 	}
 
@@ -158,45 +161,26 @@ public class TaskWriteAccess extends TaskReadAccess {
 	}
 
 	/**
-	 * Atomically select a task to start and start it via a custom selector function.
+	 * Atomically start a task if it exists and is not already in progress.
 	 *
-	 * @param selector The selector is passed a list of all tasks with status "not in progress". The
-	 * 	list is in no particular order. If the selector returns a task, that task will be started and
-	 * 	an updated version of it returned. The task returned by the selector <em>must be one of the
-	 * 	input tasks</em>!
-	 * @return the task chosen by the selector, if it returned one
+	 * @param taskId the id of the task to start
+	 * @return an updated version of the task if it was started, empty if no task with that id exists
+	 * 	or the task was already in progress
 	 */
-	public Optional<Task> startTask(Function<List<Task>, Optional<TaskId>> selector) {
+	public Optional<Task> startTask(TaskId taskId) {
 		return databaseStorage.acquireWriteTransaction(db -> {
-			List<Task> allTasks = db.dsl()
-				.selectFrom(TASK)
-				.where(not(TASK.IN_PROCESS))
-				.stream()
-				.map(TaskReadAccess::taskRecordToTask)
-				.collect(Collectors.toList());
-
-			Set<TaskId> allTaskIds = allTasks.stream()
-				.map(Task::getId)
-				.collect(Collectors.toSet());
-
-			Optional<TaskId> taskToStart = selector.apply(allTasks);
-
-			if (taskToStart.isEmpty()) {
-				return Optional.empty();
-			} else if (!allTaskIds.contains(taskToStart.get())) {
-				// The selector is broken and has returned an invalid task
-				throw new NoSuchTaskException(taskToStart.get());
-			}
-
-			// The selector has returned a valid task
-
-			String taskIdAsString = taskToStart.get().getIdAsString();
-			db.dsl()
+			String taskIdAsString = taskId.getIdAsString();
+			int updated = db.dsl()
 				.update(TASK)
 				.set(TASK.IN_PROCESS, true)
 				.where(TASK.ID.eq(taskIdAsString))
+				.and(not(TASK.IN_PROCESS))
 				.execute();
 
+			if (updated == 0) {
+				return Optional.empty();
+			}
+
 			TaskRecord record = db.dsl()
 				.selectFrom(TASK)
 				.where(TASK.ID.eq(taskIdAsString))
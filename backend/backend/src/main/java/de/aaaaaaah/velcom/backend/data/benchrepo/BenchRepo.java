@@ -4,6 +4,7 @@ import de.aaaaaaah.velcom.backend.access.archiveaccess.ArchiveReadAccess;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarRetrieveException;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarTransferException;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import java.io.OutputStream;
 import java.util.Objects;
 import java.util.Optional;
@@ -45,13 +46,17 @@ public class BenchRepo {
 	 *
 	 * <p> Note that the provided output stream will be closed after the transfer operation is done.
 	 *
+	 * @param codec the codec to encode the tar file with
 	 * @param outputStream the output stream
 	 * @throws TarRetrieveException if the tar file could not be retrieved
 	 * @throws TarTransferException if the tar file could not be transferred
 	 */
-	public void transfer(OutputStream outputStream)
+	public void transfer(TransferCodec codec, OutputStream outputStream)
 		throws TarRetrieveException, TarTransferException {
 
-		archiveAccess.transferBenchRepo(Objects.requireNonNull(outputStream));
+		archiveAccess.transferBenchRepo(
+			Objects.requireNonNull(codec),
+			Objects.requireNonNull(outputStream)
+		);
 	}
 }
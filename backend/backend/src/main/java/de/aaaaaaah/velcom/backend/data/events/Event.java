@@ -0,0 +1,129 @@
+package de.aaaaaaah.velcom.backend.data.events;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+/**
+ * Something that happened in the backend that clients might want to react to. Events only say
+ * what changed, the clients are expected to fetch the details via the usual endpoints.
+ */
+public class Event {
+
+	private final long id;
+	private final EventType type;
+	@Nullable
+	private final Long queueVersion;
+	@Nullable
+	private final String runnerName;
+	@Nullable
+	private final RunId runId;
+
+	private Event(long id, EventType type, @Nullable Long queueVersion,
+		@Nullable String runnerName, @Nullable RunId runId) {
+
+		this.id = id;
+		this.type = Objects.requireNonNull(type);
+		this.queueVersion = queueVersion;
+		this.runnerName = runnerName;
+		this.runId = runId;
+	}
+
+	static Event queueChanged(long id, long queueVersion) {
+		return new Event(id, EventType.QUEUE, queueVersion, null, null);
+	}
+
+	static Event runnerChanged(long id, String runnerName) {
+		return new Event(id, EventType.RUNNER, null, Objects.requireNonNull(runnerName), null);
+	}
+
+	static Event runCompleted(long id, RunId runId) {
+		return new Event(id, EventType.RUN, null, null, Objects.requireNonNull(runId));
+	}
+
+	/**
+	 * @return the event's id. Later events have larger ids.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	public EventType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the queue's version after the change, if this is a {@link EventType#QUEUE} event
+	 */
+	public Optional<Long> getQueueVersion() {
+		return Optional.ofNullable(queueVersion);
+	}
+
+	/**
+	 * @return the name of the runner that changed, if this is a {@link EventType#RUNNER} event
+	 */
+	public Optional<String> getRunnerName() {
+		return Optional.ofNullable(runnerName);
+	}
+
+	/**
+	 * @return the id of the run that was completed, if this is a {@link EventType#RUN} event
+	 */
+	public Optional<RunId> getRunId() {
+		return Optional.ofNullable(runId);
+	}
+
+	/**
+	 * Whether a client that hasn't received this event yet can skip it in favour of the other event.
+	 * This is the case if both events are about the same thing and the other event is more recent.
+	 *
+	 * @param other the more recent event
+	 * @return true if this event is superseded by the other event
+	 */
+	public boolean isSupersededBy(Event other) {
+		if (type != other.type || id > other.id) {
+			return false;
+		}
+
+		switch (type) {
+			case QUEUE:
+				return true;
+			case RUNNER:
+				return Objects.equals(runnerName, other.runnerName);
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		Event event = (Event) o;
+		return id == event.id && type == event.type
+			&& Objects.equals(queueVersion, event.queueVersion)
+			&& Objects.equals(runnerName, event.runnerName)
+			&& Objects.equals(runId, event.runId);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, type, queueVersion, runnerName, runId);
+	}
+
+	@Override
+	public String toString() {
+		return "Event{" +
+			"id=" + id +
+			", type=" + type +
+			", queueVersion=" + queueVersion +
+			", runnerName='" + runnerName + '\'' +
+			", runId=" + runId +
+			'}';
+	}
+}
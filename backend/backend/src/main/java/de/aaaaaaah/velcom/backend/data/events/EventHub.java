@@ -0,0 +1,147 @@
+package de.aaaaaaah.velcom.backend.data.events;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Distributes {@link Event}s to everyone who is interested in them. The last few events are
+ * remembered, so subscribers that lost their connection can resume where they left off.
+ *
+ * <p> Subscribers are notified while the hub's lock is held, so they must not block. This also
+ * means that publishing an event is cheap as long as the subscribers only buffer the event.
+ */
+public class EventHub {
+
+	private static final int HISTORY_SIZE = 256;
+
+	private final Deque<Event> history;
+	private final Set<EventSubscriber> subscribers;
+
+	private long nextId;
+	@Nullable
+	private Long lastQueueVersion;
+
+	public EventHub() {
+		history = new ArrayDeque<>();
+		subscribers = new LinkedHashSet<>();
+
+		// Ids handed out before a restart must not be mistaken for current ones
+		nextId = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+		lastQueueVersion = null;
+	}
+
+	/**
+	 * Publish a {@link EventType#QUEUE} event. Does nothing if an event for this version was already
+	 * published.
+	 *
+	 * @param queueVersion the queue's new version
+	 */
+	public synchronized void queueChanged(long queueVersion) {
+		if (lastQueueVersion != null && lastQueueVersion == queueVersion) {
+			return;
+		}
+		lastQueueVersion = queueVersion;
+		publish(Event.queueChanged(nextId++, queueVersion));
+	}
+
+	/**
+	 * Publish a {@link EventType#RUNNER} event.
+	 *
+	 * @param runnerName the name of the runner that changed
+	 */
+	public synchronized void runnerChanged(String runnerName) {
+		publish(Event.runnerChanged(nextId++, runnerName));
+	}
+
+	/**
+	 * Publish a {@link EventType#RUN} event.
+	 *
+	 * @param runId the id of the run that was completed
+	 */
+	public synchronized void runCompleted(RunId runId) {
+		publish(Event.runCompleted(nextId++, runId));
+	}
+
+	private void publish(Event event) {
+		history.addLast(event);
+		while (history.size() > HISTORY_SIZE) {
+			history.removeFirst();
+		}
+
+		for (EventSubscriber subscriber : subscribers) {
+			subscriber.onEvent(event);
+		}
+	}
+
+	/**
+	 * Subscribe to all future events. If the subscriber has already seen some events, it can resume
+	 * where it left off by passing the id of the last event it has seen. In that case, the events it
+	 * missed are returned and no event is lost or duplicated between them and the future events.
+	 *
+	 * @param subscriber the subscriber to notify of future events
+	 * @param lastEventId the id of the last event the subscriber has seen
+	 * @return the events the subscriber missed since the given event. Empty if that event is no
+	 * 	longer remembered, in which case the subscriber has to assume that it missed anything.
+	 */
+	public synchronized Optional<List<Event>> subscribe(EventSubscriber subscriber,
+		@Nullable Long lastEventId) {
+
+		subscribers.add(subscriber);
+
+		if (lastEventId == null) {
+			return Optional.of(List.of());
+		}
+
+		long oldestKnownId = history.isEmpty() ? nextId : history.getFirst().getId();
+		if (lastEventId < oldestKnownId - 1 || lastEventId >= nextId) {
+			return Optional.empty();
+		}
+
+		List<Event> missed = new ArrayList<>();
+		for (Event event : history) {
+			if (event.getId() > lastEventId) {
+				missed.add(event);
+			}
+		}
+		return Optional.of(missed);
+	}
+
+	/**
+	 * Stop notifying a subscriber. Does nothing if it isn't subscribed.
+	 *
+	 * @param subscriber the subscriber
+	 */
+	public synchronized void unsubscribe(EventSubscriber subscriber) {
+		subscribers.remove(subscriber);
+	}
+
+	/**
+	 * @return the id of the most recent event. If no event has been published yet, this is smaller
+	 * 	than the id of any future event.
+	 */
+	public synchronized long getLastEventId() {
+		return nextId - 1;
+	}
+
+	/**
+	 * Someone who wants to be notified of new events.
+	 */
+	public interface EventSubscriber {
+
+		/**
+		 * Called for every new event. Must not block since it is called while the hub is locked.
+		 *
+		 * @param event the new event
+		 */
+		void onEvent(Event event);
+	}
+}
@@ -0,0 +1,33 @@
+package de.aaaaaaah.velcom.backend.data.events;
+
+/**
+ * The different kinds of {@link Event}s published by the {@link EventHub}.
+ */
+public enum EventType {
+	/**
+	 * The queue changed. The event contains the queue's new version.
+	 */
+	QUEUE("queue"),
+	/**
+	 * A runner connected, disconnected, changed its status or started or finished working on a
+	 * task. The event contains the runner's name.
+	 */
+	RUNNER("runner"),
+	/**
+	 * A task was completed and turned into a run. The event contains the run's id.
+	 */
+	RUN("run");
+
+	private final String name;
+
+	EventType(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the name used for this type of event in the API
+	 */
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,246 @@
+package de.aaaaaaah.velcom.backend.data.ingest;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.BenchmarkWriteAccess;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
+import de.aaaaaaah.velcom.backend.access.taskaccess.TaskWriteAccess;
+import de.aaaaaaah.velcom.backend.data.events.EventHub;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.jooq.exception.IntegrityConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves completed runs into the database without making the runners wait for the database's write
+ * lock. Runs are first appended to a {@link RunJournal}, which is fast and durable. A single writer
+ * thread then commits them to the database, combining all runs that arrived in the meantime into a
+ * single transaction.
+ *
+ * <p> Runs still in the journal when the backend stops are committed by {@link #replay()} on the
+ * next start.
+ *
+ * <p> A run is only ever removed from the journal without being committed if committing it violates
+ * an integrity constraint, for example because its repo or commit has been deleted in the meantime.
+ * Any other failure (e. g. the database being busy or the disk being full) might go away again, so
+ * the run is kept and committing it is retried later.
+ */
+public class RunIngester {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunIngester.class);
+
+	private static final int MAX_BATCH_SIZE = 64;
+	private static final Duration MIN_RETRY_DELAY = Duration.ofSeconds(1);
+	private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+	// See https://www.sqlite.org/rescode.html#constraint
+	private static final int SQLITE_CONSTRAINT = 19;
+
+	private final RunJournal journal;
+	private final BenchmarkWriteAccess benchAccess;
+	private final TaskWriteAccess taskAccess;
+	private final EventHub events;
+	private final BlockingQueue<NewRun> pending;
+
+	private final Timer commitTimer;
+	private final DistributionSummary batchSizeSummary;
+
+	public RunIngester(RunJournal journal, BenchmarkWriteAccess benchAccess,
+		TaskWriteAccess taskAccess, EventHub events) {
+
+		this.journal = journal;
+		this.benchAccess = benchAccess;
+		this.taskAccess = taskAccess;
+		this.events = events;
+		this.pending = new LinkedBlockingQueue<>();
+
+		commitTimer = Timer.builder("velcom.ingest.commit.duration")
+			.description("Time it takes to commit a batch of runs to the database")
+			.register(Metrics.globalRegistry);
+		batchSizeSummary = DistributionSummary.builder("velcom.ingest.commit.runs")
+			.description("Runs committed to the database in a single transaction")
+			.register(Metrics.globalRegistry);
+		Gauge.builder("velcom.ingest.journal.depth", pending, BlockingQueue::size)
+			.description("Runs in the journal that have not yet been committed to the database")
+			.register(Metrics.globalRegistry);
+	}
+
+	/**
+	 * Commit all runs left in the journal from a previous execution. Must be called before the
+	 * tasks are loaded from the database, since committing a run removes its task. Runs that can't
+	 * be committed yet are retried by the writer thread. Their tasks might be benchmarked again in
+	 * the meantime.
+	 *
+	 * @throws IOException if the journal could not be read
+	 */
+	public void replay() throws IOException {
+		List<NewRun> runs = journal.readAll();
+		if (runs.isEmpty()) {
+			return;
+		}
+
+		LOGGER.info("Committing {} runs left in the journal", runs.size());
+		List<NewRun> failedRuns = new ArrayList<>();
+		for (int i = 0; i < runs.size(); i += MAX_BATCH_SIZE) {
+			failedRuns.addAll(commit(runs.subList(i, Math.min(i + MAX_BATCH_SIZE, runs.size()))));
+		}
+
+		if (!failedRuns.isEmpty()) {
+			LOGGER.warn("Could not commit {} runs from the journal, the writer thread will retry",
+				failedRuns.size());
+			pending.addAll(failedRuns);
+		}
+	}
+
+	/**
+	 * Start the writer thread.
+	 */
+	public void start() {
+		Thread thread = new Thread(this::writeForever, "RunIngester");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Submit a completed run. Returns as soon as the run is in the journal, which means it will be
+	 * committed eventually, even if the backend is restarted in the meantime. If the run can't be
+	 * written to the journal, it is committed right away instead.
+	 *
+	 * @param run the completed run
+	 */
+	public void submit(NewRun run) {
+		try {
+			journal.append(run);
+		} catch (IOException e) {
+			LOGGER.warn("Could not write run " + run.getId() + " to journal, committing it directly", e);
+			// If this fails too, the run can only be retried for as long as the backend keeps running
+			pending.addAll(commit(List.of(run)));
+			return;
+		}
+
+		pending.add(run);
+	}
+
+	private void writeForever() {
+		Duration retryDelay = MIN_RETRY_DELAY;
+		while (true) {
+			List<NewRun> batch = new ArrayList<>();
+			try {
+				batch.add(pending.take());
+			} catch (InterruptedException e) {
+				LOGGER.info("Run ingester was interrupted, remaining runs stay in the journal");
+				return;
+			}
+			pending.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+			List<NewRun> failedRuns;
+			try {
+				failedRuns = commit(batch);
+			} catch (RuntimeException e) {
+				LOGGER.error("Unexpected exception while committing runs", e);
+				continue;
+			}
+
+			if (failedRuns.isEmpty()) {
+				retryDelay = MIN_RETRY_DELAY;
+				continue;
+			}
+
+			// The runs are still in the journal, so they are not lost even if the backend stops now
+			LOGGER.warn("Could not commit {} runs, retrying in {}", failedRuns.size(), retryDelay);
+			try {
+				Thread.sleep(retryDelay.toMillis());
+			} catch (InterruptedException e) {
+				LOGGER.info("Run ingester was interrupted, remaining runs stay in the journal");
+				return;
+			}
+			pending.addAll(failedRuns);
+			retryDelay = retryDelay.multipliedBy(2);
+			if (retryDelay.compareTo(MAX_RETRY_DELAY) > 0) {
+				retryDelay = MAX_RETRY_DELAY;
+			}
+		}
+	}
+
+	/**
+	 * Commit runs to the database. Runs that violate an integrity constraint are dropped.
+	 *
+	 * @param runs the runs to commit
+	 * @return the runs that could not be committed, but might succeed when retried later
+	 */
+	private List<NewRun> commit(List<NewRun> runs) {
+		try {
+			commitTimer.record(() -> benchAccess.insertRuns(runs));
+			batchSizeSummary.record(runs.size());
+			runs.forEach(this::onCommitted);
+			return List.of();
+		} catch (RuntimeException e) {
+			if (runs.size() > 1) {
+				// Find out which runs are at fault instead of failing the whole batch
+				LOGGER.warn("Could not commit batch of " + runs.size() + " runs, retrying individually", e);
+				List<NewRun> failedRuns = new ArrayList<>();
+				runs.forEach(run -> failedRuns.addAll(commit(List.of(run))));
+				return failedRuns;
+			}
+
+			NewRun run = runs.get(0);
+			if (isIntegrityViolation(e)) {
+				// The run would fail again on every retry, so there is no point in keeping it
+				LOGGER.error("Could not commit run " + run.getId() + ", dropping it", e);
+				removeFromJournal(run);
+				deleteTask(run);
+				return List.of();
+			}
+
+			LOGGER.warn("Could not commit run " + run.getId() + ", keeping it for later", e);
+			return runs;
+		}
+	}
+
+	private static boolean isIntegrityViolation(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof IntegrityConstraintViolationException) {
+				return true;
+			}
+			// Extended result codes contain the primary result code in their lowest byte
+			if (cause instanceof SQLException
+				&& (((SQLException) cause).getErrorCode() & 0xff) == SQLITE_CONSTRAINT) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void onCommitted(NewRun run) {
+		removeFromJournal(run);
+		events.runCompleted(run.getId());
+	}
+
+	/**
+	 * Committing a run deletes its task. If the run is dropped instead, the task must be deleted
+	 * separately, otherwise it reappears in the queue after the next restart.
+	 */
+	private void deleteTask(NewRun run) {
+		try {
+			taskAccess.deleteTasks(List.of(run.getId().toTaskId()));
+		} catch (RuntimeException e) {
+			LOGGER.warn("Could not delete task of dropped run " + run.getId(), e);
+		}
+	}
+
+	private void removeFromJournal(NewRun run) {
+		try {
+			journal.remove(run.getId());
+		} catch (IOException e) {
+			// If it is replayed later, inserting it fails and it is removed then
+			LOGGER.warn("Could not remove run " + run.getId() + " from journal", e);
+		}
+	}
+}
@@ -0,0 +1,300 @@
+package de.aaaaaaah.velcom.backend.data.ingest;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewMeasurement;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunErrorType;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSource;
+import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Interpretation;
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Unit;
+import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
+import de.aaaaaaah.velcom.shared.util.Either;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores completed runs on disk until they have been committed to the database. Each run is stored
+ * in its own file, which is only visible once it has been completely written and synced to disk.
+ * The journal directory is synced afterwards too, so the file's name doesn't get lost either.
+ */
+public class RunJournal {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RunJournal.class);
+
+	private static final String EXTENSION = ".run";
+	private static final String TMP_EXTENSION = ".run.tmp";
+	private static final int FORMAT_VERSION = 1;
+
+	private final Path rootDir;
+
+	/**
+	 * Initialize a new journal. Removes runs that were only partially written.
+	 *
+	 * @param rootDir the directory the runs are stored in
+	 * @throws IOException if the directory could not be created or cleaned up
+	 */
+	public RunJournal(Path rootDir) throws IOException {
+		this.rootDir = rootDir;
+		Files.createDirectories(rootDir);
+
+		for (Path path : listFiles(TMP_EXTENSION)) {
+			LOGGER.info("Removing partially written run {}", path);
+			Files.delete(path);
+		}
+	}
+
+	private Path getPathOfRun(RunId runId) {
+		return rootDir.resolve(runId.getIdAsString() + EXTENSION);
+	}
+
+	private List<Path> listFiles(String extension) throws IOException {
+		try (Stream<Path> children = Files.list(rootDir)) {
+			return children
+				.filter(path -> path.getFileName().toString().endsWith(extension))
+				.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Durably store a run. Once this method returns, the run survives crashes and restarts until it
+	 * is removed again.
+	 *
+	 * @param run the run to store
+	 * @throws IOException if the run could not be written
+	 */
+	public void append(NewRun run) throws IOException {
+		Path path = getPathOfRun(run.getId());
+		Path tmpPath = rootDir.resolve(run.getIdAsString() + TMP_EXTENSION);
+
+		try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ByteBuffer buffer = ByteBuffer.wrap(encode(run));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+
+		Files.move(tmpPath, path, StandardCopyOption.ATOMIC_MOVE);
+
+		// The rename is only durable once the directory entry itself has been synced
+		try (FileChannel dir = FileChannel.open(rootDir, StandardOpenOption.READ)) {
+			dir.force(true);
+		}
+	}
+
+	/**
+	 * Remove a run from the journal. Does nothing if the run isn't in the journal.
+	 *
+	 * @param runId the id of the run to remove
+	 * @throws IOException if the run could not be removed
+	 */
+	public void remove(RunId runId) throws IOException {
+		Files.deleteIfExists(getPathOfRun(runId));
+	}
+
+	/**
+	 * Read all runs currently in the journal. Runs that can't be read are logged and removed.
+	 *
+	 * @return the runs, ordered by their stop time
+	 * @throws IOException if the journal directory could not be listed
+	 */
+	public List<NewRun> readAll() throws IOException {
+		List<NewRun> runs = new ArrayList<>();
+
+		for (Path path : listFiles(EXTENSION)) {
+			try {
+				runs.add(decode(Files.readAllBytes(path)));
+			} catch (IOException | RuntimeException e) {
+				LOGGER.error("Could not read run " + path + " from journal, removing it", e);
+				Files.deleteIfExists(path);
+			}
+		}
+
+		runs.sort(Comparator.comparing(NewRun::getStopTime));
+		return runs;
+	}
+
+	static byte[] encode(NewRun run) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(FORMAT_VERSION);
+		writeString(out, run.getIdAsString());
+		writeString(out, run.getAuthor());
+		writeString(out, run.getRunnerName());
+		writeString(out, run.getRunnerInfo());
+		writeInstant(out, run.getStartTime());
+		writeInstant(out, run.getStopTime());
+
+		Either<CommitSource, TarSource> source = run.getSource();
+		writeNullableString(out, run.getRepoId().map(RepoId::getIdAsString).orElse(null));
+		writeNullableString(out, source.getLeft().map(it -> it.getHash().getHash()).orElse(null));
+		writeNullableString(out, source.getRight().map(TarSource::getDescription).orElse(null));
+
+		Optional<RunError> error = run.getResult().getLeft();
+		out.writeBoolean(error.isPresent());
+		if (error.isPresent()) {
+			writeString(out, error.get().getType().getTextualRepresentation());
+			writeString(out, error.get().getMessage());
+		} else {
+			List<NewMeasurement> measurements = new ArrayList<>(run.getResult().getRight().get());
+			out.writeInt(measurements.size());
+			for (NewMeasurement measurement : measurements) {
+				writeMeasurement(out, measurement);
+			}
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeMeasurement(DataOutputStream out, NewMeasurement measurement)
+		throws IOException {
+
+		writeString(out, measurement.getDimension().getBenchmark());
+		writeString(out, measurement.getDimension().getMetric());
+		writeNullableString(out, measurement.getUnit().map(Unit::getName).orElse(null));
+		writeNullableString(
+			out,
+			measurement.getInterpretation().map(Interpretation::getTextualRepresentation).orElse(null)
+		);
+
+		Optional<MeasurementError> error = measurement.getContent().getLeft();
+		out.writeBoolean(error.isPresent());
+		if (error.isPresent()) {
+			writeString(out, error.get().getErrorMessage());
+		} else {
+			double[] values = measurement.getContent().getRight().get().toArray();
+			out.writeInt(values.length);
+			for (double value : values) {
+				out.writeDouble(value);
+			}
+		}
+	}
+
+	static NewRun decode(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+		int version = in.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("unknown journal format version " + version);
+		}
+
+		RunId id = RunId.fromString(readString(in));
+		String author = readString(in);
+		String runnerName = readString(in);
+		String runnerInfo = readString(in);
+		Instant startTime = readInstant(in);
+		Instant stopTime = readInstant(in);
+
+		RepoId repoId = Optional.ofNullable(readNullableString(in)).map(RepoId::fromString)
+			.orElse(null);
+		String commitHash = readNullableString(in);
+		String tarDesc = readNullableString(in);
+		Either<CommitSource, TarSource> source = commitHash != null
+			? Either.ofLeft(new CommitSource(repoId, new CommitHash(commitHash)))
+			: Either.ofRight(new TarSource(tarDesc, repoId));
+
+		if (in.readBoolean()) {
+			RunErrorType type = RunErrorType.fromTextualRepresentation(readString(in));
+			RunError error = new RunError(readString(in), type);
+			return new NewRun(id, author, runnerName, runnerInfo, startTime, stopTime, source, error);
+		}
+
+		int measurementCount = in.readInt();
+		List<NewMeasurement> measurements = new ArrayList<>(measurementCount);
+		for (int i = 0; i < measurementCount; i++) {
+			measurements.add(readMeasurement(in, id));
+		}
+		return new NewRun(id, author, runnerName, runnerInfo, startTime, stopTime, source,
+			measurements);
+	}
+
+	private static NewMeasurement readMeasurement(DataInputStream in, RunId runId)
+		throws IOException {
+
+		Dimension dimension = new Dimension(readString(in), readString(in));
+		Unit unit = Optional.ofNullable(readNullableString(in)).map(Unit::new).orElse(null);
+		Interpretation interpretation = Optional.ofNullable(readNullableString(in))
+			.map(Interpretation::fromTextualRepresentation)
+			.orElse(null);
+
+		if (in.readBoolean()) {
+			MeasurementError error = new MeasurementError(readString(in));
+			return new NewMeasurement(runId, dimension, unit, interpretation, error);
+		}
+
+		double[] values = new double[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readDouble();
+		}
+		return new NewMeasurement(runId, dimension, unit, interpretation,
+			new MeasurementValues(values));
+	}
+
+	private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+		out.writeLong(instant.getEpochSecond());
+		out.writeInt(instant.getNano());
+	}
+
+	private static Instant readInstant(DataInputStream in) throws IOException {
+		long seconds = in.readLong();
+		int nanos = in.readInt();
+		return Instant.ofEpochSecond(seconds, nanos);
+	}
+
+	// DataOutputStream#writeUTF is limited to 64 KiB, which error messages may exceed
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeNullableString(DataOutputStream out, @Nullable String string)
+		throws IOException {
+
+		out.writeBoolean(string != null);
+		if (string != null) {
+			writeString(out, string);
+		}
+	}
+
+	@Nullable
+	private static String readNullableString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? readString(in) : null;
+	}
+}
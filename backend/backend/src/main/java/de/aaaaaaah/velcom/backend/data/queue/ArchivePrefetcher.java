@@ -0,0 +1,85 @@
+package de.aaaaaaah.velcom.backend.data.queue;
+
+import de.aaaaaaah.velcom.backend.access.archiveaccess.ArchiveReadAccess;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
+import de.aaaaaaah.velcom.shared.util.execution.DaemonThreadFactory;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prepares the archives of the tasks at the front of the queue in the background, so that they can
+ * be sent to a runner right away once they are dispatched.
+ */
+class ArchivePrefetcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchivePrefetcher.class);
+
+	private final ArchiveReadAccess archiveAccess;
+	private final Supplier<List<Task>> tasksInOrder;
+	private final int prefetchAmount;
+
+	private final ExecutorService executor;
+	private final AtomicBoolean prefetchScheduled;
+
+	/**
+	 * @param archiveAccess used to prepare the archives
+	 * @param tasksInOrder provides the tasks in the order they will be dispatched in
+	 * @param prefetchAmount how many of the next commit tasks to prepare archives for
+	 */
+	public ArchivePrefetcher(ArchiveReadAccess archiveAccess, Supplier<List<Task>> tasksInOrder,
+		int prefetchAmount) {
+
+		this.archiveAccess = archiveAccess;
+		this.tasksInOrder = tasksInOrder;
+		this.prefetchAmount = prefetchAmount;
+
+		executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
+		prefetchScheduled = new AtomicBoolean(false);
+	}
+
+	/**
+	 * Schedule a prefetch of the next few commit tasks' archives. If a prefetch is already scheduled
+	 * but hasn't started yet, this does nothing, so this function can be called whenever the queue
+	 * changes without causing much work.
+	 */
+	public void schedulePrefetch() {
+		if (prefetchAmount <= 0) {
+			return;
+		}
+
+		if (prefetchScheduled.compareAndSet(false, true)) {
+			executor.submit(this::prefetch);
+		}
+	}
+
+	private void prefetch() {
+		// Reset before reading the queue so changes happening during the prefetch schedule another one
+		prefetchScheduled.set(false);
+
+		try {
+			tasksInOrder.get().stream()
+				.filter(task -> !task.isInProgress())
+				.map(Task::getSource)
+				.flatMap(source -> source.getLeft().stream())
+				.limit(prefetchAmount)
+				.forEach(this::prefetchCommit);
+		} catch (Exception e) {
+			LOGGER.warn("Failed to prefetch archives", e);
+		}
+	}
+
+	private void prefetchCommit(CommitSource commitSource) {
+		try {
+			archiveAccess.prepareCommit(commitSource);
+		} catch (Exception e) {
+			// The task will simply be cloned and tarred again when it is dispatched
+			LOGGER.info("Failed to prefetch archive for {}", commitSource, e);
+		}
+	}
+}
@@ -3,10 +3,11 @@ package de.aaaaaaah.velcom.backend.data.queue;
 import static java.util.stream.Collectors.toList;
 
 import de.aaaaaaah.velcom.backend.access.archiveaccess.ArchiveReadAccess;
+import de.aaaaaaah.velcom.backend.access.archiveaccess.entities.CommitDelta;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarRetrieveException;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarTransferException;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.BenchmarkWriteAccess;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.taskaccess.TaskWriteAccess;
@@ -15,14 +16,20 @@ import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskId;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskPriority;
 import de.aaaaaaah.velcom.backend.access.taskaccess.exceptions.NoSuchTaskException;
 import de.aaaaaaah.velcom.backend.access.taskaccess.exceptions.TaskCreationException;
+import de.aaaaaaah.velcom.backend.data.events.EventHub;
+import de.aaaaaaah.velcom.backend.data.ingest.RunIngester;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 
 /**
@@ -32,20 +39,77 @@ import javax.annotation.Nullable;
  */
 public class Queue {
 
+	private static final int RECENT_SNAPSHOTS = 16;
+
 	private final TaskWriteAccess taskAccess;
 	private final ArchiveReadAccess archiveAccess;
-	private final BenchmarkWriteAccess benchAccess;
+	private final RunIngester ingester;
+	private final EventHub events;
+
+	private final ArchivePrefetcher archivePrefetcher;
 
-	private final AtomicReference<Optional<RepoId>> currentRepoId;
+	/**
+	 * Tasks reserved for a runner, indexed by the runner's name. A reserved task is not in progress,
+	 * but other runners won't start it. Reservations are only kept in memory since runners need to
+	 * reconnect anyways after the backend has been restarted.
+	 */
+	private final Map<String, TaskId> reservations;
+	/**
+	 * Held by everything that writes to the db or picks tasks based on the index, for the entire
+	 * operation. This way, the db and the index change in the same order and a task can't be
+	 * reserved while it is being started. Must be acquired before the index's lock.
+	 */
+	private final Object writeLock;
+	/**
+	 * All tasks currently in the queue, loaded once on startup. Every change is first written to the
+	 * db and then applied to the index, so the next task can be found without loading every task
+	 * from the db. The index's lock is only held while the index itself is read or modified, never
+	 * while waiting for the db, so readers don't have to wait for writers.
+	 */
+	private final TaskIndex index;
+	/**
+	 * The last few snapshots handed out by {@link #getSnapshot()}, indexed by their version. Guarded
+	 * by the index's lock.
+	 */
+	private final Map<Long, QueueSnapshot> recentSnapshots;
 
+	/**
+	 * Create a new queue.
+	 *
+	 * @param taskAccess used to store the tasks
+	 * @param archiveAccess used to transfer tasks to runners
+	 * @param ingester used to store the results of completed tasks
+	 * @param events used to announce changes to the queue and completed runs
+	 * @param archivePrefetchAmount how many of the next commit tasks should have their archives
+	 * 	prepared in advance. If this is 0, no archives are prepared in advance.
+	 */
 	public Queue(TaskWriteAccess taskAccess, ArchiveReadAccess archiveAccess,
-		BenchmarkWriteAccess benchAccess) {
+		RunIngester ingester, EventHub events, int archivePrefetchAmount) {
 
 		this.taskAccess = taskAccess;
 		this.archiveAccess = archiveAccess;
-		this.benchAccess = benchAccess;
+		this.ingester = ingester;
+		this.events = events;
+
+		archivePrefetcher = new ArchivePrefetcher(
+			archiveAccess,
+			this::getAllTasksInOrder,
+			archivePrefetchAmount
+		);
+
+		reservations = new ConcurrentHashMap<>();
+		writeLock = new Object();
+		// Versions handed out before a restart must not be mistaken for current ones
+		index = new TaskIndex(ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now()));
+		index.putAll(taskAccess.getAllTasks());
+		recentSnapshots = new LinkedHashMap<>() {
+			@Override
+			protected boolean removeEldestEntry(Entry<Long, QueueSnapshot> eldest) {
+				return size() > RECENT_SNAPSHOTS;
+			}
+		};
 
-		currentRepoId = new AtomicReference<>(Optional.empty());
+		archivePrefetcher.schedulePrefetch();
 	}
 
 	/**
@@ -56,33 +120,66 @@ public class Queue {
 	 * @throws NoSuchTaskException if no task with the specified id exists
 	 */
 	public Task getTask(TaskId taskId) throws NoSuchTaskException {
-		return taskAccess.getTask(taskId);
+		synchronized (index) {
+			return index.get(taskId).orElseThrow(() -> new NoSuchTaskException(taskId));
+		}
 	}
 
 	public void guardTaskExists(TaskId taskId) throws NoSuchTaskException {
-		taskAccess.getTask(taskId);
+		getTask(taskId);
 	}
 
 	/**
 	 * @return all tasks currently in the queue. First come the tasks which are currently in progress,
-	 * 	in no particular order. Then come the tasks which are currently not in progress, in the order
-	 * 	they would be returned by successive calls to {@link #startNextTask()}.
+	 * 	in no particular order. Then come the tasks which are reserved for a runner, also in no
+	 * 	particular order. Then come the remaining tasks, in the order they would be returned by
+	 * 	successive calls to {@link #startNextTask()}.
 	 */
 	public List<Task> getAllTasksInOrder() {
-		List<Task> allTasks = taskAccess.getAllTasks();
-
-		List<Task> result = allTasks.stream()
-			.filter(Task::isInProgress)
-			.collect(Collectors.toCollection(ArrayList::new));
+		synchronized (index) {
+			return index.getAllInOrder();
+		}
+	}
 
-		List<Task> tasksNotInProgress = allTasks.stream()
-			.filter(task -> !task.isInProgress())
-			.collect(toList());
+	/**
+	 * Take a snapshot of the current queue. The snapshot is remembered for a while, so it can later
+	 * be retrieved via {@link #getSnapshot(long)} to find out what changed in the meantime.
+	 *
+	 * @return the current queue
+	 */
+	public QueueSnapshot getSnapshot() {
+		synchronized (index) {
+			long version = index.getVersion();
+			QueueSnapshot snapshot = recentSnapshots.get(version);
+			if (snapshot == null) {
+				snapshot = new QueueSnapshot(version, index.getAllInOrder());
+				recentSnapshots.put(version, snapshot);
+			}
+			return snapshot;
+		}
+	}
 
-		Policy policy = new Policy(tasksNotInProgress, currentRepoId.get().orElse(null));
-		result.addAll(policy.stepAll());
+	/**
+	 * @param version the version of the snapshot
+	 * @return the snapshot previously returned by {@link #getSnapshot()} for that version, if it is
+	 * 	still remembered
+	 */
+	public Optional<QueueSnapshot> getSnapshot(long version) {
+		synchronized (index) {
+			return Optional.ofNullable(recentSnapshots.get(version));
+		}
+	}
 
-		return result;
+	/**
+	 * Find a task's position in the queue without going through all tasks.
+	 *
+	 * @param taskId the id of the task
+	 * @return the index of the task in {@link #getAllTasksInOrder()}, if the task exists
+	 */
+	public Optional<Integer> getTaskPosition(TaskId taskId) {
+		synchronized (index) {
+			return index.getPosition(taskId);
+		}
 	}
 
 	/**
@@ -93,26 +190,148 @@ public class Queue {
 	 * @return the task that was started
 	 */
 	public Optional<Task> startNextTask() {
-		return taskAccess.startTask(tasks -> {
-			Policy policy = new Policy(tasks, currentRepoId.get().orElse(null));
-			Optional<Task> nextTask = policy.step();
+		return startTask(null);
+	}
 
-			if (nextTask.isPresent()) {
-				currentRepoId.set(policy.getCurrentRepoId());
+	/**
+	 * Like {@link #startNextTask()}, but prefers the task reserved for a runner via {@link
+	 * #reserveNextTask(String)}. The reservation is released in any case. If the reserved task no
+	 * longer exists or a more important task has been added to the queue or prioritized since the
+	 * reservation was made, the task next in line is started instead.
+	 *
+	 * @param runnerName the name of the runner the task should be started for
+	 * @return the task that was started
+	 */
+	public Optional<Task> startReservedTask(String runnerName) {
+		synchronized (writeLock) {
+			TaskId reservedTaskId;
+			synchronized (index) {
+				reservedTaskId = reservations.remove(runnerName);
+				if (reservedTaskId != null) {
+					index.setReserved(reservedTaskId, false);
+				}
 			}
+			return startTask(reservedTaskId);
+		}
+	}
+
+	private Optional<Task> startTask(@Nullable TaskId reservedTaskId) {
+		Optional<Task> startedTask;
 
-			return nextTask.map(Task::getId);
-		});
+		synchronized (writeLock) {
+			Optional<Task> reservedTask;
+			synchronized (index) {
+				reservedTask = Optional.ofNullable(reservedTaskId).flatMap(index::get);
+			}
+
+			while (true) {
+				Optional<Task> nextTask;
+				synchronized (index) {
+					nextTask = index.peekNext();
+				}
+				if (reservedTask.isPresent() && (nextTask.isEmpty()
+					|| nextTask.get().getPriority().asInt() >= reservedTask.get().getPriority().asInt())) {
+					nextTask = reservedTask;
+				}
+				if (nextTask.isEmpty()) {
+					synchronized (index) {
+						publishChange();
+					}
+					return Optional.empty();
+				}
+
+				TaskId taskId = nextTask.get().getId();
+				startedTask = taskAccess.startTask(taskId);
+				synchronized (index) {
+					if (startedTask.isPresent()) {
+						index.markStarted(startedTask.get());
+						publishChange();
+						break;
+					}
+
+					// The task was deleted behind the queue's back, so we try again with the next task
+					index.remove(taskId);
+				}
+				reservedTask = reservedTask.filter(task -> !task.getId().equals(taskId));
+			}
+		}
+
+		archivePrefetcher.schedulePrefetch();
+		return startedTask;
+	}
+
+	/**
+	 * Reserve the task that is next in line for a runner that is still busy, so it can download the
+	 * task in advance. The task is not marked as "in progress" and stays in the queue, but other
+	 * runners won't start it until the reservation is released. Each runner can hold at most one
+	 * reservation, so any previous reservation of the runner is released.
+	 *
+	 * @param runnerName the name of the runner to reserve the task for
+	 * @return the task that was reserved
+	 */
+	public Optional<Task> reserveNextTask(String runnerName) {
+		synchronized (writeLock) {
+			releaseReservedTask(runnerName);
+
+			synchronized (index) {
+				Optional<Task> nextTask = index.peekNext();
+				nextTask.ifPresent(task -> {
+					reservations.put(runnerName, task.getId());
+					index.setReserved(task.getId(), true);
+				});
+				publishChange();
+				return nextTask;
+			}
+		}
+	}
+
+	/**
+	 * @param runnerName the name of the runner
+	 * @return true if a task is currently reserved for the runner
+	 */
+	public boolean hasReservedTask(String runnerName) {
+		return reservations.containsKey(runnerName);
+	}
+
+	/**
+	 * Release the reservation of a runner, if it has one. The reserved task can then be started by
+	 * any runner again.
+	 *
+	 * @param runnerName the name of the runner
+	 */
+	public void releaseReservedTask(String runnerName) {
+		synchronized (writeLock) {
+			synchronized (index) {
+				TaskId taskId = reservations.remove(runnerName);
+				if (taskId != null) {
+					index.setReserved(taskId, false);
+					publishChange();
+				}
+			}
+		}
 	}
 
 	/**
 	 * Convert the task with the same id as the {@link NewRun} into a full run. This removes the task
-	 * from the queue and adds the newly created run into the database.
+	 * from the queue and hands the newly created run to the {@link RunIngester}, which adds it to the
+	 * database shortly after and announces it once it is there.
+	 *
+	 * <p> The task is removed from the queue immediately, but its row in the database is only deleted
+	 * once the run is committed. Until then, the task would reappear if the backend were restarted,
+	 * were it not for the {@link RunIngester} replaying its journal before the queue loads its tasks.
+	 * If the run can't be committed at all and is dropped, the ingester deletes the task row instead.
 	 *
 	 * @param result the result associated with the task
 	 */
 	public void completeTask(NewRun result) {
-		benchAccess.insertRun(result);
+		TaskId taskId = result.getId().toTaskId();
+		// Submitting writes to disk or even the db, which must not block readers of the index
+		ingester.submit(result);
+		synchronized (index) {
+			index.remove(taskId);
+			reservations.values().remove(taskId);
+			publishChange();
+		}
 	}
 
 	/**
@@ -122,7 +341,11 @@ public class Queue {
 	 * @param taskId the id of the task
 	 */
 	public void abortTask(TaskId taskId) {
-		taskAccess.setTaskInProgress(taskId, false);
+		synchronized (writeLock) {
+			taskAccess.setTaskInProgress(taskId, false);
+			refreshTask(taskId);
+		}
+		archivePrefetcher.schedulePrefetch();
 	}
 
 	/**
@@ -131,14 +354,46 @@ public class Queue {
 	 * @param taskIds the ids of the tasks
 	 */
 	public void deleteTasks(Collection<TaskId> taskIds) {
-		taskAccess.deleteTasks(taskIds);
+		synchronized (writeLock) {
+			taskAccess.deleteTasks(taskIds);
+			synchronized (index) {
+				taskIds.forEach(index::remove);
+				reservations.values().removeAll(taskIds);
+				publishChange();
+			}
+		}
+	}
+
+	/**
+	 * Delete all tasks belonging to a repo. This should be done before the repo itself is deleted.
+	 *
+	 * @param repoId the id of the repo
+	 */
+	public void deleteAllTasksOfRepo(RepoId repoId) {
+		synchronized (writeLock) {
+			List<TaskId> taskIds;
+			synchronized (index) {
+				taskIds = index.getAll().stream()
+					.filter(task -> task.getRepoId().equals(Optional.of(repoId)))
+					.map(Task::getId)
+					.collect(toList());
+			}
+			deleteTasks(taskIds);
+		}
 	}
 
 	/**
 	 * Delete all tasks from this queue.
 	 */
 	public void deleteAllTasks() {
-		taskAccess.deleteAllTasks();
+		synchronized (writeLock) {
+			taskAccess.deleteAllTasks();
+			synchronized (index) {
+				index.clear();
+				reservations.clear();
+				publishChange();
+			}
+		}
 	}
 
 	/**
@@ -148,7 +403,9 @@ public class Queue {
 	 * @return true if the task exists and is in progress, false otherwise
 	 */
 	public boolean isTaskInProgress(TaskId taskId) {
-		return taskAccess.isTaskInProgress(taskId).orElse(false);
+		synchronized (index) {
+			return index.get(taskId).map(Task::isInProgress).orElse(false);
+		}
 	}
 
 	/**
@@ -163,7 +420,16 @@ public class Queue {
 	public Optional<Task> addCommit(String author, RepoId repoId, CommitHash hash,
 		TaskPriority priority) {
 
-		return taskAccess.insertCommit(author, priority, repoId, hash);
+		Optional<Task> task;
+		synchronized (writeLock) {
+			task = taskAccess.insertCommit(author, priority, repoId, hash);
+			synchronized (index) {
+				task.ifPresent(index::put);
+				publishChange();
+			}
+		}
+		archivePrefetcher.schedulePrefetch();
+		return task;
 	}
 
 	/**
@@ -178,7 +444,14 @@ public class Queue {
 	public void addCommits(String author, RepoId repoId, List<CommitHash> hashes,
 		TaskPriority priority) {
 
-		taskAccess.insertCommits(author, priority, repoId, hashes);
+		synchronized (writeLock) {
+			List<Task> tasks = taskAccess.insertCommits(author, priority, repoId, hashes);
+			synchronized (index) {
+				index.putAll(tasks);
+				publishChange();
+			}
+		}
+		archivePrefetcher.schedulePrefetch();
 	}
 
 	/**
@@ -194,7 +467,13 @@ public class Queue {
 	public Task addTar(String author, TaskPriority priority, @Nullable RepoId repoId,
 		String description, InputStream inputStream) throws TaskCreationException {
 
-		return taskAccess.insertTar(author, priority, description, repoId, inputStream);
+		// Storing the tar file may take a while, so the index is only locked afterwards
+		Task task = taskAccess.insertTar(author, priority, description, repoId, inputStream);
+		synchronized (index) {
+			index.put(task);
+			publishChange();
+		}
+		return task;
 	}
 
 	/**
@@ -204,7 +483,37 @@ public class Queue {
 	 * @param newPriority the new priority
 	 */
 	public void prioritizeTask(TaskId taskId, TaskPriority newPriority) {
-		taskAccess.setTaskPriority(taskId, newPriority);
+		synchronized (writeLock) {
+			taskAccess.setTaskPriority(taskId, newPriority);
+			refreshTask(taskId);
+		}
+		archivePrefetcher.schedulePrefetch();
+	}
+
+	/**
+	 * Announce the queue's current version. Must be called while holding the index's lock after the
+	 * index has been modified. Does nothing if the index didn't actually change.
+	 */
+	private void publishChange() {
+		events.queueChanged(index.getVersion());
+	}
+
+	/**
+	 * Reload a task from the db after it has been modified and announce the change. Must be called
+	 * while holding the writer lock.
+	 */
+	private void refreshTask(TaskId taskId) {
+		Optional<Task> task;
+		try {
+			task = Optional.of(taskAccess.getTask(taskId));
+		} catch (NoSuchTaskException e) {
+			task = Optional.empty();
+		}
+
+		synchronized (index) {
+			task.ifPresentOrElse(index::put, () -> index.remove(taskId));
+			publishChange();
+		}
 	}
 
 	/**
@@ -213,16 +522,56 @@ public class Queue {
 	 * <p> Note that the provided output stream will be closed after the transfer operation is done.
 	 *
 	 * @param taskId the id of the task to be transferred
+	 * @param codec the codec to encode the tar file with
 	 * @param output the output to transfer the task to
 	 * @throws NoSuchTaskException if no task with the given id exists
 	 * @throws TarRetrieveException if the tar file could not be retrieved
 	 * @throws TarTransferException if the tar file could not be transferred
 	 */
-	public void transferTask(TaskId taskId, OutputStream output)
+	public void transferTask(TaskId taskId, TransferCodec codec, OutputStream output)
 		throws NoSuchTaskException, TarRetrieveException, TarTransferException {
 
-		Task task = taskAccess.getTask(taskId);
-		archiveAccess.transferTask(task, output);
+		Task task = getTask(taskId);
+		archiveAccess.transferTask(task, codec, output);
+	}
+
+	/**
+	 * Compute the differences between a task's commit and a commit a runner already has. Only
+	 * commit tasks can be sent as a delta.
+	 *
+	 * @param task the task that should be sent
+	 * @param base the commit the runner's task repo currently contains
+	 * @return the delta, if sending it is possible and worthwhile
+	 */
+	public Optional<CommitDelta> computeTaskDelta(Task task, CommitHash base) {
+		return task.getSource().getLeft()
+			.flatMap(commitSource -> archiveAccess.computeCommitDelta(commitSource, base));
+	}
+
+	/**
+	 * Transfers only the files of a task that changed according to a {@link CommitDelta} to the
+	 * supplied {@link OutputStream}.
+	 *
+	 * <p> Note that the provided output stream will be closed after the transfer operation is done.
+	 *
+	 * @param taskId the id of the task to be transferred
+	 * @param delta the delta computed via {@link #computeTaskDelta(Task, CommitHash)}
+	 * @param codec the codec to encode the tar file with
+	 * @param output the output to transfer the changed files to
+	 * @throws NoSuchTaskException if no task with the given id exists
+	 * @throws TarRetrieveException if the task is not a commit task or its repo is unavailable
+	 * @throws TarTransferException if the tar file could not be transferred
+	 */
+	public void transferTaskDelta(TaskId taskId, CommitDelta delta, TransferCodec codec,
+		OutputStream output) throws NoSuchTaskException, TarRetrieveException, TarTransferException {
+
+		Task task = getTask(taskId);
+		Optional<CommitSource> commitSource = task.getSource().getLeft();
+		if (commitSource.isEmpty()) {
+			throw new TarRetrieveException(task);
+		}
+
+		archiveAccess.transferCommitDelta(task, commitSource.get(), delta, codec, output);
 	}
 
 }
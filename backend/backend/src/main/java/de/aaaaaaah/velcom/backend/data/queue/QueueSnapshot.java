@@ -0,0 +1,43 @@
+package de.aaaaaaah.velcom.backend.data.queue;
+
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
+import java.util.List;
+
+/**
+ * The tasks in the queue at a certain version of the queue. The version increases every time the
+ * queue changes. A task that changes is replaced by a new {@link Task} instance, so two snapshots
+ * can be compared by checking whether they contain the same instances.
+ */
+public class QueueSnapshot {
+
+	private final long version;
+	private final List<Task> tasks;
+
+	/**
+	 * @param version the version of the queue
+	 * @param tasks all tasks in the queue in the order given by {@link Queue#getAllTasksInOrder()}
+	 */
+	public QueueSnapshot(long version, List<Task> tasks) {
+		this.version = version;
+		this.tasks = List.copyOf(tasks);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public List<Task> getTasks() {
+		return tasks;
+	}
+
+	/**
+	 * @param offset how many tasks to skip
+	 * @param limit the maximum amount of tasks to return
+	 * @return the tasks starting at the offset
+	 */
+	public List<Task> getTasks(int offset, int limit) {
+		int from = Math.min(Math.max(0, offset), tasks.size());
+		int to = from + Math.min(Math.max(0, limit), tasks.size() - from);
+		return tasks.subList(from, to);
+	}
+}
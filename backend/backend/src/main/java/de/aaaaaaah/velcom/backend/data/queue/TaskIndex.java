@@ -0,0 +1,361 @@
+package de.aaaaaaah.velcom.backend.data.queue;
+
+import static java.util.Comparator.comparing;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
+import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskId;
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskPriority;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * An in-memory index of all tasks in the queue. The tasks that are available to be started (i. e.
+ * neither in progress nor reserved) are kept in the order described by the {@link Policy}, so the
+ * next task can be found in logarithmic time instead of having to look at every task in the queue.
+ *
+ * <p> This class is not thread safe.
+ */
+class TaskIndex {
+
+	// Newest first (FILO)
+	private static final Comparator<Task> FILO = comparing(Task::getUpdateTime).reversed()
+		.thenComparing(Task::getIdAsString);
+	// Oldest first (FIFO)
+	private static final Comparator<Task> FIFO = comparing(Task::getUpdateTime)
+		.thenComparing(Task::getIdAsString);
+
+	private final Map<TaskId, Task> tasks;
+	private final Set<TaskId> reserved;
+
+	private final NavigableSet<Task> manualTasks;
+	private final NavigableSet<Task> tarTasks;
+	private final NavigableMap<RepoId, NavigableSet<Task>> listenerTasksPerRepo;
+	@Nullable
+	private RepoId currentRepoId;
+
+	// Increased whenever the structures above change
+	private long version;
+	// Computed lazily from the structures above and discarded whenever they change
+	@Nullable
+	private List<Task> order;
+	@Nullable
+	private Map<TaskId, Integer> positions;
+
+	/**
+	 * @param initialVersion the version of the empty index, see {@link #getVersion()}
+	 */
+	public TaskIndex(long initialVersion) {
+		tasks = new HashMap<>();
+		reserved = new HashSet<>();
+
+		manualTasks = new TreeSet<>(FILO);
+		tarTasks = new TreeSet<>(FIFO);
+		listenerTasksPerRepo = new TreeMap<>();
+		currentRepoId = null;
+
+		version = initialVersion;
+		order = null;
+		positions = null;
+	}
+
+	public Optional<Task> get(TaskId taskId) {
+		return Optional.ofNullable(tasks.get(taskId));
+	}
+
+	/**
+	 * @return all tasks in the index, in no particular order
+	 */
+	public List<Task> getAll() {
+		return new ArrayList<>(tasks.values());
+	}
+
+	/**
+	 * Add a task to the index, replacing any task with the same id.
+	 *
+	 * @param task the task to add
+	 */
+	public void put(Task task) {
+		invalidateOrder();
+
+		Task oldTask = tasks.put(task.getId(), task);
+		if (oldTask != null) {
+			removeFromOrder(oldTask);
+		}
+
+		if (isAvailable(task)) {
+			addToOrder(task);
+		}
+	}
+
+	public void putAll(Collection<Task> tasks) {
+		tasks.forEach(this::put);
+	}
+
+	/**
+	 * Remove a task from the index. Does nothing if the index doesn't contain the task.
+	 *
+	 * @param taskId the id of the task to remove
+	 */
+	public void remove(TaskId taskId) {
+		invalidateOrder();
+
+		Task task = tasks.remove(taskId);
+		if (task != null) {
+			removeFromOrder(task);
+		}
+		reserved.remove(taskId);
+	}
+
+	public void clear() {
+		invalidateOrder();
+
+		tasks.clear();
+		reserved.clear();
+
+		manualTasks.clear();
+		tarTasks.clear();
+		listenerTasksPerRepo.clear();
+	}
+
+	/**
+	 * Mark a task as reserved or not reserved. Reserved tasks are not available to be started via
+	 * {@link #peekNext()}.
+	 *
+	 * @param taskId the id of the task
+	 * @param isReserved whether the task should be reserved
+	 */
+	public void setReserved(TaskId taskId, boolean isReserved) {
+		invalidateOrder();
+
+		Task task = tasks.get(taskId);
+		if (task == null) {
+			reserved.remove(taskId);
+			return;
+		}
+
+		removeFromOrder(task);
+		if (isReserved) {
+			reserved.add(taskId);
+		} else {
+			reserved.remove(taskId);
+		}
+		if (isAvailable(task)) {
+			addToOrder(task);
+		}
+	}
+
+	/**
+	 * @return the available task that is next in line, without starting it
+	 */
+	public Optional<Task> peekNext() {
+		if (!manualTasks.isEmpty()) {
+			return Optional.of(manualTasks.first());
+		}
+
+		if (!tarTasks.isEmpty()) {
+			return Optional.of(tarTasks.first());
+		}
+
+		return nextRepo().map(repo -> listenerTasksPerRepo.get(repo).first());
+	}
+
+	/**
+	 * @return all available tasks, in the order they would be returned by successive calls to {@link
+	 * 	#peekNext()} and {@link #markStarted(Task)}
+	 */
+	public List<Task> getAvailableInOrder() {
+		List<Task> result = new ArrayList<>(manualTasks);
+		result.addAll(tarTasks);
+
+		// Round robin over the repos, starting with the next repo
+		List<Iterator<Task>> repoIterators = new ArrayList<>();
+		nextRepo().ifPresent(firstRepoId -> {
+			listenerTasksPerRepo.tailMap(firstRepoId, true).values()
+				.forEach(repoTasks -> repoIterators.add(repoTasks.iterator()));
+			listenerTasksPerRepo.headMap(firstRepoId, false).values()
+				.forEach(repoTasks -> repoIterators.add(repoTasks.iterator()));
+		});
+
+		while (!repoIterators.isEmpty()) {
+			Iterator<Iterator<Task>> iterator = repoIterators.iterator();
+			while (iterator.hasNext()) {
+				Iterator<Task> repoIterator = iterator.next();
+				result.add(repoIterator.next());
+				if (!repoIterator.hasNext()) {
+					iterator.remove();
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * The order is computed once and then reused until the index changes, so repeatedly asking for
+	 * the order or a task's position is cheap while the queue is not changing.
+	 *
+	 * @return an unmodifiable list of all tasks. First come the tasks which are in progress, then the
+	 * 	tasks which are reserved, both in no particular order. Then come the available tasks in the
+	 * 	order given by {@link #getAvailableInOrder()}.
+	 */
+	public List<Task> getAllInOrder() {
+		if (order == null) {
+			List<Task> result = tasks.values().stream()
+				.filter(Task::isInProgress)
+				.collect(Collectors.toCollection(ArrayList::new));
+			result.addAll(getReserved());
+			result.addAll(getAvailableInOrder());
+
+			Map<TaskId, Integer> newPositions = new HashMap<>();
+			for (int i = 0; i < result.size(); i++) {
+				newPositions.put(result.get(i).getId(), i);
+			}
+
+			order = List.copyOf(result);
+			positions = newPositions;
+		}
+
+		return order;
+	}
+
+	/**
+	 * @return a number that increases every time the index changes
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param taskId the id of the task
+	 * @return the index of the task in {@link #getAllInOrder()}, if the index contains the task
+	 */
+	public Optional<Integer> getPosition(TaskId taskId) {
+		getAllInOrder();
+		return Optional.ofNullable(positions.get(taskId));
+	}
+
+	/**
+	 * @return all tasks that are reserved but not yet in progress, in no particular order
+	 */
+	public List<Task> getReserved() {
+		List<Task> result = new ArrayList<>();
+		for (TaskId taskId : reserved) {
+			Task task = tasks.get(taskId);
+			if (task != null && !task.isInProgress()) {
+				result.add(task);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Update the index after a task has been started. The task is replaced by its started version
+	 * and the round robin order moves on to the next repo if the task was a listener task.
+	 *
+	 * @param startedTask the task that was started
+	 */
+	public void markStarted(Task startedTask) {
+		Optional<RepoId> repo = getListenerRepo(startedTask);
+		put(startedTask);
+		invalidateOrder();
+
+		if (repo.isPresent()) {
+			RepoId nextRepoId = listenerTasksPerRepo.higherKey(repo.get());
+			if (nextRepoId == null && !listenerTasksPerRepo.isEmpty()) {
+				nextRepoId = listenerTasksPerRepo.firstKey();
+			}
+			currentRepoId = nextRepoId;
+		} else {
+			// Like the policy, remember the repo that is actually next instead of one that might no
+			// longer have any tasks
+			currentRepoId = nextRepo().orElse(null);
+		}
+	}
+
+	/**
+	 * @return the repo whose listener tasks are next in the round robin order
+	 */
+	public Optional<RepoId> getCurrentRepoId() {
+		return Optional.ofNullable(currentRepoId);
+	}
+
+	private Optional<RepoId> nextRepo() {
+		if (listenerTasksPerRepo.isEmpty()) {
+			return Optional.empty();
+		}
+
+		// Like the policy, use the current repo or the repo that would come after it
+		if (currentRepoId != null) {
+			RepoId repoId = listenerTasksPerRepo.ceilingKey(currentRepoId);
+			if (repoId != null) {
+				return Optional.of(repoId);
+			}
+		}
+		return Optional.of(listenerTasksPerRepo.firstKey());
+	}
+
+	private void invalidateOrder() {
+		version++;
+		order = null;
+		positions = null;
+	}
+
+	private boolean isAvailable(Task task) {
+		return !task.isInProgress() && !reserved.contains(task.getId());
+	}
+
+	private static Optional<RepoId> getListenerRepo(Task task) {
+		if (task.getPriority() != TaskPriority.LISTENER) {
+			return Optional.empty();
+		}
+		return task.getSource().getLeft().map(CommitSource::getRepoId);
+	}
+
+	private void addToOrder(Task task) {
+		switch (task.getPriority()) {
+			case MANUAL:
+				manualTasks.add(task);
+				break;
+			case USER_CREATED:
+				tarTasks.add(task);
+				break;
+			case LISTENER:
+				// Like the policy, this ignores listener tasks that aren't commits
+				getListenerRepo(task).ifPresent(repoId -> listenerTasksPerRepo
+					.computeIfAbsent(repoId, it -> new TreeSet<>(FILO))
+					.add(task));
+				break;
+		}
+	}
+
+	private void removeFromOrder(Task task) {
+		manualTasks.remove(task);
+		tarTasks.remove(task);
+
+		getListenerRepo(task).ifPresent(repoId -> {
+			NavigableSet<Task> repoTasks = listenerTasksPerRepo.get(repoId);
+			if (repoTasks != null) {
+				repoTasks.remove(task);
+				if (repoTasks.isEmpty()) {
+					listenerTasksPerRepo.remove(repoId);
+				}
+			}
+		});
+	}
+}
@@ -28,7 +28,6 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -62,9 +61,6 @@ public class Listener {
 	private final SignificanceDetector significanceDetector;
 	private final Queue queue;
 
-	private final Duration vacuumInterval;
-	private Instant lastVacuum;
-
 	private final String frontendUrl;
 
 	// An explicit reference to the executor is kept to ensure it will never accidentally be garbage
@@ -86,7 +82,7 @@ public class Listener {
 		DatabaseStorage databaseStorage, RepoStorage repoStorage, BenchmarkReadAccess benchmarkAccess,
 		CommitReadAccess commitAccess, DimensionReadAccess dimensionAccess, RepoWriteAccess repoAccess,
 		BenchRepo benchRepo, SignificanceDetector significanceDetector, Queue queue,
-		Duration pollInterval, Duration vacuumInterval, String frontendUrl) {
+		Duration pollInterval, String frontendUrl) {
 
 		this.databaseStorage = databaseStorage;
 		this.repoStorage = repoStorage;
@@ -99,9 +95,6 @@ public class Listener {
 		this.significanceDetector = significanceDetector;
 		this.queue = queue;
 
-		this.vacuumInterval = vacuumInterval;
-		this.lastVacuum = Instant.now();
-
 		this.frontendUrl = frontendUrl;
 
 		executor = Executors.newSingleThreadScheduledExecutor();
@@ -119,7 +112,6 @@ public class Listener {
 	private void onUpdate() {
 		updateAllRepos();
 		runAnalyze();
-		vacuumIfNecessary();
 	}
 
 	/**
@@ -351,23 +343,4 @@ public class Listener {
 			db.dsl().execute("ANALYZE");
 		}
 	}
-
-	/**
-	 * Run the VACUUM command. Compared to ANALYZE, this one may take a while and copy data around, so
-	 * it is only ran occasionally.
-	 */
-	@Timed(histogram = true)
-	private void vacuumIfNecessary() {
-		Instant now = Instant.now();
-
-		Duration timeSinceLastVacuum = Duration.between(lastVacuum, now);
-		if (timeSinceLastVacuum.compareTo(vacuumInterval) >= 0) {
-			LOGGER.debug("Running VACUUM");
-
-			try (DBWriteAccess db = databaseStorage.acquireWriteAccess()) {
-				db.vacuum();
-				lastVacuum = now;
-			}
-		}
-	}
 }
@@ -0,0 +1,76 @@
+package de.aaaaaaah.velcom.backend.listener.commits;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes the generation of commits. A commit's generation is one more than the largest
+ * generation of its parents, or 1 if it has no parents.
+ */
+public class CommitGenerations {
+
+	private CommitGenerations() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Compute the generations of some commits. Their parents must either be part of the commits whose
+	 * generation is computed or have a known generation.
+	 *
+	 * <p> The commits are traversed iteratively instead of recursively since repos can easily contain
+	 * first-parent chains that are longer than the call stack is deep.
+	 *
+	 * @param parents the commits whose generation should be computed, mapped to their parents' hashes
+	 * @param knownGenerations the generations of all other parents
+	 * @return the generation of each commit in {@code parents}
+	 * @throws IllegalArgumentException if the generation of a parent is neither known nor computed
+	 */
+	public static Map<String, Integer> compute(Map<String, ? extends Collection<String>> parents,
+		Map<String, Integer> knownGenerations) {
+
+		Map<String, Integer> allGenerations = new HashMap<>(knownGenerations);
+		Map<String, Integer> generations = new HashMap<>();
+		Deque<String> stack = new ArrayDeque<>();
+
+		for (String start : parents.keySet()) {
+			stack.push(start);
+
+			while (!stack.isEmpty()) {
+				String hash = stack.peek();
+				// A commit may have been pushed multiple times if it has multiple children
+				if (allGenerations.containsKey(hash)) {
+					stack.pop();
+					continue;
+				}
+
+				Collection<String> parentHashes = parents.get(hash);
+				if (parentHashes == null) {
+					throw new IllegalArgumentException("generation of commit " + hash + " is unknown");
+				}
+
+				int generation = 1;
+				boolean parentsDone = true;
+				for (String parentHash : parentHashes) {
+					Integer parentGeneration = allGenerations.get(parentHash);
+					if (parentGeneration == null) {
+						stack.push(parentHash);
+						parentsDone = false;
+					} else {
+						generation = Math.max(generation, parentGeneration + 1);
+					}
+				}
+
+				if (parentsDone) {
+					stack.pop();
+					allGenerations.put(hash, generation);
+					generations.put(hash, generation);
+				}
+			}
+		}
+
+		return generations;
+	}
+}
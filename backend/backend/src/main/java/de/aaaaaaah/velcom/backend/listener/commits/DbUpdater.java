@@ -5,6 +5,7 @@ import static java.util.stream.Collectors.toSet;
 import static org.jooq.codegen.db.tables.Branch.BRANCH;
 import static org.jooq.codegen.db.tables.CommitRelationship.COMMIT_RELATIONSHIP;
 import static org.jooq.codegen.db.tables.KnownCommit.KNOWN_COMMIT;
+import static org.jooq.impl.DSL.val;
 
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.BranchName;
@@ -14,12 +15,16 @@ import de.aaaaaaah.velcom.backend.listener.jgitutils.JgitCommitWalk;
 import de.aaaaaaah.velcom.backend.storage.db.DBWriteAccess;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Repository;
+import org.jooq.Param;
+import org.jooq.codegen.db.tables.KnownCommit;
 import org.jooq.codegen.db.tables.records.BranchRecord;
 import org.jooq.codegen.db.tables.records.CommitRelationshipRecord;
 import org.jooq.codegen.db.tables.records.KnownCommitRecord;
@@ -38,6 +43,8 @@ public class DbUpdater {
 	private final DBWriteAccess db;
 
 	private final String repoIdStr;
+	// Repo ids are stored as blobs, so plain SQL queries must bind them using the column's converter
+	private final Param<String> repoIdParam;
 
 	public DbUpdater(Repo repo, Repository jgitRepo, DBWriteAccess db) {
 		this.repo = repo;
@@ -45,6 +52,7 @@ public class DbUpdater {
 		this.db = db;
 
 		repoIdStr = repo.getIdAsString();
+		repoIdParam = val(repoIdStr, KNOWN_COMMIT.REPO_ID);
 	}
 
 	/**
@@ -67,6 +75,7 @@ public class DbUpdater {
 			boolean anyCommits = anyCommits();
 
 			insertAllUnknownCommits();
+			updateGenerations();
 			updateBranches();
 			updateReachableFlags();
 
@@ -99,7 +108,8 @@ public class DbUpdater {
 			jgitCommit.getAuthorDate(),
 			jgitCommit.getCommitter(),
 			jgitCommit.getCommitterDate(),
-			jgitCommit.getMessage()
+			jgitCommit.getMessage(),
+			null // See #updateGenerations()
 		);
 	}
 
@@ -157,6 +167,52 @@ public class DbUpdater {
 		db.dsl().batchInsert(relationshipsToInsert).execute();
 	}
 
+	/**
+	 * Compute the generation of all commits that don't have one yet. These are the commits that were
+	 * just inserted, as well as all commits that existed before generations were introduced.
+	 */
+	private void updateGenerations() {
+		LOGGER.debug("Updating generations");
+
+		Map<String, KnownCommitRecord> records = db.dsl()
+			.selectFrom(KNOWN_COMMIT)
+			.where(KNOWN_COMMIT.REPO_ID.eq(repoIdStr))
+			.and(KNOWN_COMMIT.GENERATION.isNull())
+			.fetchMap(KNOWN_COMMIT.HASH);
+
+		if (records.isEmpty()) {
+			return;
+		}
+
+		Map<String, List<String>> parents = new HashMap<>();
+		records.keySet().forEach(hash -> parents.put(hash, new ArrayList<>()));
+		Map<String, Integer> knownGenerations = new HashMap<>();
+
+		KnownCommit parent = KNOWN_COMMIT.as("parent");
+		db.dsl()
+			.select(COMMIT_RELATIONSHIP.CHILD_HASH, parent.HASH, parent.GENERATION)
+			.from(COMMIT_RELATIONSHIP)
+			.join(KNOWN_COMMIT)
+			.on(KNOWN_COMMIT.REPO_ID.eq(COMMIT_RELATIONSHIP.REPO_ID))
+			.and(KNOWN_COMMIT.HASH.eq(COMMIT_RELATIONSHIP.CHILD_HASH))
+			.join(parent)
+			.on(parent.REPO_ID.eq(COMMIT_RELATIONSHIP.REPO_ID))
+			.and(parent.HASH.eq(COMMIT_RELATIONSHIP.PARENT_HASH))
+			.where(COMMIT_RELATIONSHIP.REPO_ID.eq(repoIdStr))
+			.and(KNOWN_COMMIT.GENERATION.isNull())
+			.forEach(record -> {
+				parents.get(record.value1()).add(record.value2());
+				if (record.value3() != null) {
+					knownGenerations.put(record.value2(), record.value3());
+				}
+			});
+
+		CommitGenerations.compute(parents, knownGenerations)
+			.forEach((hash, generation) -> records.get(hash).setGeneration(generation));
+
+		db.dsl().batchUpdate(records.values()).execute();
+	}
+
 	/**
 	 * Update the "reachable" field for all commits. It is set to true if the commit is reachable from
 	 * any branch, false otherwise. Works similar to {@link #updateTrackedFlags()}.
@@ -183,7 +239,7 @@ public class DbUpdater {
 			+ "WHERE known_commit.repo_id = ?\n" // <-- Binding #2
 			+ "";
 
-		db.dsl().execute(query, repoIdStr, repoIdStr);
+		db.dsl().execute(query, repoIdParam, repoIdParam);
 	}
 
 	/**
@@ -216,7 +272,7 @@ public class DbUpdater {
 			+ "WHERE known_commit.repo_id = ?\n" // <-- Binding #2
 			+ "";
 
-		db.dsl().execute(query, repoIdStr, repoIdStr);
+		db.dsl().execute(query, repoIdParam, repoIdParam);
 	}
 
 	/**
@@ -328,7 +384,7 @@ public class DbUpdater {
 			+ "";
 
 		return db.dsl()
-			.fetchLazy(query, repoIdStr, repoIdStr, repoIdStr, repoIdStr)
+			.fetchLazy(query, repoIdParam, repoIdParam, repoIdParam, repoIdParam)
 			.stream()
 			.map(record -> (String) record.getValue(0))
 			.map(CommitHash::new)
@@ -0,0 +1,304 @@
+package de.aaaaaaah.velcom.backend.restapi.endpoints;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import de.aaaaaaah.velcom.backend.data.events.Event;
+import de.aaaaaaah.velcom.backend.data.events.EventHub;
+import de.aaaaaaah.velcom.backend.data.events.EventHub.EventSubscriber;
+import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonEvent;
+import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonRunner;
+import de.aaaaaaah.velcom.backend.runner.IDispatcher;
+import de.aaaaaaah.velcom.shared.util.execution.DaemonThreadFactory;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes changes to the queue and the runners as well as newly completed runs to clients via
+ * server-sent events, so they don't have to poll the other endpoints.
+ *
+ * <p> All events are sent from a single thread. Each event is only serialized once and the result
+ * is sent to all subscribers. Each subscriber only buffers a limited amount of events. If a
+ * subscriber can't keep up, its buffer is discarded and it is told to reload everything instead.
+ * Idle connections only cost an occasional heartbeat.
+ */
+@Path("/events")
+public class EventsEndpoint {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventsEndpoint.class);
+
+	private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(20);
+	private static final Duration RECONNECT_DELAY = Duration.ofSeconds(3);
+	private static final int MAX_BUFFERED_EVENTS = 64;
+	// Subscribers that are further behind than this are told to reset anyways
+	private static final int SERIALIZED_EVENTS = 2 * MAX_BUFFERED_EVENTS;
+	private static final String RESET_EVENT_NAME = "reset";
+
+	private final EventHub events;
+	private final IDispatcher dispatcher;
+	private final ObjectMapper objectMapper;
+	private final ScheduledExecutorService executor;
+	private final Set<Subscriber> subscribers;
+	// The most recently serialized events by their id. Only accessed from the executor.
+	private final Map<Long, String> serializedEvents;
+
+	public EventsEndpoint(EventHub events, IDispatcher dispatcher, ObjectMapper objectMapper) {
+		this.events = events;
+		this.dispatcher = dispatcher;
+		this.objectMapper = objectMapper;
+		this.subscribers = ConcurrentHashMap.newKeySet();
+		this.serializedEvents = new LinkedHashMap<>() {
+			@Override
+			protected boolean removeEldestEntry(Entry<Long, String> eldest) {
+				return size() > SERIALIZED_EVENTS;
+			}
+		};
+
+		executor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+		executor.scheduleAtFixedRate(
+			this::sendHeartbeats,
+			HEARTBEAT_INTERVAL.toSeconds(),
+			HEARTBEAT_INTERVAL.toSeconds(),
+			TimeUnit.SECONDS
+		);
+	}
+
+	@GET
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	public void getEvents(
+		@Context SseEventSink sink,
+		@Context Sse sse,
+		@HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) @Nullable String lastEventIdHeader
+	) {
+		Subscriber subscriber = new Subscriber(sink, sse);
+		subscribers.add(subscriber);
+
+		// Reconnecting clients send the id of the last event they received
+		Optional<Long> resumeFrom = Optional.ofNullable(lastEventIdHeader)
+			.flatMap(EventsEndpoint::parseEventId);
+		Optional<List<Event>> missedEvents = events.subscribe(subscriber, resumeFrom.orElse(null));
+		// Read after subscribing, so a reset covers all events published before the subscription
+		long lastEventId = events.getLastEventId();
+		if (lastEventIdHeader != null && resumeFrom.isEmpty()) {
+			missedEvents = Optional.empty();
+		}
+
+		subscriber.start(lastEventId, missedEvents.orElse(null));
+	}
+
+	private static Optional<Long> parseEventId(String header) {
+		try {
+			return Optional.of(Long.parseLong(header.strip()));
+		} catch (NumberFormatException e) {
+			return Optional.empty();
+		}
+	}
+
+	private void sendHeartbeats() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.sendHeartbeat();
+		}
+	}
+
+	/**
+	 * Serialize an event, or reuse the result if it was already serialized for another subscriber.
+	 * Must only be called from the executor.
+	 */
+	private Optional<String> serialize(Event event) {
+		String json = serializedEvents.get(event.getId());
+		if (json == null) {
+			try {
+				json = objectMapper.writeValueAsString(toJson(event));
+			} catch (JsonProcessingException e) {
+				LOGGER.warn("Failed to serialize event {}", event, e);
+				return Optional.empty();
+			}
+			serializedEvents.put(event.getId(), json);
+		}
+		return Optional.of(json);
+	}
+
+	private JsonEvent toJson(Event event) {
+		switch (event.getType()) {
+			case QUEUE:
+				return new JsonEvent(event.getQueueVersion().orElseThrow(), null, null, null);
+			case RUNNER:
+				String name = event.getRunnerName().orElseThrow();
+				// A runner that is no longer known has been removed
+				JsonRunner runner = dispatcher.getKnownRunners().stream()
+					.filter(it -> it.getName().equals(name))
+					.findAny()
+					.map(JsonRunner::fromKnownRunner)
+					.orElse(null);
+				return new JsonEvent(null, name, runner, null);
+			case RUN:
+				return new JsonEvent(null, null, null, event.getRunId().map(RunId::getId).orElseThrow());
+			default:
+				throw new IllegalArgumentException("unknown event type " + event.getType());
+		}
+	}
+
+	/**
+	 * A single client connection. Events are buffered until the executor gets around to sending
+	 * them. Events that are superseded by a newer event in the buffer are dropped.
+	 */
+	private class Subscriber implements EventSubscriber {
+
+		private final SseEventSink sink;
+		private final Sse sse;
+
+		// All fields below are guarded by the buffer's lock
+		private final Deque<Event> buffer;
+		private boolean started;
+		private boolean flushScheduled;
+		/**
+		 * The id to send with the next reset event, or null if the client doesn't need to reset.
+		 */
+		@Nullable
+		private Long resetId;
+
+		Subscriber(SseEventSink sink, Sse sse) {
+			this.sink = sink;
+			this.sse = sse;
+			this.buffer = new ArrayDeque<>();
+			this.started = false;
+			this.flushScheduled = false;
+			this.resetId = null;
+		}
+
+		/**
+		 * Start sending events. Events received via {@link #onEvent(Event)} before this was called
+		 * are sent after the missed events.
+		 *
+		 * @param lastEventId the id of the most recent event before subscribing
+		 * @param missedEvents the events the client missed since it last saw an event, or null if
+		 * 	it needs to reset
+		 */
+		void start(long lastEventId, @Nullable List<Event> missedEvents) {
+			synchronized (buffer) {
+				started = true;
+				if (missedEvents == null || missedEvents.size() > MAX_BUFFERED_EVENTS) {
+					resetId = lastEventId;
+				} else {
+					for (int i = missedEvents.size() - 1; i >= 0; i--) {
+						buffer.addFirst(missedEvents.get(i));
+					}
+				}
+				scheduleFlush();
+			}
+		}
+
+		@Override
+		public void onEvent(Event event) {
+			synchronized (buffer) {
+				buffer.removeIf(it -> it.isSupersededBy(event));
+				buffer.addLast(event);
+
+				if (buffer.size() > MAX_BUFFERED_EVENTS) {
+					LOGGER.debug("Event subscriber can't keep up, telling it to reset");
+					buffer.clear();
+					resetId = event.getId();
+				}
+
+				if (started) {
+					scheduleFlush();
+				}
+			}
+		}
+
+		private void scheduleFlush() {
+			if (!flushScheduled) {
+				flushScheduled = true;
+				executor.execute(this::flush);
+			}
+		}
+
+		private void flush() {
+			Long reset;
+			List<Event> toSend;
+			synchronized (buffer) {
+				reset = resetId;
+				toSend = new ArrayList<>(buffer);
+				resetId = null;
+				buffer.clear();
+				flushScheduled = false;
+			}
+
+			if (reset != null) {
+				send(sse.newEventBuilder()
+					.id(String.valueOf(reset))
+					.name(RESET_EVENT_NAME)
+					.reconnectDelay(RECONNECT_DELAY.toMillis())
+					.mediaType(MediaType.APPLICATION_JSON_TYPE)
+					.data(JsonEvent.class, new JsonEvent(null, null, null, null))
+					.build());
+			}
+
+			for (Event event : toSend) {
+				serialize(event).ifPresent(json -> send(sse.newEventBuilder()
+					.id(String.valueOf(event.getId()))
+					.name(event.getType().getName())
+					.mediaType(MediaType.APPLICATION_JSON_TYPE)
+					.data(String.class, json)
+					.build()));
+			}
+		}
+
+		void sendHeartbeat() {
+			send(sse.newEventBuilder().comment("heartbeat").build());
+		}
+
+		private void send(OutboundSseEvent event) {
+			if (sink.isClosed()) {
+				close();
+				return;
+			}
+
+			try {
+				sink.send(event).whenComplete((result, throwable) -> {
+					if (throwable != null) {
+						close();
+					}
+				});
+			} catch (RuntimeException e) {
+				LOGGER.debug("Failed to send event, closing connection", e);
+				close();
+			}
+		}
+
+		private void close() {
+			events.unsubscribe(this);
+			subscribers.remove(this);
+			try {
+				sink.close();
+			} catch (Exception e) {
+				LOGGER.debug("Failed to close event sink", e);
+			}
+		}
+	}
+}
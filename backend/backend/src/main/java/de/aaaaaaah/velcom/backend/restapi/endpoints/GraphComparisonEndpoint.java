@@ -4,11 +4,9 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.BenchmarkReadAccess;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Measurement;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Run;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementSummary;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunSummary;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.committaccess.CommitReadAccess;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
@@ -24,9 +22,7 @@ import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonDimension;
 import de.aaaaaaah.velcom.shared.util.Pair;
 import io.micrometer.core.annotation.Timed;
 import java.time.Instant;
-import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -55,13 +51,15 @@ public class GraphComparisonEndpoint {
 	private final BenchmarkReadAccess benchmarkAccess;
 	private final CommitReadAccess commitAccess;
 	private final DimensionReadAccess dimensionAccess;
+	private final SeriesCache seriesCache;
 
 	public GraphComparisonEndpoint(BenchmarkReadAccess benchmarkAccess, CommitReadAccess commitAccess,
-		DimensionReadAccess dimensionAccess) {
+		DimensionReadAccess dimensionAccess, SeriesCache seriesCache) {
 
 		this.benchmarkAccess = benchmarkAccess;
 		this.commitAccess = commitAccess;
 		this.dimensionAccess = dimensionAccess;
+		this.seriesCache = seriesCache;
 	}
 
 	@GET
@@ -112,14 +110,10 @@ public class GraphComparisonEndpoint {
 				fullCommits = EndpointUtils.topologicalSort(fullCommits, fullCommitsByHash);
 				fullCommits.sort(Comparator.comparing(Commit::getCommitterDate));
 
-				// Find the latest run belonging to each commit
-				Set<RunId> latestRunIds = new HashSet<>(
-					benchmarkAccess.getLatestRunIds(repoId, fullCommitsByHash.keySet()).values());
-				Map<CommitHash, Run> runs = benchmarkAccess.getRuns(latestRunIds).stream()
-					.collect(toMap(
-						run -> run.getSource().getLeft().map(CommitSource::getHash).orElse(null),
-						run -> run
-					));
+				// Find the latest run belonging to each commit, but only with the dimension we need
+				Map<CommitHash, RunSummary> runs = seriesCache
+					.getSeries(benchmarkAccess, repoId, fullCommitsByHash.keySet(), List.of(dimension))
+					.get(dimension);
 
 				// Collect the commit and run information as JsonGraphCommits
 				List<JsonGraphCommit> graphCommits = fullCommits.stream()
@@ -145,31 +139,28 @@ public class GraphComparisonEndpoint {
 	}
 
 	private static Object getValueOfCommit(Commit commit, Dimension dimension,
-		Map<CommitHash, Run> runs) {
+		Map<CommitHash, RunSummary> runs) {
 
-		Run run = runs.get(commit.getHash());
+		RunSummary run = runs.get(commit.getHash());
 		if (run == null) {
 			return NO_RUN_FOUND;
 		}
 
-		Optional<Collection<Measurement>> result = run.getResult().getRight();
-		if (result.isEmpty()) {
+		if (run.isFailed()) {
 			return RUN_FAILED;
 		}
 
-		Optional<Measurement> measurement = result.get().stream()
-			.filter(it -> it.getDimension().equals(dimension))
-			.findFirst();
+		Optional<MeasurementSummary> measurement = run.getMeasurement(dimension);
 		if (measurement.isEmpty()) {
 			return NO_MEASUREMENT_FOUND;
 		}
 
-		Optional<MeasurementValues> values = measurement.get().getContent().getRight();
-		if (values.isEmpty()) {
+		Optional<Double> mean = measurement.get().getMean();
+		if (mean.isEmpty()) {
 			return MEASUREMENT_FAILED;
 		}
 
-		return values.get().getAverageValue();
+		return mean.get();
 	}
 
 	private static class GetReply {
@@ -3,11 +3,9 @@ package de.aaaaaaah.velcom.backend.restapi.endpoints;
 import static java.util.stream.Collectors.toMap;
 
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.BenchmarkReadAccess;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Measurement;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
-import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Run;
-import de.aaaaaaah.velcom.backend.access.caches.LatestRunCache;
-import de.aaaaaaah.velcom.backend.access.caches.RunCache;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementSummary;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunSummary;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.committaccess.CommitReadAccess;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.Commit;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
@@ -24,7 +22,6 @@ import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonDimension;
 import de.aaaaaaah.velcom.shared.util.Pair;
 import io.micrometer.core.annotation.Timed;
 import java.time.Instant;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -57,19 +54,17 @@ public class GraphDetailEndpoint {
 	private final BenchmarkReadAccess benchmarkAccess;
 	private final DimensionReadAccess dimensionAccess;
 	private final RepoReadAccess repoAccess;
-	private final RunCache runCache;
-	private final LatestRunCache latestRunCache;
+	private final SeriesCache seriesCache;
 
 	public GraphDetailEndpoint(CommitReadAccess commitAccess, BenchmarkReadAccess benchmarkAccess,
-		DimensionReadAccess dimensionAccess, RepoReadAccess repoAccess, RunCache runCache,
-		LatestRunCache latestRunCache) {
+		DimensionReadAccess dimensionAccess, RepoReadAccess repoAccess,
+		SeriesCache seriesCache) {
 
 		this.commitAccess = commitAccess;
 		this.benchmarkAccess = benchmarkAccess;
 		this.dimensionAccess = dimensionAccess;
 		this.repoAccess = repoAccess;
-		this.runCache = runCache;
-		this.latestRunCache = latestRunCache;
+		this.seriesCache = seriesCache;
 	}
 
 	@GET
@@ -111,9 +106,13 @@ public class GraphDetailEndpoint {
 		fullCommits = EndpointUtils.topologicalSort(fullCommits, fullCommitsByHash);
 		fullCommits.sort(Comparator.comparing(Commit::getCommitterDate));
 
-		// Obtain the relevant runs
-		Map<CommitHash, Run> runs = latestRunCache
-			.getLatestRuns(benchmarkAccess, runCache, repoId, fullCommitsByHash.keySet());
+		// Obtain the series of the relevant dimensions
+		Map<Dimension, Map<CommitHash, RunSummary>> series = seriesCache.getSeries(
+			benchmarkAccess,
+			repoId,
+			fullCommitsByHash.keySet(),
+			existingDimensions.stream().map(DimensionInfo::getDimension).collect(Collectors.toList())
+		);
 
 		// Finally, put everything together.
 		List<JsonDimension> jsonDimensions = existingDimensions.stream()
@@ -126,7 +125,7 @@ public class GraphDetailEndpoint {
 				commit.getAuthor(),
 				commit.getCommitterDate().getEpochSecond(),
 				commit.getSummary(),
-				extractValuesFromCommit(existingDimensions, runs, commit)
+				extractValuesFromCommit(existingDimensions, series, commit)
 			))
 			.collect(Collectors.toList());
 
@@ -134,34 +133,30 @@ public class GraphDetailEndpoint {
 	}
 
 	private static List<Object> extractValuesFromCommit(List<DimensionInfo> dimensions,
-		Map<CommitHash, Run> runs, Commit commit) {
-
-		Run run = runs.get(commit.getHash());
-		if (run == null) {
-			return createListFullOf(dimensions, NO_RUN_FOUND);
-		}
-
-		Optional<Collection<Measurement>> optionalMeasurements = run.getResult().getRight();
-		if (optionalMeasurements.isEmpty()) {
-			return createListFullOf(dimensions, RUN_FAILED);
-		}
-
-		Map<Dimension, Measurement> measurements = optionalMeasurements.get().stream()
-			.collect(toMap(Measurement::getDimension, m -> m));
+		Map<Dimension, Map<CommitHash, RunSummary>> series, Commit commit) {
 
 		return dimensions.stream()
 			.map(dim -> {
-				Measurement measurement = measurements.get(dim.getDimension());
-				if (measurement == null) {
+				RunSummary run = series.get(dim.getDimension()).get(commit.getHash());
+				if (run == null) {
+					return NO_RUN_FOUND;
+				}
+
+				if (run.isFailed()) {
+					return RUN_FAILED;
+				}
+
+				Optional<MeasurementSummary> measurement = run.getMeasurement(dim.getDimension());
+				if (measurement.isEmpty()) {
 					return NO_MEASUREMENT_FOUND;
 				}
 
-				Optional<MeasurementValues> values = measurement.getContent().getRight();
-				if (values.isEmpty()) {
+				Optional<Double> mean = measurement.get().getMean();
+				if (mean.isEmpty()) {
 					return MEASUREMENT_FAILED;
 				}
 
-				return values.get().getAverageValue();
+				return mean.get();
 			})
 			.collect(Collectors.toList());
 	}
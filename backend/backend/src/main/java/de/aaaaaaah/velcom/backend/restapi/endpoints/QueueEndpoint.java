@@ -14,6 +14,7 @@ import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskPriority;
 import de.aaaaaaah.velcom.backend.access.taskaccess.exceptions.NoSuchTaskException;
 import de.aaaaaaah.velcom.backend.access.taskaccess.exceptions.TaskCreationException;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
+import de.aaaaaaah.velcom.backend.data.queue.QueueSnapshot;
 import de.aaaaaaah.velcom.backend.restapi.authentication.Admin;
 import de.aaaaaaah.velcom.backend.restapi.exception.TaskAlreadyExistsException;
 import de.aaaaaaah.velcom.backend.restapi.jsonobjects.JsonRunner;
@@ -29,10 +30,14 @@ import io.micrometer.core.annotation.Timed;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
@@ -45,6 +50,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
@@ -73,8 +79,48 @@ public class QueueEndpoint {
 
 	@GET
 	@Timed(histogram = true)
-	public GetQueueReply getQueue() {
-		List<Task> tasks = queue.getAllTasksInOrder();
+	public GetQueueReply getQueue(
+		@QueryParam("offset") @Nullable Integer offsetOptional,
+		@QueryParam("limit") @Nullable Integer limitOptional,
+		@QueryParam("since") @Nullable Long sinceOptional
+	) {
+		int offset = Optional.ofNullable(offsetOptional).orElse(0);
+		int limit = Optional.ofNullable(limitOptional).orElse(Integer.MAX_VALUE);
+		if (offset < 0 || limit < 0) {
+			throw new WebApplicationException("offset and limit must not be negative",
+				Status.BAD_REQUEST);
+		}
+
+		QueueSnapshot snapshot = queue.getSnapshot();
+		List<Task> page = snapshot.getTasks(offset, limit);
+		Optional<QueueSnapshot> previousSnapshot = Optional.ofNullable(sinceOptional)
+			.flatMap(queue::getSnapshot);
+
+		List<Task> tasks;
+		List<UUID> order = null;
+		List<UUID> removed = null;
+		if (previousSnapshot.isPresent()) {
+			// The client already knows the page at the previous version, so we only need to send the
+			// tasks it doesn't know yet. Changed tasks are new instances, hence the identity comparison.
+			List<Task> previousPage = previousSnapshot.get().getTasks(offset, limit);
+			Set<Task> previousTasks = Collections.newSetFromMap(new IdentityHashMap<>());
+			previousTasks.addAll(previousPage);
+			Set<TaskId> pageIds = page.stream().map(Task::getId).collect(Collectors.toSet());
+
+			tasks = page.stream()
+				.filter(task -> !previousTasks.contains(task))
+				.collect(Collectors.toList());
+			removed = previousPage.stream()
+				.map(Task::getId)
+				.filter(id -> !pageIds.contains(id))
+				.map(TaskId::getId)
+				.collect(Collectors.toList());
+			if (previousSnapshot.get().getVersion() != snapshot.getVersion()) {
+				order = page.stream().map(Task::getIdAsUuid).collect(Collectors.toList());
+			}
+		} else {
+			tasks = page;
+		}
 
 		Map<RepoId, List<CommitHash>> hashPerRepo = tasks.stream()
 			// do
@@ -115,7 +161,15 @@ public class QueueEndpoint {
 			.map(JsonRunner::fromKnownRunner)
 			.collect(Collectors.toList());
 
-		return new GetQueueReply(jsonTasks, worker);
+		return new GetQueueReply(
+			jsonTasks,
+			worker,
+			snapshot.getTasks().size(),
+			snapshot.getVersion(),
+			previousSnapshot.isPresent(),
+			order,
+			removed
+		);
 	}
 
 	@DELETE
@@ -240,17 +294,13 @@ public class QueueEndpoint {
 	@GET
 	@Timed(histogram = true)
 	public GetTaskInfoReply getTask(@PathParam("taskid") UUID taskId) {
-		int indexOfTask = 0;
-		Optional<Task> foundTask = Optional.empty();
-		for (Task task : queue.getAllTasksInOrder()) {
-			if (task.getIdAsUuid().equals(taskId)) {
-				foundTask = Optional.of(task);
-				break;
-			}
-			indexOfTask++;
-		}
-
-		if (foundTask.isEmpty()) {
+		TaskId id = new TaskId(taskId);
+		Task foundTask;
+		int indexOfTask;
+		try {
+			foundTask = queue.getTask(id);
+			indexOfTask = queue.getTaskPosition(id).orElseThrow(() -> new NoSuchTaskException(id));
+		} catch (NoSuchTaskException e) {
 			throw new WebApplicationException(Status.NOT_FOUND);
 		}
 
@@ -263,7 +313,7 @@ public class QueueEndpoint {
 			.orElse(null);
 
 		return new GetTaskInfoReply(JsonTask.fromTask(
-			foundTask.get(), commitReadAccess),
+			foundTask, commitReadAccess),
 			indexOfTask,
 			runningSince
 		);
@@ -272,7 +322,10 @@ public class QueueEndpoint {
 	@Path("task/{taskid}/progress")
 	@GET
 	@Timed(histogram = true)
-	public GetTaskOutputReply getRunnerOutput(@PathParam("taskid") UUID taskId) {
+	public GetTaskOutputReply getRunnerOutput(
+		@PathParam("taskid") UUID taskId,
+		@QueryParam("since") @Nullable Integer sinceOptional
+	) {
 		Optional<LinesWithOffset> lastOutputLinesOpt = dispatcher.findLinesForTask(taskId);
 
 		if (lastOutputLinesOpt.isEmpty()) {
@@ -280,8 +333,16 @@ public class QueueEndpoint {
 		}
 
 		LinesWithOffset lastOutputLines = lastOutputLinesOpt.orElseThrow();
+		List<String> lines = lastOutputLines.getLines();
+		int firstLineOffset = lastOutputLines.getFirstLineOffset();
+
+		// Clients that already know some lines only get the lines after them
+		int skip = Math.max(0, Math.min(
+			lines.size(),
+			Objects.requireNonNullElse(sinceOptional, 0) - firstLineOffset
+		));
 
-		return new GetTaskOutputReply(lastOutputLines.getLines(), lastOutputLines.getFirstLineOffset());
+		return new GetTaskOutputReply(lines.subList(skip, lines.size()), firstLineOffset + skip);
 	}
 
 	private static class PostOneUpReply {
@@ -315,10 +376,25 @@ public class QueueEndpoint {
 
 		public final List<JsonTask> tasks;
 		public final List<JsonRunner> runners;
+		public final int totalTasks;
+		public final long version;
+		public final boolean incremental;
+		@Nullable
+		public final List<UUID> order;
+		@Nullable
+		public final List<UUID> removed;
+
+		public GetQueueReply(List<JsonTask> tasks, List<JsonRunner> runners, int totalTasks,
+			long version, boolean incremental, @Nullable List<UUID> order,
+			@Nullable List<UUID> removed) {
 
-		public GetQueueReply(List<JsonTask> tasks, List<JsonRunner> runners) {
 			this.tasks = tasks;
 			this.runners = runners;
+			this.totalTasks = totalTasks;
+			this.version = version;
+			this.incremental = incremental;
+			this.order = order;
+			this.removed = removed;
 		}
 	}
 
@@ -15,6 +15,7 @@ import de.aaaaaaah.velcom.backend.access.repoaccess.entities.Repo.GithubInfo;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import de.aaaaaaah.velcom.backend.access.repoaccess.exceptions.FailedToAddRepoException;
 import de.aaaaaaah.velcom.backend.access.repoaccess.exceptions.NoSuchRepoException;
+import de.aaaaaaah.velcom.backend.data.queue.Queue;
 import de.aaaaaaah.velcom.backend.listener.Listener;
 import de.aaaaaaah.velcom.backend.listener.SynchronizeCommitsException;
 import de.aaaaaaah.velcom.backend.restapi.authentication.Admin;
@@ -55,14 +56,16 @@ public class RepoEndpoint {
 	private final RepoWriteAccess repoAccess;
 	private final AvailableDimensionsCache availableDimensionsCache;
 	private final Listener listener;
+	private final Queue queue;
 
 	public RepoEndpoint(DimensionReadAccess dimensionAccess, RepoWriteAccess repoAccess,
-		AvailableDimensionsCache availableDimensionsCache, Listener listener) {
+		AvailableDimensionsCache availableDimensionsCache, Listener listener, Queue queue) {
 
 		this.dimensionAccess = dimensionAccess;
 		this.repoAccess = repoAccess;
 		this.availableDimensionsCache = availableDimensionsCache;
 		this.listener = listener;
+		this.queue = queue;
 	}
 
 	private JsonRepo toJsonRepo(Repo repo) {
@@ -101,6 +104,7 @@ public class RepoEndpoint {
 			listener.synchronizeCommitsForRepo(repo);
 			return new PostReply(toJsonRepo(repo));
 		} catch (SynchronizeCommitsException e) {
+			queue.deleteAllTasksOfRepo(repo.getId());
 			repoAccess.deleteRepo(repo.getId());
 			throw new WebApplicationException("Repo could not be cloned, invalid remote url",
 				Status.BAD_REQUEST);
@@ -274,9 +278,11 @@ public class RepoEndpoint {
 		RepoId repoId = new RepoId(repoUuid);
 		repoAccess.guardRepoExists(repoId);
 
+		// The queue keeps its tasks in memory, so it needs to forget about the repo's tasks itself
+		queue.deleteAllTasksOfRepo(repoId);
+
 		// Also deletes the repo from all tables in the db that have a foreign key on the repo table
-		// since all (relevant) foreign key restraints are marked as ON DELETE CASCADE. This includes
-		// the queue table.
+		// since all (relevant) foreign key restraints are marked as ON DELETE CASCADE.
 		repoAccess.deleteRepo(repoId);
 	}
 }
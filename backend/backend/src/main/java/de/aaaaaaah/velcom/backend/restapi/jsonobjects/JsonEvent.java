@@ -0,0 +1,48 @@
+package de.aaaaaaah.velcom.backend.restapi.jsonobjects;
+
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * The data of a server-sent event. Which fields are present depends on the type of the event.
+ */
+public class JsonEvent {
+
+	@Nullable
+	private final Long version;
+	@Nullable
+	private final String name;
+	@Nullable
+	private final JsonRunner runner;
+	@Nullable
+	private final UUID runId;
+
+	public JsonEvent(@Nullable Long version, @Nullable String name, @Nullable JsonRunner runner,
+		@Nullable UUID runId) {
+
+		this.version = version;
+		this.name = name;
+		this.runner = runner;
+		this.runId = runId;
+	}
+
+	@Nullable
+	public Long getVersion() {
+		return version;
+	}
+
+	@Nullable
+	public String getName() {
+		return name;
+	}
+
+	@Nullable
+	public JsonRunner getRunner() {
+		return runner;
+	}
+
+	@Nullable
+	public UUID getRunId() {
+		return runId;
+	}
+}
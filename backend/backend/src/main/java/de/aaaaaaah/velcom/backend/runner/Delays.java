@@ -24,6 +24,12 @@ public final class Delays {
 	 */
 	public static final Duration REQUEST_STATUS_INTERVAL = Duration.ofSeconds(5);
 
+	/**
+	 * How long to wait between "get_status" commands for runners that push their status changes on
+	 * their own. Only acts as a safety net in case an update got lost.
+	 */
+	public static final Duration REQUEST_STATUS_FALLBACK_INTERVAL = Duration.ofSeconds(60);
+
 	private Delays() {
 		throw new UnsupportedOperationException();
 	}
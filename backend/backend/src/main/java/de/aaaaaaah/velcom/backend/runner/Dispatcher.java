@@ -2,6 +2,7 @@ package de.aaaaaaah.velcom.backend.runner;
 
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
+import de.aaaaaaah.velcom.backend.data.events.EventHub;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
 import de.aaaaaaah.velcom.backend.runner.single.TeleRunner;
 import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
@@ -26,11 +27,23 @@ public class Dispatcher implements IDispatcher {
 
 	private final List<TeleRunner> teleRunners;
 	private final Queue queue;
+	private final EventHub events;
 	private final Duration disconnectedRunnerGracePeriod;
+	private final boolean taskPrefetch;
+
+	/**
+	 * @param queue the queue to take tasks from
+	 * @param events used to announce changes to the runners
+	 * @param disconnectedRunnerGracePeriod how long disconnected runners are kept around
+	 * @param taskPrefetch whether runners may download their next task while still benchmarking
+	 */
+	public Dispatcher(Queue queue, EventHub events, Duration disconnectedRunnerGracePeriod,
+		boolean taskPrefetch) {
 
-	public Dispatcher(Queue queue, Duration disconnectedRunnerGracePeriod) {
 		this.queue = queue;
+		this.events = events;
 		this.disconnectedRunnerGracePeriod = disconnectedRunnerGracePeriod;
+		this.taskPrefetch = taskPrefetch;
 		this.teleRunners = new ArrayList<>();
 
 		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
@@ -45,6 +58,8 @@ public class Dispatcher implements IDispatcher {
 	}
 
 	private void cleanupDisconnectedRunners() {
+		List<TeleRunner> runnersToRemove = new ArrayList<>();
+
 		synchronized (teleRunners) {
 			LOGGER.debug("Checking for disconnected runners (I know {} runners)", teleRunners.size());
 			Predicate<TeleRunner> outOfGracePeriod = runner -> {
@@ -52,8 +67,6 @@ public class Dispatcher implements IDispatcher {
 				return timeSinceLastPing.compareTo(disconnectedRunnerGracePeriod) > 0;
 			};
 
-			List<TeleRunner> runnersToRemove = new ArrayList<>();
-
 			for (TeleRunner runner : teleRunners) {
 				// We synchronize on the runner object. If a runner with this name joins the same object
 				// would be returned if the cleanup synchronized block was not yet entered.
@@ -74,6 +87,8 @@ public class Dispatcher implements IDispatcher {
 
 			teleRunners.removeAll(runnersToRemove);
 		}
+
+		runnersToRemove.forEach(runner -> events.runnerChanged(runner.getRunnerName()));
 	}
 
 	/**
@@ -95,6 +110,19 @@ public class Dispatcher implements IDispatcher {
 
 			teleRunners.add(teleRunner);
 		}
+
+		events.runnerChanged(teleRunner.getRunnerName());
+	}
+
+	/**
+	 * Announces that something about a runner changed that is visible via {@link
+	 * #getKnownRunners()}. This doesn't lock anything but the event hub, so it is safe to call while
+	 * holding the runner's lock.
+	 *
+	 * @param teleRunner the runner that changed
+	 */
+	public void runnerChanged(TeleRunner teleRunner) {
+		events.runnerChanged(teleRunner.getRunnerName());
 	}
 
 	@Override
@@ -129,7 +157,12 @@ public class Dispatcher implements IDispatcher {
 				return Optional.empty();
 			}
 		}
-		Optional<Task> nextTask = queue.startNextTask();
+		Optional<Task> nextTask;
+		if (queue.hasReservedTask(runner.getRunnerName())) {
+			nextTask = queue.startReservedTask(runner.getRunnerName());
+		} else {
+			nextTask = queue.startNextTask();
+		}
 		if (nextTask.isEmpty()) {
 			return Optional.empty();
 		}
@@ -137,6 +170,45 @@ public class Dispatcher implements IDispatcher {
 		return nextTask;
 	}
 
+	/**
+	 * @return whether runners may download their next task while still benchmarking
+	 */
+	public boolean isTaskPrefetchEnabled() {
+		return taskPrefetch;
+	}
+
+	/**
+	 * Reserves the work the given {@link TeleRunner} should execute after its current task, so the
+	 * runner can download it in advance. The reserved task is started by the next call to {@link
+	 * #getWork(TeleRunner)} for this runner, unless it has been superseded in the meantime.
+	 *
+	 * @param runner the runner to reserve the work for
+	 * @return the reserved task
+	 */
+	public Optional<Task> reserveWork(TeleRunner runner) {
+		if (!taskPrefetch) {
+			return Optional.empty();
+		}
+
+		synchronized (teleRunners) {
+			Optional<TeleRunner> knownRunner = getTeleRunner(runner.getRunnerName());
+			if (knownRunner.isEmpty() || knownRunner.get() != runner) {
+				return Optional.empty();
+			}
+		}
+
+		return queue.reserveNextTask(runner.getRunnerName());
+	}
+
+	/**
+	 * Releases the work reserved for the given {@link TeleRunner}, if any.
+	 *
+	 * @param runner the runner whose reservation to release
+	 */
+	public void releaseReservedWork(TeleRunner runner) {
+		queue.releaseReservedTask(runner.getRunnerName());
+	}
+
 	public Optional<LinesWithOffset> findLinesForTask(UUID taskId) {
 		Optional<KnownRunner> activeWorker = getKnownRunners().stream()
 			.filter(it -> it.getCurrentTask().isPresent())
@@ -2,11 +2,15 @@ package de.aaaaaaah.velcom.backend.runner;
 
 import de.aaaaaaah.velcom.backend.data.benchrepo.BenchRepo;
 import de.aaaaaaah.velcom.backend.runner.single.TeleRunner;
+import de.aaaaaaah.velcom.backend.runner.single.TransferBufferPool;
 import de.aaaaaaah.velcom.shared.protocol.RunnerConnectionHeader;
 import de.aaaaaaah.velcom.shared.protocol.RunnerDenyReason;
+import de.aaaaaaah.velcom.shared.protocol.RunnerFeature;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
 import java.io.IOException;
 import java.util.Optional;
+import java.util.Set;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
 import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
 import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
@@ -24,6 +28,7 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 	private final Serializer serializer;
 	private final String runnerToken;
 	private final BenchRepo benchRepo;
+	private final TransferBufferPool transferBufferPool;
 
 	/**
 	 * Creates a new runner servlet.
@@ -32,13 +37,15 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 	 * @param serializer the serializer to use for communication
 	 * @param runnerToken the token runners need to provide when connecting
 	 * @param benchRepo the benchmark repo
+	 * @param transferBufferPool the buffers used to send tar files to the runners
 	 */
 	public ServerMasterWebsocketServlet(Dispatcher dispatcher, Serializer serializer,
-		String runnerToken, BenchRepo benchRepo) {
+		String runnerToken, BenchRepo benchRepo, TransferBufferPool transferBufferPool) {
 		this.dispatcher = dispatcher;
 		this.serializer = serializer;
 		this.runnerToken = runnerToken;
 		this.benchRepo = benchRepo;
+		this.transferBufferPool = transferBufferPool;
 	}
 
 	@Override
@@ -54,6 +61,13 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 				return null;
 			}
 
+			TransferCodec transferCodec = TransferCodec.negotiate(
+				req.getHeader(RunnerConnectionHeader.CONNECT_RUNNER_CODECS.getName())
+			);
+			Set<RunnerFeature> features = RunnerFeature.parse(
+				req.getHeader(RunnerConnectionHeader.CONNECT_RUNNER_FEATURES.getName())
+			);
+
 			Optional<TeleRunner> existingRunner = dispatcher.getTeleRunner(name);
 
 			TeleRunner myTeleRunner;
@@ -69,8 +83,12 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 				LOGGER.info("Reused runner connection for {} to ip {}!", name, req.getRemoteAddress());
 				myTeleRunner = runner;
 			} else {
-				myTeleRunner = new TeleRunner(name, serializer, dispatcher, benchRepo);
-				LOGGER.info("Accepted runner {} from {}!", name, req.getRemoteAddress());
+				myTeleRunner = new TeleRunner(
+					name, serializer, dispatcher, benchRepo, transferBufferPool
+				);
+				LOGGER.info(
+					"Accepted runner {} from {} using codec {}!", name, req.getRemoteAddress(), transferCodec
+				);
 			}
 
 			// We synchronize on the runner object. A runner might join while the dispatcher cleans up
@@ -85,13 +103,15 @@ public class ServerMasterWebsocketServlet extends WebSocketServlet {
 			//noinspection SynchronizationOnLocalVariableOrMethodParameter
 			synchronized (myTeleRunner) {
 				if (myTeleRunner.isDisposed()) {
-					myTeleRunner = new TeleRunner(name, serializer, dispatcher, benchRepo);
+					myTeleRunner = new TeleRunner(
+						name, serializer, dispatcher, benchRepo, transferBufferPool
+					);
 					LOGGER.info(
 						"Revived runner {} connecting from {} with new instance!", name, req.getRemoteAddress()
 					);
 				}
 
-				return myTeleRunner.createConnection();
+				return myTeleRunner.createConnection(transferCodec, features);
 			}
 		});
 	}
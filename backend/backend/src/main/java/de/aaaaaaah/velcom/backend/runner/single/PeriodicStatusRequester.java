@@ -5,6 +5,7 @@ import de.aaaaaaah.velcom.backend.runner.single.state.AwaitClearResultReply;
 import de.aaaaaaah.velcom.backend.runner.single.state.AwaitGetResultReply;
 import de.aaaaaaah.velcom.backend.runner.single.state.AwaitGetStatusReply;
 import de.aaaaaaah.velcom.backend.runner.single.state.TeleRunnerState;
+import de.aaaaaaah.velcom.shared.protocol.RunnerFeature;
 import de.aaaaaaah.velcom.shared.protocol.StatusCode;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.ClearResult;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.GetResult;
@@ -12,14 +13,21 @@ import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.GetStatus;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.GetResultReply;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.GetStatusReply;
 import de.aaaaaaah.velcom.shared.protocol.statemachine.StateMachine;
+import java.time.Duration;
 import java.util.UUID;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A thread that periodically asks a runner for its status.
+ *
+ * <p> Runners supporting {@link RunnerFeature#STATUS_PUSH} tell the backend about status changes
+ * on their own, so they are only asked rarely. Instead, the requester is woken up whenever such a
+ * runner reports something the backend has to act on, like an available result.
  */
 public class PeriodicStatusRequester {
 
@@ -29,6 +37,8 @@ public class PeriodicStatusRequester {
 	private final TeleRunner teleRunner;
 	private final RunnerConnection connection;
 	private final StateMachine<TeleRunnerState> stateMachine;
+	private final boolean statusPush;
+	private final Semaphore wakeUp;
 	private volatile boolean cancelled;
 
 	public PeriodicStatusRequester(TeleRunner teleRunner, RunnerConnection connection,
@@ -36,6 +46,8 @@ public class PeriodicStatusRequester {
 		this.teleRunner = teleRunner;
 		this.connection = connection;
 		this.stateMachine = stateMachine;
+		this.statusPush = connection.supportsFeature(RunnerFeature.STATUS_PUSH);
+		this.wakeUp = new Semaphore(0);
 
 		this.worker = new Thread(this::run, "PeriodicStatusRequester");
 		this.worker.setDaemon(true);
@@ -53,8 +65,7 @@ public class PeriodicStatusRequester {
 			try {
 				iteration();
 				// Keep some distance to not overload the runner with too many requests
-				//noinspection BusyWait
-				Thread.sleep(Delays.REQUEST_STATUS_INTERVAL.toMillis());
+				awaitNextIteration();
 			} catch (Exception e) {
 				if (cancelled) {
 					return;
@@ -70,6 +81,25 @@ public class PeriodicStatusRequester {
 		}
 	}
 
+	private void awaitNextIteration() throws InterruptedException {
+		Duration interval = statusPush
+			? Delays.REQUEST_STATUS_FALLBACK_INTERVAL
+			: Delays.REQUEST_STATUS_INTERVAL;
+
+		if (wakeUp.tryAcquire(interval.toMillis(), TimeUnit.MILLISECONDS)) {
+			// Multiple wake up calls during one iteration only need to result in a single iteration
+			wakeUp.drainPermits();
+		}
+	}
+
+	/**
+	 * Asks the runner for its status as soon as possible instead of waiting for the next regular
+	 * request. Does not block.
+	 */
+	public void wakeUp() {
+		wakeUp.release();
+	}
+
 	private void iteration() throws ExecutionException {
 		try {
 			GetStatusReply statusReply = requestStatus();
@@ -114,7 +144,7 @@ public class PeriodicStatusRequester {
 		AwaitGetStatusReply statusReplyState = new AwaitGetStatusReply(teleRunner, connection);
 
 		stateMachine.switchFromRestingState(statusReplyState);
-		connection.send(new GetStatus().asPacket(connection.getSerializer()));
+		connection.send(new GetStatus(statusPush).asPacket(connection.getSerializer()));
 
 		return statusReplyState.getReplyFuture().get();
 	}
@@ -5,7 +5,9 @@ import de.aaaaaaah.velcom.backend.runner.single.state.IdleState;
 import de.aaaaaaah.velcom.backend.runner.single.state.TeleRunnerState;
 import de.aaaaaaah.velcom.shared.protocol.HeartbeatHandler;
 import de.aaaaaaah.velcom.shared.protocol.HeartbeatHandler.HeartbeatWebsocket;
+import de.aaaaaaah.velcom.shared.protocol.RunnerFeature;
 import de.aaaaaaah.velcom.shared.protocol.StatusCode;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.ClientBoundPacket;
 import de.aaaaaaah.velcom.shared.protocol.statemachine.StateMachine;
@@ -17,6 +19,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import org.eclipse.jetty.io.RuntimeIOException;
@@ -47,10 +50,17 @@ public class RunnerConnection implements WebSocketListener, WebSocketFrameListen
 	private final PeriodicStatusRequester periodicStatusRequester;
 	private final List<Runnable> closeListeners;
 	private final HeartbeatHandler heartbeatHandler;
+	private final TransferCodec transferCodec;
+	private final TransferBufferPool transferBufferPool;
+	private final Set<RunnerFeature> features;
 
 	public RunnerConnection(Serializer serializer, TeleRunner runner,
-		AtomicReference<Instant> lastPing) {
+		AtomicReference<Instant> lastPing, TransferCodec transferCodec, Set<RunnerFeature> features,
+		TransferBufferPool transferBufferPool) {
 		this.serializer = serializer;
+		this.transferCodec = transferCodec;
+		this.features = Set.copyOf(features);
+		this.transferBufferPool = transferBufferPool;
 		this.stateMachine = new StateMachine<>(new IdleState(runner, this));
 		this.lastPing = lastPing;
 		this.closeListeners = new ArrayList<>();
@@ -83,6 +93,29 @@ public class RunnerConnection implements WebSocketListener, WebSocketFrameListen
 		return serializer;
 	}
 
+	/**
+	 * @return the codec negotiated with the runner that all tar files sent to it are encoded with
+	 */
+	public TransferCodec getTransferCodec() {
+		return transferCodec;
+	}
+
+	/**
+	 * @param feature the feature to check
+	 * @return true if the runner announced support for the feature when connecting
+	 */
+	public boolean supportsFeature(RunnerFeature feature) {
+		return features.contains(feature);
+	}
+
+	/**
+	 * Asks the runner for its full status as soon as possible, for example because it announced that
+	 * it has a result.
+	 */
+	public void requestStatusSoon() {
+		periodicStatusRequester.wakeUp();
+	}
+
 	/**
 	 * @return the internal state machine.
 	 */
@@ -121,12 +154,12 @@ public class RunnerConnection implements WebSocketListener, WebSocketFrameListen
 
 
 	/**
-	 * Streams binary data to the runner.
+	 * Streams binary data to the runner. Writing to the stream blocks if the runner can't keep up.
 	 *
 	 * @return an output stream that streams written data to the runner
 	 */
 	public OutputStream createBinaryOutputStream() {
-		return new TeleBinaryOutputStream(session);
+		return new TeleBinaryOutputStream(session, transferBufferPool);
 	}
 
 	/**
@@ -1,45 +1,169 @@
 package de.aaaaaaah.velcom.backend.runner.single;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 
 /**
  * A binary output stream streaming data to the runner.
+ *
+ * <p> Data is collected in chunks taken from a {@link TransferBufferPool} and sent as partial
+ * binary websocket frames without blocking. Only a limited amount of chunks may be in flight at
+ * once. If the runner can't keep up, writing blocks until previous chunks have been sent, so the
+ * backend never has more than a few chunks of a transfer in memory.
+ *
+ * <p> If sending a chunk fails, the next write or the final {@link #close()} throws an {@link
+ * IOException}.
  */
 class TeleBinaryOutputStream extends OutputStream {
 
-	private static final int DEFAULT_BUFFER_SIZE = 1024; // 1 MB
+	private final Session session;
+	private final TransferBufferPool bufferPool;
+	private final int maxChunksInFlight;
+	private final Semaphore freeChunkSlots;
+	private final AtomicReference<Throwable> failure;
 
-	private boolean closed;
+	@Nullable
 	private ByteBuffer buffer;
-	private final Session session;
+	private boolean closed;
 
-	public TeleBinaryOutputStream(Session session) {
+	public TeleBinaryOutputStream(Session session, TransferBufferPool bufferPool) {
 		this.session = session;
-		this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+		this.bufferPool = bufferPool;
+		this.maxChunksInFlight = bufferPool.getMaxChunksInFlight();
+		this.freeChunkSlots = new Semaphore(maxChunksInFlight);
+		this.failure = new AtomicReference<>();
 	}
 
 	@Override
 	public void write(int b) throws IOException {
-		if (!buffer.hasRemaining()) {
-			buffer.rewind();
-			session.getRemote().sendPartialBytes(buffer, false);
-			buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+		ByteBuffer currentBuffer = getCurrentBuffer();
+		currentBuffer.put((byte) b);
+
+		if (!currentBuffer.hasRemaining()) {
+			sendCurrentBuffer(false);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+
+		while (len > 0) {
+			ByteBuffer currentBuffer = getCurrentBuffer();
+			int amount = Math.min(len, currentBuffer.remaining());
+			currentBuffer.put(b, off, amount);
+			off += amount;
+			len -= amount;
+
+			if (!currentBuffer.hasRemaining()) {
+				sendCurrentBuffer(false);
+			}
 		}
-		buffer.put((byte) b);
 	}
 
+	/**
+	 * Sends the remaining data as the last frame of the message and waits until all chunks have been
+	 * sent.
+	 *
+	 * @throws IOException if any chunk could not be sent
+	 */
 	@Override
 	public void close() throws IOException {
 		if (closed) {
 			return;
 		}
-		buffer.limit(buffer.position());
-		buffer.rewind();
-		session.getRemote().sendPartialBytes(buffer, true);
+
+		// The last frame is always sent, even if it is empty, so the runner knows the message ended
+		getCurrentBuffer();
 		closed = true;
+		sendCurrentBuffer(true);
+
+		try {
+			freeChunkSlots.acquire(maxChunksInFlight);
+			freeChunkSlots.release(maxChunksInFlight);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for chunks to be sent");
+		}
+
+		throwIfFailed();
+	}
+
+	private ByteBuffer getCurrentBuffer() throws IOException {
+		if (closed) {
+			throw new IOException("stream is closed");
+		}
+		throwIfFailed();
+
+		if (buffer == null) {
+			buffer = bufferPool.acquire();
+		}
+		return buffer;
+	}
+
+	private void sendCurrentBuffer(boolean isLast) throws IOException {
+		ByteBuffer chunk = Objects.requireNonNull(buffer);
+		buffer = null;
+		chunk.flip();
+
+		try {
+			freeChunkSlots.acquire();
+		} catch (InterruptedException e) {
+			bufferPool.release(chunk);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for chunks to be sent");
+		}
+
+		try {
+			throwIfFailed();
+			session.getRemote().sendPartialBytes(chunk, isLast, new ChunkCallback(chunk));
+		} catch (IOException | RuntimeException e) {
+			freeChunkSlots.release();
+			bufferPool.release(chunk);
+			throw e;
+		}
+	}
+
+	private void throwIfFailed() throws IOException {
+		Throwable cause = failure.get();
+		if (cause != null) {
+			throw new IOException("sending binary data to the runner failed", cause);
+		}
 	}
 
+	/**
+	 * Returns a chunk's buffer to the pool and frees its slot once Jetty is done with it.
+	 */
+	private class ChunkCallback implements WriteCallback {
+
+		private final ByteBuffer chunk;
+
+		ChunkCallback(ByteBuffer chunk) {
+			this.chunk = chunk;
+		}
+
+		@Override
+		public void writeFailed(Throwable x) {
+			failure.compareAndSet(null, x);
+			done();
+		}
+
+		@Override
+		public void writeSuccess() {
+			done();
+		}
+
+		private void done() {
+			bufferPool.release(chunk);
+			freeChunkSlots.release();
+		}
+	}
 }
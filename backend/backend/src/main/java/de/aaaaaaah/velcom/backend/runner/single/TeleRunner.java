@@ -1,10 +1,12 @@
 package de.aaaaaaah.velcom.backend.runner.single;
 
+import de.aaaaaaah.velcom.backend.access.archiveaccess.entities.CommitDelta;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarRetrieveException;
 import de.aaaaaaah.velcom.backend.access.archiveaccess.exceptions.TarTransferException;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.RunBuilder;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunErrorType;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Interpretation;
@@ -17,24 +19,39 @@ import de.aaaaaaah.velcom.backend.runner.Dispatcher;
 import de.aaaaaaah.velcom.backend.runner.KnownRunner;
 import de.aaaaaaah.velcom.backend.runner.KnownRunner.CompletedTask;
 import de.aaaaaaah.velcom.backend.runner.single.state.AwaitAbortRunReply;
+import de.aaaaaaah.velcom.shared.protocol.RunnerFeature;
 import de.aaaaaaah.velcom.shared.protocol.StatusCode;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Benchmark;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Metric;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.AbortRun;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.RequestRunReply;
+import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.WorkspaceDelta;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.GetResultReply;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.GetStatusReply;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.RequestRun;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.StatusUpdate;
 import de.aaaaaaah.velcom.shared.util.ExceptionHelper;
+import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import org.apache.commons.compress.utils.CountingOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +66,11 @@ public class TeleRunner {
 	 * task has finished. This variable controls *how many* are ached.
 	 */
 	private static final int MAX_CACHED_COMPLETED_TASKS = 2;
+	/**
+	 * How many output lines are kept when merging the new lines from status updates. This matches
+	 * the amount of lines runners include in their full status.
+	 */
+	private static final int MAX_OUTPUT_LINES = 100;
 
 	private final AtomicReference<GetStatusReply> runnerInformation;
 	private final Queue<CompletedTask> lastResults;
@@ -59,41 +81,56 @@ public class TeleRunner {
 	private final AtomicReference<Instant> workingSince;
 	private final BenchRepo benchRepo;
 	private final AtomicReference<Instant> lastPing;
+	private final TransferBufferPool transferBufferPool;
+	/**
+	 * The last task whose repo was transferred completely to the runner. Used to send only the
+	 * differences if the runner still has that task's repo.
+	 */
+	private final AtomicReference<Task> lastTransferredTask;
 
 	private volatile boolean disposed;
 
 	private RunnerConnection connection;
 
 	public TeleRunner(String runnerName, Serializer serializer, Dispatcher dispatcher,
-		BenchRepo benchRepo) {
+		BenchRepo benchRepo, TransferBufferPool transferBufferPool) {
 		this.runnerName = runnerName;
 		this.serializer = serializer;
 		this.dispatcher = dispatcher;
 		this.benchRepo = benchRepo;
+		this.transferBufferPool = transferBufferPool;
 		this.runnerInformation = new AtomicReference<>();
 		this.myCurrentTask = new AtomicReference<>();
 		this.workingSince = new AtomicReference<>();
 		this.lastPing = new AtomicReference<>();
+		this.lastTransferredTask = new AtomicReference<>();
 		this.lastResults = new ArrayDeque<>();
 	}
 
 	/**
 	 * Creates a new connection, if none exists.
 	 *
+	 * @param transferCodec the codec negotiated with the runner for tar transfers
+	 * @param features the optional protocol features the runner supports
 	 * @return the created connection
 	 * @throws IllegalStateException if this runner already has a connection
 	 */
-	public synchronized RunnerConnection createConnection() throws IllegalStateException {
+	public synchronized RunnerConnection createConnection(TransferCodec transferCodec,
+		Set<RunnerFeature> features) throws IllegalStateException {
+
 		if (connection != null) {
 			throw new IllegalStateException("I already have a connection");
 		}
 		if (disposed) {
 			throw new IllegalStateException("I am disposed");
 		}
-		connection = new RunnerConnection(serializer, this, lastPing);
+		connection = new RunnerConnection(
+			serializer, this, lastPing, transferCodec, features, transferBufferPool
+		);
 		connection.addCloseListener(this::disposeConnection);
 
 		lastPing.set(Instant.now());
+		dispatcher.runnerChanged(this);
 
 		return connection;
 	}
@@ -102,6 +139,9 @@ public class TeleRunner {
 		synchronized (this) {
 			this.connection = null;
 		}
+		// The runner might not come back, so other runners should be able to start its next task
+		dispatcher.releaseReservedWork(this);
+		dispatcher.runnerChanged(this);
 	}
 
 	/**
@@ -126,11 +166,13 @@ public class TeleRunner {
 	 * @param reply the reply
 	 */
 	public void setRunnerInformation(GetStatusReply reply) {
-		if (runnerInformation.get() == null) {
+		GetStatusReply oldReply = runnerInformation.getAndSet(reply);
+		if (oldReply == null) {
 			LOGGER.debug("Passing runner '{}' on to dispatcher", getRunnerName());
 			dispatcher.addRunner(this);
+		} else if (oldReply.getStatus() != reply.getStatus()) {
+			dispatcher.runnerChanged(this);
 		}
-		runnerInformation.set(reply);
 
 		if (reply.getRunId().isPresent()) {
 			TaskId taskId = new TaskId(reply.getRunId().get());
@@ -143,6 +185,85 @@ public class TeleRunner {
 
 	}
 
+	/**
+	 * Merges a status update pushed by the runner into the runner information. Unlike {@link
+	 * #setRunnerInformation(GetStatusReply)}, this never talks to the runner, as it is called while a
+	 * packet from the runner is being handled. Instead, it tells the caller whether the runner needs
+	 * the backend's attention.
+	 *
+	 * @param update the update
+	 * @return true if the runner's full status should be requested soon, for example because it has
+	 * 	a result or is working on a task that is no longer in progress
+	 */
+	public boolean handleStatusUpdate(StatusUpdate update) {
+		GetStatusReply oldReply;
+		GetStatusReply newReply;
+		do {
+			oldReply = runnerInformation.get();
+			if (oldReply == null) {
+				// Updates only contain what changed, so they are useless without a full status
+				LOGGER.debug("Ignoring status update from '{}' without full status", getRunnerName());
+				return true;
+			}
+
+			newReply = new GetStatusReply(
+				oldReply.getInfo(),
+				oldReply.getVersionHash().orElse(null),
+				update.getBenchHash().orElse(null),
+				update.isResultAvailable(),
+				update.getStatus(),
+				update.getRunId().orElse(null),
+				mergeOutputLines(oldReply, update).orElse(null)
+			);
+		} while (!runnerInformation.compareAndSet(oldReply, newReply));
+
+		if (oldReply.getStatus() != newReply.getStatus()) {
+			dispatcher.runnerChanged(this);
+		}
+
+		if (newReply.isResultAvailable()) {
+			return true;
+		}
+		return newReply.getRunId()
+			.map(runId -> !dispatcher.getQueue().isTaskInProgress(new TaskId(runId)))
+			.orElse(false);
+	}
+
+	private static Optional<LinesWithOffset> mergeOutputLines(GetStatusReply oldReply,
+		StatusUpdate update) {
+
+		if (update.getRunId().isEmpty()) {
+			return Optional.empty();
+		}
+
+		Optional<LinesWithOffset> oldLines = oldReply.getLastOutputLines();
+		Optional<LinesWithOffset> newLines = update.getNewOutputLines();
+		boolean sameRun = Objects.equals(oldReply.getRunId(), update.getRunId());
+		if (!sameRun || oldLines.isEmpty()) {
+			return newLines;
+		}
+		if (newLines.isEmpty()) {
+			return oldLines;
+		}
+
+		// Offsets are absolute, so lines we already know are simply replaced. If the new lines don't
+		// continue the old ones, the old ones are useless.
+		int offset = oldLines.get().getFirstLineOffset();
+		List<String> knownLines = oldLines.get().getLines();
+		int keep = newLines.get().getFirstLineOffset() - offset;
+		if (keep < 0 || keep > knownLines.size()) {
+			return newLines;
+		}
+		List<String> lines = new ArrayList<>(knownLines.subList(0, keep));
+		lines.addAll(newLines.get().getLines());
+
+		int excess = Math.max(0, lines.size() - MAX_OUTPUT_LINES);
+		return Optional.of(new LinesWithOffset(
+			offset + excess,
+			new ArrayList<>(lines.subList(excess, lines.size()))
+		));
+	}
+
 	/**
 	 * @return the current task of this runner, if any
 	 */
@@ -167,6 +288,7 @@ public class TeleRunner {
 			this.connection.close(StatusCode.INTERNAL_ERROR);
 		}
 		getCurrentTask().ifPresent(task -> dispatcher.getQueue().abortTask(task.getId()));
+		dispatcher.releaseReservedWork(this);
 	}
 
 	/**
@@ -213,6 +335,7 @@ public class TeleRunner {
 	private void abort() {
 		myCurrentTask.set(null);
 		workingSince.set(null);
+		dispatcher.runnerChanged(this);
 
 		if (!hasConnection()) {
 			LOGGER.info(
@@ -270,6 +393,7 @@ public class TeleRunner {
 		dispatcher.completeTask(run);
 
 		myCurrentTask.set(null);
+		dispatcher.runnerChanged(this);
 	}
 
 	private NewRun handleUnsuccessful(GetResultReply resultReply, Task task) {
@@ -340,9 +464,22 @@ public class TeleRunner {
 
 	/**
 	 * Sends a {@link RequestRunReply} and any needed TARs.
+	 *
+	 * <p> If the runner still has the task repo of the last task transferred to it (see {@link
+	 * RequestRun#getWorkspaceRunId()}), only the differences to that task repo are sent. If the
+	 * runner already downloaded the task repo of its next task in advance (see {@link
+	 * RequestRun#getPrefetchedRunId()}), no task repo is sent at all.
+	 *
+	 * @param request the request sent by the runner
 	 */
-	public void prepareAndSendWork() {
+	public void prepareAndSendWork(RequestRun request) {
+		if (request.isPrefetch()) {
+			prepareAndSendPrefetch();
+			return;
+		}
+
 		LOGGER.debug("Runner {} asks for work", getRunnerName());
+		UUID workspaceRunId = request.getWorkspaceRunId().orElse(null);
 
 		Optional<String> benchRepoHash = benchRepo.getCurrentHash().map(CommitHash::getHash);
 
@@ -367,36 +504,146 @@ public class TeleRunner {
 		Task task = workOptional.get();
 		myCurrentTask.set(task);
 		workingSince.set(Instant.now());
+		dispatcher.runnerChanged(this);
 
 		boolean benchRepoUpToDate = runnerInformation.get().getBenchHash()
 			.map(it -> it.equals(benchRepoHash.get()))
 			.orElse(false);
 
-		LOGGER.info("Sending {} to runner {}", task.getId().getId(), getRunnerName());
+		TransferCodec codec = connection.getTransferCodec();
+		boolean prefetched = request.getPrefetchedRunId()
+			.map(it -> it.equals(task.getIdAsUuid()))
+			.orElse(false);
+		Optional<CommitDelta> delta = prefetched ? Optional.empty() : findDelta(task, workspaceRunId);
+		request.getPrefetchedRunId().ifPresent(it -> recordPrefetch(prefetched));
+
+		LOGGER.info("Sending {} to runner {}{}", task.getId().getId(), getRunnerName(),
+			prefetched ? " (already prefetched)"
+				: delta.map(it -> " as delta of " + it.getSize() + " paths").orElse(""));
 
 		connection.send(
 			new RequestRunReply(
 				!benchRepoUpToDate,
 				benchRepoUpToDate ? null : benchRepoHash.get(),
 				true,
-				task.getId().getId()
+				task.getId().getId(),
+				// Runners that didn't advertise any codecs don't know the field
+				codec == TransferCodec.NONE ? null : codec,
+				delta.map(it -> new WorkspaceDelta(workspaceRunId, it.getDeletedPaths())).orElse(null),
+				prefetched,
+				isPrefetchAllowed()
 			)
 				.asPacket(serializer)
 		);
 
 		if (!benchRepoUpToDate) {
-			handleBinaryTransfer(task, benchRepo::transfer);
+			handleBinaryTransfer(task, codec, outputStream -> benchRepo.transfer(codec, outputStream));
+		}
+
+		boolean transferred;
+		if (prefetched) {
+			transferred = true;
+		} else if (delta.isPresent()) {
+			transferred = handleBinaryTransfer(
+				task,
+				codec,
+				outputStream -> dispatcher.getQueue()
+					.transferTaskDelta(task.getId(), delta.get(), codec, outputStream)
+			);
+		} else {
+			transferred = handleBinaryTransfer(
+				task,
+				codec,
+				outputStream -> dispatcher.getQueue().transferTask(task.getId(), codec, outputStream)
+			);
 		}
 
-		handleBinaryTransfer(
+		// If the transfer failed, the runner's task repo is in an unknown state
+		lastTransferredTask.set(transferred ? task : null);
+	}
+
+	/**
+	 * Reserves the runner's next task and sends its task repo while the runner is still benchmarking
+	 * its current task. The task is only started once the runner asks for work again. Prefetched task
+	 * repos are always sent in full since the runner's task repo is still in use.
+	 */
+	private void prepareAndSendPrefetch() {
+		LOGGER.debug("Runner {} asks for its next task in advance", getRunnerName());
+
+		Optional<Task> reserved = isPrefetchAllowed() ? dispatcher.reserveWork(this) : Optional.empty();
+		if (reserved.isEmpty()) {
+			connection.send(new RequestRunReply(false, null, false, null).asPacket(serializer));
+			return;
+		}
+		Task task = reserved.get();
+
+		TransferCodec codec = connection.getTransferCodec();
+		LOGGER.info("Prefetching {} to runner {}", task.getId().getId(), getRunnerName());
+
+		connection.send(
+			new RequestRunReply(
+				false,
+				null,
+				true,
+				task.getId().getId(),
+				codec == TransferCodec.NONE ? null : codec,
+				null
+			)
+				.asPacket(serializer)
+		);
+
+		boolean transferred = handleBinaryTransfer(
 			task,
-			outputStream -> dispatcher.getQueue().transferTask(task.getId(), outputStream)
+			codec,
+			outputStream -> dispatcher.getQueue().transferTask(task.getId(), codec, outputStream)
 		);
+		if (!transferred) {
+			dispatcher.releaseReservedWork(this);
+		}
+	}
+
+	private boolean isPrefetchAllowed() {
+		return dispatcher.isTaskPrefetchEnabled() && connection.supportsFeature(RunnerFeature.PREFETCH);
+	}
+
+	private void recordPrefetch(boolean used) {
+		Metrics.counter("velcom.runner.prefetch", "outcome", used ? "used" : "discarded").increment();
 	}
 
-	private void handleBinaryTransfer(Task task, TransferConsumer consumer) {
+	/**
+	 * Find out whether the task repo of the runner's workspace can be turned into the task's repo by
+	 * sending only the differences. This is only possible if the runner's workspace contains the last
+	 * task transferred to it and both tasks are commits of the same repo.
+	 *
+	 * @param task the task to send
+	 * @param workspaceRunId the id of the run the runner's task repo belongs to
+	 * @return the delta to send, if any
+	 */
+	private Optional<CommitDelta> findDelta(Task task, @Nullable UUID workspaceRunId) {
+		Task lastTask = lastTransferredTask.get();
+		if (workspaceRunId == null || lastTask == null
+			|| !lastTask.getIdAsUuid().equals(workspaceRunId)) {
+			return Optional.empty();
+		}
+
+		Optional<CommitSource> base = lastTask.getSource().getLeft();
+		Optional<CommitSource> target = task.getSource().getLeft();
+		if (base.isEmpty() || target.isEmpty()
+			|| !base.get().getRepoId().equals(target.get().getRepoId())) {
+			return Optional.empty();
+		}
+
+		return dispatcher.getQueue().computeTaskDelta(task, base.get().getHash());
+	}
+
+	private boolean handleBinaryTransfer(Task task, TransferCodec codec, TransferConsumer consumer) {
+		Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+
 		try (OutputStream outputStream = connection.createBinaryOutputStream()) {
-			consumer.accept(outputStream);
+			CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+			consumer.accept(countingStream);
+			recordTransfer(codec, sample, countingStream.getBytesWritten());
+			return true;
 		} catch (TarRetrieveException e) {
 			LOGGER.info(
 				"Failed to transfer repo to runner " + getRunnerName() + ": Archiving failed", e
@@ -410,6 +657,27 @@ public class TeleRunner {
 			dispatcher.getQueue().abortTask(task.getId());
 			connection.close(StatusCode.TRANSFER_FAILED);
 		}
+		return false;
+	}
+
+	private void recordTransfer(TransferCodec codec, Timer.Sample sample, long bytes) {
+		long nanos = sample.stop(Timer.builder("velcom.runner.transfer.duration")
+			.tag("codec", codec.getHeaderValue())
+			.register(Metrics.globalRegistry));
+
+		DistributionSummary.builder("velcom.runner.transfer.bytes")
+			.baseUnit("bytes")
+			.tag("codec", codec.getHeaderValue())
+			.register(Metrics.globalRegistry)
+			.record(bytes);
+
+		if (nanos > 0) {
+			DistributionSummary.builder("velcom.runner.transfer.throughput")
+				.baseUnit("bytes_per_second")
+				.tag("codec", codec.getHeaderValue())
+				.register(Metrics.globalRegistry)
+				.record(bytes / (nanos / 1e9));
+		}
 	}
 
 	private NewRun tarRetrieveFailed(Task task, Instant start, TarRetrieveException exception) {
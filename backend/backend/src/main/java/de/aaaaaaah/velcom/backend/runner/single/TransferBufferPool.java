@@ -0,0 +1,87 @@
+package de.aaaaaaah.velcom.backend.runner.single;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A pool of equally sized buffers used to send binary data to runners in chunks. Buffers are
+ * reused across transfers and runners, so sending an archive doesn't allocate a new buffer for each
+ * chunk.
+ */
+public class TransferBufferPool {
+
+	/**
+	 * The maximum amount of unused buffers kept around. If more buffers are returned to the pool,
+	 * they are left to the garbage collector.
+	 */
+	private static final int MAX_POOLED_BUFFERS = 64;
+
+	private final int chunkSize;
+	private final int maxChunksInFlight;
+	private final boolean direct;
+	private final ArrayBlockingQueue<ByteBuffer> buffers;
+
+	/**
+	 * @param chunkSize the size of each buffer and thus the maximum size of a single websocket
+	 * 	frame in bytes
+	 * @param maxChunksInFlight how many chunks a single transfer may have queued up for sending
+	 * 	before it has to wait for the runner to receive them
+	 * @param direct whether to allocate direct buffers
+	 */
+	public TransferBufferPool(int chunkSize, int maxChunksInFlight, boolean direct) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size must be positive");
+		}
+		if (maxChunksInFlight <= 0) {
+			throw new IllegalArgumentException("max chunks in flight must be positive");
+		}
+
+		this.chunkSize = chunkSize;
+		this.maxChunksInFlight = maxChunksInFlight;
+		this.direct = direct;
+		this.buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+	}
+
+	/**
+	 * @return the size of the buffers in this pool
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * @return how many chunks a single transfer may have queued up for sending
+	 */
+	public int getMaxChunksInFlight() {
+		return maxChunksInFlight;
+	}
+
+	/**
+	 * Take a buffer from the pool, or allocate a new one if the pool is empty.
+	 *
+	 * @return an empty buffer with {@link #getChunkSize()} bytes remaining
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			return direct ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize);
+		}
+
+		return buffer.clear();
+	}
+
+	/**
+	 * Return a buffer to the pool. The buffer must not be used by the caller afterwards.
+	 *
+	 * @param buffer a buffer previously obtained via {@link #acquire()}
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer.capacity() != chunkSize || buffer.isDirect() != direct) {
+			return;
+		}
+
+		buffer.clear();
+		// If the pool is full, the buffer is simply dropped
+		buffers.offer(buffer);
+	}
+}
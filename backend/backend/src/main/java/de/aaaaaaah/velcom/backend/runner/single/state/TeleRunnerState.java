@@ -3,8 +3,10 @@ package de.aaaaaaah.velcom.backend.runner.single.state;
 import de.aaaaaaah.velcom.backend.runner.single.RunnerConnection;
 import de.aaaaaaah.velcom.backend.runner.single.TeleRunner;
 import de.aaaaaaah.velcom.shared.protocol.StatusCode;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.RequestRun;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.ServerBoundPacket;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.ServerBoundPacketType;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.StatusUpdate;
 import de.aaaaaaah.velcom.shared.protocol.statemachine.State;
 import java.util.Optional;
 import org.slf4j.Logger;
@@ -58,8 +60,22 @@ public class TeleRunnerState implements State {
 	 */
 	protected Optional<TeleRunnerState> onPacket(ServerBoundPacket packet) {
 		if (packet.getType() == ServerBoundPacketType.REQUEST_RUN) {
-			runner.prepareAndSendWork();
-			return Optional.of(this);
+			return connection.getSerializer()
+				.deserialize(packet.getData(), RequestRun.class)
+				.map(request -> {
+					runner.prepareAndSendWork(request);
+					return this;
+				});
+		}
+		if (packet.getType() == ServerBoundPacketType.STATUS_UPDATE) {
+			return connection.getSerializer()
+				.deserialize(packet.getData(), StatusUpdate.class)
+				.map(update -> {
+					if (runner.handleStatusUpdate(update)) {
+						connection.requestStatusSoon();
+					}
+					return this;
+				});
 		}
 
 		return Optional.empty();
@@ -69,14 +69,14 @@ public class ManagedDirs {
 		// Clean up data dir
 		onlyKeepAllowed(
 			dataDir,
-			Set.of("tars"),
+			Set.of("tars", "journal"),
 			Set.of("data.db", "data.db-shm", "data.db-wal")
 		);
 
 		// Clean up cache dir
 		onlyKeepAllowed(
 			cacheDir,
-			Set.of("repos"),
+			Set.of("repos", "archives"),
 			Set.of()
 		);
 
@@ -123,10 +123,18 @@ public class ManagedDirs {
 		return dataDir.resolve("tars/");
 	}
 
+	public Path getRunJournalDir() {
+		return dataDir.resolve("journal/");
+	}
+
 	public Path getReposDir() {
 		return cacheDir.resolve("repos/");
 	}
 
+	public Path getArchiveCacheDir() {
+		return cacheDir.resolve("archives/");
+	}
+
 	public Path getArchivesDir() {
 		return tmpDir.resolve("archives/");
 	}
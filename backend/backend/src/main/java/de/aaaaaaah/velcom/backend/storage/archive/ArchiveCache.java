@@ -0,0 +1,288 @@
+package de.aaaaaaah.velcom.backend.storage.archive;
+
+import de.aaaaaaah.velcom.backend.util.CheckedConsumer;
+import de.aaaaaaah.velcom.shared.util.FileHelper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A disk-based cache for compressed tar archives. Each archive is stored as a single file under an
+ * identifier (usually a combination of repo directory name and commit hash). When the total size of
+ * all archives exceeds the configured maximum, the least recently used archives are deleted.
+ *
+ * <p> Archives are only ever written to a temporary file first and then moved into place, so a
+ * partially written archive is never served.
+ */
+public class ArchiveCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveCache.class);
+
+	private static final String ARCHIVE_SUFFIX = ".tar.gz";
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final int KEY_LOCK_AMOUNT = 64;
+
+	private final Path rootDir;
+	private final long maxBytes;
+
+	// Access-ordered, so iteration starts with the least recently used archive. Guarded by "this".
+	private final LinkedHashMap<String, Long> archiveSizes;
+	private long totalBytes;
+
+	// Ensures that the same archive is never created by multiple threads at the same time, without
+	// blocking the creation of unrelated archives.
+	private final Object[] keyLocks;
+
+	private final Counter hitCounter;
+	private final Counter missCounter;
+	private final Counter evictionCounter;
+
+	/**
+	 * Initialize a new archive cache. Archives that already exist in the root directory are kept (up
+	 * to the maximum size) and leftover temporary files are deleted.
+	 *
+	 * @param rootDir the directory where the archives will be stored in
+	 * @param maxBytes the maximum total size of all archives in bytes
+	 * @throws IOException if the directory could not be created or scanned
+	 */
+	public ArchiveCache(Path rootDir, long maxBytes) throws IOException {
+		this.rootDir = rootDir;
+		this.maxBytes = maxBytes;
+
+		archiveSizes = new LinkedHashMap<>(16, 0.75f, true);
+		totalBytes = 0;
+
+		keyLocks = new Object[KEY_LOCK_AMOUNT];
+		for (int i = 0; i < keyLocks.length; i++) {
+			keyLocks[i] = new Object();
+		}
+
+		hitCounter = Counter.builder("velcom.archive_cache.requests")
+			.tag("result", "hit")
+			.description("Archive requests that could be served from the cache")
+			.register(Metrics.globalRegistry);
+		missCounter = Counter.builder("velcom.archive_cache.requests")
+			.tag("result", "miss")
+			.description("Archive requests that required the archive to be created")
+			.register(Metrics.globalRegistry);
+		evictionCounter = Counter.builder("velcom.archive_cache.evictions")
+			.description("Archives deleted to keep the cache below its maximum size")
+			.register(Metrics.globalRegistry);
+		Gauge.builder("velcom.archive_cache.size", this, ArchiveCache::getTotalBytes)
+			.baseUnit("bytes")
+			.register(Metrics.globalRegistry);
+		Gauge.builder("velcom.archive_cache.entries", this, ArchiveCache::getAmountOfArchives)
+			.register(Metrics.globalRegistry);
+
+		Files.createDirectories(rootDir);
+		loadExistingArchives();
+	}
+
+	private void loadExistingArchives() throws IOException {
+		List<Path> children = Files.list(rootDir).collect(Collectors.toList());
+
+		List<Path> archives = new ArrayList<>();
+		for (Path child : children) {
+			String name = child.getFileName().toString();
+			if (Files.isRegularFile(child) && name.endsWith(ARCHIVE_SUFFIX)) {
+				archives.add(child);
+			} else {
+				LOGGER.info("Removing unknown or temporary file {}", child);
+				FileHelper.deleteDirectoryOrFile(child);
+			}
+		}
+
+		// Oldest first, so the most recently modified archives end up at the end of the LRU order
+		Map<Path, Long> modificationTimes = new LinkedHashMap<>();
+		for (Path archive : archives) {
+			modificationTimes.put(archive, Files.getLastModifiedTime(archive).toMillis());
+		}
+		archives.sort(Comparator.comparing(modificationTimes::get));
+
+		synchronized (this) {
+			for (Path archive : archives) {
+				long size = Files.size(archive);
+				archiveSizes.put(getKeyOfPath(archive), size);
+				totalBytes += size;
+			}
+
+			evictIfNecessary(null);
+		}
+
+		LOGGER.info("Archive cache contains {} archives ({} bytes)", archiveSizes.size(), totalBytes);
+	}
+
+	private Path getPathOfKey(String key) {
+		return rootDir.resolve(key + ARCHIVE_SUFFIX);
+	}
+
+	private String getKeyOfPath(Path path) {
+		String name = path.getFileName().toString();
+		return name.substring(0, name.length() - ARCHIVE_SUFFIX.length());
+	}
+
+	private Object getKeyLock(String key) {
+		return keyLocks[Math.floorMod(key.hashCode(), keyLocks.length)];
+	}
+
+	/**
+	 * @param key the archive's identifier (must be a valid file name)
+	 * @return true if the archive is currently in the cache
+	 */
+	public synchronized boolean contains(String key) {
+		return archiveSizes.containsKey(key);
+	}
+
+	/**
+	 * Make sure an archive is in the cache, creating it if necessary. Does not count as a cache hit
+	 * or miss and does not mark the archive as recently used if it already exists.
+	 *
+	 * @param key the archive's identifier (must be a valid file name)
+	 * @param creator writes the archive's contents to the provided output stream if the archive
+	 * 	doesn't exist yet. May close the stream.
+	 * @param <E> the type of exception the creator may throw
+	 * @throws IOException if some file operation went wrong
+	 * @throws E if the creator failed
+	 */
+	public <E extends Exception> void prepare(String key, CheckedConsumer<OutputStream, E> creator)
+		throws IOException, E {
+
+		synchronized (getKeyLock(key)) {
+			if (!contains(key)) {
+				create(key, creator).close();
+			}
+		}
+	}
+
+	/**
+	 * Open an archive for reading, creating it first if it is not yet in the cache. The archive is
+	 * marked as recently used.
+	 *
+	 * <p> The returned stream stays valid even if the archive is evicted while it is being read.
+	 *
+	 * @param key the archive's identifier (must be a valid file name)
+	 * @param creator writes the archive's contents to the provided output stream if the archive
+	 * 	doesn't exist yet. May close the stream.
+	 * @param <E> the type of exception the creator may throw
+	 * @return a stream containing the archive's contents. Must be closed by the caller.
+	 * @throws IOException if some file operation went wrong
+	 * @throws E if the creator failed
+	 */
+	public <E extends Exception> InputStream retrieve(String key,
+		CheckedConsumer<OutputStream, E> creator) throws IOException, E {
+
+		synchronized (getKeyLock(key)) {
+			synchronized (this) {
+				if (archiveSizes.get(key) != null) {
+					hitCounter.increment();
+					return Files.newInputStream(getPathOfKey(key));
+				}
+			}
+
+			missCounter.increment();
+			return create(key, creator);
+		}
+	}
+
+	/**
+	 * Create an archive and add it to the cache. Must only be called while holding the key's lock.
+	 *
+	 * <p> The archive is opened before it is added to the cache. Otherwise, the creation of another
+	 * archive could evict it before the caller gets the chance to open it.
+	 *
+	 * @return a stream containing the archive's contents. Must be closed by the caller.
+	 */
+	private <E extends Exception> InputStream create(String key,
+		CheckedConsumer<OutputStream, E> creator) throws IOException, E {
+
+		Path archivePath = getPathOfKey(key);
+		Path tmpPath = rootDir.resolve(key + ARCHIVE_SUFFIX + TMP_SUFFIX);
+
+		try {
+			try (OutputStream out = Files.newOutputStream(tmpPath)) {
+				creator.accept(out);
+			}
+
+			long size = Files.size(tmpPath);
+			Files.move(tmpPath, archivePath, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+			InputStream inputStream = Files.newInputStream(archivePath);
+
+			synchronized (this) {
+				Long oldSize = archiveSizes.put(key, size);
+				totalBytes += size - (oldSize == null ? 0 : oldSize);
+				evictIfNecessary(key);
+			}
+
+			LOGGER.debug("Added archive {} ({} bytes) to cache", key, size);
+			return inputStream;
+		} finally {
+			try {
+				Files.deleteIfExists(tmpPath);
+			} catch (IOException e) {
+				LOGGER.warn("Failed to delete " + tmpPath);
+			}
+		}
+	}
+
+	/**
+	 * Delete the least recently used archives until the cache is no longer too large. Must only be
+	 * called while holding the monitor of "this".
+	 *
+	 * @param keep the key of an archive that must not be evicted, or null. This is used to prevent a
+	 * 	newly created archive larger than the maximum size from being deleted before it is read.
+	 */
+	private void evictIfNecessary(@Nullable String keep) {
+		Iterator<Entry<String, Long>> iterator = archiveSizes.entrySet().iterator();
+		while (totalBytes > maxBytes && iterator.hasNext()) {
+			Entry<String, Long> entry = iterator.next();
+			if (entry.getKey().equals(keep)) {
+				continue;
+			}
+
+			Path path = getPathOfKey(entry.getKey());
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				LOGGER.warn("Failed to evict archive " + path, e);
+				continue;
+			}
+
+			LOGGER.debug("Evicted archive {} ({} bytes) from cache", entry.getKey(), entry.getValue());
+			totalBytes -= entry.getValue();
+			iterator.remove();
+			evictionCounter.increment();
+		}
+	}
+
+	/**
+	 * @return the total size of all archives in the cache in bytes
+	 */
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * @return the amount of archives in the cache
+	 */
+	public synchronized int getAmountOfArchives() {
+		return archiveSizes.size();
+	}
+}
@@ -0,0 +1,145 @@
+package de.aaaaaaah.velcom.backend.storage.db;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically cleans up the database in the background. Instead of a full VACUUM, which blocks all
+ * writers until the entire database has been rewritten, free pages are returned to the file system
+ * in small slices. The write lock is released between slices so other writers can interleave.
+ */
+public class DatabaseMaintainer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseMaintainer.class);
+
+	// 4 MiB with sqlite's default page size
+	private static final int PAGES_PER_SLICE = 1024;
+	private static final Duration PAUSE_BETWEEN_SLICES = Duration.ofMillis(100);
+
+	private final DatabaseStorage databaseStorage;
+
+	private final Timer sliceTimer;
+	private final DistributionSummary reclaimedPagesSummary;
+
+	// An explicit reference to the executor is kept to ensure it will never accidentally be garbage
+	// collected. This might not be strictly necessary, but it doesn't hurt either.
+	@SuppressWarnings("FieldCanBeLocal")
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Constructs a new maintainer and starts running maintenance periodically.
+	 *
+	 * @param databaseStorage the database to maintain
+	 * @param maintenanceInterval the time the maintainer waits between maintenance runs
+	 */
+	public DatabaseMaintainer(DatabaseStorage databaseStorage, Duration maintenanceInterval) {
+		this.databaseStorage = databaseStorage;
+
+		sliceTimer = Timer.builder("velcom.db.maintenance.vacuum.slice.duration")
+			.description("Time the write lock is held for a single incremental vacuum slice")
+			.register(Metrics.globalRegistry);
+		reclaimedPagesSummary = DistributionSummary.builder("velcom.db.maintenance.vacuum.slice.pages")
+			.description("Free pages returned to the file system by a single incremental vacuum slice")
+			.register(Metrics.globalRegistry);
+
+		executor = Executors.newSingleThreadScheduledExecutor();
+		executor.scheduleWithFixedDelay(
+			this::onMaintenance,
+			maintenanceInterval.toSeconds(),
+			maintenanceInterval.toSeconds(),
+			TimeUnit.SECONDS
+		);
+	}
+
+	/**
+	 * This function is called regularly by the executor.
+	 */
+	private void onMaintenance() {
+		try {
+			maintain();
+		} catch (InterruptedException e) {
+			LOGGER.info("Database maintenance was interrupted");
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			LOGGER.error("Database maintenance failed", e);
+		}
+	}
+
+	/**
+	 * Perform a single maintenance run: Reclaim all free pages, truncate the WAL and let sqlite
+	 * update its query planner statistics if necessary.
+	 *
+	 * @throws InterruptedException if the thread was interrupted while pausing between slices
+	 */
+	public void maintain() throws InterruptedException {
+		LOGGER.debug("Running database maintenance");
+
+		long reclaimed = 0;
+		long reclaimedInSlice;
+		do {
+			reclaimedInSlice = vacuumSlice();
+			reclaimed += reclaimedInSlice;
+			if (reclaimedInSlice > 0) {
+				Thread.sleep(PAUSE_BETWEEN_SLICES.toMillis());
+			}
+		} while (reclaimedInSlice >= PAGES_PER_SLICE);
+
+		if (reclaimed > 0) {
+			LOGGER.info("Returned {} free pages to the file system", reclaimed);
+		}
+
+		try (DBWriteAccess db = databaseStorage.acquireWriteAccess()) {
+			Record result = db.dsl().fetchSingle("PRAGMA wal_checkpoint(TRUNCATE)");
+			if (result.get(0, Integer.class) != 0) {
+				LOGGER.debug("Could not truncate WAL, some readers are still using it");
+			}
+
+			db.dsl().execute("PRAGMA optimize");
+		}
+	}
+
+	/**
+	 * Return up to {@link #PAGES_PER_SLICE} free pages to the file system.
+	 *
+	 * @return the amount of pages returned
+	 */
+	private long vacuumSlice() {
+		try (DBWriteAccess db = databaseStorage.acquireWriteAccess()) {
+			long start = System.nanoTime();
+
+			long freeBefore = getFreePages(db.dsl());
+			long freeNow = freeBefore;
+			// Depending on how often the driver steps the statement, incremental_vacuum may return
+			// fewer pages than requested, so it is repeated until the slice is complete.
+			while (freeNow > 0 && freeBefore - freeNow < PAGES_PER_SLICE) {
+				long pages = PAGES_PER_SLICE - (freeBefore - freeNow);
+				db.dsl().execute("PRAGMA incremental_vacuum(" + pages + ")");
+				long freeAfter = getFreePages(db.dsl());
+				if (freeAfter >= freeNow) {
+					break; // Auto vacuum is disabled or the pages can't be returned right now
+				}
+				freeNow = freeAfter;
+			}
+
+			long reclaimed = freeBefore - freeNow;
+			if (reclaimed > 0) {
+				sliceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				reclaimedPagesSummary.record(reclaimed);
+			}
+			return reclaimed;
+		}
+	}
+
+	private static long getFreePages(DSLContext dsl) {
+		return dsl.fetchSingle("PRAGMA freelist_count").get(0, Long.class);
+	}
+}
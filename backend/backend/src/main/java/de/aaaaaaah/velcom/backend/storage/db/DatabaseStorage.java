@@ -5,6 +5,8 @@ import com.zaxxer.hikari.HikariDataSource;
 import de.aaaaaaah.velcom.backend.util.CheckedConsumer;
 import de.aaaaaaah.velcom.backend.util.CheckedFunction;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -14,15 +16,25 @@ import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteConfig.JournalMode;
+import org.sqlite.SQLiteConfig.Pragma;
 import org.sqlite.SQLiteDataSource;
 
 /**
  * Provides access to a database.
+ *
+ * <p> Reads and writes use separate connection pools. All writes go through a single connection
+ * and are serialized by a lock, while reads use a pool of read-only connections. Since the database
+ * is in WAL mode, reads are never blocked by writes (not even by a VACUUM) and always see the last
+ * committed state.
  */
 public class DatabaseStorage {
 
-	private final DSLContext context;
+	private static final long MMAP_SIZE = 1024 * 1024 * 256; // 256 MiB
+
+	private final DSLContext readContext;
+	private final DSLContext writeContext;
 	private final Lock writeLock = new ReentrantLock();
+	private final Timer writeLockWaitTimer;
 
 	/**
 	 * Initializes the database storage.
@@ -34,22 +46,55 @@ public class DatabaseStorage {
 	public DatabaseStorage(String jdbcUrl) {
 		migrate(jdbcUrl);
 
+		// The write pool must be created first since it switches the database to WAL mode, which the
+		// read-only connections can't do themselves.
+		writeContext = DSL.using(createWritePool(jdbcUrl), SQLDialect.SQLITE);
+		readContext = DSL.using(createReadPool(jdbcUrl), SQLDialect.SQLITE);
+
+		writeLockWaitTimer = Timer.builder("velcom.db.write_lock.wait")
+			.description("Time spent waiting for the database's write lock")
+			.register(Metrics.globalRegistry);
+	}
+
+	private static HikariDataSource createWritePool(String jdbcUrl) {
 		SQLiteConfig sqliteConfig = new SQLiteConfig();
 		sqliteConfig.enforceForeignKeys(true);
 		sqliteConfig.setJournalMode(JournalMode.WAL);
 		sqliteConfig.setJounalSizeLimit(1024 * 1024 * 8); // 8 MiB
+		sqliteConfig.setPragma(Pragma.MMAP_SIZE, Long.toString(MMAP_SIZE));
 
 		SQLiteDataSource sqLiteDataSource = new SQLiteDataSource(sqliteConfig);
 		sqLiteDataSource.setUrl(jdbcUrl);
 
+		// Sqlite only allows a single writer at a time anyways, so more connections would only wait
+		// for each other inside sqlite instead of in the write lock.
 		HikariConfig hikariConfig = new HikariConfig();
 		hikariConfig.setDataSource(sqLiteDataSource);
-		hikariConfig.setPoolName("velcom-db-pool");
+		hikariConfig.setPoolName("velcom-db-write-pool");
+		hikariConfig.setMaximumPoolSize(1);
 		hikariConfig.setMetricRegistry(Metrics.globalRegistry);
 
-		HikariDataSource hikariDataSource = new HikariDataSource(hikariConfig);
+		return new HikariDataSource(hikariConfig);
+	}
+
+	private static HikariDataSource createReadPool(String jdbcUrl) {
+		SQLiteConfig sqliteConfig = new SQLiteConfig();
+		sqliteConfig.setReadOnly(true);
+		sqliteConfig.setPragma(Pragma.MMAP_SIZE, Long.toString(MMAP_SIZE));
+
+		SQLiteDataSource sqLiteDataSource = new SQLiteDataSource(sqliteConfig);
+		sqLiteDataSource.setUrl(jdbcUrl);
 
-		context = DSL.using(hikariDataSource, SQLDialect.SQLITE);
+		HikariConfig hikariConfig = new HikariConfig();
+		hikariConfig.setDataSource(sqLiteDataSource);
+		hikariConfig.setPoolName("velcom-db-read-pool");
+		hikariConfig.setMaximumPoolSize(Runtime.getRuntime().availableProcessors());
+		// Opening the connection read-only already prevents writes to the database file, but not to
+		// temporary tables and the like
+		hikariConfig.setConnectionInitSql("PRAGMA query_only = true");
+		hikariConfig.setMetricRegistry(Metrics.globalRegistry);
+
+		return new HikariDataSource(hikariConfig);
 	}
 
 	/**
@@ -74,16 +119,20 @@ public class DatabaseStorage {
 	 * @return a way to interact with the database in a read only way
 	 */
 	public DBReadAccess acquireReadAccess() {
-		return new DBReadAccess(acquireContext());
+		return new DBReadAccess(readContext);
 	}
 
 	/**
-	 * Acquires read and write access to the database.
+	 * Acquires read and write access to the database. Blocks until all other write accesses have
+	 * been closed.
 	 *
 	 * @return a way to interact with the database
 	 */
 	public DBWriteAccess acquireWriteAccess() {
-		return new DBWriteAccess(acquireContext(), this.writeLock);
+		long start = System.nanoTime();
+		DBWriteAccess db = new DBWriteAccess(writeContext, this.writeLock);
+		writeLockWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		return db;
 	}
 
 	/**
@@ -115,7 +164,7 @@ public class DatabaseStorage {
 	 * 	return value.
 	 */
 	public void acquireReadTransaction(CheckedConsumer<DBReadAccess, Throwable> handler) {
-		acquireWriteTransaction(db -> {
+		acquireReadTransaction(db -> {
 			handler.accept(db);
 			return null;
 		});
@@ -156,12 +205,4 @@ public class DatabaseStorage {
 		});
 	}
 
-	/**
-	 * @return a {@link DSLContext} instance providing jooq functionality along with a connection to
-	 * 	the database
-	 */
-	private DSLContext acquireContext() {
-		return this.context;
-	}
-
 }
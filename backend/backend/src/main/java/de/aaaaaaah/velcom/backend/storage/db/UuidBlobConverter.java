@@ -0,0 +1,47 @@
+package de.aaaaaaah.velcom.backend.storage.db;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import org.jooq.impl.AbstractConverter;
+
+/**
+ * Ids are stored in the database as 16 byte blobs, but the rest of the backend works with their
+ * string representation. This converter is applied to all id columns by jOOQ's code generator (see
+ * the backend's pom.xml), so the access layer never sees the blobs.
+ */
+public class UuidBlobConverter extends AbstractConverter<byte[], String> {
+
+	private static final int UUID_BYTES = 16;
+
+	public UuidBlobConverter() {
+		super(byte[].class, String.class);
+	}
+
+	@Override
+	public String from(byte[] databaseObject) {
+		if (databaseObject == null) {
+			return null;
+		}
+
+		if (databaseObject.length != UUID_BYTES) {
+			throw new IllegalArgumentException(
+				"uuid must be " + UUID_BYTES + " bytes long, but is " + databaseObject.length);
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(databaseObject);
+		return new UUID(buffer.getLong(), buffer.getLong()).toString();
+	}
+
+	@Override
+	public byte[] to(String userObject) {
+		if (userObject == null) {
+			return null;
+		}
+
+		UUID uuid = UUID.fromString(userObject);
+		return ByteBuffer.allocate(UUID_BYTES)
+			.putLong(uuid.getMostSignificantBits())
+			.putLong(uuid.getLeastSignificantBits())
+			.array();
+	}
+}
@@ -2,6 +2,7 @@ package de.aaaaaaah.velcom.backend.util;
 
 import static java.util.function.Predicate.not;
 
+import de.aaaaaaah.velcom.backend.access.archiveaccess.entities.CommitDelta;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.storage.repo.GuickCloning;
 import de.aaaaaaah.velcom.backend.storage.repo.GuickCloning.CloneException;
@@ -12,15 +13,30 @@ import de.aaaaaaah.velcom.shared.util.compression.PermissionsHelper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Consumer;
+import javax.annotation.Nullable;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
 import org.apache.commons.compress.utils.IOUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,6 +47,11 @@ public class TransferUtils {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(TransferUtils.class);
 
+	private static final int DIR_MODE = 0755;
+	private static final int FILE_MODE = 0644;
+	private static final int EXECUTABLE_FILE_MODE = 0755;
+	private static final int SYMLINK_MODE = 0777;
+
 	private TransferUtils() {
 		throw new UnsupportedOperationException("no");
 	}
@@ -121,6 +142,234 @@ public class TransferUtils {
 		}
 	}
 
+	/**
+	 * Checks whether a commit has submodules. The contents of submodules are not contained in the
+	 * repository's object database, so commits with submodules can not be tarred via {@link
+	 * #tarCommit(Repository, CommitHash, boolean, OutputStream)}.
+	 *
+	 * @param repository the (usually bare) repository containing the commit
+	 * @param hash the commit's hash
+	 * @return true if the commit's tree contains a {@code .gitmodules} file or any submodule
+	 * @throws IOException if some io error occurred or the commit does not exist
+	 */
+	public static boolean hasSubmodules(Repository repository, CommitHash hash) throws IOException {
+		try (RevWalk revWalk = new RevWalk(repository);
+			TreeWalk treeWalk = new TreeWalk(repository)) {
+
+			RevCommit commit = revWalk.parseCommit(resolveCommit(repository, hash));
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setRecursive(true);
+
+			while (treeWalk.next()) {
+				if (FileMode.GITLINK.equals(treeWalk.getRawMode(0))
+					|| (treeWalk.getDepth() == 0 && treeWalk.getPathString().equals(".gitmodules"))) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a tar of a commit's tree directly from the repository's object database and
+	 * simultaneously writes that tar into the given output stream. Unlike {@link #tarRepo(Path,
+	 * OutputStream)}, this doesn't need a checked out working tree. Executable bits and symlinks are
+	 * preserved. Submodules are not resolved and appear as empty directories.
+	 *
+	 * <p> If {@code includeGitStub} is set, a minimal {@code .git} directory is added whose detached
+	 * HEAD points to the commit. It contains no objects, but is enough for commands like {@code git
+	 * rev-parse HEAD} to work.
+	 *
+	 * <p> Note that this method closes the provided output stream after it has finished.
+	 *
+	 * @param repository the (usually bare) repository containing the commit
+	 * @param hash the commit's hash
+	 * @param includeGitStub whether to include a minimal {@code .git} directory
+	 * @param out where the tar should be written to
+	 * @throws IOException if some io error occurred or the commit does not exist
+	 */
+	public static void tarCommit(Repository repository, CommitHash hash, boolean includeGitStub,
+		OutputStream out) throws IOException {
+
+		tarCommitPaths(repository, hash, null, includeGitStub, out);
+	}
+
+	/**
+	 * Like {@link #tarCommit(Repository, CommitHash, boolean, OutputStream)}, but only includes the
+	 * given files (and their parent directories) if {@code paths} is not null.
+	 *
+	 * <p> Note that this method closes the provided output stream after it has finished.
+	 *
+	 * @param repository the (usually bare) repository containing the commit
+	 * @param hash the commit's hash
+	 * @param paths the paths of the files to include, or null to include all files
+	 * @param includeGitStub whether to include a minimal {@code .git} directory
+	 * @param out where the tar should be written to
+	 * @throws IOException if some io error occurred or the commit does not exist
+	 */
+	public static void tarCommitPaths(Repository repository, CommitHash hash,
+		@Nullable Collection<String> paths, boolean includeGitStub, OutputStream out)
+		throws IOException {
+
+		try (out;
+			ObjectReader reader = repository.newObjectReader();
+			RevWalk revWalk = new RevWalk(reader);
+			TreeWalk treeWalk = new TreeWalk(repository, reader)) {
+
+			ObjectId commitId = resolveCommit(repository, hash);
+			RevCommit commit = revWalk.parseCommit(commitId);
+
+			var tarOut = new TarArchiveOutputStream(out);
+			tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+			tarOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setRecursive(false);
+			if (paths != null && !paths.isEmpty()) {
+				treeWalk.setFilter(PathFilterGroup.createFromStrings(paths));
+			}
+
+			// An empty filter group is not allowed, so an empty selection skips the walk instead
+			boolean includeFiles = paths == null || !paths.isEmpty();
+			while (includeFiles && treeWalk.next()) {
+				String path = treeWalk.getPathString();
+				int rawMode = treeWalk.getRawMode(0);
+
+				if (FileMode.TREE.equals(rawMode)) {
+					putDirectory(tarOut, path);
+					treeWalk.enterSubtree();
+				} else if (FileMode.GITLINK.equals(rawMode)) {
+					putDirectory(tarOut, path);
+				} else if (FileMode.SYMLINK.equals(rawMode)) {
+					byte[] target = reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getBytes();
+
+					TarArchiveEntry entry = new TarArchiveEntry(path, TarConstants.LF_SYMLINK);
+					entry.setLinkName(new String(target, StandardCharsets.UTF_8));
+					entry.setMode(SYMLINK_MODE);
+					tarOut.putArchiveEntry(entry);
+					tarOut.closeArchiveEntry();
+				} else {
+					ObjectLoader loader = reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB);
+					boolean executable = FileMode.EXECUTABLE_FILE.equals(rawMode);
+
+					TarArchiveEntry entry = new TarArchiveEntry(path);
+					entry.setMode(executable ? EXECUTABLE_FILE_MODE : FILE_MODE);
+					entry.setSize(loader.getSize());
+					tarOut.putArchiveEntry(entry);
+					loader.copyTo(tarOut);
+					tarOut.closeArchiveEntry();
+				}
+			}
+
+			if (includeGitStub) {
+				putGitStub(tarOut, commitId);
+			}
+
+			tarOut.finish();
+		}
+	}
+
+	/**
+	 * Compute which files differ between two commits' trees. Files whose content or mode changed
+	 * count as changed.
+	 *
+	 * <p> Both trees are only walked once. The same walk checks for submodules and counts the target
+	 * commit's files, so that the (comparatively expensive) delta doesn't need to be collected if
+	 * sending a full tar would be preferable anyways.
+	 *
+	 * @param repository the (usually bare) repository containing both commits
+	 * @param base the commit to compare against
+	 * @param target the commit whose changes to collect
+	 * @param maxFraction the maximum size of the delta relative to the amount of files (including
+	 * 	symlinks and submodules) in the target commit's tree
+	 * @return the differences between the two commits, or nothing if either commit has submodules or
+	 * 	the delta would be larger than allowed by {@code maxFraction}
+	 * @throws IOException if some io error occurred or either commit does not exist
+	 */
+	public static Optional<CommitDelta> diffCommits(Repository repository, CommitHash base,
+		CommitHash target, double maxFraction) throws IOException {
+
+		try (RevWalk revWalk = new RevWalk(repository);
+			TreeWalk treeWalk = new TreeWalk(repository)) {
+
+			treeWalk.addTree(revWalk.parseCommit(resolveCommit(repository, base)).getTree());
+			treeWalk.addTree(revWalk.parseCommit(resolveCommit(repository, target)).getTree());
+			treeWalk.setRecursive(true);
+
+			int files = 0;
+			List<String> changedPaths = new ArrayList<>();
+			List<String> deletedPaths = new ArrayList<>();
+			while (treeWalk.next()) {
+				int baseMode = treeWalk.getRawMode(0);
+				int targetMode = treeWalk.getRawMode(1);
+
+				if (FileMode.GITLINK.equals(baseMode) || FileMode.GITLINK.equals(targetMode)
+					|| (treeWalk.getDepth() == 0 && treeWalk.getPathString().equals(".gitmodules"))) {
+					return Optional.empty();
+				}
+
+				if (FileMode.MISSING.equals(targetMode)) {
+					deletedPaths.add(treeWalk.getPathString());
+					continue;
+				}
+
+				files++;
+				if (baseMode != targetMode || !treeWalk.idEqual(0, 1)) {
+					changedPaths.add(treeWalk.getPathString());
+				}
+			}
+
+			if (changedPaths.size() + deletedPaths.size() > files * maxFraction) {
+				LOGGER.debug("Delta from {} to {} is too large: {} changed and {} deleted of {} files",
+					base, target, changedPaths.size(), deletedPaths.size(), files);
+				return Optional.empty();
+			}
+
+			return Optional.of(new CommitDelta(base, target, changedPaths, deletedPaths));
+		}
+	}
+
+	private static ObjectId resolveCommit(Repository repository, CommitHash hash) throws IOException {
+		ObjectId commitId = repository.resolve(hash.getHash());
+		if (commitId == null) {
+			throw new IOException("unknown commit hash " + hash + " in repo " + repository);
+		}
+		return commitId;
+	}
+
+	private static void putDirectory(TarArchiveOutputStream tarOut, String path) throws IOException {
+		TarArchiveEntry entry = new TarArchiveEntry(path + "/");
+		entry.setMode(DIR_MODE);
+		tarOut.putArchiveEntry(entry);
+		tarOut.closeArchiveEntry();
+	}
+
+	private static void putFile(TarArchiveOutputStream tarOut, String path, String content)
+		throws IOException {
+
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+		TarArchiveEntry entry = new TarArchiveEntry(path);
+		entry.setMode(FILE_MODE);
+		entry.setSize(bytes.length);
+		tarOut.putArchiveEntry(entry);
+		tarOut.write(bytes);
+		tarOut.closeArchiveEntry();
+	}
+
+	private static void putGitStub(TarArchiveOutputStream tarOut, ObjectId commitId)
+		throws IOException {
+
+		putDirectory(tarOut, ".git");
+		putDirectory(tarOut, ".git/objects");
+		putDirectory(tarOut, ".git/refs");
+		putFile(tarOut, ".git/HEAD", commitId.getName() + "\n");
+		putFile(tarOut, ".git/config", "[core]\n"
+			+ "\trepositoryformatversion = 0\n"
+			+ "\tbare = false\n");
+	}
+
 	private static Consumer<Path> handleError(CheckedConsumer<Path, Exception> checkedConsumer) {
 		return path -> {
 			try {
@@ -0,0 +1,11 @@
+-- Instead of one row per value in measurement_value, each measurement stores all of its values in a
+-- single blob of little-endian doubles, along with a few precomputed statistics. Measurements
+-- without an error have all four columns set.
+--
+-- Existing values can't be packed in SQL alone. Measurements whose value_data is null still have
+-- their values in measurement_value and are packed by the backend on startup.
+
+ALTER TABLE measurement ADD COLUMN value_count INTEGER;
+ALTER TABLE measurement ADD COLUMN value_mean DOUBLE;
+ALTER TABLE measurement ADD COLUMN value_stddev DOUBLE;
+ALTER TABLE measurement ADD COLUMN value_data BLOB;
@@ -0,0 +1,18 @@
+-- Measurements that haven't been packed yet get their count and mean right away, so the graphs can
+-- rely on them. Their standard deviation is filled in once they are packed, since sqlite may lack
+-- a square root function.
+
+UPDATE measurement
+SET
+  value_count = (
+    SELECT count(*)
+    FROM measurement_value
+    WHERE measurement_value.measurement_id = measurement.id
+  ),
+  value_mean = (
+    SELECT avg(measurement_value.value)
+    FROM measurement_value
+    WHERE measurement_value.measurement_id = measurement.id
+  )
+WHERE error IS NULL
+AND value_data IS NULL;
@@ -0,0 +1,45 @@
+-- The latest_run view has to group the entire run table every time it is queried. Instead, the
+-- latest run of each commit is now stored in a table that is updated whenever a run is inserted.
+
+DROP VIEW latest_run;
+
+CREATE TABLE latest_run (
+  repo_id     CHAR(36) NOT NULL,
+  commit_hash CHAR(40) NOT NULL,
+  run_id      CHAR(36) NOT NULL,
+
+  PRIMARY KEY (repo_id, commit_hash),
+  FOREIGN KEY (repo_id) REFERENCES repo(id) ON DELETE CASCADE,
+  FOREIGN KEY (run_id) REFERENCES run(id) ON DELETE CASCADE
+);
+
+INSERT INTO latest_run (repo_id, commit_hash, run_id)
+SELECT repo_id, commit_hash, id
+FROM (
+  SELECT
+    repo_id,
+    commit_hash,
+    id,
+    MAX(start_time) -- sqlite-specific
+  FROM run
+  WHERE commit_hash IS NOT NULL
+  GROUP BY repo_id, commit_hash
+);
+
+-- Runs are only ever deleted by cascading deletes, so there is no good place to update the table
+-- in the access layer. If a commit's latest run is deleted, its next most recent run takes over.
+CREATE TRIGGER trg_run_delete_latest_run
+AFTER DELETE ON run
+WHEN OLD.commit_hash IS NOT NULL
+BEGIN
+  DELETE FROM latest_run
+  WHERE run_id = OLD.id;
+
+  INSERT OR IGNORE INTO latest_run (repo_id, commit_hash, run_id)
+  SELECT repo_id, commit_hash, id
+  FROM run
+  WHERE repo_id = OLD.repo_id
+  AND commit_hash = OLD.commit_hash
+  ORDER BY start_time DESC
+  LIMIT 1;
+END;
@@ -0,0 +1,8 @@
+-- With incremental auto vacuum, free pages can be returned to the file system in small steps using
+-- PRAGMA incremental_vacuum instead of having to rewrite the entire database using VACUUM. Changing
+-- the auto vacuum mode of an existing database requires one last full VACUUM though, which can't
+-- run inside a transaction (see the corresponding .conf file).
+
+PRAGMA auto_vacuum = INCREMENTAL;
+
+VACUUM;
@@ -0,0 +1,316 @@
+-- All ids used to be stored as 36 character UUID strings, which made up a large part of every
+-- table and index containing them. They are now stored as 16 byte blobs. The conversion between the
+-- two representations happens transparently in the jOOQ converter UuidBlobConverter.
+--
+-- Commit hashes are still stored as text since they often come directly from user input and are
+-- searched for by substring.
+
+-----------------------------------
+-- Renaming to-be-deleted tables --
+-----------------------------------
+
+ALTER TABLE repo RENAME TO repo_old;
+ALTER TABLE github_command RENAME TO github_command_old;
+ALTER TABLE known_commit RENAME TO known_commit_old;
+ALTER TABLE commit_relationship RENAME TO commit_relationship_old;
+ALTER TABLE branch RENAME TO branch_old;
+ALTER TABLE task RENAME TO task_old;
+ALTER TABLE run RENAME TO run_old;
+ALTER TABLE latest_run RENAME TO latest_run_old;
+ALTER TABLE measurement RENAME TO measurement_old;
+ALTER TABLE measurement_value RENAME TO measurement_value_old;
+
+-------------------------
+-- Creating new tables --
+-------------------------
+
+CREATE TABLE repo (
+  id                    BLOB PRIMARY KEY  NOT NULL,
+  name                  TEXT              NOT NULL,
+  remote_url            TEXT              NOT NULL,
+  github_auth_token     TEXT,
+  github_comment_cutoff TIMESTAMP,
+
+  CHECK ((github_auth_token IS NULL) == (github_comment_cutoff IS NULL))
+);
+
+CREATE TABLE github_command (
+  repo_id       BLOB     NOT NULL,
+  pr            BIGINT   NOT NULL,
+  target_branch TEXT     NOT NULL, -- Slightly redundant, but easy to work with
+  comment       BIGINT   NOT NULL,
+  commit_hash   CHAR(40) NOT NULL,
+  state         TEXT     NOT NULL DEFAULT "NEW",
+  tries_left    INT      NOT NULL,
+
+  PRIMARY KEY (repo_id, comment),
+  FOREIGN KEY (repo_id) REFERENCES repo(id),
+  -- No foreign key for the commit because VelCom might not yet have the commit synchronized when a
+  -- new row is added to this table.
+
+  CHECK (state in ("NEW", "MARKED_SEEN", "QUEUED", "ERROR")),
+  CHECK (tries_left > 0)
+);
+
+CREATE TABLE known_commit (
+  repo_id        BLOB      NOT NULL,
+  hash           CHAR(40)  NOT NULL,
+  reachable      BOOLEAN   NOT NULL, -- Whether this commit is reachable from any branch
+  tracked        BOOLEAN   NOT NULL, -- Whether this commit is reachable from a tracked branch
+  ever_tracked   BOOLEAN   NOT NULL, -- Whether this commit has ever been tracked
+  author         TEXT      NOT NULL,
+  author_date    TIMESTAMP NOT NULL,
+  committer      TEXT      NOT NULL,
+  committer_date TIMESTAMP NOT NULL,
+  message        TEXT      NOT NULL,
+
+  -- "tracked" implies "ever_tracked"
+  CHECK (NOT tracked OR ever_tracked),
+
+  PRIMARY KEY (repo_id, hash),
+  FOREIGN KEY (repo_id) REFERENCES repo (id) ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE TABLE commit_relationship (
+  repo_id     BLOB     NOT NULL,
+  parent_hash CHAR(40) NOT NULL,
+  child_hash  CHAR(40) NOT NULL,
+
+  FOREIGN KEY (repo_id) REFERENCES repo (id) ON UPDATE CASCADE ON DELETE CASCADE,
+  FOREIGN KEY (repo_id, parent_hash) REFERENCES known_commit (repo_id, hash) ON UPDATE CASCADE ON DELETE CASCADE,
+  FOREIGN KEY (repo_id, child_hash) REFERENCES known_commit (repo_id, hash) ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE TABLE branch (
+  repo_id            BLOB     NOT NULL,
+  name               TEXT     NOT NULL,
+  latest_commit_hash CHAR(40) NOT NULL,
+  tracked            BOOLEAN  NOT NULL,
+
+  PRIMARY KEY (repo_id, name),
+  FOREIGN KEY (repo_id) REFERENCES repo (id) ON UPDATE CASCADE ON DELETE CASCADE,
+  FOREIGN KEY (repo_id, latest_commit_hash) REFERENCES known_commit (repo_id, hash) ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE TABLE task (
+  id          BLOB      NOT NULL PRIMARY KEY,
+  author      TEXT      NOT NULL,
+  priority    INTEGER   NOT NULL,
+  insert_time TIMESTAMP NOT NULL,
+  update_time TIMESTAMP NOT NULL,
+  repo_id     BLOB,
+  commit_hash CHAR(40),
+  -- At the moment, this field is only used for tar file descriptions
+  description TEXT,
+  in_process  BOOLEAN   NOT NULL DEFAULT false,
+
+  FOREIGN KEY (repo_id) REFERENCES repo(id) ON DELETE CASCADE,
+  -- If at least one value in (repo_id, commit_hash) is null, no corresponding row needs to exist in
+  -- the foreign key table. See also https://sqlite.org/foreignkeys.html
+  FOREIGN KEY (repo_id, commit_hash) REFERENCES known_commit(repo_id, hash) ON DELETE CASCADE,
+
+  -- If a commit hash exists, a corresponding repo id must exist
+  -- (commit_hash IS NOT NULL) => (repo_id IS NOT NULL)
+  -- (a => b) is equivalent to (b or not a), resulting in this condition:
+  CHECK ((repo_id IS NOT NULL) OR (commit_hash IS NULL)),
+
+  -- There must always be either a commit hash or a (tar) description, but never both
+  CHECK ((commit_hash IS NULL) = (description IS NOT NULL))
+);
+
+CREATE TABLE run (
+  id          BLOB      NOT NULL PRIMARY KEY,
+  author      TEXT      NOT NULL,
+  runner_name TEXT      NOT NULL,
+  runner_info TEXT      NOT NULL,
+  start_time  TIMESTAMP NOT NULL,
+  stop_time   TIMESTAMP NOT NULL,
+  repo_id     BLOB,
+  commit_hash CHAR(40),
+  tar_desc    TEXT,
+  error_type  TEXT,
+  error       TEXT,
+
+  FOREIGN KEY (repo_id) REFERENCES repo(id) ON DELETE CASCADE,
+  -- If at least one value in (repo_id, commit_hash) is null, no corresponding row needs to exist in
+  -- the foreign key table. See also https://sqlite.org/foreignkeys.html
+  FOREIGN KEY (repo_id, commit_hash) REFERENCES known_commit(repo_id, hash) ON DELETE CASCADE,
+
+  CHECK ((repo_id IS NOT NULL) OR (commit_hash IS NULL)),
+  CHECK ((commit_hash IS NULL) = (tar_desc IS NOT NULL)),
+  CHECK (error_type IS NULL OR error_type IN ('BENCH', 'VELCOM')),
+  CHECK ((error_type IS NULL) = (error IS NULL))
+);
+
+CREATE TABLE latest_run (
+  repo_id     BLOB     NOT NULL,
+  commit_hash CHAR(40) NOT NULL,
+  run_id      BLOB     NOT NULL,
+
+  PRIMARY KEY (repo_id, commit_hash),
+  FOREIGN KEY (repo_id) REFERENCES repo(id) ON DELETE CASCADE,
+  FOREIGN KEY (run_id) REFERENCES run(id) ON DELETE CASCADE
+);
+
+CREATE TABLE measurement (
+  id             BLOB     NOT NULL PRIMARY KEY,
+  run_id         BLOB     NOT NULL,
+  benchmark      TEXT     NOT NULL,
+  metric         TEXT     NOT NULL,
+  unit           TEXT,
+  interpretation TEXT,
+  error          TEXT,
+  value_count    INTEGER,
+  value_mean     DOUBLE,
+  value_stddev   DOUBLE,
+  value_data     BLOB,
+
+  FOREIGN KEY (run_id) REFERENCES run(id) ON UPDATE CASCADE ON DELETE CASCADE,
+  FOREIGN KEY (benchmark, metric) REFERENCES dimension(benchmark, metric) ON UPDATE CASCADE ON DELETE CASCADE,
+
+  CHECK (interpretation IN ('LESS_IS_BETTER', 'MORE_IS_BETTER', 'NEUTRAL'))
+);
+
+CREATE TABLE measurement_value (
+  measurement_id BLOB   NOT NULL,
+  value          DOUBLE NOT NULL,
+
+  FOREIGN KEY (measurement_id) REFERENCES measurement(id) ON DELETE CASCADE
+);
+
+------------------------
+-- Filling new tables --
+------------------------
+
+INSERT INTO repo
+SELECT unhex(replace(id, '-', '')), name, remote_url, github_auth_token, github_comment_cutoff
+FROM repo_old;
+
+INSERT INTO github_command
+SELECT unhex(replace(repo_id, '-', '')), pr, target_branch, comment, commit_hash, state, tries_left
+FROM github_command_old;
+
+INSERT INTO known_commit
+SELECT
+  unhex(replace(repo_id, '-', '')),
+  hash,
+  reachable,
+  tracked,
+  ever_tracked,
+  author,
+  author_date,
+  committer,
+  committer_date,
+  message
+FROM known_commit_old;
+
+INSERT INTO commit_relationship
+SELECT unhex(replace(repo_id, '-', '')), parent_hash, child_hash
+FROM commit_relationship_old;
+
+INSERT INTO branch
+SELECT unhex(replace(repo_id, '-', '')), name, latest_commit_hash, tracked
+FROM branch_old;
+
+INSERT INTO task
+SELECT
+  unhex(replace(id, '-', '')),
+  author,
+  priority,
+  insert_time,
+  update_time,
+  unhex(replace(repo_id, '-', '')),
+  commit_hash,
+  description,
+  in_process
+FROM task_old;
+
+INSERT INTO run
+SELECT
+  unhex(replace(id, '-', '')),
+  author,
+  runner_name,
+  runner_info,
+  start_time,
+  stop_time,
+  unhex(replace(repo_id, '-', '')),
+  commit_hash,
+  tar_desc,
+  error_type,
+  error
+FROM run_old;
+
+INSERT INTO latest_run
+SELECT unhex(replace(repo_id, '-', '')), commit_hash, unhex(replace(run_id, '-', ''))
+FROM latest_run_old;
+
+INSERT INTO measurement
+SELECT
+  unhex(replace(id, '-', '')),
+  unhex(replace(run_id, '-', '')),
+  benchmark,
+  metric,
+  unit,
+  interpretation,
+  error,
+  value_count,
+  value_mean,
+  value_stddev,
+  value_data
+FROM measurement_old;
+
+INSERT INTO measurement_value
+SELECT unhex(replace(measurement_id, '-', '')), value
+FROM measurement_value_old;
+
+-------------------------
+-- Deleting old tables --
+-------------------------
+
+DROP TABLE measurement_value_old;
+DROP TABLE measurement_old;
+DROP TABLE latest_run_old;
+DROP TABLE run_old;
+DROP TABLE task_old;
+DROP TABLE branch_old;
+DROP TABLE commit_relationship_old;
+DROP TABLE known_commit_old;
+DROP TABLE github_command_old;
+DROP TABLE repo_old;
+
+--------------------------------------
+-- Recreating indices and triggers --
+--------------------------------------
+
+CREATE INDEX idx_commit_relationship_parent
+  ON commit_relationship(repo_id, parent_hash);
+CREATE INDEX idx_commit_relationship_upwards
+  ON commit_relationship(repo_id, child_hash, parent_hash);
+CREATE INDEX idx_run_rid_ch
+  ON run(repo_id, commit_hash);
+CREATE INDEX idx_measurement_rid
+  ON measurement(run_id);
+CREATE INDEX idx_measurement_value_mid
+  ON measurement_value(measurement_id);
+
+CREATE TRIGGER trg_run_delete_latest_run
+AFTER DELETE ON run
+WHEN OLD.commit_hash IS NOT NULL
+BEGIN
+  DELETE FROM latest_run
+  WHERE run_id = OLD.id;
+
+  INSERT OR IGNORE INTO latest_run (repo_id, commit_hash, run_id)
+  SELECT repo_id, commit_hash, id
+  FROM run
+  WHERE repo_id = OLD.repo_id
+  AND commit_hash = OLD.commit_hash
+  ORDER BY start_time DESC
+  LIMIT 1;
+END;
+
+-----------------------------------
+-- Ensure foreign keys are valid --
+-----------------------------------
+
+PRAGMA foreign_key_check;
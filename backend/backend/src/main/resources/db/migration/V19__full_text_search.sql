@@ -0,0 +1,83 @@
+-- Searching commits and runs used to scan the entire known_commit and run tables using LIKE '%q%'.
+-- Instead, the searchable columns are now indexed using FTS5's trigram tokenizer, which supports
+-- arbitrary substring queries of at least three characters.
+--
+-- The indices don't store their own copy of the text but refer to known_commit and run by rowid.
+-- Since a full VACUUM may change rowids, it must be followed by a rebuild of both indices:
+--   INSERT INTO commit_fts(commit_fts) VALUES ('rebuild');
+--   INSERT INTO run_fts(run_fts) VALUES ('rebuild');
+
+-------------
+-- Commits --
+-------------
+
+CREATE VIRTUAL TABLE commit_fts USING fts5 (
+  message,
+  author,
+  committer,
+  content = 'known_commit',
+  content_rowid = 'rowid',
+  tokenize = 'trigram'
+);
+
+INSERT INTO commit_fts(commit_fts) VALUES ('rebuild');
+
+CREATE TRIGGER trg_known_commit_insert_fts
+AFTER INSERT ON known_commit
+BEGIN
+  INSERT INTO commit_fts (rowid, message, author, committer)
+  VALUES (NEW.rowid, NEW.message, NEW.author, NEW.committer);
+END;
+
+CREATE TRIGGER trg_known_commit_delete_fts
+AFTER DELETE ON known_commit
+BEGIN
+  INSERT INTO commit_fts (commit_fts, rowid, message, author, committer)
+  VALUES ('delete', OLD.rowid, OLD.message, OLD.author, OLD.committer);
+END;
+
+-- The flags are updated much more frequently than the indexed columns, which never change in
+-- practice, so this trigger is restricted to the indexed columns.
+CREATE TRIGGER trg_known_commit_update_fts
+AFTER UPDATE OF message, author, committer ON known_commit
+BEGIN
+  INSERT INTO commit_fts (commit_fts, rowid, message, author, committer)
+  VALUES ('delete', OLD.rowid, OLD.message, OLD.author, OLD.committer);
+  INSERT INTO commit_fts (rowid, message, author, committer)
+  VALUES (NEW.rowid, NEW.message, NEW.author, NEW.committer);
+END;
+
+-- Commits are also searched by hash prefix, which doesn't need to be restricted to a single repo
+CREATE INDEX idx_known_commit_hash
+  ON known_commit(hash);
+
+----------
+-- Runs --
+----------
+
+-- Runs are never updated, only inserted and deleted
+CREATE VIRTUAL TABLE run_fts USING fts5 (
+  author,
+  runner_name,
+  runner_info,
+  tar_desc,
+  content = 'run',
+  content_rowid = 'rowid',
+  tokenize = 'trigram'
+);
+
+INSERT INTO run_fts(run_fts) VALUES ('rebuild');
+
+CREATE TRIGGER trg_run_insert_fts
+AFTER INSERT ON run
+BEGIN
+  INSERT INTO run_fts (rowid, author, runner_name, runner_info, tar_desc)
+  VALUES (NEW.rowid, NEW.author, NEW.runner_name, NEW.runner_info, NEW.tar_desc);
+END;
+
+CREATE TRIGGER trg_run_delete_fts
+AFTER DELETE ON run
+BEGIN
+  INSERT INTO run_fts (run_fts, rowid, author, runner_name, runner_info, tar_desc)
+  VALUES ('delete', OLD.rowid, OLD.author, OLD.runner_name, OLD.runner_info, OLD.tar_desc);
+END;
@@ -0,0 +1,14 @@
+-- A commit's generation is one more than the largest generation of its parents, or 1 if it has no
+-- parents. Since all ancestors of a commit have a smaller generation than the commit itself, walks
+-- through the commit graph can skip every commit below a certain generation when they only care
+-- about the ancestry of commits at or above that generation.
+--
+-- Generations are computed by the listener when it inserts new commits. Commits that already exist
+-- start out without a generation and receive one during the next update of their repo.
+
+ALTER TABLE known_commit ADD COLUMN generation INTEGER CHECK (generation > 0);
+
+-- Walks through the commit graph only need the hash and generation of each commit. With this index,
+-- they don't have to read the much larger table rows.
+CREATE INDEX idx_known_commit_generation
+  ON known_commit(repo_id, hash, generation);
@@ -1,6 +1,9 @@
 package de.aaaaaaah.velcom.backend;
 
 import static java.util.stream.Collectors.toList;
+import static org.jooq.codegen.db.Tables.KNOWN_COMMIT;
+import static org.jooq.codegen.db.Tables.LATEST_RUN;
+import static org.jooq.codegen.db.Tables.RUN;
 
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementError;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
@@ -135,7 +138,8 @@ public class TestDb {
 			authorDate,
 			committer,
 			committerDate,
-			message
+			message,
+			null
 		)).execute();
 	}
 
@@ -152,6 +156,14 @@ public class TestDb {
 			Instant.now(), "message");
 	}
 
+	public void setGeneration(RepoId repoId, CommitHash commitHash, int generation) {
+		dslContext.update(KNOWN_COMMIT)
+			.set(KNOWN_COMMIT.GENERATION, generation)
+			.where(KNOWN_COMMIT.REPO_ID.eq(repoId.getIdAsString()))
+			.and(KNOWN_COMMIT.HASH.eq(commitHash.getHash()))
+			.execute();
+	}
+
 	public void addCommitRel(RepoId repoId, CommitHash parent, CommitHash child) {
 		dslContext.batchInsert(new CommitRelationshipRecord(
 			repoId.getIdAsString(),
@@ -203,12 +215,36 @@ public class TestDb {
 				.map(RunError::getMessage)
 				.orElse(null)
 		)).execute();
+
+		// Keep the latest run table up to date, like BenchmarkWriteAccess#insertRun does
+		source.getLeft().ifPresent(commitSource -> {
+			String repoId = commitSource.getRepoId().getIdAsString();
+			String commitHash = commitSource.getHash().getHash();
+
+			dslContext.deleteFrom(LATEST_RUN)
+				.where(LATEST_RUN.REPO_ID.eq(repoId))
+				.and(LATEST_RUN.COMMIT_HASH.eq(commitHash))
+				.execute();
+			dslContext
+				.insertInto(LATEST_RUN, LATEST_RUN.REPO_ID, LATEST_RUN.COMMIT_HASH, LATEST_RUN.RUN_ID)
+				.select(dslContext.select(RUN.REPO_ID, RUN.COMMIT_HASH, RUN.ID)
+					.from(RUN)
+					.where(RUN.REPO_ID.eq(repoId))
+					.and(RUN.COMMIT_HASH.eq(commitHash))
+					.orderBy(RUN.START_TIME.desc())
+					.limit(1))
+				.execute();
+		});
 	}
 
 	public void addRun(RunId runId, Either<CommitSource, TarSource> source) {
 		addRun(runId, "author", "runnerName", "runnerInfo", Instant.now(), Instant.now(), source, null);
 	}
 
+	/**
+	 * Adds a measurement whose values are stored one row per value, like before they were packed.
+	 * Only the statistics that are backfilled for such measurements are set.
+	 */
 	public UUID addMeasurement(RunId runId, Dimension dimension, @Nullable Unit unit,
 		@Nullable Interpretation interpretation, Either<MeasurementError, MeasurementValues> result) {
 
@@ -227,7 +263,11 @@ public class TestDb {
 				.orElse(null),
 			result.getLeft()
 				.map(MeasurementError::getErrorMessage)
-				.orElse(null)
+				.orElse(null),
+			result.getRight().map(MeasurementValues::getCount).orElse(null),
+			result.getRight().map(MeasurementValues::getAverageValue).orElse(null),
+			null,
+			null
 		)).execute();
 
 		result.getRight().ifPresent(values -> dslContext
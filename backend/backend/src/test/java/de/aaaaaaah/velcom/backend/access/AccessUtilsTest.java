@@ -8,6 +8,7 @@ import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSou
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import de.aaaaaaah.velcom.shared.util.Either;
+import de.aaaaaaah.velcom.shared.util.Pair;
 import org.junit.jupiter.api.Test;
 
 class AccessUtilsTest {
@@ -44,4 +45,34 @@ class AccessUtilsTest {
 		assertThatThrownBy(() -> AccessUtils.readSource(repoIdStr, commitHashStr, tarDesc))
 			.isInstanceOf(IllegalArgumentException.class);
 	}
+
+	@Test
+	void packAndUnpackValues() {
+		double[] values = {1, -2.5, Double.MAX_VALUE, Double.MIN_VALUE};
+		byte[] packed = AccessUtils.packValues(values);
+
+		assertThat(packed).hasSize(values.length * Double.BYTES);
+		assertThat(packed).startsWith(new byte[]{0, 0, 0, 0, 0, 0, (byte) 0xf0, 0x3f});
+		assertThat(AccessUtils.unpackValues(packed)).containsExactly(values);
+
+		assertThatThrownBy(() -> AccessUtils.unpackValues(new byte[]{1, 2, 3}))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void toFtsQuery() {
+		assertThat(AccessUtils.toFtsQuery("ab")).isEmpty();
+		assertThat(AccessUtils.toFtsQuery("  ab  ")).isEmpty();
+		assertThat(AccessUtils.toFtsQuery("abc")).contains("\"abc\"");
+		assertThat(AccessUtils.toFtsQuery(" fix OR \"bug\" ")).contains("\"fix OR \"\"bug\"\"\"");
+	}
+
+	@Test
+	void hexPrefixRange() {
+		assertThat(AccessUtils.hexPrefixRange("aB1", 5)).contains(new Pair<>("ab100", "ab1ff"));
+		assertThat(AccessUtils.hexPrefixRange("", 2)).contains(new Pair<>("00", "ff"));
+		assertThat(AccessUtils.hexPrefixRange("abcde", 5)).contains(new Pair<>("abcde", "abcde"));
+		assertThat(AccessUtils.hexPrefixRange("abcdef", 5)).isEmpty();
+		assertThat(AccessUtils.hexPrefixRange("xyz", 5)).isEmpty();
+	}
 }
@@ -7,11 +7,13 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import de.aaaaaaah.velcom.backend.TestDb;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Measurement;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementSummary;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.Run;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunError;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunErrorType;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunSummary;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.SearchRunDescription;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.ShortRunDescription;
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
@@ -367,6 +369,50 @@ class BenchmarkReadAccessTest {
 		assertThat(run7.getAllDimensionsUsed()).isEmpty();
 	}
 
+	@Test
+	void getRunSummaries() {
+		Map<RunId, RunSummary> summaries = access
+			.getRunSummaries(List.of(RUN4_ID, RUN5_ID, RUN6_ID, RUN8_ID, new RunId()))
+			.stream()
+			.collect(toMap(RunSummary::getId, it -> it));
+
+		assertThat(summaries).containsOnlyKeys(RUN4_ID, RUN5_ID, RUN6_ID, RUN8_ID);
+
+		assertThat(summaries.get(RUN4_ID).isFailed()).isTrue();
+		assertThat(summaries.get(RUN4_ID).getMeasurements()).isEmpty();
+
+		RunSummary run5 = summaries.get(RUN5_ID);
+		assertThat(run5.isFailed()).isFalse();
+		assertThat(run5.getMeasurements()).containsOnlyKeys(DIM_HW, DIM_TT);
+		assertThat(run5.getMeasurement(DIM_HW).flatMap(MeasurementSummary::getMean)).contains(3d);
+		assertThat(run5.getMeasurement(DIM_TT).flatMap(MeasurementSummary::getMean)).contains(10.5);
+
+		RunSummary run6 = summaries.get(RUN6_ID);
+		assertThat(run6.getMeasurement(DIM_HW).flatMap(MeasurementSummary::getMean)).contains(16d);
+		assertThat(run6.getMeasurement(DIM_TT).map(MeasurementSummary::isFailed)).contains(true);
+		assertThat(run6.getMeasurement(DIM_TT).flatMap(MeasurementSummary::getMean)).isEmpty();
+
+		assertThat(summaries.get(RUN8_ID).isFailed()).isFalse();
+		assertThat(summaries.get(RUN8_ID).getMeasurements()).isEmpty();
+	}
+
+	@Test
+	void getSeries() {
+		Map<CommitHash, RunSummary> series = access
+			.getSeries(REPO1_ID, List.of(COMMIT1_HASH, COMMIT2_HASH, COMMIT3_HASH), List.of(DIM_HW));
+
+		assertThat(series).containsOnlyKeys(COMMIT1_HASH, COMMIT2_HASH);
+		assertThat(series.get(COMMIT1_HASH).getId()).isEqualTo(RUN7_ID);
+		assertThat(series.get(COMMIT1_HASH).isFailed()).isTrue();
+		assertThat(series.get(COMMIT2_HASH).getId()).isEqualTo(RUN8_ID);
+		assertThat(series.get(COMMIT2_HASH).isFailed()).isFalse();
+		assertThat(series.get(COMMIT2_HASH).getMeasurements()).isEmpty();
+
+		assertThat(access.getSeries(REPO2_ID, List.of(COMMIT1_HASH), List.of(DIM_HW))).isEmpty();
+		assertThat(access.getSeries(REPO2_ID, List.of(COMMIT4_HASH), List.of()))
+			.containsOnlyKeys(COMMIT4_HASH);
+	}
+
 	@Test
 	void searchRuns() {
 		// Search for all runs ("a" appears in every run's author)
@@ -389,6 +435,13 @@ class BenchmarkReadAccessTest {
 			.map(SearchRunDescription::getId))
 			.containsExactly(RUN10_ID, RUN9_ID);
 
+		// Surrounding whitespace is ignored, even for queries too short for the full text index
+
+		assertThat(access.searchRuns(100, REPO2_ID, " a ")
+			.stream()
+			.map(SearchRunDescription::getId))
+			.containsExactly(RUN10_ID, RUN9_ID);
+
 		// Commit description and hash are ignored
 
 		assertThat(access.searchRuns(100, null, "d9")
@@ -399,6 +452,25 @@ class BenchmarkReadAccessTest {
 		assertThat(access.searchRuns(100, null, COMMIT1_HASH.getHash()))
 			.isEmpty();
 
+		// Longer queries use the full text index
+
+		assertThat(access.searchRuns(100, null, "rn1")
+			.stream()
+			.map(SearchRunDescription::getId))
+			.containsExactlyInAnyOrder(RUN1_ID, RUN10_ID);
+
+		// Runs can be found by id prefix, with or without dashes
+
+		assertThat(access.searchRuns(100, null, "e19a269b-c6")
+			.stream()
+			.map(SearchRunDescription::getId))
+			.containsExactly(RUN8_ID);
+
+		assertThat(access.searchRuns(100, null, "E19A269BC6")
+			.stream()
+			.map(SearchRunDescription::getId))
+			.containsExactly(RUN8_ID);
+
 		// Limit is respected
 
 		assertThat(access.searchRuns(4, null, "a")
@@ -3,6 +3,8 @@ package de.aaaaaaah.velcom.backend.access.benchmarkaccess;
 import static java.util.stream.Collectors.toMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.jooq.codegen.db.tables.Dimension.DIMENSION;
+import static org.jooq.codegen.db.tables.Measurement.MEASUREMENT;
+import static org.jooq.codegen.db.tables.MeasurementValue.MEASUREMENT_VALUE;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -21,6 +23,7 @@ import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.Commit
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSource;
 import de.aaaaaaah.velcom.backend.access.caches.AvailableDimensionsCache;
 import de.aaaaaaah.velcom.backend.access.caches.LatestRunCache;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
 import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Interpretation;
@@ -31,10 +34,12 @@ import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
 import de.aaaaaaah.velcom.shared.util.Either;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.jooq.codegen.db.tables.records.DimensionRecord;
+import org.jooq.codegen.db.tables.records.MeasurementRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -47,14 +52,16 @@ class BenchmarkWriteAccessTest {
 	private static final Dimension DIM1 = new Dimension("test", "ing");
 	private static final Dimension DIM2 = new Dimension("hello", "world");
 
+	private TestDb testDb;
 	private DatabaseStorage databaseStorage;
 	private AvailableDimensionsCache availableDimensionsCache;
 	private LatestRunCache latestRunCache;
+	private SeriesCache seriesCache;
 	private BenchmarkWriteAccess access;
 
 	@BeforeEach
 	void setUp(@TempDir Path tempDir) {
-		TestDb testDb = new TestDb(tempDir);
+		testDb = new TestDb(tempDir);
 
 		testDb.addRepo(REPO_ID);
 		testDb.addCommit(REPO_ID, COMMIT_HASH);
@@ -64,7 +71,9 @@ class BenchmarkWriteAccessTest {
 		databaseStorage = new DatabaseStorage(testDb.closeAndGetJdbcUrl());
 		availableDimensionsCache = mock(AvailableDimensionsCache.class);
 		latestRunCache = mock(LatestRunCache.class);
-		access = new BenchmarkWriteAccess(databaseStorage, availableDimensionsCache, latestRunCache);
+		seriesCache = mock(SeriesCache.class);
+		access = new BenchmarkWriteAccess(databaseStorage, availableDimensionsCache, latestRunCache,
+			seriesCache);
 	}
 
 	@Test
@@ -142,6 +151,28 @@ class BenchmarkWriteAccessTest {
 			.isEqualTo(Either.ofLeft(new RunError("errorMessage", RunErrorType.VELCOM_ERROR)));
 	}
 
+	@Test
+	void insertingCommitRunUpdatesLatestRun() {
+		RunId newerRunId = new RunId();
+		Instant newerStart = Instant.ofEpochSecond(1600020001);
+		access.insertRun(new NewRun(newerRunId, "author", "runnerName", "runnerInfo", newerStart,
+			newerStart.plusSeconds(5), Either.ofLeft(new CommitSource(REPO_ID, COMMIT_HASH)),
+			new RunError("errorMessage", RunErrorType.VELCOM_ERROR)));
+
+		assertThat(access.getLatestRunId(REPO_ID, COMMIT_HASH)).contains(newerRunId);
+
+		// Runs that started earlier don't replace the latest run, even if they are inserted later
+		RunId olderRunId = new RunId();
+		Instant olderStart = Instant.ofEpochSecond(1600010001);
+		access.insertRun(new NewRun(olderRunId, "author", "runnerName", "runnerInfo", olderStart,
+			olderStart.plusSeconds(5), Either.ofLeft(new CommitSource(REPO_ID, COMMIT_HASH)),
+			new RunError("errorMessage", RunErrorType.VELCOM_ERROR)));
+
+		assertThat(access.getLatestRunId(REPO_ID, COMMIT_HASH)).contains(newerRunId);
+		assertThat(access.getLatestRunIds(REPO_ID, List.of(COMMIT_HASH)))
+			.isEqualTo(Map.of(COMMIT_HASH, newerRunId));
+	}
+
 	@Test
 	void insertSuccessfulRun() {
 		RunId runId = new RunId();
@@ -170,6 +201,18 @@ class BenchmarkWriteAccessTest {
 			new Measurement(runId, DIM1, Either.ofRight(new MeasurementValues(List.of(1d, 2d, 3d)))),
 			new Measurement(runId, DIM2, Either.ofRight(new MeasurementValues(List.of(4d))))
 		);
+
+		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
+			assertThat(db.dsl().fetchCount(MEASUREMENT_VALUE)).isZero();
+
+			MeasurementRecord record = db.dsl()
+				.selectFrom(MEASUREMENT)
+				.where(MEASUREMENT.BENCHMARK.eq(DIM1.getBenchmark()))
+				.fetchSingle();
+			assertThat(record.getValueCount()).isEqualTo(3);
+			assertThat(record.getValueMean()).isEqualTo(2);
+			assertThat(record.getValueStddev()).isEqualTo(1);
+		}
 	}
 
 	@Test
@@ -270,5 +313,53 @@ class BenchmarkWriteAccessTest {
 
 		verify(availableDimensionsCache, atLeastOnce()).invalidate(REPO_ID);
 		verify(latestRunCache, atLeastOnce()).invalidate(REPO_ID, COMMIT_HASH);
+		verify(seriesCache, atLeastOnce()).invalidate(REPO_ID, COMMIT_HASH);
+	}
+
+	@Test
+	void packLegacyValues() {
+		RunId runId = new RunId();
+		testDb.addRun(runId, Either.ofLeft(new CommitSource(REPO_ID, COMMIT_HASH)));
+		testDb.addMeasurement(runId, DIM1, null, null,
+			Either.ofRight(new MeasurementValues(List.of(1d, 2d, 3d))));
+		testDb.addMeasurement(runId, DIM2, null, null,
+			Either.ofLeft(new MeasurementError("errorMessage")));
+
+		Either<RunError, Collection<Measurement>> resultBefore = access.getRun(runId).getResult();
+		access.packLegacyValues();
+
+		assertThat(access.getRun(runId).getResult().getRight()).isPresent();
+		assertThat(access.getRun(runId).getResult().getRight().get())
+			.containsExactlyInAnyOrderElementsOf(resultBefore.getRight().orElseThrow());
+
+		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
+			assertThat(db.dsl().fetchCount(MEASUREMENT_VALUE)).isZero();
+
+			MeasurementRecord record = db.dsl()
+				.selectFrom(MEASUREMENT)
+				.where(MEASUREMENT.BENCHMARK.eq(DIM1.getBenchmark()))
+				.fetchSingle();
+			assertThat(record.getValueCount()).isEqualTo(3);
+			assertThat(record.getValueData()).hasSize(3 * Double.BYTES);
+		}
+	}
+
+	@Test
+	void packLegacyValuesInMultipleBatches() {
+		// One more measurement than fits into a single batch, so the second batch has to continue
+		// after the last id of the first one
+		RunId runId = new RunId();
+		testDb.addRun(runId, Either.ofLeft(new CommitSource(REPO_ID, COMMIT_HASH)));
+		for (int i = 0; i < 1001; i++) {
+			testDb.addMeasurement(runId, DIM1, null, null,
+				Either.ofRight(new MeasurementValues(List.of((double) i))));
+		}
+
+		access.packLegacyValues();
+
+		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
+			assertThat(db.dsl().fetchCount(MEASUREMENT_VALUE)).isZero();
+			assertThat(db.dsl().fetchCount(MEASUREMENT, MEASUREMENT.VALUE_DATA.isNull())).isZero();
+		}
 	}
 }
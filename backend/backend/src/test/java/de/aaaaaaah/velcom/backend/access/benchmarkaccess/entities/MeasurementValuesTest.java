@@ -0,0 +1,56 @@
+package de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import de.aaaaaaah.velcom.backend.data.significance.SignificanceFactors;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MeasurementValuesTest {
+
+	private static final SignificanceFactors FACTORS = new SignificanceFactors(0.1, 2, 2);
+
+	@Test
+	void computesStatistics() {
+		MeasurementValues values = new MeasurementValues(List.of(2d, 4d, 4d, 4d, 5d, 5d, 7d, 9d));
+
+		assertThat(values.getCount()).isEqualTo(8);
+		assertThat(values.getAverageValue()).isEqualTo(5);
+		assertThat(values.getMin()).isEqualTo(2);
+		assertThat(values.getMax()).isEqualTo(9);
+		assertThat(values.getStddevWith(FACTORS)).hasValueSatisfying(
+			stddev -> assertThat(stddev).isCloseTo(Math.sqrt(32.0 / 7), within(1e-12))
+		);
+		assertThat(values.getStddevPercentWith(FACTORS)).hasValueSatisfying(
+			percent -> assertThat(percent).isCloseTo(Math.sqrt(32.0 / 7) / 5, within(1e-12))
+		);
+	}
+
+	@Test
+	void singleValueHasNoStddev() {
+		MeasurementValues values = new MeasurementValues(new double[]{3});
+
+		assertThat(values.getAverageValue()).isEqualTo(3);
+		assertThat(values.getStddevWith(FACTORS)).isEmpty();
+	}
+
+	@Test
+	void listAndArrayConstructorsAreEquivalent() {
+		MeasurementValues fromList = new MeasurementValues(List.of(1d, 2d, 3d));
+		MeasurementValues fromArray = new MeasurementValues(new double[]{1, 2, 3});
+
+		assertThat(fromList).isEqualTo(fromArray);
+		assertThat(fromList.hashCode()).isEqualTo(fromArray.hashCode());
+		assertThat(fromArray.getValues()).containsExactly(1d, 2d, 3d);
+	}
+
+	@Test
+	void rejectsEmptyValues() {
+		assertThatThrownBy(() -> new MeasurementValues(new double[0]))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new MeasurementValues(List.of()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -16,9 +16,12 @@ import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import de.aaaaaaah.velcom.backend.storage.db.DatabaseStorage;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.Nullable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -65,11 +68,12 @@ class CommitReadAccessTest {
 	private static final BranchName BRANCH_T = BranchName.fromName("T");
 	private static final BranchName BRANCH_U = BranchName.fromName("U");
 
+	private TestDb testDb;
 	private CommitReadAccess access;
 
 	@BeforeEach
 	void setUp(@TempDir Path tempDir) {
-		TestDb testDb = new TestDb(tempDir);
+		testDb = new TestDb(tempDir);
 
 		testDb.addRepo(REPO_ID);
 		testDb.addCommit(REPO_ID, COMM_A_HASH, true, true, true,
@@ -446,6 +450,45 @@ class CommitReadAccessTest {
 			.containsExactlyInAnyOrder(COMM_F_HASH);
 	}
 
+	@Test
+	void getFirstParentsOfBranchWithGenerations() {
+		// A branch M with 150 commits. Commit S5 is the tip of a short chain branching off of M's 140th
+		// commit while L100 is the tip of a long chain branching off of M's 10th commit. Unlike the
+		// other commits, all commits in this repo have a generation.
+		RepoId repoId = new RepoId();
+		testDb.addRepo(repoId);
+		List<CommitHash> mCommits = addChain(repoId, null, 1, 150);
+		List<CommitHash> sCommits = addChain(repoId, mCommits.get(139), 141, 5);
+		List<CommitHash> lCommits = addChain(repoId, mCommits.get(9), 11, 100);
+		BranchName branchM = BranchName.fromName("M");
+		testDb.addBranch(repoId, branchM, mCommits.get(149), true);
+
+		assertThat(access.getFirstParentsOfBranch(repoId, branchM, sCommits.get(4)))
+			.containsExactly(mCommits.get(139));
+		assertThat(access.getFirstParentsOfBranch(repoId, branchM, lCommits.get(99)))
+			.containsExactly(mCommits.get(9));
+		assertThat(access.getFirstParentsOfBranch(repoId, branchM, mCommits.get(120)))
+			.isEmpty();
+	}
+
+	private List<CommitHash> addChain(RepoId repoId, @Nullable CommitHash parent, int firstGeneration,
+		int length) {
+
+		List<CommitHash> chain = new ArrayList<>();
+		for (int i = 0; i < length; i++) {
+			CommitHash hash = new CommitHash(UUID.randomUUID().toString().replace("-", "") + "00000000");
+			testDb.addCommit(repoId, hash);
+			testDb.setGeneration(repoId, hash, firstGeneration + i);
+			if (parent != null) {
+				testDb.addCommitRel(repoId, parent, hash);
+			}
+
+			chain.add(hash);
+			parent = hash;
+		}
+		return chain;
+	}
+
 	@Test
 	void getCommitsBetween() {
 		// From an untracked branch
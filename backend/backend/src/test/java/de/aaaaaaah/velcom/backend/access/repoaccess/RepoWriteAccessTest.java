@@ -12,6 +12,7 @@ import de.aaaaaaah.velcom.backend.TestDb;
 import de.aaaaaaah.velcom.backend.access.caches.AvailableDimensionsCache;
 import de.aaaaaaah.velcom.backend.access.caches.LatestRunCache;
 import de.aaaaaaah.velcom.backend.access.caches.RunCache;
+import de.aaaaaaah.velcom.backend.access.caches.SeriesCache;
 import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.Branch;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.BranchName;
@@ -81,6 +82,7 @@ class RepoWriteAccessTest {
 	private AvailableDimensionsCache availableDimensionsCache;
 	private RunCache runCache;
 	private LatestRunCache latestRunCache;
+	private SeriesCache seriesCache;
 	private RepoWriteAccess access;
 
 	@BeforeEach
@@ -109,8 +111,9 @@ class RepoWriteAccessTest {
 		availableDimensionsCache = mock(AvailableDimensionsCache.class);
 		runCache = mock(RunCache.class);
 		latestRunCache = mock(LatestRunCache.class);
+		seriesCache = mock(SeriesCache.class);
 		access = new RepoWriteAccess(databaseStorage, availableDimensionsCache, runCache,
-			latestRunCache);
+			latestRunCache, seriesCache);
 	}
 
 	@Test
@@ -139,6 +142,7 @@ class RepoWriteAccessTest {
 		verify(availableDimensionsCache, atLeastOnce()).invalidate(REPO2_ID);
 		verify(runCache, atLeastOnce()).invalidateAll();
 		verify(latestRunCache, atLeastOnce()).invalidate(REPO2_ID);
+		verify(seriesCache, atLeastOnce()).invalidate(REPO2_ID);
 
 		assertThat(access.getAllRepos().stream().map(Repo::getId))
 			.containsExactlyInAnyOrder(REPO1_ID, REPO3_ID);
@@ -0,0 +1,111 @@
+package de.aaaaaaah.velcom.backend.data.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EventHubTest {
+
+	private EventHub hub;
+	private List<Event> received;
+
+	@BeforeEach
+	void setUp() {
+		hub = new EventHub();
+		received = new ArrayList<>();
+	}
+
+	@Test
+	void subscribersReceiveNewEvents() {
+		hub.queueChanged(1);
+		hub.subscribe(received::add, null);
+
+		hub.runnerChanged("runner");
+		RunId runId = new RunId();
+		hub.runCompleted(runId);
+
+		assertThat(received).hasSize(2);
+		assertThat(received.get(0).getRunnerName()).contains("runner");
+		assertThat(received.get(1).getRunId()).contains(runId);
+		assertThat(received.get(0).getId()).isLessThan(received.get(1).getId());
+		assertThat(hub.getLastEventId()).isEqualTo(received.get(1).getId());
+	}
+
+	@Test
+	void unchangedQueueVersionIsOnlyPublishedOnce() {
+		hub.subscribe(received::add, null);
+
+		hub.queueChanged(5);
+		hub.queueChanged(5);
+		hub.queueChanged(6);
+
+		assertThat(received)
+			.extracting(event -> event.getQueueVersion().orElseThrow())
+			.containsExactly(5L, 6L);
+	}
+
+	@Test
+	void resumingReturnsMissedEvents() {
+		hub.runnerChanged("first");
+		long lastSeen = hub.getLastEventId();
+		hub.runnerChanged("second");
+		hub.runnerChanged("third");
+
+		Optional<List<Event>> missed = hub.subscribe(received::add, lastSeen);
+
+		assertThat(missed).isPresent();
+		assertThat(missed.get())
+			.extracting(event -> event.getRunnerName().orElseThrow())
+			.containsExactly("second", "third");
+	}
+
+	@Test
+	void resumingFromUpToDateIdReturnsNothing() {
+		hub.runnerChanged("runner");
+
+		assertThat(hub.subscribe(received::add, hub.getLastEventId())).contains(List.of());
+	}
+
+	@Test
+	void resumingFromUnknownIdFails() {
+		long lastSeen = hub.getLastEventId();
+		for (int i = 0; i < 1000; i++) {
+			hub.runnerChanged("runner");
+		}
+
+		assertThat(hub.subscribe(received::add, lastSeen)).isEmpty();
+		assertThat(hub.subscribe(received::add, hub.getLastEventId() + 1)).isEmpty();
+	}
+
+	@Test
+	void unsubscribedSubscribersReceiveNothing() {
+		EventHub.EventSubscriber subscriber = received::add;
+		hub.subscribe(subscriber, null);
+		hub.unsubscribe(subscriber);
+
+		hub.runnerChanged("runner");
+
+		assertThat(received).isEmpty();
+	}
+
+	@Test
+	void newerEventsSupersedeOlderOnes() {
+		hub.subscribe(received::add, null);
+		hub.runnerChanged("a");
+		hub.runnerChanged("b");
+		hub.runnerChanged("a");
+		hub.queueChanged(1);
+		hub.queueChanged(2);
+
+		assertThat(received.get(0).isSupersededBy(received.get(2))).isTrue();
+		assertThat(received.get(0).isSupersededBy(received.get(1))).isFalse();
+		assertThat(received.get(2).isSupersededBy(received.get(0))).isFalse();
+		assertThat(received.get(3).isSupersededBy(received.get(4))).isTrue();
+		assertThat(received.get(0).isSupersededBy(received.get(4))).isFalse();
+	}
+}
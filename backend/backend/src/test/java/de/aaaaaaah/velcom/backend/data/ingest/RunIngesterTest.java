@@ -0,0 +1,107 @@
+package de.aaaaaaah.velcom.backend.data.ingest;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.BenchmarkWriteAccess;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunErrorType;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSource;
+import de.aaaaaaah.velcom.backend.access.taskaccess.TaskWriteAccess;
+import de.aaaaaaah.velcom.backend.data.events.EventHub;
+import de.aaaaaaah.velcom.shared.util.Either;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.jooq.exception.DataAccessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RunIngesterTest {
+
+	// SQLITE_CONSTRAINT_FOREIGNKEY, an extended result code
+	private static final int SQLITE_CONSTRAINT_FOREIGNKEY = 787;
+
+	private RunJournal journal;
+	private BenchmarkWriteAccess benchAccess;
+	private TaskWriteAccess taskAccess;
+	private RunIngester ingester;
+
+	@BeforeEach
+	void setUp(@TempDir Path tempDir) throws IOException {
+		journal = new RunJournal(tempDir);
+		benchAccess = mock(BenchmarkWriteAccess.class);
+		taskAccess = mock(TaskWriteAccess.class);
+		ingester = new RunIngester(journal, benchAccess, taskAccess, new EventHub());
+	}
+
+	private static NewRun newRun() {
+		return new NewRun(new RunId(), "author", "runnerName", "runnerInfo",
+			Instant.ofEpochSecond(1600010001), Instant.ofEpochSecond(1600010006),
+			Either.ofRight(new TarSource("description", null)),
+			new RunError("error", RunErrorType.BENCH_SCRIPT_ERROR));
+	}
+
+	private void failInsertingRun(NewRun run, RuntimeException exception) {
+		doAnswer(invocation -> {
+			Collection<NewRun> runs = invocation.getArgument(0);
+			// The replayed runs are read from the journal, so they are different objects
+			if (runs.stream().anyMatch(it -> it.getId().equals(run.getId()))) {
+				throw exception;
+			}
+			return null;
+		}).when(benchAccess).insertRuns(any());
+	}
+
+	private List<RunId> journalRunIds() throws IOException {
+		return journal.readAll().stream().map(NewRun::getId).collect(toList());
+	}
+
+	@Test
+	void replayCommitsRuns() throws IOException {
+		NewRun run = newRun();
+		journal.append(run);
+
+		ingester.replay();
+
+		assertThat(journalRunIds()).isEmpty();
+	}
+
+	@Test
+	void transientFailuresKeepRunsInJournal() throws IOException {
+		NewRun run = newRun();
+		journal.append(run);
+		failInsertingRun(run, new DataAccessException("database is locked"));
+
+		ingester.replay();
+
+		assertThat(journalRunIds()).containsExactly(run.getId());
+		verify(taskAccess, never()).deleteTasks(any());
+	}
+
+	@Test
+	void integrityViolationsDropRuns() throws IOException {
+		NewRun goodRun = newRun();
+		NewRun badRun = newRun();
+		journal.append(goodRun);
+		journal.append(badRun);
+		failInsertingRun(badRun, new DataAccessException("foreign key constraint failed",
+			new SQLException("FOREIGN KEY constraint failed", null, SQLITE_CONSTRAINT_FOREIGNKEY)));
+
+		ingester.replay();
+
+		assertThat(journalRunIds()).isEmpty();
+		verify(taskAccess).deleteTasks(List.of(badRun.getId().toTaskId()));
+	}
+}
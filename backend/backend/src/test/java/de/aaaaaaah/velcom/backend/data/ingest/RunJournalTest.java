@@ -0,0 +1,102 @@
+package de.aaaaaaah.velcom.backend.data.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewMeasurement;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.MeasurementValues;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunError;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunErrorType;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.RunId;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSource;
+import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Dimension;
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Interpretation;
+import de.aaaaaaah.velcom.backend.access.dimensionaccess.entities.Unit;
+import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
+import de.aaaaaaah.velcom.shared.util.Either;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RunJournalTest {
+
+	private static final RepoId REPO_ID = new RepoId();
+	private static final CommitHash COMMIT_HASH =
+		new CommitHash("bc42262ad5c504587bc4ccecab9f3f701a474047");
+	private static final Instant START_TIME = Instant.ofEpochSecond(1600010001, 123456789);
+	private static final Instant STOP_TIME = Instant.ofEpochSecond(1600010006);
+
+	@Test
+	void encodingRoundTrips() throws IOException {
+		RunId runId = new RunId();
+		NewRun run = new NewRun(runId, "author", "runnerName", "runnerInfo", START_TIME, STOP_TIME,
+			Either.ofLeft(new CommitSource(REPO_ID, COMMIT_HASH)),
+			List.of(
+				new NewMeasurement(runId, new Dimension("a", "b"), new Unit("ms"),
+					Interpretation.LESS_IS_BETTER, new MeasurementValues(List.of(1d, 2.5, -3d))),
+				new NewMeasurement(runId, new Dimension("a", "c"), null, null,
+					new MeasurementError("t\u00e4st".repeat(20000)))
+			));
+
+		NewRun decoded = RunJournal.decode(RunJournal.encode(run));
+
+		// Neither runs nor new runs implement equals, but their string representations contain
+		// everything
+		assertThat(decoded.toString()).isEqualTo(run.toString());
+	}
+
+	@Test
+	void encodingFailedTarRunRoundTrips() throws IOException {
+		NewRun run = new NewRun(new RunId(), "author", "runnerName", "runnerInfo", START_TIME,
+			STOP_TIME, Either.ofRight(new TarSource("description", null)),
+			new RunError("error", RunErrorType.BENCH_SCRIPT_ERROR));
+
+		NewRun decoded = RunJournal.decode(RunJournal.encode(run));
+
+		assertThat(decoded.toString()).isEqualTo(run.toString());
+	}
+
+	@Test
+	void storesRunsUntilRemoved(@TempDir Path tempDir) throws IOException {
+		RunJournal journal = new RunJournal(tempDir);
+		NewRun later = new NewRun(new RunId(), "author", "runnerName", "runnerInfo", START_TIME,
+			STOP_TIME.plusSeconds(1), Either.ofRight(new TarSource("later", REPO_ID)),
+			new RunError("error", RunErrorType.VELCOM_ERROR));
+		NewRun earlier = new NewRun(new RunId(), "author", "runnerName", "runnerInfo", START_TIME,
+			STOP_TIME, Either.ofRight(new TarSource("earlier", REPO_ID)),
+			new RunError("error", RunErrorType.VELCOM_ERROR));
+
+		journal.append(later);
+		journal.append(earlier);
+
+		// Runs survive a restart and are returned in the order they were completed
+		journal = new RunJournal(tempDir);
+		assertThat(journal.readAll())
+			.extracting(NewRun::getId)
+			.containsExactly(earlier.getId(), later.getId());
+
+		journal.remove(earlier.getId());
+		journal.remove(earlier.getId());
+		assertThat(journal.readAll())
+			.extracting(NewRun::getId)
+			.containsExactly(later.getId());
+	}
+
+	@Test
+	void dropsUnreadableRuns(@TempDir Path tempDir) throws IOException {
+		Files.writeString(tempDir.resolve("partial.run.tmp"), "partial");
+		Files.writeString(tempDir.resolve("garbage.run"), "garbage");
+
+		RunJournal journal = new RunJournal(tempDir);
+
+		assertThat(journal.readAll()).isEmpty();
+		assertThat(tempDir).isEmptyDirectory();
+	}
+}
@@ -0,0 +1,190 @@
+package de.aaaaaaah.velcom.backend.data.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.CommitSource;
+import de.aaaaaaah.velcom.backend.access.benchmarkaccess.entities.sources.TarSource;
+import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
+import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskId;
+import de.aaaaaaah.velcom.backend.access.taskaccess.entities.TaskPriority;
+import de.aaaaaaah.velcom.shared.util.Either;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TaskIndexTest {
+
+	private final CommitHash hash = new CommitHash("a2ec9e64ca2a4243a15554a2678e6af95ce97b7a");
+
+	private RepoId repo1;
+	private RepoId repo2;
+	private RepoId repo3;
+
+	private long time;
+	private TaskIndex index;
+
+	@BeforeEach
+	void setUp() {
+		repo1 = new RepoId(UUID.fromString("2ea6e24a-ef7e-4cac-bb08-054b0e24473a"));
+		repo2 = new RepoId(UUID.fromString("6bed466a-0a48-4f14-a708-3ac8c02abd72"));
+		repo3 = new RepoId(UUID.fromString("8b8a568b-24e4-433e-9c6c-ec97a63d84ed"));
+
+		time = 1000;
+		index = new TaskIndex(0);
+	}
+
+	private Task task(TaskPriority priority, Either<CommitSource, TarSource> source) {
+		// Each task is newer than the previous one
+		Instant instant = Instant.ofEpochSecond(time++);
+		return new Task(new TaskId(), "author", priority, instant, instant, source, false);
+	}
+
+	private Task comTask(TaskPriority priority, RepoId repoId) {
+		return task(priority, Either.ofLeft(new CommitSource(repoId, hash)));
+	}
+
+	private Task tarTask(TaskPriority priority, @Nullable RepoId repoId) {
+		return task(priority, Either.ofRight(new TarSource("description", repoId)));
+	}
+
+	private Task started(Task task) {
+		return new Task(task.getId(), task.getAuthor(), task.getPriority(), task.getInsertTime(),
+			task.getUpdateTime(), task.getSource(), true);
+	}
+
+	private List<Task> startAll() {
+		List<Task> result = new ArrayList<>();
+		while (true) {
+			Optional<Task> task = index.peekNext();
+			if (task.isEmpty()) {
+				return result;
+			}
+			result.add(task.get());
+			index.markStarted(started(task.get()));
+		}
+	}
+
+	private List<Task> mixedTasks() {
+		return List.of(
+			comTask(TaskPriority.LISTENER, repo2),
+			comTask(TaskPriority.MANUAL, repo1),
+			tarTask(TaskPriority.USER_CREATED, null),
+			comTask(TaskPriority.LISTENER, repo1),
+			comTask(TaskPriority.LISTENER, repo3),
+			tarTask(TaskPriority.MANUAL, repo2),
+			comTask(TaskPriority.LISTENER, repo1),
+			tarTask(TaskPriority.USER_CREATED, repo3),
+			comTask(TaskPriority.LISTENER, repo3),
+			comTask(TaskPriority.LISTENER, repo1)
+		);
+	}
+
+	@Test
+	void orderMatchesPolicy() {
+		List<Task> tasks = mixedTasks();
+		index.putAll(tasks);
+
+		List<Task> expected = new Policy(tasks, null).stepAll();
+		assertThat(index.getAvailableInOrder()).isEqualTo(expected);
+		assertThat(startAll()).isEqualTo(expected);
+		assertThat(index.getAvailableInOrder()).isEmpty();
+		assertThat(index.getAll()).hasSize(tasks.size()).allMatch(Task::isInProgress);
+	}
+
+	@Test
+	void positionsFollowOrder() {
+		List<Task> tasks = mixedTasks();
+		index.putAll(tasks);
+
+		Task first = index.peekNext().orElseThrow();
+		index.markStarted(started(first));
+		Task reserved = index.peekNext().orElseThrow();
+		index.setReserved(reserved.getId(), true);
+
+		List<Task> order = index.getAllInOrder();
+		assertThat(order).hasSize(tasks.size());
+		assertThat(order.get(0).getId()).isEqualTo(first.getId());
+		assertThat(order.get(1)).isEqualTo(reserved);
+		assertThat(order.subList(2, order.size())).isEqualTo(index.getAvailableInOrder());
+		for (int i = 0; i < order.size(); i++) {
+			assertThat(index.getPosition(order.get(i).getId())).contains(i);
+		}
+
+		index.remove(reserved.getId());
+		assertThat(index.getPosition(reserved.getId())).isEmpty();
+		assertThat(index.getAllInOrder()).hasSize(tasks.size() - 1);
+	}
+
+	@Test
+	void versionIncreasesWhenIndexChanges() {
+		long version = index.getVersion();
+		Task task = comTask(TaskPriority.MANUAL, repo1);
+
+		index.put(task);
+		assertThat(index.getVersion()).isGreaterThan(version);
+		version = index.getVersion();
+
+		// Looking at the index doesn't change it
+		index.getAllInOrder();
+		index.peekNext();
+		assertThat(index.getVersion()).isEqualTo(version);
+
+		index.markStarted(started(task));
+		assertThat(index.getVersion()).isGreaterThan(version);
+	}
+
+	@Test
+	void roundRobinContinuesAfterStartedTask() {
+		Task r1t1 = comTask(TaskPriority.LISTENER, repo1);
+		Task r2t1 = comTask(TaskPriority.LISTENER, repo2);
+		Task r1t2 = comTask(TaskPriority.LISTENER, repo1);
+		index.putAll(List.of(r1t1, r2t1, r1t2));
+
+		index.markStarted(started(r1t2));
+		assertThat(index.getCurrentRepoId()).contains(repo2);
+
+		// A new task for the first repo must wait until the second repo had its turn
+		Task r1t3 = comTask(TaskPriority.LISTENER, repo1);
+		index.put(r1t3);
+		assertThat(index.getAvailableInOrder()).containsExactly(r2t1, r1t3, r1t1);
+	}
+
+	@Test
+	void reservedTasksAreNotAvailable() {
+		Task m1 = comTask(TaskPriority.MANUAL, repo1);
+		Task m2 = comTask(TaskPriority.MANUAL, repo2);
+		index.putAll(List.of(m1, m2));
+
+		index.setReserved(m2.getId(), true);
+		assertThat(index.peekNext()).contains(m1);
+		assertThat(index.getReserved()).containsExactly(m2);
+
+		index.setReserved(m2.getId(), false);
+		assertThat(index.peekNext()).contains(m2);
+		assertThat(index.getReserved()).isEmpty();
+	}
+
+	@Test
+	void changedTasksAreReordered() {
+		Task l1 = comTask(TaskPriority.LISTENER, repo1);
+		Task t1 = tarTask(TaskPriority.USER_CREATED, null);
+		index.putAll(List.of(l1, t1));
+		assertThat(index.peekNext()).contains(t1);
+
+		Task prioritized = new Task(l1.getId(), l1.getAuthor(), TaskPriority.MANUAL,
+			l1.getInsertTime(), Instant.ofEpochSecond(time++), l1.getSource(), false);
+		index.put(prioritized);
+		assertThat(index.getAvailableInOrder()).containsExactly(prioritized, t1);
+
+		index.remove(l1.getId());
+		assertThat(index.getAvailableInOrder()).containsExactly(t1);
+		assertThat(index.get(l1.getId())).isEmpty();
+	}
+}
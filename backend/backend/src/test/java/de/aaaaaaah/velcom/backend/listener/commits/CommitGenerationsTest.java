@@ -0,0 +1,60 @@
+package de.aaaaaaah.velcom.backend.listener.commits;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CommitGenerationsTest {
+
+	@Test
+	void computeNewRepo() {
+		// A -- B -- C -- E
+		//       \       /
+		//        D ----
+		Map<String, List<String>> parents = Map.of(
+			"A", List.of(),
+			"B", List.of("A"),
+			"C", List.of("B"),
+			"D", List.of("B"),
+			"E", List.of("D", "C")
+		);
+
+		assertThat(CommitGenerations.compute(parents, Map.of()))
+			.isEqualTo(Map.of("A", 1, "B", 2, "C", 3, "D", 3, "E", 4));
+	}
+
+	@Test
+	void computeWithKnownGenerations() {
+		// Merging a branch with a long history into one with a short history
+		Map<String, List<String>> parents = Map.of(
+			"F", List.of("short"),
+			"G", List.of("F", "long")
+		);
+
+		assertThat(CommitGenerations.compute(parents, Map.of("short", 3, "long", 10)))
+			.isEqualTo(Map.of("F", 4, "G", 11));
+	}
+
+	@Test
+	void computeLongChain() {
+		Map<String, List<String>> parents = new HashMap<>();
+		parents.put("0", List.of());
+		for (int i = 1; i < 100_000; i++) {
+			parents.put(Integer.toString(i), List.of(Integer.toString(i - 1)));
+		}
+
+		assertThat(CommitGenerations.compute(parents, Map.of()))
+			.hasSize(100_000)
+			.containsEntry("99999", 100_000);
+	}
+
+	@Test
+	void computeWithUnknownParent() {
+		assertThatThrownBy(() -> CommitGenerations.compute(Map.of("A", List.of("B")), Map.of()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -3,11 +3,13 @@ package de.aaaaaaah.velcom.backend.runner;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import de.aaaaaaah.velcom.backend.access.benchmarkaccess.builder.NewRun;
 import de.aaaaaaah.velcom.backend.access.taskaccess.entities.Task;
+import de.aaaaaaah.velcom.backend.data.events.EventHub;
 import de.aaaaaaah.velcom.backend.data.queue.Queue;
 import de.aaaaaaah.velcom.backend.runner.single.TeleRunner;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Status;
@@ -33,7 +35,7 @@ class DispatcherTest {
 		when(queue.startNextTask()).thenReturn(Optional.of(mock(Task.class)));
 
 		runnerGracePeriod = Duration.ofSeconds(1);
-		dispatcher = new Dispatcher(queue, runnerGracePeriod);
+		dispatcher = new Dispatcher(queue, new EventHub(), runnerGracePeriod, false);
 		knownRunner = new KnownRunner(
 			"runner",
 			"info",
@@ -79,6 +81,38 @@ class DispatcherTest {
 		assertThat(dispatcher.getWork(runner)).isPresent();
 	}
 
+	@Test
+	void startsReservedWorkForRunnerWithReservation() {
+		TeleRunner runner = getRunner();
+		dispatcher.addRunner(runner);
+		Task reservedTask = mock(Task.class);
+		when(queue.hasReservedTask(runner.getRunnerName())).thenReturn(true);
+		when(queue.startReservedTask(runner.getRunnerName())).thenReturn(Optional.of(reservedTask));
+
+		assertThat(dispatcher.getWork(runner)).containsSame(reservedTask);
+	}
+
+	@Test
+	void doesNotReserveWorkIfPrefetchIsDisabled() {
+		TeleRunner runner = getRunner();
+		dispatcher.addRunner(runner);
+
+		assertThat(dispatcher.reserveWork(runner)).isEmpty();
+		verify(queue, never()).reserveNextTask(runner.getRunnerName());
+	}
+
+	@Test
+	void reservesWorkIfPrefetchIsEnabled() {
+		Dispatcher prefetchingDispatcher = new Dispatcher(queue, new EventHub(), runnerGracePeriod,
+			true);
+		TeleRunner runner = getRunner();
+		prefetchingDispatcher.addRunner(runner);
+		Task reservedTask = mock(Task.class);
+		when(queue.reserveNextTask(runner.getRunnerName())).thenReturn(Optional.of(reservedTask));
+
+		assertThat(prefetchingDispatcher.reserveWork(runner)).containsSame(reservedTask);
+	}
+
 	@Test
 	void cleansUpDisconnectedRunner() throws InterruptedException {
 		AtomicBoolean returnInvalidPingTime = new AtomicBoolean(false);
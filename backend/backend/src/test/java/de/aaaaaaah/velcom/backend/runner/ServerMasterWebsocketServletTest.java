@@ -10,6 +10,7 @@ import static org.mockito.Mockito.when;
 import de.aaaaaaah.velcom.backend.data.benchrepo.BenchRepo;
 import de.aaaaaaah.velcom.backend.runner.single.RunnerConnection;
 import de.aaaaaaah.velcom.backend.runner.single.TeleRunner;
+import de.aaaaaaah.velcom.backend.runner.single.TransferBufferPool;
 import de.aaaaaaah.velcom.shared.protocol.RunnerConnectionHeader;
 import de.aaaaaaah.velcom.shared.protocol.RunnerDenyReason;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
@@ -51,7 +52,8 @@ class ServerMasterWebsocketServletTest {
 			dispatcher,
 			mock(Serializer.class),
 			runnerToken,
-			mock(BenchRepo.class)
+			mock(BenchRepo.class),
+			new TransferBufferPool(1024, 1, false)
 		);
 		WebSocketServerFactory factory = new WebSocketServerFactory();
 		servlet.configure(factory);
@@ -106,7 +108,7 @@ class ServerMasterWebsocketServletTest {
 		RunnerConnection connection = mock(RunnerConnection.class);
 
 		when(runner.hasConnection()).thenReturn(false);
-		when(runner.createConnection()).thenReturn(connection);
+		when(runner.createConnection(any(), any())).thenReturn(connection);
 		when(runner.isDisposed()).thenReturn(false);
 		when(dispatcher.getTeleRunner(runnerName)).thenReturn(Optional.of(runner));
 
@@ -120,7 +122,7 @@ class ServerMasterWebsocketServletTest {
 		TeleRunner runner = mock(TeleRunner.class);
 		RunnerConnection connection = mock(RunnerConnection.class);
 		when(runner.hasConnection()).thenReturn(false);
-		when(runner.createConnection()).thenReturn(connection);
+		when(runner.createConnection(any(), any())).thenReturn(connection);
 		when(runner.isDisposed()).thenReturn(true);
 		when(dispatcher.getTeleRunner(runnerName)).thenReturn(Optional.of(runner));
 
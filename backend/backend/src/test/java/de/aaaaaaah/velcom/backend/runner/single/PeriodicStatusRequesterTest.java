@@ -87,6 +87,22 @@ class PeriodicStatusRequesterTest {
 			.send(argThat(argument -> argument.getType() == ClientBoundPacketType.GET_STATUS));
 	}
 
+	@Test
+	void requestsStatusAgainWhenWokenUp() throws InterruptedException {
+		statusRequester.start();
+
+		ArgumentCaptor<AwaitGetStatusReply> captor = ArgumentCaptor.forClass(AwaitGetStatusReply.class);
+		verify(stateMachine, timeout(1000)).switchFromRestingState(captor.capture());
+		captor.getValue().getReplyFuture().complete(new GetStatusReply(
+			"info", "version", "version", false, Status.IDLE, null, null
+		));
+
+		statusRequester.wakeUp();
+
+		verify(runnerConnection, timeout(1000).times(2))
+			.send(argThat(argument -> argument.getType() == ClientBoundPacketType.GET_STATUS));
+	}
+
 	@Test
 	void doesNotRequestResultsIfNone() {
 		statusRequester.start();
@@ -0,0 +1,119 @@
+package de.aaaaaaah.velcom.backend.runner.single;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TeleBinaryOutputStreamTest {
+
+	private ByteArrayOutputStream received;
+	private List<Boolean> lastFlags;
+	private List<WriteCallback> pendingCallbacks;
+	private boolean completeImmediately;
+	private Session session;
+
+	@BeforeEach
+	void setUp() {
+		received = new ByteArrayOutputStream();
+		lastFlags = new ArrayList<>();
+		pendingCallbacks = new ArrayList<>();
+		completeImmediately = true;
+
+		RemoteEndpoint remote = mock(RemoteEndpoint.class);
+		doAnswer(invocation -> {
+			ByteBuffer fragment = invocation.getArgument(0);
+			byte[] bytes = new byte[fragment.remaining()];
+			fragment.get(bytes);
+			synchronized (this) {
+				received.write(bytes);
+				lastFlags.add(invocation.getArgument(1));
+			}
+
+			WriteCallback callback = invocation.getArgument(2);
+			if (completeImmediately) {
+				callback.writeSuccess();
+			} else {
+				synchronized (this) {
+					pendingCallbacks.add(callback);
+				}
+			}
+			return null;
+		}).when(remote).sendPartialBytes(any(), anyBoolean(), any());
+
+		session = mock(Session.class);
+		when(session.getRemote()).thenReturn(remote);
+	}
+
+	@Test
+	void sendsDataInChunks() throws IOException {
+		TransferBufferPool pool = new TransferBufferPool(4, 2, false);
+		byte[] data = "Hello world!".getBytes();
+
+		try (TeleBinaryOutputStream out = new TeleBinaryOutputStream(session, pool)) {
+			out.write(data, 0, 5);
+			out.write(data[5]);
+			out.write(data, 6, data.length - 6);
+		}
+
+		assertThat(received.toByteArray()).isEqualTo(data);
+		assertThat(lastFlags).containsExactly(false, false, false, true);
+	}
+
+	@Test
+	void blocksWhenTooManyChunksAreInFlight() throws Exception {
+		completeImmediately = false;
+		TransferBufferPool pool = new TransferBufferPool(1, 2, false);
+		TeleBinaryOutputStream out = new TeleBinaryOutputStream(session, pool);
+
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+			try {
+				out.write(new byte[3]);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		Thread.sleep(200);
+		assertThat(writer).isNotDone();
+		synchronized (this) {
+			assertThat(pendingCallbacks).hasSize(2);
+			pendingCallbacks.remove(0).writeSuccess();
+		}
+
+		writer.get(5, TimeUnit.SECONDS);
+		synchronized (this) {
+			assertThat(pendingCallbacks).hasSize(2);
+		}
+	}
+
+	@Test
+	void failedChunkFailsLaterWrites() throws IOException {
+		completeImmediately = false;
+		TransferBufferPool pool = new TransferBufferPool(1, 4, false);
+		TeleBinaryOutputStream out = new TeleBinaryOutputStream(session, pool);
+
+		out.write(1);
+		pendingCallbacks.get(0).writeFailed(new IOException("runner is gone"));
+
+		assertThatThrownBy(() -> out.write(2))
+			.isInstanceOf(IOException.class)
+			.hasRootCauseMessage("runner is gone");
+	}
+}
@@ -26,6 +26,7 @@ import de.aaaaaaah.velcom.backend.runner.Dispatcher;
 import de.aaaaaaah.velcom.backend.runner.KnownRunner;
 import de.aaaaaaah.velcom.backend.runner.single.state.TeleRunnerState;
 import de.aaaaaaah.velcom.shared.protocol.StatusCode;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Benchmark;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Metric;
@@ -34,13 +35,17 @@ import de.aaaaaaah.velcom.shared.protocol.serialization.Status;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.ClientBoundPacketType;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.GetResultReply;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.GetStatusReply;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.RequestRun;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.StatusUpdate;
 import de.aaaaaaah.velcom.shared.protocol.statemachine.StateMachine;
 import de.aaaaaaah.velcom.shared.util.Either;
+import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
 import java.lang.reflect.Field;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeEach;
@@ -65,7 +70,8 @@ class TeleRunnerTest {
 			"Runner",
 			new Serializer(),
 			dispatcher,
-			benchRepo
+			benchRepo,
+			new TransferBufferPool(1024, 1, false)
 		);
 	}
 
@@ -90,21 +96,21 @@ class TeleRunnerTest {
 
 	@Test
 	void updatesPingWhenCreatingConnection() {
-		assertThat(runner.createConnection()).isNotNull();
+		assertThat(runner.createConnection(TransferCodec.NONE, Set.of())).isNotNull();
 		assertThat(ChronoUnit.MILLIS.between(runner.getLastPing(), Instant.now())).isLessThan(4000);
 	}
 
 	@Test
 	void doesNotCreateMultipleConnections() {
-		assertThat(runner.createConnection()).isNotNull();
-		assertThatThrownBy(() -> runner.createConnection()).isNotNull();
+		assertThat(runner.createConnection(TransferCodec.NONE, Set.of())).isNotNull();
+		assertThatThrownBy(() -> runner.createConnection(TransferCodec.NONE, Set.of())).isNotNull();
 
 		assertThat(runner.hasConnection()).isTrue();
 	}
 
 	@Test
 	void resetsConnectionWhenClosed() {
-		RunnerConnection connection = runner.createConnection();
+		RunnerConnection connection = runner.createConnection(TransferCodec.NONE, Set.of());
 		assertThat(connection).isNotNull();
 
 		connection.close(StatusCode.INTERNAL_ERROR);
@@ -115,14 +121,15 @@ class TeleRunnerTest {
 
 	@Test
 	void disposeReleasesResources() {
-		assertThat(runner.createConnection()).isNotNull();
+		assertThat(runner.createConnection(TransferCodec.NONE, Set.of())).isNotNull();
 		assertThat(runner.hasConnection()).isTrue();
 
 		runner.dispose();
 
 		assertThat(runner.hasConnection()).isTrue();
 		assertThat(runner.isDisposed()).isTrue();
-		assertThatThrownBy(() -> runner.createConnection()).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> runner.createConnection(TransferCodec.NONE, Set.of()))
+			.isInstanceOf(IllegalStateException.class);
 	}
 
 	@Test
@@ -144,6 +151,70 @@ class TeleRunnerTest {
 			runner.getRunnerName(), "hey2", "there2", Status.IDLE, null, true, null, null, List.of()));
 	}
 
+	@Test
+	void ignoresStatusUpdateWithoutFullStatus() {
+		StatusUpdate update = new StatusUpdate(Status.IDLE, null, false, null, null);
+
+		assertThat(runner.handleStatusUpdate(update)).isTrue();
+		verify(dispatcher, never()).addRunner(runner);
+	}
+
+	@Test
+	void mergesOutputLinesFromStatusUpdates() {
+		UUID runId = UUID.randomUUID();
+		when(queue.isTaskInProgress(new TaskId(runId))).thenReturn(true);
+		runner.setRunnerInformation(new GetStatusReply(
+			"hey", "there", "my", false, Status.RUN, runId,
+			new LinesWithOffset(0, List.of("a", "b"))
+		));
+
+		boolean attention = runner.handleStatusUpdate(new StatusUpdate(
+			Status.RUN, runId, false, "my", new LinesWithOffset(2, List.of("c"))
+		));
+
+		assertThat(attention).isFalse();
+		LinesWithOffset lines = runner.getRunnerInformation().getLastOutputLines().orElseThrow();
+		assertThat(lines.getFirstLineOffset()).isEqualTo(0);
+		assertThat(lines.getLines()).containsExactly("a", "b", "c");
+		assertThat(runner.getRunnerInformation().getInformation()).isEqualTo("hey");
+	}
+
+	@Test
+	void statusUpdateForNewRunReplacesOutputLines() {
+		UUID runId = UUID.randomUUID();
+		UUID newRunId = UUID.randomUUID();
+		when(queue.isTaskInProgress(new TaskId(runId))).thenReturn(true);
+		when(queue.isTaskInProgress(new TaskId(newRunId))).thenReturn(true);
+		runner.setRunnerInformation(new GetStatusReply(
+			"hey", "there", "my", false, Status.RUN, runId,
+			new LinesWithOffset(0, List.of("a", "b"))
+		));
+
+		runner.handleStatusUpdate(new StatusUpdate(
+			Status.RUN, newRunId, false, "my", new LinesWithOffset(0, List.of("x"))
+		));
+
+		LinesWithOffset lines = runner.getRunnerInformation().getLastOutputLines().orElseThrow();
+		assertThat(lines.getLines()).containsExactly("x");
+	}
+
+	@Test
+	void statusUpdateWithResultNeedsAttention() {
+		UUID runId = UUID.randomUUID();
+		when(queue.isTaskInProgress(new TaskId(runId))).thenReturn(true);
+		runner.setRunnerInformation(new GetStatusReply(
+			"hey", "there", "my", false, Status.RUN, runId, null
+		));
+
+		boolean attention = runner.handleStatusUpdate(new StatusUpdate(
+			Status.IDLE, runId, true, "my", null
+		));
+
+		assertThat(attention).isTrue();
+		assertThat(runner.getRunnerInformation().getLastStatus()).isEqualTo(Status.IDLE);
+		verify(dispatcher).runnerChanged(runner);
+	}
+
 	// FIXME: This is questionable below here
 
 	@Test
@@ -200,6 +271,7 @@ class TeleRunnerTest {
 		@SuppressWarnings("unchecked")
 		StateMachine<TeleRunnerState> stateMachine = mock(StateMachine.class);
 		when(connection.getStateMachine()).thenReturn(stateMachine);
+		when(connection.getTransferCodec()).thenReturn(TransferCodec.NONE);
 
 		setConnection(connection);
 		runner.setRunnerInformation(new GetStatusReply(
@@ -207,7 +279,7 @@ class TeleRunnerTest {
 		));
 		when(benchRepo.getCurrentHash()).thenReturn(Optional.of(new CommitHash("otherHash")));
 
-		runner.prepareAndSendWork();
+		runner.prepareAndSendWork(new RequestRun());
 		verify(connection, times(2)).createBinaryOutputStream();
 		verify(connection)
 			.send(argThat(argument -> argument.getType() == ClientBoundPacketType.REQUEST_RUN_REPLY));
@@ -0,0 +1,128 @@
+package de.aaaaaaah.velcom.backend.storage.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArchiveCacheTest {
+
+	@TempDir
+	Path rootDir;
+
+	private static String read(InputStream inputStream) throws IOException {
+		try (inputStream) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void createsArchiveOnlyOnce() throws IOException {
+		ArchiveCache cache = new ArchiveCache(rootDir, 1024);
+		AtomicInteger creations = new AtomicInteger(0);
+
+		for (int i = 0; i < 3; i++) {
+			String content = read(cache.retrieve("key", out -> {
+				creations.incrementAndGet();
+				out.write("hello".getBytes(StandardCharsets.UTF_8));
+			}));
+			assertThat(content).isEqualTo("hello");
+		}
+
+		assertThat(creations.get()).isEqualTo(1);
+		assertThat(cache.getTotalBytes()).isEqualTo(5);
+		assertThat(cache.getAmountOfArchives()).isEqualTo(1);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedArchive() throws IOException {
+		ArchiveCache cache = new ArchiveCache(rootDir, 10);
+
+		cache.prepare("a", out -> out.write(new byte[4]));
+		cache.prepare("b", out -> out.write(new byte[4]));
+		read(cache.retrieve("a", out -> {
+			throw new IllegalStateException("should be cached");
+		}));
+		cache.prepare("c", out -> out.write(new byte[4]));
+
+		assertThat(cache.contains("a")).isTrue();
+		assertThat(cache.contains("b")).isFalse();
+		assertThat(cache.contains("c")).isTrue();
+		assertThat(cache.getTotalBytes()).isEqualTo(8);
+		assertThat(Files.exists(rootDir.resolve("b.tar.gz"))).isFalse();
+	}
+
+	@Test
+	void keepsArchiveLargerThanMaximumUntilNextInsert() throws IOException {
+		ArchiveCache cache = new ArchiveCache(rootDir, 2);
+
+		String content = read(cache.retrieve("big", out -> out.write("12345".getBytes())));
+		assertThat(content).isEqualTo("12345");
+		assertThat(cache.contains("big")).isTrue();
+
+		cache.prepare("small", out -> out.write(new byte[1]));
+		assertThat(cache.contains("big")).isFalse();
+		assertThat(cache.contains("small")).isTrue();
+	}
+
+	@Test
+	void newArchivesCanBeReadWhileOthersAreCreated() throws Exception {
+		// Every archive is larger than the maximum, so each creation evicts all other archives
+		ArchiveCache cache = new ArchiveCache(rootDir, 2);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+			List<Future<String>> contents = new ArrayList<>();
+			for (int i = 0; i < 500; i++) {
+				String key = "key" + i;
+				contents.add(executor.submit(() -> read(cache.retrieve(
+					key,
+					out -> out.write(key.getBytes(StandardCharsets.UTF_8))
+				))));
+			}
+
+			for (int i = 0; i < contents.size(); i++) {
+				assertThat(contents.get(i).get()).isEqualTo("key" + i);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void failedCreationLeavesNoFiles() throws IOException {
+		ArchiveCache cache = new ArchiveCache(rootDir, 1024);
+
+		assertThatThrownBy(() -> cache.prepare("key", out -> {
+			out.write(new byte[3]);
+			throw new IOException("oops");
+		})).isInstanceOf(IOException.class);
+
+		assertThat(cache.contains("key")).isFalse();
+		assertThat(rootDir).isEmptyDirectory();
+	}
+
+	@Test
+	void loadsExistingArchivesOnStartup() throws IOException {
+		Files.write(rootDir.resolve("existing.tar.gz"), new byte[3]);
+		Files.write(rootDir.resolve("leftover.tar.gz.tmp"), new byte[3]);
+
+		ArchiveCache cache = new ArchiveCache(rootDir, 1024);
+
+		assertThat(cache.contains("existing")).isTrue();
+		assertThat(cache.getTotalBytes()).isEqualTo(3);
+		assertThat(Files.exists(rootDir.resolve("leftover.tar.gz.tmp"))).isFalse();
+	}
+}
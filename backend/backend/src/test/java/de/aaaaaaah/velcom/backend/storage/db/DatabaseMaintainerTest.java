@@ -0,0 +1,43 @@
+package de.aaaaaaah.velcom.backend.storage.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jooq.codegen.db.tables.Repo.REPO;
+
+import de.aaaaaaah.velcom.backend.TestDb;
+import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.jooq.DSLContext;
+import org.jooq.codegen.db.tables.records.RepoRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseMaintainerTest {
+
+	@Test
+	void returnsFreePagesToFileSystem(@TempDir Path tempDir) throws InterruptedException {
+		TestDb testDb = new TestDb(tempDir);
+		assertThat(pragma(testDb.db(), "auto_vacuum")).isEqualTo(2); // incremental
+
+		// Enough data to need more than one slice
+		String name = "x".repeat(1000);
+		List<RepoRecord> repos = IntStream.range(0, 6000)
+			.mapToObj(i -> new RepoRecord(new RepoId().getIdAsString(), name + i, "url", null, null))
+			.collect(Collectors.toList());
+		testDb.db().transaction(cfg -> cfg.dsl().batchInsert(repos).execute());
+		testDb.db().deleteFrom(REPO).execute();
+		assertThat(pragma(testDb.db(), "freelist_count")).isGreaterThan(1024);
+
+		DatabaseStorage databaseStorage = new DatabaseStorage(testDb.closeAndGetJdbcUrl());
+		new DatabaseMaintainer(databaseStorage, Duration.ofDays(1)).maintain();
+
+		assertThat(pragma(testDb.db(), "freelist_count")).isZero();
+	}
+
+	private static long pragma(DSLContext db, String name) {
+		return db.fetchSingle("PRAGMA " + name).get(0, Long.class);
+	}
+}
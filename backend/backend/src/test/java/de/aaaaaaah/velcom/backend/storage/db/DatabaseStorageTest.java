@@ -2,12 +2,14 @@ package de.aaaaaaah.velcom.backend.storage.db;
 
 import static java.util.stream.Collectors.toMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jooq.codegen.db.tables.Repo.REPO;
 
 import de.aaaaaaah.velcom.backend.TestDb;
 import de.aaaaaaah.velcom.backend.access.repoaccess.entities.RepoId;
 import java.nio.file.Path;
 import java.util.Map;
+import org.jooq.exception.DataAccessException;
 import org.jooq.codegen.db.tables.records.RepoRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -115,4 +117,36 @@ class DatabaseStorageTest {
 		returned = databaseStorage.acquireWriteTransaction(db -> false);
 		assertThat(returned).isFalse();
 	}
+
+	@Test
+	void readsAreNotBlockedByWrites() {
+		String repoId = new RepoId().getIdAsString();
+		DatabaseStorage databaseStorage = new DatabaseStorage(testDb.closeAndGetJdbcUrl());
+
+		databaseStorage.acquireWriteTransaction(writeDb -> {
+			writeDb.dsl()
+				.batchInsert(new RepoRecord(repoId, "name", "remote url", null, null))
+				.execute();
+
+			// Reads use their own connections and only see committed data
+			databaseStorage.acquireReadTransaction(db -> {
+				assertThat(db.dsl().fetchCount(REPO)).isZero();
+			});
+		});
+
+		databaseStorage.acquireReadTransaction(db -> {
+			assertThat(db.dsl().fetchCount(REPO)).isOne();
+		});
+	}
+
+	@Test
+	void readAccessCannotWrite() {
+		DatabaseStorage databaseStorage = new DatabaseStorage(testDb.closeAndGetJdbcUrl());
+
+		try (DBReadAccess db = databaseStorage.acquireReadAccess()) {
+			RepoRecord record = new RepoRecord(new RepoId().getIdAsString(), "name", "url", null, null);
+			assertThatThrownBy(() -> db.dsl().batchInsert(record).execute())
+				.isInstanceOf(DataAccessException.class);
+		}
+	}
 }
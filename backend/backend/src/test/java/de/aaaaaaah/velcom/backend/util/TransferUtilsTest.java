@@ -0,0 +1,143 @@
+package de.aaaaaaah.velcom.backend.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.aaaaaaah.velcom.backend.access.archiveaccess.entities.CommitDelta;
+import de.aaaaaaah.velcom.backend.access.committaccess.entities.CommitHash;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransferUtilsTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path repoPath;
+	private CommitHash commitHash;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		repoPath = tempDir.resolve("repo");
+
+		try (Git git = Git.init().setDirectory(repoPath.toFile()).call()) {
+			Files.writeString(repoPath.resolve("readme.txt"), "Hello world");
+			Files.createDirectories(repoPath.resolve("scripts"));
+			Files.writeString(repoPath.resolve("scripts/bench.sh"), "#!/bin/sh\necho hi\n");
+			Files.setPosixFilePermissions(
+				repoPath.resolve("scripts/bench.sh"),
+				PosixFilePermissions.fromString("rwxr-xr-x")
+			);
+			Files.createSymbolicLink(repoPath.resolve("link"), Path.of("readme.txt"));
+
+			git.add().addFilepattern(".").call();
+			RevCommit commit = git.commit().setAuthor("Auth", "er").setMessage("Init").call();
+			commitHash = new CommitHash(commit.getId().getName());
+		}
+	}
+
+	private Map<String, TarArchiveEntry> tarCommit(boolean includeGitStub,
+		Map<String, String> contents) throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Git git = Git.open(repoPath.toFile())) {
+			Repository repository = git.getRepository();
+			assertThat(TransferUtils.hasSubmodules(repository, commitHash)).isFalse();
+			TransferUtils.tarCommit(repository, commitHash, includeGitStub, out);
+		}
+
+		Map<String, TarArchiveEntry> entries = new HashMap<>();
+		try (TarArchiveInputStream in = new TarArchiveInputStream(
+			new ByteArrayInputStream(out.toByteArray()))) {
+
+			TarArchiveEntry entry;
+			while ((entry = in.getNextTarEntry()) != null) {
+				entries.put(entry.getName(), entry);
+				if (entry.isFile()) {
+					contents.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return entries;
+	}
+
+	@Test
+	void tarCommitPreservesModesAndSymlinks() throws IOException {
+		Map<String, String> contents = new HashMap<>();
+		Map<String, TarArchiveEntry> entries = tarCommit(false, contents);
+
+		assertThat(entries).containsOnlyKeys("readme.txt", "scripts/", "scripts/bench.sh", "link");
+
+		assertThat(contents.get("readme.txt")).isEqualTo("Hello world");
+		assertThat(entries.get("readme.txt").getMode() & 0777).isEqualTo(0644);
+		assertThat(entries.get("scripts/").isDirectory()).isTrue();
+		assertThat(entries.get("scripts/bench.sh").getMode() & 0777).isEqualTo(0755);
+		assertThat(entries.get("link").isSymbolicLink()).isTrue();
+		assertThat(entries.get("link").getLinkName()).isEqualTo("readme.txt");
+	}
+
+	@Test
+	void tarCommitWithGitStub() throws IOException {
+		Map<String, String> contents = new HashMap<>();
+		Map<String, TarArchiveEntry> entries = tarCommit(true, contents);
+
+		assertThat(entries).containsKeys(".git/", ".git/objects/", ".git/refs/", ".git/HEAD");
+		assertThat(contents.get(".git/HEAD")).isEqualTo(commitHash.getHash() + "\n");
+	}
+
+	@Test
+	void diffCommitsFindsChangedAndDeletedFiles() throws Exception {
+		CommitHash secondHash;
+		try (Git git = Git.open(repoPath.toFile())) {
+			Files.writeString(repoPath.resolve("readme.txt"), "Hello there");
+			Files.writeString(repoPath.resolve("scripts/new.sh"), "echo new\n");
+			git.rm().addFilepattern("link").call();
+			git.add().addFilepattern(".").call();
+			RevCommit commit = git.commit().setAuthor("Auth", "er").setMessage("Second").call();
+			secondHash = new CommitHash(commit.getId().getName());
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (Git git = Git.open(repoPath.toFile())) {
+			Repository repository = git.getRepository();
+			CommitDelta delta = TransferUtils.diffCommits(repository, commitHash, secondHash, 1)
+				.orElseThrow();
+
+			assertThat(delta.getChangedPaths()).containsExactlyInAnyOrder("readme.txt", "scripts/new.sh");
+			assertThat(delta.getDeletedPaths()).containsExactly("link");
+			// 3 of the 3 files in the second commit differ
+			assertThat(TransferUtils.diffCommits(repository, commitHash, secondHash, 0.5)).isEmpty();
+
+			TransferUtils.tarCommitPaths(repository, secondHash, delta.getChangedPaths(), false, out);
+		}
+
+		Map<String, String> contents = new HashMap<>();
+		try (TarArchiveInputStream in = new TarArchiveInputStream(
+			new ByteArrayInputStream(out.toByteArray()))) {
+
+			TarArchiveEntry entry;
+			while ((entry = in.getNextTarEntry()) != null) {
+				if (entry.isFile()) {
+					contents.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+				}
+			}
+		}
+
+		assertThat(contents).containsOnlyKeys("readme.txt", "scripts/new.sh");
+		assertThat(contents.get("readme.txt")).isEqualTo("Hello there");
+	}
+}
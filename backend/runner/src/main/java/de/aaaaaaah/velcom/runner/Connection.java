@@ -5,7 +5,9 @@ import de.aaaaaaah.velcom.runner.states.RunnerState;
 import de.aaaaaaah.velcom.shared.protocol.HeartbeatHandler;
 import de.aaaaaaah.velcom.shared.protocol.HeartbeatHandler.HeartbeatWebsocket;
 import de.aaaaaaah.velcom.shared.protocol.RunnerConnectionHeader;
+import de.aaaaaaah.velcom.shared.protocol.RunnerFeature;
 import de.aaaaaaah.velcom.shared.protocol.StatusCode;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.ServerBoundPacket;
 import de.aaaaaaah.velcom.shared.protocol.statemachine.StateMachine;
@@ -14,10 +16,12 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
 import java.nio.ByteBuffer;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +32,7 @@ public class Connection implements WebSocket.Listener, HeartbeatWebsocket {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(Connection.class);
 
+	private final TeleBackend teleBackend;
 	private final StateMachine<RunnerState> stateMachine;
 	private final Serializer serializer;
 	private StringBuilder textPacketBuilder;
@@ -38,19 +43,37 @@ public class Connection implements WebSocket.Listener, HeartbeatWebsocket {
 	private WebSocket socket;
 	private HeartbeatHandler heartbeatHandler;
 
+	// The web socket only allows one outstanding text message at a time, so every message is sent
+	// once the previous one has been sent. Completes normally even if the previous message failed.
+	private CompletableFuture<Void> lastTextSent;
+
+	// Only set once the backend asks for status updates
+	@Nullable
+	private StatusPusher statusPusher;
+
 	public Connection(TeleBackend teleBackend, HttpClient httpClient, URI address, String name,
 		String token) throws ExecutionException, InterruptedException {
 
+		this.teleBackend = teleBackend;
 		stateMachine = new StateMachine<>(new Idle(teleBackend, this));
 		serializer = new Serializer();
 		textPacketBuilder = new StringBuilder();
 		closedFuture = new CompletableFuture<>();
 		closed = false;
+		lastTextSent = CompletableFuture.completedFuture(null);
 
 		LOGGER.debug("Opening connection to {}", address);
 		httpClient.newWebSocketBuilder()
 			.header(RunnerConnectionHeader.CONNECT_RUNNER_NAME.getName(), name)
 			.header(RunnerConnectionHeader.CONNECT_RUNNER_TOKEN.getName(), token)
+			.header(
+				RunnerConnectionHeader.CONNECT_RUNNER_CODECS.getName(),
+				TransferCodec.toHeaderValue(TransferCodec.GZIP, TransferCodec.NONE)
+			)
+			.header(
+				RunnerConnectionHeader.CONNECT_RUNNER_FEATURES.getName(),
+				RunnerFeature.toHeaderValue(RunnerFeature.PREFETCH, RunnerFeature.STATUS_PUSH)
+			)
 			.buildAsync(address, this)
 			.get();
 		// At this point, #onOpen() should have been called already, so the socket and heartbeatHandler
@@ -59,7 +82,8 @@ public class Connection implements WebSocket.Listener, HeartbeatWebsocket {
 	}
 
 	/**
-	 * Send a packet to the server.
+	 * Send a packet to the server. The packet is queued behind packets that haven't been sent
+	 * completely yet, so this can safely be called from multiple threads.
 	 *
 	 * @param packet the packet to send to the server
 	 */
@@ -69,7 +93,14 @@ public class Connection implements WebSocket.Listener, HeartbeatWebsocket {
 		}
 
 		serializer.serialize(packet).ifPresentOrElse(
-			str -> socket.sendText(str, true),
+			str -> lastTextSent = lastTextSent
+				.thenCompose(aVoid -> socket.sendText(str, true))
+				.handle((ws, e) -> {
+					if (e != null) {
+						LOGGER.warn("Failed to send {} packet", packet.getType(), e);
+					}
+					return null;
+				}),
 			() -> {
 				LOGGER.warn("Failed to serialize and send packet, closing connection");
 				LOGGER.warn("Packet: {}", packet);
@@ -78,6 +109,35 @@ public class Connection implements WebSocket.Listener, HeartbeatWebsocket {
 		);
 	}
 
+	/**
+	 * Start pushing status changes to the backend. Does nothing if they are already pushed or the
+	 * connection is closed.
+	 *
+	 * @return the pusher, so the caller can tell it which status the backend already knows about
+	 */
+	public synchronized Optional<StatusPusher> enableStatusPush() {
+		if (closed) {
+			return Optional.empty();
+		}
+
+		if (statusPusher == null) {
+			LOGGER.debug("Pushing status changes to the backend");
+			statusPusher = new StatusPusher(teleBackend, this);
+			statusPusher.start();
+		}
+		return Optional.of(statusPusher);
+	}
+
+	/**
+	 * Tell the backend about status changes right away instead of waiting for the next periodic
+	 * check. Does nothing if the backend didn't ask for status updates.
+	 */
+	public synchronized void pushStatus() {
+		if (statusPusher != null) {
+			statusPusher.pushNow();
+		}
+	}
+
 	/**
 	 * Do whatever needs to do when the connection transitions into the closed state. This function is
 	 * threadsafe and can be called multiple times.
@@ -92,6 +152,9 @@ public class Connection implements WebSocket.Listener, HeartbeatWebsocket {
 		stateMachine.stop();
 		closedFuture.complete(null);
 		heartbeatHandler.shutdown();
+		if (statusPusher != null) {
+			statusPusher.shutdown();
+		}
 	}
 
 	/**
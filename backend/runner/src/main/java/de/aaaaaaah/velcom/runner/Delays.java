@@ -34,6 +34,12 @@ public final class Delays {
 	 */
 	public static final Duration TIME_TO_KILL = Duration.ofSeconds(10);
 
+	/**
+	 * How often to check whether the status changed if the backend wants status changes pushed to it.
+	 * This affects the update interval of the live build log.
+	 */
+	public static final Duration STATUS_PUSH_INTERVAL = Duration.ofSeconds(1);
+
 	private Delays() {
 		throw new UnsupportedOperationException();
 	}
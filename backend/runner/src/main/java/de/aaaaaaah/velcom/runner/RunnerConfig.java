@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nullable;
 
 /**
  * The runner's config file. Meant to be deserialized from JSON. Contains a comment section, some
@@ -14,16 +16,25 @@ import java.util.List;
 @JsonIgnoreProperties("_comment")
 public class RunnerConfig {
 
+	private static final long DEFAULT_MAX_OUTPUT_BYTES = 1024 * 1024;
+
 	private final String name;
 	private final List<BackendEntry> backends;
+	private final long maxOutputBytes;
 
 	@JsonCreator
 	public RunnerConfig(
 		@JsonProperty(required = true) String name,
-		@JsonProperty(required = true) List<BackendEntry> backends
+		@JsonProperty(required = true) List<BackendEntry> backends,
+		@Nullable Long maxOutputBytes
 	) {
 		this.name = name;
 		this.backends = backends;
+		this.maxOutputBytes = Objects.requireNonNullElse(maxOutputBytes, DEFAULT_MAX_OUTPUT_BYTES);
+
+		if (this.maxOutputBytes <= 0) {
+			throw new IllegalArgumentException("maxOutputBytes must be positive");
+		}
 	}
 
 	public String getName() {
@@ -34,6 +45,14 @@ public class RunnerConfig {
 		return backends;
 	}
 
+	/**
+	 * @return how much of the benchmark script's stderr to keep in memory. The full output is written
+	 * 	to a file in the backend's directory instead.
+	 */
+	public long getMaxOutputBytes() {
+		return maxOutputBytes;
+	}
+
 	/**
 	 * Section describing a single backend and how the runner should connect to it.
 	 */
@@ -53,7 +53,8 @@ public class RunnerMain {
 				entry.getAddress(),
 				config.getName(),
 				entry.getToken(),
-				entry.getDirectory())
+				entry.getDirectory(),
+				config.getMaxOutputBytes())
 			)
 			.collect(Collectors.toList());
 
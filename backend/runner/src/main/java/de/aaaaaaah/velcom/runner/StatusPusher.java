@@ -0,0 +1,143 @@
+package de.aaaaaaah.velcom.runner;
+
+import de.aaaaaaah.velcom.shared.protocol.serialization.Status;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.GetStatusReply;
+import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.StatusUpdate;
+import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
+import de.aaaaaaah.velcom.shared.util.execution.DaemonThreadFactory;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Regularly checks the runner's status and tells the backend about any changes via {@link
+ * StatusUpdate}s. Only output lines the backend hasn't seen yet are sent.
+ */
+public class StatusPusher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StatusPusher.class);
+
+	private final TeleBackend teleBackend;
+	private final Connection connection;
+	private final ScheduledExecutorService executor;
+
+	// The status the backend last heard about. Guarded by this object's lock.
+	@Nullable
+	private Status lastStatus;
+	@Nullable
+	private UUID lastRunId;
+	private boolean lastResultAvailable;
+	@Nullable
+	private String lastBenchHash;
+	private int nextLineIndex;
+
+	public StatusPusher(TeleBackend teleBackend, Connection connection) {
+		this.teleBackend = teleBackend;
+		this.connection = connection;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+
+		lastStatus = null;
+		lastRunId = null;
+		lastResultAvailable = false;
+		lastBenchHash = null;
+		nextLineIndex = 0;
+	}
+
+	/**
+	 * Start checking the status periodically.
+	 */
+	public void start() {
+		executor.scheduleWithFixedDelay(
+			this::pushSafely,
+			Delays.STATUS_PUSH_INTERVAL.toMillis(),
+			Delays.STATUS_PUSH_INTERVAL.toMillis(),
+			TimeUnit.MILLISECONDS
+		);
+	}
+
+	/**
+	 * Check the status as soon as possible instead of waiting for the next periodic check. Does not
+	 * block.
+	 */
+	public void pushNow() {
+		try {
+			executor.execute(this::pushSafely);
+		} catch (RuntimeException e) {
+			LOGGER.debug("Could not schedule status push, pusher was already shut down", e);
+		}
+	}
+
+	/**
+	 * Remember that the backend received a full status, so only changes relative to it are pushed.
+	 *
+	 * @param reply the status the backend received
+	 */
+	public synchronized void markSent(GetStatusReply reply) {
+		lastStatus = reply.getStatus();
+		lastRunId = reply.getRunId().orElse(null);
+		lastResultAvailable = reply.isResultAvailable();
+		lastBenchHash = reply.getBenchHash().orElse(null);
+		nextLineIndex = reply.getLastOutputLines()
+			.map(lines -> lines.getFirstLineOffset() + lines.getLines().size())
+			.orElse(0);
+	}
+
+	/**
+	 * Stop checking the status. This object can not be reused.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private void pushSafely() {
+		try {
+			// The packet is sent without holding the lock since markSent is called while the
+			// connection is locked.
+			nextUpdate().ifPresent(update -> {
+				LOGGER.debug("{} - Pushing {}", teleBackend.getAddress(), update);
+				connection.sendPacket(update.asPacket(connection.getSerializer()));
+			});
+		} catch (RuntimeException e) {
+			// Exceptions would cancel all further executions
+			LOGGER.warn("{} - Failed to push status", teleBackend.getAddress(), e);
+		}
+	}
+
+	private synchronized Optional<StatusUpdate> nextUpdate() {
+		Status status = teleBackend.getStatus();
+		UUID runId = teleBackend.getCurrentRunId().orElse(null);
+		boolean resultAvailable = teleBackend.getBenchResult().isPresent();
+		String benchHash = teleBackend.getBenchHash().orElse(null);
+
+		if (!Objects.equals(runId, lastRunId)) {
+			nextLineIndex = 0;
+		}
+		LinesWithOffset newLines = teleBackend.getOutputLinesSince(nextLineIndex)
+			.filter(lines -> !lines.getLines().isEmpty())
+			.orElse(null);
+
+		boolean changed = status != lastStatus
+			|| !Objects.equals(runId, lastRunId)
+			|| resultAvailable != lastResultAvailable
+			|| !Objects.equals(benchHash, lastBenchHash);
+		if (!changed && newLines == null) {
+			return Optional.empty();
+		}
+
+		lastStatus = status;
+		lastRunId = runId;
+		lastResultAvailable = resultAvailable;
+		lastBenchHash = benchHash;
+		if (newLines != null) {
+			nextLineIndex = newLines.getFirstLineOffset() + newLines.getLines().size();
+		}
+
+		return Optional.of(new StatusUpdate(status, runId, resultAvailable, benchHash, newLines));
+	}
+}
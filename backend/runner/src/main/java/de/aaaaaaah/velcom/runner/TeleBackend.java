@@ -9,14 +9,16 @@ import de.aaaaaaah.velcom.runner.tmpdirs.BenchRepoDir;
 import de.aaaaaaah.velcom.runner.tmpdirs.TaskRepoDir;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Status;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.RequestRunReply;
+import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.WorkspaceDelta;
 import de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.RequestRun;
 import de.aaaaaaah.velcom.shared.util.FileHelper;
 import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
-import de.aaaaaaah.velcom.shared.util.compression.TarHelper;
+import de.aaaaaaah.velcom.shared.util.execution.DaemonThreadFactory;
 import de.aaaaaaah.velcom.shared.util.systeminfo.LinuxSystemInfo;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Optional;
@@ -24,6 +26,9 @@ import java.util.UUID;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -44,6 +49,23 @@ public class TeleBackend {
 
 	private final BenchRepoDir benchRepoDir;
 	private final TaskRepoDir taskRepoDir;
+	// The full stderr of the current benchmark script is written here
+	private final Path outputLogPath;
+	// The full stdout of the current benchmark script is written here
+	private final Path stdOutPath;
+	private final long maxOutputBytes;
+	// Prefetching happens in the background so the result of the current benchmark can be reported
+	// as soon as it is available, even if the next task repo is still being downloaded.
+	private final ExecutorService prefetchExecutor;
+	// The currently running prefetch, if any. Only accessed from the thread calling
+	// maybePerformBenchmark.
+	@Nullable
+	private Future<?> prefetchFuture;
+	// The run whose task repo lies in the task repo's prefetch dir. Only accessed from the thread
+	// calling maybePerformBenchmark and by the current prefetch, which that thread waits for before
+	// accessing it.
+	@Nullable
+	private UUID prefetchedRunId;
 
 	// Protects benchmarker
 	private final Object benchmarkerLock;
@@ -51,7 +73,7 @@ public class TeleBackend {
 	private Benchmarker benchmarker;
 
 	public TeleBackend(AtomicReference<Status> globalStatus, URI address, String name, String token,
-		Path path) {
+		Path path, long maxOutputBytes) {
 
 		this.globalStatus = globalStatus;
 
@@ -72,6 +94,10 @@ public class TeleBackend {
 		}
 		benchRepoDir = tmpBenchRepoDir;
 		taskRepoDir = new TaskRepoDir(path.resolve("task_repo"));
+		outputLogPath = path.resolve("bench_output.log");
+		stdOutPath = path.resolve("bench_result.json");
+		this.maxOutputBytes = maxOutputBytes;
+		prefetchExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory());
 
 		benchmarkerLock = new Object();
 		benchmarker = null;
@@ -150,15 +176,28 @@ public class TeleBackend {
 			return false;
 		}
 
+		// The backend must know whether the next task has already been prefetched
+		awaitPrefetch();
+
 		try {
-			clearTmpFiles();
+			clearTmpDirs();
 		} catch (IOException e) {
 			LOGGER.warn("{} - Could not clear temporary files", address, e);
 			return false;
 		}
 
-		// This future will complete as soon as all tar files have been downloaded.
-		CompletableFuture<RequestRunReply> replyFuture = sendRequestRun(conn);
+		// If the task repo of the previous run is still untouched, the backend may send only the
+		// differences to the next task's repo. Whether it really is untouched is only checked once the
+		// backend actually sends a delta, since that requires walking the entire task repo.
+		Optional<UUID> workspaceRunId = taskRepoDir.getWorkspaceRunId();
+
+		// This future will complete as soon as all tar files have been downloaded and unpacked into
+		// their tmp dirs.
+		CompletableFuture<RequestRunReply> replyFuture = sendRequestRun(
+			conn,
+			new RequestRun(workspaceRunId.orElse(null), prefetchedRunId, false),
+			taskRepoDir.getTmpDirPath()
+		);
 
 		RequestRunReply reply;
 		try {
@@ -172,16 +211,20 @@ public class TeleBackend {
 		}
 
 		try {
-			unpackTmpFiles(reply.hasBench(), reply.hasRun());
+			installTmpDirs(reply);
 			if (reply.getBenchHash().isPresent()) {
 				benchRepoDir.setHash(reply.getBenchHash().get());
 			}
 		} catch (IOException e) {
-			LOGGER.warn("{} - Could not unpack tar files", address, e);
+			LOGGER.warn("{} - Could not move unpacked repos into place", address, e);
 			return false;
 		}
 		try {
-			clearTmpFiles();
+			clearTmpDirs();
+			if (reply.hasRun()) {
+				// The prefetched task repo was either installed or superseded by a different task
+				clearPrefetch();
+			}
 		} catch (IOException e) {
 			LOGGER.warn("{} - Could not clear temporary files", address, e);
 			return false;
@@ -190,7 +233,16 @@ public class TeleBackend {
 		if (reply.getRunId().isPresent()) {
 			UUID taskId = reply.getRunId().get();
 			LOGGER.info("{} - Starting benchmark for task {}", address, taskId);
-			Boolean success = startBenchmark(taskId).get();
+			CompletableFuture<Boolean> benchmarkFinished = startBenchmark(taskId);
+			if (reply.isPrefetchAllowed()) {
+				prefetchFuture = prefetchExecutor.submit(() -> {
+					prefetchNextTask(conn);
+					return null;
+				});
+			}
+			Boolean success = benchmarkFinished.get();
+			// Tell the backend about the result right away if it wants to know
+			conn.pushStatus();
 			if (success) {
 				LOGGER.info("{} - Benchmark for task {} completed successfully", address, taskId);
 			} else {
@@ -202,32 +254,119 @@ public class TeleBackend {
 		return false;
 	}
 
-	private void clearTmpFiles() throws IOException {
-		FileHelper.deleteDirectoryOrFile(benchRepoDir.getTmpFilePath());
-		FileHelper.deleteDirectoryOrFile(taskRepoDir.getTmpFilePath());
+	private void clearTmpDirs() throws IOException {
+		FileHelper.deleteDirectoryOrFile(benchRepoDir.getTmpDirPath());
+		FileHelper.deleteDirectoryOrFile(taskRepoDir.getTmpDirPath());
 	}
 
-	private void unpackTmpFiles(boolean benchRepo, boolean taskRepo) throws IOException {
-		if (benchRepo) {
+	private void installTmpDirs(RequestRunReply reply) throws IOException {
+		if (reply.hasBench()) {
 			FileHelper.deleteDirectoryOrFile(benchRepoDir.getDirPath());
-			TarHelper.untar(benchRepoDir.getTmpFilePath(), benchRepoDir.getDirPath());
+			Files.move(benchRepoDir.getTmpDirPath(), benchRepoDir.getDirPath());
 		}
 
-		if (taskRepo) {
-			FileHelper.deleteDirectoryOrFile(taskRepoDir.getDirPath());
-			TarHelper.untar(taskRepoDir.getTmpFilePath(), taskRepoDir.getDirPath());
+		if (reply.hasRun()) {
+			// Needs the manifest, so this must happen before it is deleted
+			Optional<UUID> workspaceRunId = !reply.isPrefetched() && reply.getDelta().isPresent()
+				? taskRepoDir.verifyWorkspace()
+				: Optional.empty();
+
+			// Until the manifest is rewritten, the task repo is in an unknown state
+			taskRepoDir.deleteManifest();
+
+			if (reply.isPrefetched()) {
+				if (prefetchedRunId == null || !prefetchedRunId.equals(reply.getRunId().orElse(null))) {
+					throw new IOException("received prefetched run " + reply.getRunId().orElse(null)
+						+ " but have prefetched task repo of run " + prefetchedRunId);
+				}
+				taskRepoDir.installPrefetched();
+			} else if (reply.getDelta().isPresent()) {
+				WorkspaceDelta delta = reply.getDelta().get();
+				if (workspaceRunId.isEmpty() || !workspaceRunId.get().equals(delta.getBaseRunId())) {
+					throw new IOException("received delta for task repo of run " + delta.getBaseRunId()
+						+ " but have unmodified task repo of run " + workspaceRunId.orElse(null));
+				}
+				taskRepoDir.applyDelta(delta.getDeletedPaths());
+			} else {
+				FileHelper.deleteDirectoryOrFile(taskRepoDir.getDirPath());
+				Files.move(taskRepoDir.getTmpDirPath(), taskRepoDir.getDirPath());
+			}
+
+			if (reply.getRunId().isPresent()) {
+				taskRepoDir.writeManifest(reply.getRunId().get());
+			}
 		}
 	}
 
-	private CompletableFuture<RequestRunReply> sendRequestRun(Connection conn)
-		throws InterruptedException {
+	private void clearPrefetch() throws IOException {
+		prefetchedRunId = null;
+		taskRepoDir.clearPrefetch();
+	}
+
+	/**
+	 * Wait until the current prefetch (if any) has finished.
+	 *
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	private void awaitPrefetch() throws InterruptedException {
+		if (prefetchFuture == null) {
+			return;
+		}
+
+		try {
+			prefetchFuture.get();
+		} catch (ExecutionException e) {
+			LOGGER.warn("{} - Prefetching failed unexpectedly", address, e);
+		}
+		prefetchFuture = null;
+	}
+
+	/**
+	 * Download the task repo of the next task into the prefetch dir while the current task is being
+	 * benchmarked. The backend reserves the task for this runner, so it can skip sending the task
+	 * repo once the runner asks for its next task. Failing to prefetch is not an error, the task repo
+	 * will just be sent normally.
+	 *
+	 * <p> Runs on the prefetch executor. The download itself is performed by the connection's state
+	 * machine, which completes the reply future once the task repo has been unpacked.
+	 *
+	 * @param conn the connection to the backend
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	private void prefetchNextTask(Connection conn) throws InterruptedException {
+		try {
+			clearPrefetch();
+		} catch (IOException e) {
+			LOGGER.warn("{} - Could not clear prefetched task repo", address, e);
+			return;
+		}
+
+		CompletableFuture<RequestRunReply> replyFuture = sendRequestRun(
+			conn,
+			new RequestRun(null, null, true),
+			taskRepoDir.getPrefetchDirPath()
+		);
+
+		try {
+			RequestRunReply reply = replyFuture.get();
+			prefetchedRunId = reply.getRunId().orElse(null);
+			if (prefetchedRunId != null) {
+				LOGGER.info("{} - Prefetched task {}", address, prefetchedRunId);
+			}
+		} catch (ExecutionException | CancellationException e) {
+			LOGGER.debug("{} - Backend has no task to prefetch or prefetching failed", address);
+		}
+	}
+
+	private CompletableFuture<RequestRunReply> sendRequestRun(Connection conn, RequestRun request,
+		Path taskRepoTarget) throws InterruptedException {
 
 		CompletableFuture<RequestRunReply> replyFuture = new CompletableFuture<>();
-		RunnerState newState = new AwaitingRequestRunReply(this, conn, replyFuture);
+		RunnerState newState = new AwaitingRequestRunReply(this, conn, replyFuture, taskRepoTarget);
 
 		boolean switchSuccessful = conn.switchFromRestingState(newState);
 		if (switchSuccessful) {
-			conn.sendPacket(new RequestRun().asPacket(conn.getSerializer()));
+			conn.sendPacket(request.asPacket(conn.getSerializer()));
 		} else {
 			replyFuture.cancel(true);
 		}
@@ -247,6 +386,9 @@ public class TeleBackend {
 			taskRepoDir.getDirPath(),
 			benchRepoDir.getHash().orElse(null),
 			benchRepoDir.getDirPath(),
+			outputLogPath,
+			stdOutPath,
+			maxOutputBytes,
 			Instant.now(),
 			name,
 			LinuxSystemInfo.getCurrent()
@@ -321,6 +463,15 @@ public class TeleBackend {
 		return getBenchmarker().map(Benchmarker::getLastOutputLines);
 	}
 
+	/**
+	 * @param offset the absolute index of the first line to return
+	 * @return the output lines of the current benchmark starting at the offset, if there is a
+	 * 	current benchmark. See {@link Benchmarker#getOutputLinesSince(int)}.
+	 */
+	public Optional<LinesWithOffset> getOutputLinesSince(int offset) {
+		return getBenchmarker().map(benchmarker -> benchmarker.getOutputLinesSince(offset));
+	}
+
 	private Optional<Benchmarker> getBenchmarker() {
 		synchronized (benchmarkerLock) {
 			return Optional.ofNullable(benchmarker);
@@ -328,11 +479,7 @@ public class TeleBackend {
 	}
 
 	public Path getBenchRepoTmpPath() {
-		return benchRepoDir.getTmpFilePath();
-	}
-
-	public Path getTaskRepoTmpPath() {
-		return taskRepoDir.getTmpFilePath();
+		return benchRepoDir.getTmpDirPath();
 	}
 
 	public URI getAddress() {
@@ -10,11 +10,17 @@ import de.aaaaaaah.velcom.shared.protocol.serialization.Result;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Benchmark;
 import de.aaaaaaah.velcom.shared.util.Either;
 import de.aaaaaaah.velcom.shared.util.ExceptionHelper;
+import de.aaaaaaah.velcom.shared.util.LineRingBuffer;
 import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
 import de.aaaaaaah.velcom.shared.util.execution.ProgramExecutor;
 import de.aaaaaaah.velcom.shared.util.execution.ProgramResult;
 import de.aaaaaaah.velcom.shared.util.execution.StreamsProcessOutput;
 import de.aaaaaaah.velcom.shared.util.systeminfo.LinuxSystemInfo;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
@@ -26,18 +32,25 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Executes the benchmark script and parses the result.
  */
 public class Benchmarker {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(Benchmarker.class);
+
+	/**
+	 * How many of the most recent output lines are sent to the backend at most.
+	 */
+	private static final int MAX_OUTPUT_LINES = 100;
+
 	private final AtomicReference<BenchResult> result; // nullable inside the reference
-	private final AtomicReference<Supplier<LinesWithOffset>> outputFetcher; // nullable inside the reference
+	private final AtomicReference<LineRingBuffer> output; // nullable inside the reference
 
 	private final CompletableFuture<Boolean> finishFuture;
 
@@ -46,6 +59,9 @@ public class Benchmarker {
 	@Nullable
 	private final String benchRepoHash;
 	private final Path benchRepoPath;
+	private final Path outputLogPath;
+	private final Path stdOutPath;
+	private final long maxOutputBytes;
 
 	private final Instant startTime;
 	private final String runnerName;
@@ -64,17 +80,21 @@ public class Benchmarker {
 	 * @param benchRepoHash the current hash of the bench repo, or null if the backend has not yet
 	 * 	sent us any bench repo.
 	 * @param benchRepoPath the path to the bench repo directory
+	 * @param outputLogPath the file to write the benchmark script's full stderr to
+	 * @param stdOutPath the file to write the benchmark script's full stdout to. The result is
+	 * 	parsed from this file.
+	 * @param maxOutputBytes how much of the benchmark script's stderr and stdout to keep in memory
 	 * @param startTime the time when the benchmark process started. When exactly this process starts
 	 * 	is not up to the benchmarker.
 	 * @param runnerName the name of this runner
 	 * @param systemInfo the system information of this runner
 	 */
 	public Benchmarker(CompletableFuture<Boolean> finishFuture, UUID taskId, Path taskRepoPath,
-		@Nullable String benchRepoHash, Path benchRepoPath, Instant startTime, String runnerName,
-		LinuxSystemInfo systemInfo) {
+		@Nullable String benchRepoHash, Path benchRepoPath, Path outputLogPath, Path stdOutPath,
+		long maxOutputBytes, Instant startTime, String runnerName, LinuxSystemInfo systemInfo) {
 
 		this.result = new AtomicReference<>();
-		this.outputFetcher = new AtomicReference<>();
+		this.output = new AtomicReference<>();
 
 		this.finishFuture = finishFuture;
 
@@ -82,6 +102,9 @@ public class Benchmarker {
 		this.taskRepoPath = taskRepoPath;
 		this.benchRepoHash = benchRepoHash;
 		this.benchRepoPath = benchRepoPath;
+		this.outputLogPath = outputLogPath;
+		this.stdOutPath = stdOutPath;
+		this.maxOutputBytes = maxOutputBytes;
 
 		this.startTime = startTime;
 		this.runnerName = runnerName;
@@ -100,14 +123,25 @@ public class Benchmarker {
 	}
 
 	/**
-	 * @return the last few lines of the output (stderr) or an empty String if none yet
+	 * @return the last few complete lines of the output (stderr) or no lines if there are none yet
 	 */
 	public LinesWithOffset getLastOutputLines() {
-		Supplier<LinesWithOffset> supplier = outputFetcher.get();
-		if (supplier == null) {
+		return getOutputLinesSince(0);
+	}
+
+	/**
+	 * Only takes time proportional to the amount of returned lines, so this can be called often.
+	 *
+	 * @param offset the absolute index of the first line to return
+	 * @return the complete lines of the output (stderr) starting at the offset. At most the last few
+	 * 	lines are returned, so the returned offset may be larger than the requested one.
+	 */
+	public LinesWithOffset getOutputLinesSince(int offset) {
+		LineRingBuffer buffer = output.get();
+		if (buffer == null) {
 			return new LinesWithOffset(0, List.of());
 		}
-		return supplier.get();
+		return buffer.getLinesSince(offset, MAX_OUTPUT_LINES);
 	}
 
 	/**
@@ -170,20 +204,14 @@ public class Benchmarker {
 			return;
 		}
 
-		StreamsProcessOutput<ProgramResult> work = startBenchExecution(generalInfo, benchScriptPath);
-
-		outputFetcher.set(() -> {
-			String stdErr = work.getCurrentStdErr();
-			List<String> lines = stdErr.lines().collect(Collectors.toList());
-
-			int maxLinesToReturn = 100;
-			List<String> sublist = lines
-				.subList(Math.max(lines.size() - maxLinesToReturn, 0), lines.size());
-
-			int indexFirstLine = lines.size() - sublist.size();
-
-			return new LinesWithOffset(indexFirstLine, sublist);
-		});
+		// The result is parsed from the file afterwards, so it never has to be in memory as a whole
+		OutputStream stdOutFile = openOutputFile(stdOutPath);
+		LineRingBuffer stdOutBuffer = new LineRingBuffer(maxOutputBytes, stdOutFile);
+		LineRingBuffer stdErrBuffer = new LineRingBuffer(maxOutputBytes, openOutputFile(outputLogPath));
+		output.set(stdErrBuffer);
+		StreamsProcessOutput<ProgramResult> work = startBenchExecution(
+			generalInfo, benchScriptPath, stdOutBuffer, stdErrBuffer
+		);
 
 		try {
 			// Ensure we do not wait if the benchmark was cancelled before this thread was ready
@@ -192,9 +220,9 @@ public class Benchmarker {
 			}
 			ProgramResult programResult = work.get();
 
-			addProgramOutput(generalInfo, infoSections, programResult);
+			addProgramOutput(generalInfo, infoSections, programResult, stdOutBuffer, stdErrBuffer);
 
-			setResult(interpretResult(infoSections, programResult));
+			setResult(interpretResult(infoSections, programResult, stdOutFile != null, stdOutBuffer));
 		} catch (ExecutionException e) {
 			setResult(interpretExecutionException(infoSections, e));
 		} catch (InterruptedException e) {
@@ -217,8 +245,19 @@ public class Benchmarker {
 		finishFuture.complete(result.isSuccess());
 	}
 
+	@Nullable
+	private OutputStream openOutputFile(Path path) {
+		try {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			return new BufferedOutputStream(Files.newOutputStream(path));
+		} catch (IOException e) {
+			LOGGER.warn("Could not open {}, only keeping the most recent output", path, e);
+			return null;
+		}
+	}
+
 	private StreamsProcessOutput<ProgramResult> startBenchExecution(NamedRows generalInfo,
-		Path benchScriptPath) {
+		Path benchScriptPath, LineRingBuffer stdOutBuffer, LineRingBuffer stdErrBuffer) {
 		Instant startTime = Instant.now();
 
 		String[] calledCommand = {
@@ -228,11 +267,12 @@ public class Benchmarker {
 		generalInfo.addEscapedArray("Executed command", calledCommand);
 		generalInfo.add("Start time", startTime.toString());
 
-		return new ProgramExecutor(Delays.TIME_TO_KILL.toMillis()).execute(calledCommand);
+		return new ProgramExecutor(Delays.TIME_TO_KILL.toMillis())
+			.execute(stdOutBuffer, stdErrBuffer, calledCommand);
 	}
 
 	private void addProgramOutput(NamedRows generalInfo, NamedSections infoSections,
-		ProgramResult programResult) {
+		ProgramResult programResult, LineRingBuffer stdOutBuffer, LineRingBuffer stdErrBuffer) {
 
 		generalInfo.add("Stop time", Instant.now().toString());
 		generalInfo.add("Execution time", programResult.getRuntime().toString());
@@ -240,28 +280,47 @@ public class Benchmarker {
 
 		infoSections.addSection(
 			"Stdout",
-			programResult.getStdOut().isEmpty() ? "<empty>" : programResult.getStdOut()
+			describeOutput(programResult.getStdOut(), stdOutBuffer, stdOutPath)
 		);
 		infoSections.addSection(
 			"Stderr",
-			programResult.getStdErr().isEmpty() ? "<empty>" : programResult.getStdErr()
+			describeOutput(programResult.getStdErr(), stdErrBuffer, outputLogPath)
 		);
 	}
 
-	private BenchResult interpretResult(NamedSections infoSections, ProgramResult programResult) {
+	private String describeOutput(String output, LineRingBuffer buffer, Path path) {
+		String description = output.isEmpty() ? "<empty>" : output;
+		int droppedLines = buffer.getDroppedLineCount();
+		if (droppedLines > 0) {
+			description = "<" + droppedLines + " earlier lines omitted, see " + path.toAbsolutePath()
+				+ " on the runner>\n" + description;
+		}
+		return description;
+	}
+
+	private BenchResult interpretResult(NamedSections infoSections, ProgramResult programResult,
+		boolean stdOutFileOpened, LineRingBuffer stdOutBuffer) {
+
 		if (programResult.getExitCode() == 0) {
-			return interpretZeroExitCode(infoSections, programResult);
+			return interpretZeroExitCode(infoSections, programResult, stdOutFileOpened, stdOutBuffer);
 		}
 		return interpretFailingExitCode(infoSections, programResult);
 	}
 
 	private BenchResult interpretZeroExitCode(NamedSections infoSections,
-		ProgramResult programResult) {
+		ProgramResult programResult, boolean stdOutFileOpened, LineRingBuffer stdOutBuffer) {
 
 		Either<String, List<Benchmark>> bareResult;
 
 		try {
-			bareResult = new BenchmarkScriptOutputParser().parse(programResult.getStdOut());
+			bareResult = parseStdOut(programResult, stdOutFileOpened, stdOutBuffer);
+		} catch (IOException e) {
+			infoSections.addSection("Stacktrace", ExceptionHelper.getStackTrace(e));
+			infoSections.addSection(
+				"Reason",
+				"The benchmark script's output could not be read from " + stdOutPath.toAbsolutePath()
+			);
+			return failedBenchResult(infoSections);
 		} catch (OutputParseException e) {
 			infoSections.addSection("Invalid output", e.getMessage());
 			infoSections.addSection(
@@ -277,6 +336,26 @@ public class Benchmarker {
 		));
 	}
 
+	private Either<String, List<Benchmark>> parseStdOut(ProgramResult programResult,
+		boolean stdOutFileOpened, LineRingBuffer stdOutBuffer) throws IOException {
+
+		BenchmarkScriptOutputParser parser = new BenchmarkScriptOutputParser();
+
+		if (stdOutFileOpened && !stdOutBuffer.hasSpillFailed()) {
+			try (InputStream input = new BufferedInputStream(Files.newInputStream(stdOutPath))) {
+				return parser.parse(input);
+			}
+		}
+
+		// If the file couldn't be opened or written completely, the in-memory output is all we have.
+		// It may only be used if no lines had to be dropped from it though.
+		if (stdOutBuffer.getDroppedLineCount() > 0) {
+			throw new IOException("the output could not be written to " + stdOutPath.toAbsolutePath()
+				+ " completely and is too large to be kept in memory");
+		}
+		return parser.parse(programResult.getStdOut());
+	}
+
 	private BenchResult interpretFailingExitCode(NamedSections infoSections,
 		ProgramResult programResult) {
 
@@ -1,192 +1,455 @@
 package de.aaaaaaah.velcom.runner.benchmarking.output;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Benchmark;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Interpretation;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Metric;
 import de.aaaaaaah.velcom.shared.util.Either;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.RandomAccess;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * The pojo for the output of the benchmark script.
+ *
+ * <p> The output is parsed token by token, so it is never held in memory as a whole. The values of
+ * each metric are collected in primitive arrays. To protect the runner from misbehaving benchmark
+ * scripts, the size of the output and the amount of benchmarks, metrics and values are limited.
  */
 public class BenchmarkScriptOutputParser {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkScriptOutputParser.class);
 
-	private final ObjectMapper objectMapper = new ObjectMapper()
-		.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
-		.registerModule(new ParameterNamesModule());
+	public static final int DEFAULT_MAX_BENCHMARKS = 10_000;
+	public static final int DEFAULT_MAX_METRICS = 100_000;
+	public static final long DEFAULT_MAX_VALUES = 10_000_000;
+	public static final long DEFAULT_MAX_BYTES = 256 * 1024 * 1024;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory()
+		.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+	private final int maxBenchmarks;
+	private final int maxMetrics;
+	private final long maxValues;
+	private final long maxBytes;
+
+	public BenchmarkScriptOutputParser() {
+		this(DEFAULT_MAX_BENCHMARKS, DEFAULT_MAX_METRICS, DEFAULT_MAX_VALUES, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @param maxBenchmarks how many benchmarks the output may contain at most
+	 * @param maxMetrics how many metrics the output may contain at most, across all benchmarks
+	 * @param maxValues how many values the output may contain at most, across all metrics
+	 * @param maxBytes how long the output may be at most, in bytes
+	 */
+	public BenchmarkScriptOutputParser(int maxBenchmarks, int maxMetrics, long maxValues,
+		long maxBytes) {
+
+		this.maxBenchmarks = maxBenchmarks;
+		this.maxMetrics = maxMetrics;
+		this.maxValues = maxValues;
+		this.maxBytes = maxBytes;
+	}
 
 	/**
-	 * Parses the benchmark output node to a {@link Result} object.
+	 * Parses the benchmark output to a {@link Result} object.
 	 *
 	 * @param data the textual data
 	 * @return the parsed benchmark results
 	 * @throws OutputParseException if an error occurs
 	 */
 	public Either<String, List<Benchmark>> parse(String data) throws OutputParseException {
-		LOGGER.debug("Parsing message '{}'", data);
+		return parse(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+	}
 
-		JsonNode root;
-		try {
-			root = objectMapper.readTree(data);
-		} catch (JsonProcessingException e) {
+	/**
+	 * Parses the benchmark output to a {@link Result} object. Only reads as much of the stream as
+	 * necessary and does not close it.
+	 *
+	 * @param data the textual data, encoded as UTF-8
+	 * @return the parsed benchmark results
+	 * @throws OutputParseException if an error occurs
+	 */
+	public Either<String, List<Benchmark>> parse(InputStream data) throws OutputParseException {
+		LimitedInputStream input = new LimitedInputStream(data, maxBytes);
+
+		try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+			Either<String, List<Benchmark>> result = new Run(parser).parseRoot();
+			LOGGER.debug("Parsed {} bytes of output", input.getBytesRead());
+			return result;
+		} catch (IOException e) {
 			throw new OutputParseException(e.getMessage(), e);
 		}
+	}
 
-		if (!root.isObject()) {
-			throw new OutputParseException("Root is no object");
+	private static Interpretation parseInterpretation(JsonToken token, String text) {
+		if (token != JsonToken.VALUE_STRING) {
+			throw new OutputParseException("Interpretation is no string: " + text);
 		}
-		// the is object check is needed to allow benchmarks named "error"
-		if (root.hasNonNull("error") && !root.get("error").isObject()) {
-			if (!root.get("error").isTextual()) {
-				throw new OutputParseException("Error is no string: " + root);
-			}
-			return Either.ofLeft(root.get("error").asText());
+
+		try {
+			return Interpretation.valueOf(text);
+		} catch (IllegalArgumentException e) {
+			throw new OutputParseException("Unknown interpretation: " + text);
 		}
+	}
 
-		List<Benchmark> benchmarks = new ArrayList<>();
+	/**
+	 * The state of parsing a single output.
+	 */
+	private class Run {
 
-		Iterator<Entry<String, JsonNode>> fields = root.fields();
-		while (fields.hasNext()) {
-			Entry<String, JsonNode> field = fields.next();
-			benchmarks.add(parseBenchmark(field.getKey(), field.getValue()));
-		}
+		private final JsonParser parser;
+		private int benchmarkCount;
+		private int metricCount;
+		private long valueCount;
 
-		if (benchmarks.isEmpty()) {
-			throw new OutputParseException("Root element has no benchmarks");
+		Run(JsonParser parser) {
+			this.parser = parser;
 		}
 
-		return Either.ofRight(benchmarks);
-	}
+		Either<String, List<Benchmark>> parseRoot() throws IOException {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new OutputParseException("Root is no object");
+			}
 
-	private Benchmark parseBenchmark(String name, JsonNode node) {
-		if (!node.isObject()) {
-			throw new OutputParseException("benchmark is no object: " + node);
-		}
+			String error = null;
+			List<Benchmark> benchmarks = new ArrayList<>();
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+
+				// the object check is needed to allow benchmarks named "error"
+				if (name.equals("error") && token != JsonToken.START_OBJECT
+					&& token != JsonToken.VALUE_NULL) {
+
+					if (token != JsonToken.VALUE_STRING) {
+						throw new OutputParseException("Error is no string: " + describeValue());
+					}
+					error = parser.getText();
+				} else if (error != null) {
+					// The benchmarks don't matter anymore
+					parser.skipChildren();
+				} else {
+					benchmarks.add(parseBenchmark(name));
+				}
+			}
 
-		List<Metric> metrics = new ArrayList<>();
+			if (error != null) {
+				return Either.ofLeft(error);
+			}
+			if (benchmarks.isEmpty()) {
+				throw new OutputParseException("Root element has no benchmarks");
+			}
 
-		Iterator<Entry<String, JsonNode>> fields = node.fields();
-		while (fields.hasNext()) {
-			Entry<String, JsonNode> field = fields.next();
-			metrics.add(parseMetric(field.getKey(), field.getValue()));
+			return Either.ofRight(benchmarks);
 		}
 
-		return new Benchmark(name, metrics);
-	}
+		private Benchmark parseBenchmark(String name) throws IOException {
+			if (parser.currentToken() != JsonToken.START_OBJECT) {
+				throw new OutputParseException("benchmark is no object: " + describeValue());
+			}
+
+			benchmarkCount++;
+			if (benchmarkCount > maxBenchmarks) {
+				throw new OutputParseException("Output has more than " + maxBenchmarks + " benchmarks");
+			}
+
+			List<Metric> metrics = new ArrayList<>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String metricName = parser.getCurrentName();
+				parser.nextToken();
+				metrics.add(parseMetric(metricName));
+			}
 
-	private Metric parseMetric(String name, JsonNode node) {
-		if (!node.isObject()) {
-			throw new OutputParseException("Metric is no object: " + node);
+			return new Benchmark(name, metrics);
 		}
 
-		Optional<String> unit = Optional.empty();
-		if (node.hasNonNull("unit")) {
-			// parseUnit will throw if the value is invalid
-			unit = Optional.of(parseUnit(node.get("unit")));
+		private Metric parseMetric(String name) throws IOException {
+			if (parser.currentToken() != JsonToken.START_OBJECT) {
+				throw new OutputParseException("Metric is no object: " + describeValue());
+			}
+
+			metricCount++;
+			if (metricCount > maxMetrics) {
+				throw new OutputParseException("Output has more than " + maxMetrics + " metrics");
+			}
+
+			// Fields may come in any order and some of them take precedence over others, so they are
+			// only interpreted once the whole metric has been read.
+			MetricFields fields = new MetricFields();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (token == JsonToken.VALUE_NULL) {
+					continue;
+				}
+
+				switch (fieldName) {
+					case "unit":
+						if (token != JsonToken.VALUE_STRING) {
+							throw new OutputParseException("Unit is no string: " + describeValue());
+						}
+						fields.unit = parser.getText();
+						break;
+					case "error":
+						if (token != JsonToken.VALUE_STRING) {
+							throw new OutputParseException("Error is no string: " + describeValue());
+						}
+						fields.error = parser.getText();
+						break;
+					case "interpretation":
+						fields.interpretationToken = token;
+						fields.interpretation = describeValue();
+						break;
+					case "resultInterpretation":
+						fields.resultInterpretationToken = token;
+						fields.resultInterpretation = describeValue();
+						break;
+					case "results":
+						fields.results = parseValues();
+						break;
+					case "values":
+						fields.values = parseValues();
+						break;
+					default:
+						parser.skipChildren();
+				}
+			}
+
+			return fields.toMetric(name);
 		}
 
-		Optional<Interpretation> interpretation = getInterpretationFieldName(node)
-			.map(node::get)
-			// parseInterpretation will throw if the value is invalid
-			.map(this::parseInterpretation);
+		/**
+		 * Reads an array of numbers. Errors are not thrown right away since the values might not be
+		 * needed after all.
+		 */
+		private ParsedValues parseValues() throws IOException {
+			if (parser.currentToken() != JsonToken.START_ARRAY) {
+				String description = describeValue();
+				return ParsedValues.failed("Output is no array: " + description);
+			}
 
-		if (node.hasNonNull("error")) {
-			if (!node.get("error").isTextual()) {
-				throw new OutputParseException("Error is no string: " + node);
+			double[] values = new double[16];
+			int size = 0;
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+					String description = describeValue();
+					skipRestOfArray();
+					return ParsedValues.failed(
+						"Expected a number but got " + description + " at position " + size
+					);
+				}
+
+				valueCount++;
+				if (valueCount > maxValues) {
+					throw new OutputParseException("Output has more than " + maxValues + " values");
+				}
+
+				if (size == values.length) {
+					values = Arrays.copyOf(values, values.length * 2);
+				}
+				values[size++] = parser.getDoubleValue();
 			}
 
-			return new Metric(
-				name, node.get("error").asText(), unit.orElse(null), interpretation.orElse(null), null
-			);
-		} else {
-			String resultsFieldName = getResultsFieldName(node)
-				.orElseThrow(() -> new OutputParseException("Metric has no results: " + node));
+			if (size == 0) {
+				return ParsedValues.failed("Expected result to have at least one value!");
+			}
+			return ParsedValues.successful(new DoubleArrayList(values, size));
+		}
 
-			return new Metric(
-				name, null, unit.orElse(null), interpretation.orElse(null),
-				parseResults(node.get(resultsFieldName))
-			);
+		private void skipRestOfArray() throws IOException {
+			parser.skipChildren();
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token == null) {
+					return;
+				}
+				parser.skipChildren();
+			}
 		}
-	}
 
-	private Optional<String> getInterpretationFieldName(JsonNode node) {
-		String fieldName = node.hasNonNull("interpretation")
-			? "interpretation"
-			: "resultInterpretation";
-		if (node.hasNonNull(fieldName)) {
-			return Optional.of(fieldName);
+		/**
+		 * Describes the current value for error messages. Objects and arrays are skipped.
+		 */
+		private String describeValue() throws IOException {
+			JsonToken token = parser.currentToken();
+			if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				return token == JsonToken.START_OBJECT ? "{...}" : "[...]";
+			}
+			return parser.getText();
 		}
-		return Optional.empty();
 	}
 
-	private Optional<String> getResultsFieldName(JsonNode node) {
-		String fieldName = node.hasNonNull("results")
-			? "results"
-			: "values";
-		if (node.hasNonNull(fieldName)) {
-			return Optional.of(fieldName);
+	/**
+	 * The fields of a metric as they were read.
+	 */
+	private static class MetricFields {
+
+		@Nullable
+		String unit;
+		@Nullable
+		String error;
+		@Nullable
+		JsonToken interpretationToken;
+		@Nullable
+		String interpretation;
+		@Nullable
+		JsonToken resultInterpretationToken;
+		@Nullable
+		String resultInterpretation;
+		@Nullable
+		ParsedValues results;
+		@Nullable
+		ParsedValues values;
+
+		Metric toMetric(String name) {
+			Interpretation parsedInterpretation = null;
+			if (interpretationToken != null) {
+				parsedInterpretation = parseInterpretation(interpretationToken, interpretation);
+			} else if (resultInterpretationToken != null) {
+				parsedInterpretation = parseInterpretation(
+					resultInterpretationToken, resultInterpretation
+				);
+			}
+
+			if (error != null) {
+				return new Metric(name, error, unit, parsedInterpretation, null);
+			}
+
+			ParsedValues parsedValues = Optional.ofNullable(results)
+				.or(() -> Optional.ofNullable(values))
+				.orElseThrow(() -> new OutputParseException("Metric " + name + " has no results"));
+
+			return new Metric(name, null, unit, parsedInterpretation, parsedValues.get());
 		}
-		return Optional.empty();
 	}
 
-	private List<Double> parseResults(JsonNode node) {
-		if (!node.isArray()) {
-			throw new OutputParseException("Output is no array: " + node);
+	/**
+	 * Either some values or the reason why they were invalid.
+	 */
+	private static class ParsedValues {
+
+		@Nullable
+		private final List<Double> values;
+		@Nullable
+		private final String error;
+
+		private ParsedValues(@Nullable List<Double> values, @Nullable String error) {
+			this.values = values;
+			this.error = error;
 		}
-		int size = node.size();
 
-		List<Double> results = new ArrayList<>(size);
+		static ParsedValues successful(List<Double> values) {
+			return new ParsedValues(values, null);
+		}
 
-		ArrayNode arrayNode = (ArrayNode) node;
+		static ParsedValues failed(String error) {
+			return new ParsedValues(null, error);
+		}
 
-		for (int i = 0; i < size; i++) {
-			JsonNode element = arrayNode.get(i);
-			if (!element.isNumber()) {
-				throw new OutputParseException(
-					"Expected a number in: " + node + " at position " + i
-				);
+		List<Double> get() {
+			if (values == null) {
+				throw new OutputParseException(error);
 			}
-			results.add(element.asDouble());
+			return values;
+		}
+	}
+
+	/**
+	 * An unmodifiable list backed by a primitive array, so large amounts of values don't need to be
+	 * boxed.
+	 */
+	private static class DoubleArrayList extends AbstractList<Double> implements RandomAccess {
+
+		private final double[] values;
+		private final int size;
+
+		DoubleArrayList(double[] values, int size) {
+			this.values = values;
+			this.size = size;
 		}
 
-		if (results.isEmpty()) {
-			throw new OutputParseException("Expected result to have at least one value!");
+		@Override
+		public Double get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+			}
+			return values[index];
 		}
 
-		return results;
+		@Override
+		public int size() {
+			return size;
+		}
 	}
 
-	private String parseUnit(JsonNode node) {
-		if (!node.isTextual()) {
-			throw new OutputParseException("Unit is no string: " + node);
+	/**
+	 * Fails once more than a certain amount of bytes has been read.
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+
+		private final long maxBytes;
+		private long bytesRead;
+
+		LimitedInputStream(InputStream in, long maxBytes) {
+			super(in);
+			this.maxBytes = maxBytes;
+			this.bytesRead = 0;
 		}
-		return node.asText();
-	}
 
-	private Interpretation parseInterpretation(JsonNode node) {
-		if (!node.isTextual()) {
-			throw new OutputParseException("Interpretation is no string: " + node);
+		long getBytesRead() {
+			return bytesRead;
 		}
 
-		try {
-			return Interpretation.valueOf(node.asText());
-		} catch (IllegalArgumentException e) {
-			throw new OutputParseException("Unknown interpretation: " + node);
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result >= 0) {
+				count(1);
+			}
+			return result;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int result = super.read(b, off, len);
+			if (result > 0) {
+				count(result);
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long result = super.skip(n);
+			count(result);
+			return result;
+		}
+
+		private void count(long amount) {
+			bytesRead += amount;
+			if (bytesRead > maxBytes) {
+				throw new OutputParseException("Output is longer than " + maxBytes + " bytes");
+			}
 		}
 	}
 }
@@ -2,11 +2,11 @@ package de.aaaaaaah.velcom.runner.states;
 
 import de.aaaaaaah.velcom.runner.Connection;
 import de.aaaaaaah.velcom.runner.TeleBackend;
+import de.aaaaaaah.velcom.runner.tmpdirs.StreamingUnpacker;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.RequestRunReply;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
@@ -24,11 +24,12 @@ public class AwaitingBench extends RunnerState {
 	private final RequestRunReply reply;
 	private final CompletableFuture<RequestRunReply> replyFuture;
 	private boolean owningReplyFuture;
+	private final Path taskRepoTarget;
 
-	private OutputStream tmpFile;
+	private StreamingUnpacker unpacker;
 
 	public AwaitingBench(TeleBackend teleBackend, Connection connection,
-		RequestRunReply reply, CompletableFuture<RequestRunReply> replyFuture) {
+		RequestRunReply reply, CompletableFuture<RequestRunReply> replyFuture, Path taskRepoTarget) {
 
 		super(teleBackend, connection);
 
@@ -36,6 +37,7 @@ public class AwaitingBench extends RunnerState {
 		owningReplyFuture = true;
 
 		this.reply = reply;
+		this.taskRepoTarget = taskRepoTarget;
 	}
 
 	@Override
@@ -43,34 +45,37 @@ public class AwaitingBench extends RunnerState {
 		LOGGER.info("{} - Receiving bench repo", teleBackend.getAddress());
 
 		try {
-			Path benchRepoTmpPath = teleBackend.getBenchRepoTmpPath();
-			Files.createDirectories(benchRepoTmpPath.getParent());
-			tmpFile = Files.newOutputStream(benchRepoTmpPath);
+			unpacker = new StreamingUnpacker(
+				teleBackend.getBenchRepoTmpPath(),
+				reply.getCodec().orElse(TransferCodec.NONE)
+			);
 		} catch (IOException e) {
-			LOGGER.warn("{} - Could not open stream to bench repo tmp file", teleBackend.getAddress(), e);
+			LOGGER.warn("{} - Could not start unpacking bench repo", teleBackend.getAddress(), e);
 		}
 	}
 
 	@Override
 	public RunnerState onBinary(ByteBuffer data, boolean last) {
-		if (tmpFile != null) {
-			byte[] bytes = new byte[data.remaining()];
-			data.get(bytes);
+		if (unpacker != null) {
 			try {
-				tmpFile.write(bytes);
+				unpacker.write(data);
+				if (last) {
+					unpacker.finish();
+				}
 			} catch (IOException e) {
-				LOGGER.warn("{} - Could not stream to bench repo tmp file", teleBackend.getAddress(), e);
-				tmpFile = null;
+				LOGGER.warn("{} - Could not unpack bench repo", teleBackend.getAddress(), e);
+				unpacker.abort();
+				unpacker = null;
 			}
 		}
 
 		if (!last) {
 			return this;
-		} else if (tmpFile == null) {
+		} else if (unpacker == null) {
 			return new Idle(teleBackend, connection);
-		} else if (reply.hasRun()) {
+		} else if (reply.hasRun() && !reply.isPrefetched()) {
 			owningReplyFuture = false;
-			return new AwaitingRun(teleBackend, connection, reply, replyFuture);
+			return new AwaitingRun(teleBackend, connection, reply, replyFuture, taskRepoTarget);
 		} else {
 			owningReplyFuture = false;
 			replyFuture.complete(reply);
@@ -80,13 +85,9 @@ public class AwaitingBench extends RunnerState {
 
 	@Override
 	public void onExit() {
-		if (tmpFile != null) {
-			try {
-				tmpFile.close();
-			} catch (IOException e) {
-				LOGGER
-					.warn("{} - Could not close stream to bench repo tmp file", teleBackend.getAddress(), e);
-			}
+		if (unpacker != null) {
+			// Does nothing if unpacking has already finished
+			unpacker.abort();
 		}
 
 		if (owningReplyFuture) {
@@ -9,6 +9,7 @@ import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.ClientBoundP
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.ClientBoundPacketType;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.RequestRunReply;
 import de.aaaaaaah.velcom.shared.util.Timeout;
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
@@ -23,14 +24,22 @@ public class AwaitingRequestRunReply extends RunnerState {
 
 	private final CompletableFuture<RequestRunReply> replyFuture;
 	private boolean owningReplyFuture;
+	private final Path taskRepoTarget;
 	private final Timeout timeout;
 
+	/**
+	 * @param teleBackend the backend the request was sent to
+	 * @param connection the connection to the backend
+	 * @param replyFuture completed once the reply and all repos have been received
+	 * @param taskRepoTarget the directory a received task repo should be unpacked into
+	 */
 	public AwaitingRequestRunReply(TeleBackend teleBackend, Connection connection,
-		CompletableFuture<RequestRunReply> replyFuture) {
+		CompletableFuture<RequestRunReply> replyFuture, Path taskRepoTarget) {
 
 		super(teleBackend, connection);
 
 		this.replyFuture = replyFuture;
+		this.taskRepoTarget = taskRepoTarget;
 		owningReplyFuture = true;
 
 		timeout = Timeout.after(Delays.AWAIT_COMMAND_REPLY);
@@ -52,14 +61,19 @@ public class AwaitingRequestRunReply extends RunnerState {
 			.filter(p -> p.getType() == ClientBoundPacketType.REQUEST_RUN_REPLY)
 			.flatMap(p -> serializer.deserialize(p.getData(), RequestRunReply.class))
 			.map(p -> {
-				LOGGER
-					.debug("{} - hasBench {}, hasRun {}", teleBackend.getAddress(), p.hasBench(), p.hasRun());
+				LOGGER.debug("{} - hasBench {}, hasRun {}, isPrefetched {}", teleBackend.getAddress(),
+					p.hasBench(), p.hasRun(), p.isPrefetched());
 				if (p.hasBench()) {
 					owningReplyFuture = false;
-					return new AwaitingBench(teleBackend, connection, p, replyFuture);
+					return new AwaitingBench(teleBackend, connection, p, replyFuture, taskRepoTarget);
+				} else if (p.hasRun() && p.isPrefetched()) {
+					// We already have the task repo, so there is nothing left to receive
+					owningReplyFuture = false;
+					replyFuture.complete(p);
+					return new Idle(teleBackend, connection);
 				} else if (p.hasRun()) {
 					owningReplyFuture = false;
-					return new AwaitingRun(teleBackend, connection, p, replyFuture);
+					return new AwaitingRun(teleBackend, connection, p, replyFuture, taskRepoTarget);
 				} else {
 					return new Idle(teleBackend, connection);
 				}
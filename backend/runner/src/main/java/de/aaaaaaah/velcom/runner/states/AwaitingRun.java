@@ -2,11 +2,11 @@ package de.aaaaaaah.velcom.runner.states;
 
 import de.aaaaaaah.velcom.runner.Connection;
 import de.aaaaaaah.velcom.runner.TeleBackend;
+import de.aaaaaaah.velcom.runner.tmpdirs.StreamingUnpacker;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.RequestRunReply;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
@@ -14,7 +14,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This state is entered if the backend replied that it had a task repo for the runner. After
- * downloading the task repo, this state transitions into {@link Idle}.
+ * downloading and unpacking the task repo, this state transitions into {@link Idle}.
  */
 public class AwaitingRun extends RunnerState {
 
@@ -22,16 +22,18 @@ public class AwaitingRun extends RunnerState {
 
 	private final CompletableFuture<RequestRunReply> replyFuture;
 	private final RequestRunReply reply;
+	private final Path taskRepoTarget;
 
-	private OutputStream tmpFile;
+	private StreamingUnpacker unpacker;
 
 	public AwaitingRun(TeleBackend teleBackend, Connection connection,
-		RequestRunReply reply, CompletableFuture<RequestRunReply> replyFuture) {
+		RequestRunReply reply, CompletableFuture<RequestRunReply> replyFuture, Path taskRepoTarget) {
 
 		super(teleBackend, connection);
 
 		this.replyFuture = replyFuture;
 		this.reply = reply;
+		this.taskRepoTarget = taskRepoTarget;
 	}
 
 	@Override
@@ -40,30 +42,33 @@ public class AwaitingRun extends RunnerState {
 			reply.getRunId().get());
 
 		try {
-			Path taskRepoTmpPath = teleBackend.getTaskRepoTmpPath();
-			Files.createDirectories(taskRepoTmpPath.getParent());
-			tmpFile = Files.newOutputStream(taskRepoTmpPath);
+			unpacker = new StreamingUnpacker(
+				taskRepoTarget,
+				reply.getCodec().orElse(TransferCodec.NONE)
+			);
 		} catch (IOException e) {
-			LOGGER.warn("{} - Could not open stream to task repo tmp file", teleBackend.getAddress(), e);
+			LOGGER.warn("{} - Could not start unpacking task repo", teleBackend.getAddress(), e);
 		}
 	}
 
 	@Override
 	public RunnerState onBinary(ByteBuffer data, boolean last) {
-		if (tmpFile != null) {
-			byte[] bytes = new byte[data.remaining()];
-			data.get(bytes);
+		if (unpacker != null) {
 			try {
-				tmpFile.write(bytes);
+				unpacker.write(data);
+				if (last) {
+					unpacker.finish();
+				}
 			} catch (IOException e) {
-				LOGGER.warn("{} - Could not stream to task repo tmp file", teleBackend.getAddress(), e);
-				tmpFile = null;
+				LOGGER.warn("{} - Could not unpack task repo", teleBackend.getAddress(), e);
+				unpacker.abort();
+				unpacker = null;
 			}
 		}
 
 		if (!last) {
 			return this;
-		} else if (tmpFile == null) {
+		} else if (unpacker == null) {
 			return new Idle(teleBackend, connection);
 		} else {
 			replyFuture.complete(reply);
@@ -73,13 +78,9 @@ public class AwaitingRun extends RunnerState {
 
 	@Override
 	public void onExit() {
-		if (tmpFile != null) {
-			try {
-				tmpFile.close();
-			} catch (IOException e) {
-				LOGGER
-					.warn("{} - Could not close stream to task repo tmp file", teleBackend.getAddress(), e);
-			}
+		if (unpacker != null) {
+			// Does nothing if unpacking has already finished
+			unpacker.abort();
 		}
 
 		replyFuture.cancel(true);
@@ -105,6 +105,10 @@ public abstract class RunnerState implements State {
 		LOGGER.debug("{} - Replying with {}", teleBackend.getAddress(), getStatusReply);
 		connection.sendPacket(getStatusReply.asPacket(connection.getSerializer()));
 
+		if (getStatus.isStatusPush()) {
+			connection.enableStatusPush().ifPresent(pusher -> pusher.markSent(getStatusReply));
+		}
+
 		return Optional.of(this);
 	}
 
@@ -15,15 +15,15 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This class manages the directory where the bench repo is stored, as well as the file containing
- * the bench repo's hash and a temporary file used while downloading and unpacking a new bench
- * repo.
+ * the bench repo's hash and a temporary directory a new bench repo is unpacked into while it is
+ * being downloaded.
  */
 public class BenchRepoDir {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(BenchRepoDir.class);
 
 	private final Path dirPath;
-	private final Path tmpFilePath;
+	private final Path tmpDirPath;
 	private final Path hashFilePath;
 
 	@Nullable
@@ -31,7 +31,7 @@ public class BenchRepoDir {
 
 	public BenchRepoDir(Path dirPath) throws IOException {
 		this.dirPath = dirPath;
-		this.tmpFilePath = dirPath.getParent().resolve(dirPath.getFileName() + ".tmp");
+		this.tmpDirPath = dirPath.getParent().resolve(dirPath.getFileName() + ".tmp");
 		this.hashFilePath = dirPath.getParent().resolve(dirPath.getFileName() + ".hash");
 
 		currentHash = readHash();
@@ -82,8 +82,8 @@ public class BenchRepoDir {
 		return dirPath;
 	}
 
-	public Path getTmpFilePath() {
-		return tmpFilePath;
+	public Path getTmpDirPath() {
+		return tmpDirPath;
 	}
 
 	public void setHash(@Nullable String hash) throws IOException {
@@ -0,0 +1,197 @@
+package de.aaaaaaah.velcom.runner.tmpdirs;
+
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
+import de.aaaaaaah.velcom.shared.util.FileHelper;
+import de.aaaaaaah.velcom.shared.util.compression.TarHelper;
+import de.aaaaaaah.velcom.shared.util.execution.DaemonThreadFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Unpacks a tar file into a directory while it is still being received. The tar file's contents
+ * are passed to {@link #write(ByteBuffer)} chunk by chunk and unpacked on a separate thread, so
+ * unpacking overlaps with the transfer and the tar file never needs to be stored on disk.
+ *
+ * <p> Only a limited amount of chunks is buffered. If unpacking is slower than receiving, {@link
+ * #write(ByteBuffer)} blocks.
+ */
+public class StreamingUnpacker {
+
+	private static final int MAX_BUFFERED_CHUNKS = 64;
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+	/**
+	 * Marks the end of the tar file. Compared by identity.
+	 */
+	private static final byte[] END_OF_STREAM = new byte[0];
+
+	private final Path targetDir;
+	private final TransferCodec codec;
+	private final BlockingQueue<byte[]> chunks;
+	private final Thread unpackThread;
+
+	private volatile boolean unpackingDone;
+	@Nullable
+	private volatile IOException failure;
+
+	/**
+	 * Create a new unpacker and start unpacking. Any existing file or directory at the target path is
+	 * deleted first.
+	 *
+	 * @param targetDir the directory to unpack the tar file into
+	 * @param codec the codec the tar file is encoded with
+	 * @throws IOException if the target directory could not be prepared
+	 */
+	public StreamingUnpacker(Path targetDir, TransferCodec codec) throws IOException {
+		this.targetDir = targetDir;
+		this.codec = codec;
+		this.chunks = new ArrayBlockingQueue<>(MAX_BUFFERED_CHUNKS);
+
+		FileHelper.deleteDirectoryOrFile(targetDir);
+		Files.createDirectories(targetDir);
+
+		unpackThread = new DaemonThreadFactory().newThread(this::unpack);
+		unpackThread.setName("unpack " + targetDir.getFileName());
+		unpackThread.start();
+	}
+
+	private void unpack() {
+		try {
+			TarHelper.untar(codec.decode(new ChunkInputStream()), targetDir);
+		} catch (IOException e) {
+			failure = e;
+		} finally {
+			unpackingDone = true;
+		}
+	}
+
+	/**
+	 * Pass the next part of the tar file to the unpacker. The buffer's contents are copied, so it
+	 * can be reused once this function returns.
+	 *
+	 * @param data the next part of the tar file
+	 * @throws IOException if unpacking has failed
+	 */
+	public void write(ByteBuffer data) throws IOException {
+		byte[] bytes = new byte[data.remaining()];
+		data.get(bytes);
+		if (bytes.length > 0) {
+			enqueue(bytes);
+		}
+	}
+
+	/**
+	 * Signal that the whole tar file has been passed to the unpacker and wait until it has been
+	 * unpacked completely.
+	 *
+	 * @throws IOException if unpacking has failed
+	 */
+	public void finish() throws IOException {
+		enqueue(END_OF_STREAM);
+
+		try {
+			unpackThread.join();
+		} catch (InterruptedException e) {
+			abort();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for unpacking to finish");
+		}
+
+		throwIfFailed();
+	}
+
+	/**
+	 * Stop unpacking. The target directory may be left partially populated.
+	 */
+	public void abort() {
+		unpackThread.interrupt();
+	}
+
+	private void enqueue(byte[] chunk) throws IOException {
+		try {
+			// Once the unpacking thread is done, nobody takes chunks from the queue any more. Any data
+			// following the tar file's end is ignored.
+			while (!unpackingDone) {
+				if (chunks.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			abort();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while passing data to the unpacker");
+		}
+
+		throwIfFailed();
+	}
+
+	private void throwIfFailed() throws IOException {
+		IOException cause = failure;
+		if (cause != null) {
+			throw new IOException("could not unpack tar file to " + targetDir, cause);
+		}
+	}
+
+	/**
+	 * Reads the chunks in the queue as one continuous stream.
+	 */
+	private class ChunkInputStream extends InputStream {
+
+		@Nullable
+		private byte[] current;
+		private int position;
+		private boolean ended;
+
+		@Override
+		public int read() throws IOException {
+			if (!nextChunk()) {
+				return -1;
+			}
+			//noinspection ConstantConditions
+			return current[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!nextChunk()) {
+				return -1;
+			}
+
+			//noinspection ConstantConditions
+			int amount = Math.min(len, current.length - position);
+			System.arraycopy(current, position, b, off, amount);
+			position += amount;
+			return amount;
+		}
+
+		/**
+		 * Make sure the current chunk has bytes left, blocking until the next chunk arrives if
+		 * necessary.
+		 *
+		 * @return false if the end of the stream has been reached
+		 */
+		private boolean nextChunk() throws IOException {
+			while (!ended && (current == null || position >= current.length)) {
+				try {
+					current = chunks.take();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException("unpacking was aborted");
+				}
+				position = 0;
+				ended = current == END_OF_STREAM;
+			}
+
+			return !ended;
+		}
+	}
+}
@@ -1,21 +1,51 @@
 package de.aaaaaaah.velcom.runner.tmpdirs;
 
 import de.aaaaaaah.velcom.shared.util.FileHelper;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * This class manages the directory where the task repo is stored, as well as a temporary file used
- * while downloading and unpacking a new bench repo.
+ * This class manages the directory where the task repo is stored, as well as a temporary directory
+ * a new task repo is unpacked into while it is being downloaded and a prefetch directory the next
+ * task's repo is unpacked into while the current task is still being benchmarked.
+ *
+ * <p> Next to the directory, a manifest records which run the task repo belongs to and the size
+ * and modification time of each of its files. This allows the runner to check whether a task repo
+ * is still untouched after a benchmark, so the backend can send only the differences to the next
+ * task's repo.
  */
 public class TaskRepoDir {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(TaskRepoDir.class);
+
 	private final Path dirPath;
-	private final Path tmpFilePath;
+	private final Path tmpDirPath;
+	private final Path prefetchDirPath;
+	private final Path manifestPath;
 
 	public TaskRepoDir(Path dirPath) {
 		this.dirPath = dirPath;
-		tmpFilePath = dirPath.getParent().resolve(dirPath.getFileName() + ".tmp");
+		tmpDirPath = dirPath.getParent().resolve(dirPath.getFileName() + ".tmp");
+		prefetchDirPath = dirPath.getParent().resolve(dirPath.getFileName() + ".prefetch");
+		manifestPath = dirPath.getParent().resolve(dirPath.getFileName() + ".manifest");
 	}
 
 	/**
@@ -24,6 +54,7 @@ public class TaskRepoDir {
 	 * @throws IOException if something io-related goes wrong during the deletion
 	 */
 	public void clear() throws IOException {
+		deleteManifest();
 		FileHelper.deleteDirectoryOrFile(dirPath);
 	}
 
@@ -31,7 +62,244 @@ public class TaskRepoDir {
 		return dirPath;
 	}
 
-	public Path getTmpFilePath() {
-		return tmpFilePath;
+	public Path getTmpDirPath() {
+		return tmpDirPath;
+	}
+
+	public Path getPrefetchDirPath() {
+		return prefetchDirPath;
+	}
+
+	/**
+	 * Delete the prefetch directory.
+	 *
+	 * @throws IOException if something io-related goes wrong during the deletion
+	 */
+	public void clearPrefetch() throws IOException {
+		FileHelper.deleteDirectoryOrFile(prefetchDirPath);
+	}
+
+	/**
+	 * Replace the task repo with the contents of the prefetch directory.
+	 *
+	 * @throws IOException if something io-related goes wrong
+	 */
+	public void installPrefetched() throws IOException {
+		FileHelper.deleteDirectoryOrFile(dirPath);
+		Files.move(prefetchDirPath, dirPath);
+	}
+
+	/**
+	 * Find out which run the task repo belongs to without checking whether it is still unmodified.
+	 * Only the first line of the manifest is read, so this is cheap enough to do every time the
+	 * runner asks for a new task. Before the task repo is actually reused, it must still be checked
+	 * using {@link #verifyWorkspace()}.
+	 *
+	 * @return the id of the run the task repo belonged to when the manifest was written
+	 */
+	public Optional<UUID> getWorkspaceRunId() {
+		if (!Files.exists(manifestPath) || !Files.isDirectory(dirPath)) {
+			return Optional.empty();
+		}
+
+		try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+			return Optional.ofNullable(reader.readLine()).map(UUID::fromString);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Could not read task repo manifest", e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Check whether the task repo still contains exactly the files it contained when the manifest
+	 * was written. Files and directories that were created afterwards (e. g. build artifacts) are
+	 * deleted. If any file from the manifest was modified or deleted, the task repo can't be reused
+	 * and the manifest is deleted.
+	 *
+	 * @return the id of the run the task repo belongs to, if it is unmodified
+	 */
+	public Optional<UUID> verifyWorkspace() {
+		if (!Files.exists(manifestPath) || !Files.isDirectory(dirPath)) {
+			return Optional.empty();
+		}
+
+		try {
+			List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+			if (lines.isEmpty()) {
+				deleteManifest();
+				return Optional.empty();
+			}
+
+			UUID runId = UUID.fromString(lines.get(0));
+			Map<Path, String> expectedEntries = new HashMap<>();
+			for (String line : lines.subList(1, lines.size())) {
+				String[] parts = line.split(" ", 4);
+				String entry = String.join(" ", parts[0], parts[1], parts[2]);
+				expectedEntries.put(dirPath.resolve(parts[3]), entry);
+			}
+
+			Map<Path, String> actualEntries = collectEntries(dirPath);
+			for (Path path : actualEntries.keySet()) {
+				if (!expectedEntries.containsKey(path)) {
+					delete(path);
+				}
+			}
+			deleteEmptyDirectories(dirPath);
+
+			for (Map.Entry<Path, String> entry : expectedEntries.entrySet()) {
+				if (!entry.getValue().equals(actualEntries.get(entry.getKey()))) {
+					LOGGER.debug("Task repo was modified at {}, can't reuse it", entry.getKey());
+					deleteManifest();
+					return Optional.empty();
+				}
+			}
+
+			return Optional.of(runId);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Could not verify task repo, can't reuse it", e);
+			try {
+				deleteManifest();
+			} catch (IOException e2) {
+				LOGGER.warn("Could not delete task repo manifest", e2);
+			}
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Record the current state of the task repo so it can be verified later using {@link
+	 * #verifyWorkspace()}.
+	 *
+	 * @param runId the id of the run the task repo belongs to
+	 * @throws IOException if something io-related goes wrong
+	 */
+	public void writeManifest(UUID runId) throws IOException {
+		Map<Path, String> entries = collectEntries(dirPath);
+
+		List<String> lines = new ArrayList<>();
+		lines.add(runId.toString());
+		for (Map.Entry<Path, String> entry : entries.entrySet()) {
+			String relativePath = dirPath.relativize(entry.getKey()).toString();
+			if (relativePath.contains("\n")) {
+				// Can't be represented in the manifest, so the task repo will never be reused
+				LOGGER.debug("Task repo contains unsupported path {}, not writing manifest", relativePath);
+				deleteManifest();
+				return;
+			}
+			lines.add(entry.getValue() + " " + relativePath);
+		}
+
+		Files.write(manifestPath, lines, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Delete the manifest, marking the task repo as not reusable.
+	 *
+	 * @throws IOException if something io-related goes wrong during the deletion
+	 */
+	public void deleteManifest() throws IOException {
+		Files.deleteIfExists(manifestPath);
+	}
+
+	/**
+	 * Turn the task repo into the next task's repo. Deletes the given paths from the task repo and
+	 * then moves all files from the tmp dir into the task repo, replacing existing files.
+	 *
+	 * @param deletedPaths the paths (relative to the task repo) to delete
+	 * @throws IOException if something io-related goes wrong or a path lies outside the task repo
+	 */
+	public void applyDelta(List<String> deletedPaths) throws IOException {
+		Path root = dirPath.toAbsolutePath().normalize();
+
+		for (String deletedPath : deletedPaths) {
+			Path path = root.resolve(deletedPath).normalize();
+			if (path.equals(root) || !path.startsWith(root)) {
+				throw new IOException("deleted path " + deletedPath + " is outside the task repo");
+			}
+
+			delete(path);
+			deleteEmptyParents(root, path.getParent());
+		}
+
+		List<Path> newFiles;
+		try (Stream<Path> stream = Files.walk(tmpDirPath)) {
+			newFiles = stream
+				.filter(path -> !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+				.collect(Collectors.toList());
+		}
+
+		for (Path newFile : newFiles) {
+			Path target = root.resolve(tmpDirPath.relativize(newFile));
+			if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+				FileHelper.deleteDirectoryOrFile(target);
+			}
+			Files.createDirectories(target.getParent());
+			Files.move(newFile, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		FileHelper.deleteDirectoryOrFile(tmpDirPath);
+	}
+
+	/**
+	 * Delete a file, symlink or directory without following symlinks. Unlike {@link
+	 * FileHelper#deleteDirectoryOrFile(Path)}, this also deletes dangling symlinks.
+	 */
+	private static void delete(Path path) throws IOException {
+		if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+			FileHelper.deleteDirectoryOrFile(path);
+		} else {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	/**
+	 * Collect all files and symlinks below a directory, without following symlinks.
+	 *
+	 * @return a map from each path to its type, size and modification time
+	 */
+	private static Map<Path, String> collectEntries(Path dir) throws IOException {
+		Map<Path, String> entries = new HashMap<>();
+
+		Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				String type = attrs.isSymbolicLink() ? "l" : "f";
+				entries.put(file, type + " " + attrs.size() + " " + attrs.lastModifiedTime().toMillis());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return entries;
+	}
+
+	private static void deleteEmptyDirectories(Path dir) throws IOException {
+		Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult postVisitDirectory(Path subDir, IOException exc) throws IOException {
+				if (exc != null) {
+					throw exc;
+				}
+				if (!subDir.equals(dir)) {
+					try (Stream<Path> entries = Files.list(subDir)) {
+						if (entries.findAny().isEmpty()) {
+							Files.delete(subDir);
+						}
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static void deleteEmptyParents(Path root, Path dir) throws IOException {
+		while (dir != null && !dir.equals(root) && Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+			try (Stream<Path> entries = Files.list(dir)) {
+				if (entries.findAny().isPresent()) {
+					return;
+				}
+			}
+			Files.delete(dir);
+			dir = dir.getParent();
+		}
 	}
 }
@@ -7,6 +7,7 @@ import de.aaaaaaah.velcom.shared.protocol.serialization.Result;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Benchmark;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Interpretation;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Metric;
+import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
 import de.aaaaaaah.velcom.shared.util.systeminfo.LinuxSystemInfo;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -37,6 +38,9 @@ class BenchmarkerTest {
 	Path rootTempDir;
 	Path benchRepoPath;
 	Path workPath;
+	Path outputLogPath;
+	Path stdOutPath;
+	private long maxOutputBytes;
 	private CompletableFuture<Boolean> finishFuture;
 
 	private UUID taskId;
@@ -47,6 +51,9 @@ class BenchmarkerTest {
 	void setUp() throws IOException {
 		benchRepoPath = rootTempDir.resolve("benchrepo");
 		workPath = rootTempDir.resolve("work");
+		outputLogPath = rootTempDir.resolve("output.log");
+		stdOutPath = rootTempDir.resolve("result.json");
+		maxOutputBytes = 1024 * 1024;
 		Files.createDirectory(benchRepoPath);
 		Files.createDirectory(workPath);
 		finishFuture = new CompletableFuture<>();
@@ -252,6 +259,46 @@ class BenchmarkerTest {
 		);
 	}
 
+	@Test
+	void keepsOnlyRecentOutputButLogsEverything() throws Exception {
+		maxOutputBytes = 100;
+		writeBenchScript(
+			"#!/bin/sh",
+			"for i in $(seq 1 200) ; do echo \"line $i\" >&2 ; done",
+			"exit 1"
+		);
+
+		doWithResult(
+			result -> {
+				String error = result.getResult().getLeft().orElseThrow();
+				assertThat(error).contains("earlier lines omitted").contains("line 200");
+				assertThat(error).doesNotContain("line 1\n");
+			},
+			false
+		);
+
+		assertThat(Files.readAllLines(outputLogPath)).hasSize(200);
+	}
+
+	@Test
+	void returnsOutputLinesSinceOffset() throws Exception {
+		writeBenchScript(
+			"#!/bin/sh",
+			"for i in $(seq 1 5) ; do echo \"line $i\" >&2 ; done",
+			"exit 1"
+		);
+
+		Benchmarker benchmarker = new Benchmarker(finishFuture, taskId, workPath, BENCH_REPO_HASH,
+			benchRepoPath, outputLogPath, stdOutPath, maxOutputBytes, startTime, RUNNER_NAME,
+			systemInfo);
+		finishFuture.get(20, TimeUnit.SECONDS);
+
+		LinesWithOffset lines = benchmarker.getOutputLinesSince(3);
+		assertThat(lines.getFirstLineOffset()).isEqualTo(3);
+		assertThat(lines.getLines()).containsExactly("line 4", "line 5");
+		assertThat(benchmarker.getLastOutputLines().getLines()).hasSize(5);
+	}
+
 	@Test
 	void testAbort() throws Exception {
 		writeBenchScript(
@@ -260,7 +307,8 @@ class BenchmarkerTest {
 		);
 
 		Benchmarker benchmarker = new Benchmarker(finishFuture, taskId, workPath, BENCH_REPO_HASH,
-			benchRepoPath, startTime, RUNNER_NAME, systemInfo);
+			benchRepoPath, outputLogPath, stdOutPath, maxOutputBytes, startTime, RUNNER_NAME,
+			systemInfo);
 
 		Thread.sleep(400);
 		benchmarker.abort();
@@ -280,7 +328,8 @@ class BenchmarkerTest {
 		);
 
 		Benchmarker benchmarker = new Benchmarker(finishFuture, taskId, workPath, BENCH_REPO_HASH,
-			benchRepoPath, startTime, RUNNER_NAME, systemInfo);
+			benchRepoPath, outputLogPath, stdOutPath, maxOutputBytes, startTime, RUNNER_NAME,
+			systemInfo);
 
 		Thread.sleep(1000);
 		benchmarker.abort();
@@ -298,7 +347,8 @@ class BenchmarkerTest {
 		writeBenchScript("#!bin/sh", "echo 'hey'");
 
 		Benchmarker benchmarker = new Benchmarker(finishFuture, taskId, workPath, BENCH_REPO_HASH,
-			benchRepoPath, startTime, RUNNER_NAME, systemInfo);
+			benchRepoPath, outputLogPath, stdOutPath, maxOutputBytes, startTime, RUNNER_NAME,
+			systemInfo);
 
 		benchmarker.abort();
 
@@ -317,7 +367,8 @@ class BenchmarkerTest {
 		throws InterruptedException, ExecutionException, TimeoutException {
 
 		Benchmarker benchmarker = new Benchmarker(finishFuture, taskId, workPath, BENCH_REPO_HASH,
-			benchRepoPath, startTime, RUNNER_NAME, systemInfo);
+			benchRepoPath, outputLogPath, stdOutPath, maxOutputBytes, startTime, RUNNER_NAME,
+			systemInfo);
 
 		Boolean success = finishFuture.get(20, TimeUnit.SECONDS);
 		assertThat(success).isEqualTo(expectedSuccess);
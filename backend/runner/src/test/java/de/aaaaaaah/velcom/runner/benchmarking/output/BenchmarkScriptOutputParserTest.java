@@ -7,7 +7,12 @@ import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Benchmark;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Interpretation;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Result.Metric;
 import de.aaaaaaah.velcom.shared.util.Either;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -167,4 +172,47 @@ class BenchmarkScriptOutputParserTest {
 				List.of(new Metric("metric", null, "unit", Interpretation.NEUTRAL, List.of(1.0, 2.0)))
 			))));
 	}
+
+	@Test
+	void resultsTakePrecedenceOverInvalidValues() {
+		assertThat(parser.parse(
+			"{ \"test\": { \"metric\": { \"values\": [\"no\", [1]], \"results\": [1,2] } } }"
+		))
+			.isEqualTo(Either.ofRight(List.of(new Benchmark(
+				"test",
+				List.of(new Metric("metric", null, null, null, List.of(1.0, 2.0)))
+			))));
+	}
+
+	@ParameterizedTest
+	@CsvSource(value = {
+		"{ \"a\": {}, \"b\": {} }",
+		"{ \"a\": { \"x\": { \"results\": [1] }, \"y\": { \"results\": [1] } } }",
+		"{ \"a\": { \"x\": { \"results\": [1, 2, 3, 4] } } }",
+		"{ \"a\": { \"x\": { \"unit\": \"a very long unit that surely takes up too much space\","
+			+ " \"results\": [1] } } }",
+	}, delimiter = '|')
+	void parseOutputExceedingLimits(String data) {
+		BenchmarkScriptOutputParser limitedParser = new BenchmarkScriptOutputParser(1, 1, 3, 80);
+		assertThatThrownBy(() -> limitedParser.parse(data))
+			.isInstanceOf(OutputParseException.class)
+			.hasMessageMatching(".*(more|longer) than.*");
+	}
+
+	@Test
+	void parseFromStreamWithoutClosingIt() throws IOException {
+		AtomicBoolean closed = new AtomicBoolean(false);
+		InputStream input = new ByteArrayInputStream(
+			"{ \"test\": { \"metric\": { \"results\": [1] } } }".getBytes(StandardCharsets.UTF_8)
+		) {
+			@Override
+			public void close() throws IOException {
+				closed.set(true);
+				super.close();
+			}
+		};
+
+		assertThat(parser.parse(input).getRight()).isPresent();
+		assertThat(closed).isFalse();
+	}
 }
@@ -0,0 +1,81 @@
+package de.aaaaaaah.velcom.runner.tmpdirs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class StreamingUnpackerTest {
+
+	@TempDir
+	Path tempDir;
+
+	private static byte[] createTar(TransferCodec codec) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try (OutputStream encoded = codec.encode(out);
+			TarArchiveOutputStream tarOut = new TarArchiveOutputStream(encoded)) {
+
+			TarArchiveEntry dirEntry = new TarArchiveEntry("dir/");
+			tarOut.putArchiveEntry(dirEntry);
+			tarOut.closeArchiveEntry();
+
+			byte[] content = "Hello world! ".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+			TarArchiveEntry fileEntry = new TarArchiveEntry("dir/file.txt");
+			fileEntry.setSize(content.length);
+			fileEntry.setMode(0644);
+			tarOut.putArchiveEntry(fileEntry);
+			tarOut.write(content);
+			tarOut.closeArchiveEntry();
+		}
+
+		return out.toByteArray();
+	}
+
+	private static void writeInChunks(StreamingUnpacker unpacker, byte[] data) throws IOException {
+		for (int offset = 0; offset < data.length; offset += 1000) {
+			int length = Math.min(1000, data.length - offset);
+			unpacker.write(ByteBuffer.wrap(data, offset, length));
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransferCodec.class)
+	void unpacksChunkedTar(TransferCodec codec) throws IOException {
+		Path targetDir = tempDir.resolve("target");
+		Files.createDirectories(targetDir);
+		Files.writeString(targetDir.resolve("old.txt"), "old");
+
+		StreamingUnpacker unpacker = new StreamingUnpacker(targetDir, codec);
+		writeInChunks(unpacker, createTar(codec));
+		unpacker.finish();
+
+		assertThat(targetDir.resolve("old.txt")).doesNotExist();
+		assertThat(targetDir.resolve("dir/file.txt"))
+			.hasContent("Hello world! ".repeat(10_000));
+	}
+
+	@Test
+	void failsOnInvalidData() throws IOException {
+		StreamingUnpacker unpacker = new StreamingUnpacker(tempDir.resolve("target"),
+			TransferCodec.GZIP);
+
+		assertThatThrownBy(() -> {
+			writeInChunks(unpacker, new byte[100_000]);
+			unpacker.finish();
+		}).isInstanceOf(IOException.class);
+	}
+}
@@ -0,0 +1,111 @@
+package de.aaaaaaah.velcom.runner.tmpdirs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TaskRepoDirTest {
+
+	@TempDir
+	Path tempFolder;
+
+	private Path taskRepoPath;
+	private TaskRepoDir dir;
+	private UUID runId;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		taskRepoPath = tempFolder.resolve("task_repo");
+		dir = new TaskRepoDir(taskRepoPath);
+		runId = UUID.randomUUID();
+
+		Files.createDirectories(taskRepoPath.resolve("src"));
+		Files.writeString(taskRepoPath.resolve("readme.txt"), "Hello");
+		Files.writeString(taskRepoPath.resolve("src/main.c"), "int main() {}");
+	}
+
+	@Test
+	void hasNoWorkspaceWithoutManifest() {
+		assertThat(dir.verifyWorkspace()).isEmpty();
+	}
+
+	@Test
+	void readsWorkspaceRunIdWithoutVerifying() throws IOException {
+		assertThat(dir.getWorkspaceRunId()).isEmpty();
+
+		dir.writeManifest(runId);
+		Files.writeString(taskRepoPath.resolve("readme.txt"), "Hello world");
+
+		assertThat(dir.getWorkspaceRunId()).contains(runId);
+		assertThat(dir.verifyWorkspace()).isEmpty();
+		assertThat(dir.getWorkspaceRunId()).isEmpty();
+	}
+
+	@Test
+	void verifiesUntouchedWorkspaceAndDeletesNewFiles() throws IOException {
+		dir.writeManifest(runId);
+
+		Files.createDirectories(taskRepoPath.resolve("build/obj"));
+		Files.writeString(taskRepoPath.resolve("build/obj/main.o"), "binary");
+		Files.writeString(taskRepoPath.resolve("src/generated.c"), "");
+
+		assertThat(dir.verifyWorkspace()).contains(runId);
+		assertThat(taskRepoPath.resolve("build")).doesNotExist();
+		assertThat(taskRepoPath.resolve("src/generated.c")).doesNotExist();
+		assertThat(taskRepoPath.resolve("src/main.c")).exists();
+	}
+
+	@Test
+	void rejectsModifiedWorkspace() throws IOException {
+		dir.writeManifest(runId);
+
+		Files.writeString(taskRepoPath.resolve("readme.txt"), "Hello world");
+
+		assertThat(dir.verifyWorkspace()).isEmpty();
+		// The manifest is gone, so the workspace stays rejected
+		Files.writeString(taskRepoPath.resolve("readme.txt"), "Hello");
+		assertThat(dir.verifyWorkspace()).isEmpty();
+	}
+
+	@Test
+	void rejectsWorkspaceWithMissingFiles() throws IOException {
+		dir.writeManifest(runId);
+
+		Files.delete(taskRepoPath.resolve("src/main.c"));
+
+		assertThat(dir.verifyWorkspace()).isEmpty();
+	}
+
+	@Test
+	void appliesDelta() throws IOException {
+		Path tmpDir = dir.getTmpDirPath();
+		Files.createDirectories(tmpDir.resolve("lib"));
+		Files.writeString(tmpDir.resolve("readme.txt"), "Hello world");
+		Files.writeString(tmpDir.resolve("lib/util.c"), "void util() {}");
+
+		dir.applyDelta(List.of("src/main.c"));
+
+		assertThat(taskRepoPath.resolve("readme.txt")).hasContent("Hello world");
+		assertThat(taskRepoPath.resolve("lib/util.c")).hasContent("void util() {}");
+		assertThat(taskRepoPath.resolve("src")).doesNotExist();
+		assertThat(tmpDir).doesNotExist();
+	}
+
+	@Test
+	void refusesToDeleteOutsideOfTaskRepo() throws IOException {
+		Files.createDirectories(dir.getTmpDirPath());
+		Files.writeString(tempFolder.resolve("important.txt"), "Keep me");
+
+		assertThatThrownBy(() -> dir.applyDelta(List.of("../important.txt")))
+			.isInstanceOf(IOException.class);
+		assertThat(tempFolder.resolve("important.txt")).exists();
+	}
+}
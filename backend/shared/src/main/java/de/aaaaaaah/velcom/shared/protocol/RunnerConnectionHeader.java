@@ -6,6 +6,8 @@ package de.aaaaaaah.velcom.shared.protocol;
 public enum RunnerConnectionHeader {
 	CONNECT_RUNNER_TOKEN("Runner-Token"),
 	CONNECT_RUNNER_NAME("Runner-Name"),
+	CONNECT_RUNNER_CODECS("Runner-Codecs"),
+	CONNECT_RUNNER_FEATURES("Runner-Features"),
 	DISCONNECT_DENY_REASON("Runner-Deny");
 
 	private final String headerName;
@@ -0,0 +1,83 @@
+package de.aaaaaaah.velcom.shared.protocol;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Optional protocol extensions a runner can support.
+ *
+ * <p> When connecting, the runner lists the features it supports in the "Runner-Features" header.
+ * The backend only uses features the runner listed, so runners that don't send the header are
+ * treated exactly like before.
+ */
+public enum RunnerFeature {
+	/**
+	 * The runner may request the task repo of its next task while it is still benchmarking its
+	 * current task by sending a request_run packet with the {@code prefetch} flag set.
+	 */
+	PREFETCH("prefetch"),
+	/**
+	 * The runner may send status_update packets whenever its status changes or its benchmark script
+	 * prints new output. It only does so after the backend allowed it via the {@code status_push}
+	 * flag of a get_status packet.
+	 */
+	STATUS_PUSH("status-push");
+
+	private final String headerValue;
+
+	RunnerFeature(String headerValue) {
+		this.headerValue = headerValue;
+	}
+
+	/**
+	 * @return the name of this feature as used in the "Runner-Features" header
+	 */
+	public String getHeaderValue() {
+		return headerValue;
+	}
+
+	/**
+	 * Find a feature by its header value.
+	 *
+	 * @param headerValue the feature's name as used in the "Runner-Features" header
+	 * @return the feature, if one with that name exists
+	 */
+	public static Optional<RunnerFeature> fromHeaderValue(String headerValue) {
+		return Arrays.stream(values())
+			.filter(feature -> feature.getHeaderValue().equalsIgnoreCase(headerValue.strip()))
+			.findFirst();
+	}
+
+	/**
+	 * @param features the features to list
+	 * @return a value for the "Runner-Features" header listing the features
+	 */
+	public static String toHeaderValue(RunnerFeature... features) {
+		return String.join(
+			",",
+			Arrays.stream(features).map(RunnerFeature::getHeaderValue).toArray(String[]::new)
+		);
+	}
+
+	/**
+	 * Parse a "Runner-Features" header value. Unknown features are ignored.
+	 *
+	 * @param headerValue the header value, a comma separated list of feature names, or null if the
+	 * 	header was absent
+	 * @return the features the runner supports
+	 */
+	public static Set<RunnerFeature> parse(@Nullable String headerValue) {
+		Set<RunnerFeature> features = EnumSet.noneOf(RunnerFeature.class);
+		if (headerValue == null) {
+			return features;
+		}
+
+		Arrays.stream(headerValue.split(","))
+			.flatMap(name -> fromHeaderValue(name).stream())
+			.forEach(features::add);
+		return features;
+	}
+}
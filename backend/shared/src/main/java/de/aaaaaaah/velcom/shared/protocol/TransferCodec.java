@@ -0,0 +1,122 @@
+package de.aaaaaaah.velcom.shared.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * The codecs that tar files sent from the backend to the runner can be encoded with.
+ *
+ * <p> When connecting, the runner lists the codecs it supports in the "Runner-Codecs" header, most
+ * preferred first. The backend picks one of them and announces the codec it actually used for each
+ * transfer in the corresponding {@link de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.RequestRunReply}.
+ */
+public enum TransferCodec {
+	/**
+	 * The tar files are sent as-is.
+	 */
+	NONE("none"),
+
+	/**
+	 * The tar files are gzip-compressed.
+	 */
+	GZIP("gzip");
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String headerValue;
+
+	TransferCodec(String headerValue) {
+		this.headerValue = headerValue;
+	}
+
+	/**
+	 * @return the name of this codec as used in the "Runner-Codecs" header
+	 */
+	public String getHeaderValue() {
+		return headerValue;
+	}
+
+	/**
+	 * Wrap an output stream so that everything written to the returned stream is encoded with this
+	 * codec. Closing the returned stream also closes the wrapped stream.
+	 *
+	 * @param outputStream the stream to write the encoded data to
+	 * @return a stream accepting unencoded data
+	 * @throws IOException if the codec could not be initialized
+	 */
+	public OutputStream encode(OutputStream outputStream) throws IOException {
+		switch (this) {
+			case GZIP:
+				return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+			case NONE:
+			default:
+				return outputStream;
+		}
+	}
+
+	/**
+	 * Wrap an input stream containing data encoded with this codec so that the returned stream
+	 * contains the decoded data. Closing the returned stream also closes the wrapped stream.
+	 *
+	 * @param inputStream the stream containing the encoded data
+	 * @return a stream containing the decoded data
+	 * @throws IOException if the codec could not be initialized
+	 */
+	public InputStream decode(InputStream inputStream) throws IOException {
+		switch (this) {
+			case GZIP:
+				return new GZIPInputStream(inputStream, BUFFER_SIZE);
+			case NONE:
+			default:
+				return inputStream;
+		}
+	}
+
+	/**
+	 * Find a codec by its header value.
+	 *
+	 * @param headerValue the codec's name as used in the "Runner-Codecs" header
+	 * @return the codec, if one with that name exists
+	 */
+	public static Optional<TransferCodec> fromHeaderValue(String headerValue) {
+		return Arrays.stream(values())
+			.filter(codec -> codec.getHeaderValue().equalsIgnoreCase(headerValue.strip()))
+			.findFirst();
+	}
+
+	/**
+	 * @param codecs the codecs to list, most preferred first
+	 * @return a value for the "Runner-Codecs" header listing the codecs
+	 */
+	public static String toHeaderValue(TransferCodec... codecs) {
+		return String.join(
+			",",
+			Arrays.stream(codecs).map(TransferCodec::getHeaderValue).toArray(String[]::new)
+		);
+	}
+
+	/**
+	 * Pick the first supported codec from a "Runner-Codecs" header value. Runners that don't send the
+	 * header or only list unknown codecs are sent uncompressed tar files.
+	 *
+	 * @param headerValue the header value, a comma separated list of codec names, or null if the
+	 * 	header was absent
+	 * @return the codec to use
+	 */
+	public static TransferCodec negotiate(@Nullable String headerValue) {
+		if (headerValue == null) {
+			return NONE;
+		}
+
+		return Arrays.stream(headerValue.split(","))
+			.flatMap(name -> fromHeaderValue(name).stream())
+			.findFirst()
+			.orElse(NONE);
+	}
+}
@@ -1,12 +1,39 @@
 package de.aaaaaaah.velcom.shared.protocol.serialization.clientbound;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonCreator.Mode;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
+import java.util.Objects;
 
 /**
  * A command requesting the runner's current status.
  */
 public class GetStatus implements ClientBound {
 
+	private final boolean statusPush;
+
+	public GetStatus() {
+		this(false);
+	}
+
+	@JsonCreator(mode = Mode.PROPERTIES)
+	public GetStatus(@JsonProperty("status_push") boolean statusPush) {
+		this.statusPush = statusPush;
+	}
+
+	/**
+	 * @return whether the runner should push changes to its status via status_update packets from now
+	 * 	on. Only sent to runners that support the status push feature.
+	 */
+	@JsonProperty("status_push")
+	@JsonInclude(Include.NON_DEFAULT)
+	public boolean isStatusPush() {
+		return statusPush;
+	}
+
 	@Override
 	public ClientBoundPacket asPacket(Serializer serializer) {
 		return new ClientBoundPacket(
@@ -14,4 +41,28 @@ public class GetStatus implements ClientBound {
 			serializer.serializeTree(this)
 		);
 	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		GetStatus getStatus = (GetStatus) o;
+		return statusPush == getStatus.statusPush;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(statusPush);
+	}
+
+	@Override
+	public String toString() {
+		return "GetStatus{" +
+			"statusPush=" + statusPush +
+			'}';
+	}
 }
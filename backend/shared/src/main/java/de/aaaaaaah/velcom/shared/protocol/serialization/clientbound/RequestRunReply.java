@@ -1,7 +1,10 @@
 package de.aaaaaaah.velcom.shared.protocol.serialization.clientbound;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
 import java.util.Objects;
 import java.util.Optional;
@@ -20,13 +23,35 @@ public class RequestRunReply implements ClientBound {
 	private final boolean run;
 	@Nullable
 	private final UUID runId;
+	@Nullable
+	private final TransferCodec codec;
+	@Nullable
+	private final WorkspaceDelta delta;
+	private final boolean prefetched;
+	private final boolean prefetchAllowed;
+
+	public RequestRunReply(boolean bench, @Nullable String benchHash, boolean run,
+		@Nullable UUID runId) {
+
+		this(bench, benchHash, run, runId, null, null);
+	}
+
+	public RequestRunReply(boolean bench, @Nullable String benchHash, boolean run,
+		@Nullable UUID runId, @Nullable TransferCodec codec, @Nullable WorkspaceDelta delta) {
+
+		this(bench, benchHash, run, runId, codec, delta, false, false);
+	}
 
 	@JsonCreator
 	public RequestRunReply(
 		@JsonProperty(required = true) boolean bench,
 		@Nullable String benchHash,
 		@JsonProperty(required = true) boolean run,
-		@Nullable UUID runId
+		@Nullable UUID runId,
+		@Nullable TransferCodec codec,
+		@Nullable WorkspaceDelta delta,
+		boolean prefetched,
+		boolean prefetchAllowed
 	) {
 		if (bench && benchHash == null) {
 			throw new IllegalArgumentException("if bench is true, bench_hash must not be null");
@@ -36,12 +61,22 @@ public class RequestRunReply implements ClientBound {
 			throw new IllegalArgumentException("if run is true, run_id must not be null");
 		} else if (!run && runId != null) {
 			throw new IllegalArgumentException("if run is false, run_id must be null");
+		} else if (!run && delta != null) {
+			throw new IllegalArgumentException("if run is false, delta must be null");
+		} else if (!run && prefetched) {
+			throw new IllegalArgumentException("if run is false, prefetched must be false");
+		} else if (prefetched && delta != null) {
+			throw new IllegalArgumentException("if prefetched is true, delta must be null");
 		}
 
 		this.bench = bench;
 		this.benchHash = benchHash;
 		this.run = run;
 		this.runId = runId;
+		this.codec = codec;
+		this.delta = delta;
+		this.prefetched = prefetched;
+		this.prefetchAllowed = prefetchAllowed;
 	}
 
 	/**
@@ -68,6 +103,48 @@ public class RequestRunReply implements ClientBound {
 		return Optional.ofNullable(runId);
 	}
 
+	/**
+	 * @return the codec the tar files following this reply are encoded with. Older backends don't
+	 * 	send this field, in which case the tar files are not encoded. The field is omitted instead of
+	 * 	being null so older runners that don't know about it can still parse this reply.
+	 */
+	@JsonProperty("codec")
+	@JsonInclude(Include.NON_ABSENT)
+	public Optional<TransferCodec> getCodec() {
+		return Optional.ofNullable(codec);
+	}
+
+	/**
+	 * @return if present, the task repo tar only contains the changes relative to the task repo of an
+	 * 	earlier run. Only sent to runners that offered their task repo in their {@link
+	 * 	de.aaaaaaah.velcom.shared.protocol.serialization.serverbound.RequestRun}.
+	 */
+	@JsonProperty("delta")
+	@JsonInclude(Include.NON_ABSENT)
+	public Optional<WorkspaceDelta> getDelta() {
+		return Optional.ofNullable(delta);
+	}
+
+	/**
+	 * @return whether the runner already has the task repo for this run from an earlier prefetch. If
+	 * 	true, no task repo tar follows this reply.
+	 */
+	@JsonProperty("prefetched")
+	@JsonInclude(Include.NON_DEFAULT)
+	public boolean isPrefetched() {
+		return prefetched;
+	}
+
+	/**
+	 * @return whether the runner may request the task repo of its next run while benchmarking this
+	 * 	one. Only sent to runners that support the prefetch feature.
+	 */
+	@JsonProperty("prefetch_allowed")
+	@JsonInclude(Include.NON_DEFAULT)
+	public boolean isPrefetchAllowed() {
+		return prefetchAllowed;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -80,12 +157,16 @@ public class RequestRunReply implements ClientBound {
 		return bench == that.bench &&
 			run == that.run &&
 			Objects.equals(benchHash, that.benchHash) &&
-			Objects.equals(runId, that.runId);
+			Objects.equals(runId, that.runId) &&
+			prefetched == that.prefetched &&
+			prefetchAllowed == that.prefetchAllowed &&
+			codec == that.codec &&
+			Objects.equals(delta, that.delta);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(bench, benchHash, run, runId);
+		return Objects.hash(bench, benchHash, run, runId, codec, delta, prefetched, prefetchAllowed);
 	}
 
 	@Override
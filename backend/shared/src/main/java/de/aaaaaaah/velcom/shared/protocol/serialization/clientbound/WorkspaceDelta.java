@@ -0,0 +1,66 @@
+package de.aaaaaaah.velcom.shared.protocol.serialization.clientbound;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Describes how to turn the task repo of an earlier run into the task repo of the next run. If a
+ * {@link RequestRunReply} contains a delta, the following task repo tar only contains the files
+ * that were added or changed since the earlier run.
+ */
+public class WorkspaceDelta {
+
+	private final UUID baseRunId;
+	private final List<String> deletedPaths;
+
+	/**
+	 * @param baseRunId the id of the run whose task repo the delta applies to
+	 * @param deletedPaths the paths (relative to the task repo) that must be deleted before
+	 * 	unpacking the changed files
+	 */
+	@JsonCreator
+	public WorkspaceDelta(
+		@JsonProperty(required = true) UUID baseRunId,
+		@JsonProperty(required = true) List<String> deletedPaths
+	) {
+		this.baseRunId = baseRunId;
+		this.deletedPaths = List.copyOf(deletedPaths);
+	}
+
+	public UUID getBaseRunId() {
+		return baseRunId;
+	}
+
+	public List<String> getDeletedPaths() {
+		return deletedPaths;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		WorkspaceDelta that = (WorkspaceDelta) o;
+		return baseRunId.equals(that.baseRunId) &&
+			deletedPaths.equals(that.deletedPaths);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(baseRunId, deletedPaths);
+	}
+
+	@Override
+	public String toString() {
+		return "WorkspaceDelta{" +
+			"baseRunId=" + baseRunId +
+			", deletedPaths=" + deletedPaths.size() +
+			'}';
+	}
+}
@@ -1,6 +1,15 @@
 package de.aaaaaaah.velcom.shared.protocol.serialization.serverbound;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonCreator.Mode;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.Nullable;
 
 /**
  * A command that allows the backend to send the runner a new benchmark repo version and a new repo
@@ -8,6 +17,88 @@ import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
  */
 public class RequestRun implements ServerBound {
 
+	@Nullable
+	private final UUID workspaceRunId;
+	@Nullable
+	private final UUID prefetchedRunId;
+	private final boolean prefetch;
+
+	public RequestRun() {
+		this(null);
+	}
+
+	public RequestRun(@Nullable UUID workspaceRunId) {
+		this(workspaceRunId, null, false);
+	}
+
+	@JsonCreator(mode = Mode.PROPERTIES)
+	public RequestRun(
+		@JsonProperty("workspace_run_id") @Nullable UUID workspaceRunId,
+		@JsonProperty("prefetched_run_id") @Nullable UUID prefetchedRunId,
+		@JsonProperty("prefetch") boolean prefetch
+	) {
+		if (prefetch && (workspaceRunId != null || prefetchedRunId != null)) {
+			throw new IllegalArgumentException(
+				"if prefetch is true, workspace_run_id and prefetched_run_id must be null");
+		}
+
+		this.workspaceRunId = workspaceRunId;
+		this.prefetchedRunId = prefetchedRunId;
+		this.prefetch = prefetch;
+	}
+
+	/**
+	 * @return the id of the run whose task repo the runner still has unmodified. If present, the
+	 * 	backend may send only the differences to that task repo instead of a full copy. The field is
+	 * 	omitted if absent, so the packet stays empty for runners without a reusable task repo.
+	 */
+	@JsonProperty("workspace_run_id")
+	@JsonInclude(Include.NON_ABSENT)
+	public Optional<UUID> getWorkspaceRunId() {
+		return Optional.ofNullable(workspaceRunId);
+	}
+
+	/**
+	 * @return the id of the run whose task repo the runner has already downloaded via a prefetch
+	 * 	request. If the backend hands out that run again, it doesn't need to send the task repo.
+	 */
+	@JsonProperty("prefetched_run_id")
+	@JsonInclude(Include.NON_ABSENT)
+	public Optional<UUID> getPrefetchedRunId() {
+		return Optional.ofNullable(prefetchedRunId);
+	}
+
+	/**
+	 * @return true if the runner is still busy and only wants to download the task repo of its next
+	 * 	run in advance. The backend reserves that run for the runner without starting it. May only be
+	 * 	sent to backends that allowed it in their previous {@link
+	 * 	de.aaaaaaah.velcom.shared.protocol.serialization.clientbound.RequestRunReply}.
+	 */
+	@JsonProperty("prefetch")
+	@JsonInclude(Include.NON_DEFAULT)
+	public boolean isPrefetch() {
+		return prefetch;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		RequestRun that = (RequestRun) o;
+		return prefetch == that.prefetch &&
+			Objects.equals(workspaceRunId, that.workspaceRunId) &&
+			Objects.equals(prefetchedRunId, that.prefetchedRunId);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(workspaceRunId, prefetchedRunId, prefetch);
+	}
+
 	@Override
 	public ServerBoundPacket asPacket(Serializer serializer) {
 		return new ServerBoundPacket(
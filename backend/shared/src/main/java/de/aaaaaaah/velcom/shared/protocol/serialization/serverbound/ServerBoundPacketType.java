@@ -11,7 +11,8 @@ public enum ServerBoundPacketType {
 	CLEAR_RESULT_REPLY("clear_result_reply", ClearResultReply.class),
 	GET_RESULT_REPLY("get_result_reply", GetResultReply.class),
 	GET_STATUS_REPLY("get_status_reply", GetStatusReply.class),
-	REQUEST_RUN("request_run", RequestRun.class);
+	REQUEST_RUN("request_run", RequestRun.class),
+	STATUS_UPDATE("status_update", StatusUpdate.class);
 
 	private final String type;
 	private final Class<?> dataClass;
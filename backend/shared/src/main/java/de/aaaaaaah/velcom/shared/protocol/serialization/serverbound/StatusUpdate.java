@@ -0,0 +1,104 @@
+package de.aaaaaaah.velcom.shared.protocol.serialization.serverbound;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.aaaaaaah.velcom.shared.protocol.serialization.Serializer;
+import de.aaaaaaah.velcom.shared.protocol.serialization.Status;
+import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+/**
+ * An unsolicited update of the runner's status, sent whenever it changes. Unlike a {@link
+ * GetStatusReply}, it only contains the output lines printed since the previous update.
+ */
+public class StatusUpdate implements ServerBound {
+
+	private final Status status;
+	@Nullable
+	private final UUID runId;
+	private final boolean resultAvailable;
+	@Nullable
+	private final String benchHash;
+	@Nullable
+	private final LinesWithOffset newOutputLines;
+
+	@JsonCreator
+	public StatusUpdate(
+		@JsonProperty(required = true) Status status,
+		@Nullable UUID runId,
+		@JsonProperty(required = true) boolean resultAvailable,
+		@Nullable String benchHash,
+		@Nullable LinesWithOffset newOutputLines
+	) {
+		this.status = status;
+		this.runId = runId;
+		this.resultAvailable = resultAvailable;
+		this.benchHash = benchHash;
+		this.newOutputLines = newOutputLines;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Optional<UUID> getRunId() {
+		return Optional.ofNullable(runId);
+	}
+
+	public boolean isResultAvailable() {
+		return resultAvailable;
+	}
+
+	public Optional<String> getBenchHash() {
+		return Optional.ofNullable(benchHash);
+	}
+
+	/**
+	 * @return the output lines printed since the last update. The offset is the index of the first
+	 * 	line in the run's entire output, not relative to the last update.
+	 */
+	public Optional<LinesWithOffset> getNewOutputLines() {
+		return Optional.ofNullable(newOutputLines);
+	}
+
+	@Override
+	public ServerBoundPacket asPacket(Serializer serializer) {
+		return new ServerBoundPacket(
+			ServerBoundPacketType.STATUS_UPDATE,
+			serializer.serializeTree(this)
+		);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		StatusUpdate that = (StatusUpdate) o;
+		return resultAvailable == that.resultAvailable &&
+			status == that.status &&
+			Objects.equals(runId, that.runId) &&
+			Objects.equals(benchHash, that.benchHash);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(status, runId, resultAvailable, benchHash);
+	}
+
+	@Override
+	public String toString() {
+		return "StatusUpdate{" +
+			"status=" + status +
+			", runId=" + runId +
+			", resultAvailable=" + resultAvailable +
+			", benchHash='" + benchHash + '\'' +
+			'}';
+	}
+}
@@ -0,0 +1,249 @@
+package de.aaaaaaah.velcom.shared.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A synchronized {@link OutputStream} that splits everything written to it into lines and keeps
+ * only the most recent lines, up to a fixed amount of bytes. Lines keep their absolute index, so
+ * readers can ask for all lines after the last one they have seen.
+ *
+ * <p> Only complete lines are visible, so a line never changes once it was read. The unfinished
+ * last line becomes visible when the stream is closed.
+ *
+ * <p> Optionally, everything written is also copied to another stream (usually a file), so the
+ * full output is still available somewhere.
+ */
+public class LineRingBuffer extends OutputStream {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LineRingBuffer.class);
+
+	private final long maxBytes;
+	private final Deque<String> lines;
+	private final ByteArrayOutputStream currentLine;
+	@Nullable
+	private OutputStream spill;
+	private boolean spillFailed;
+
+	private long bufferedBytes;
+	private int firstLineIndex;
+	private boolean lastLineUnterminated;
+	private boolean closed;
+
+	/**
+	 * @param maxBytes how many bytes of output to keep at most. The most recent line is always kept,
+	 * 	but truncated to this size.
+	 */
+	public LineRingBuffer(long maxBytes) {
+		this(maxBytes, null);
+	}
+
+	/**
+	 * @param maxBytes how many bytes of output to keep at most. The most recent line is always kept,
+	 * 	but truncated to this size.
+	 * @param spill a stream to copy all output to. It is closed when this stream is closed. If
+	 * 	writing to it fails, it is closed and no longer written to.
+	 */
+	public LineRingBuffer(long maxBytes, @Nullable OutputStream spill) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be positive, was " + maxBytes);
+		}
+
+		this.maxBytes = maxBytes;
+		this.lines = new ArrayDeque<>();
+		this.currentLine = new ByteArrayOutputStream();
+		this.spill = spill;
+		spillFailed = false;
+
+		bufferedBytes = 0;
+		firstLineIndex = 0;
+		lastLineUnterminated = false;
+		closed = false;
+	}
+
+	@Override
+	public synchronized void write(int b) {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) {
+		writeToSpill(b, off, len);
+
+		int lineStart = off;
+		for (int i = off; i < off + len; i++) {
+			if (b[i] == '\n') {
+				appendToCurrentLine(b, lineStart, i - lineStart);
+				finishLine();
+				lineStart = i + 1;
+			}
+		}
+		appendToCurrentLine(b, lineStart, off + len - lineStart);
+	}
+
+	private void writeToSpill(byte[] b, int off, int len) {
+		if (spill == null) {
+			return;
+		}
+
+		try {
+			spill.write(b, off, len);
+		} catch (IOException e) {
+			LOGGER.warn("Could not copy output, only keeping the most recent lines from now on", e);
+			spillFailed = true;
+			closeSpill();
+		}
+	}
+
+	private void appendToCurrentLine(byte[] b, int off, int len) {
+		// Overly long lines are truncated instead of growing without bounds
+		long space = maxBytes - currentLine.size();
+		currentLine.write(b, off, (int) Math.min(len, Math.max(space, 0)));
+	}
+
+	private void finishLine() {
+		byte[] bytes = currentLine.toByteArray();
+		currentLine.reset();
+
+		String line = new String(bytes, StandardCharsets.UTF_8);
+		if (line.endsWith("\r")) {
+			line = line.substring(0, line.length() - 1);
+		}
+
+		// Kept lines are measured in chars, which is close enough to their size in bytes and avoids
+		// encoding them again when they are dropped
+		lines.addLast(line);
+		bufferedBytes += line.length() + 1;
+
+		while (bufferedBytes > maxBytes && lines.size() > 1) {
+			bufferedBytes -= lines.removeFirst().length() + 1;
+			firstLineIndex++;
+		}
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		if (spill != null) {
+			spill.flush();
+		}
+	}
+
+	/**
+	 * Makes the unfinished last line visible and closes the spill stream. Further writes are still
+	 * accepted but only end up in this buffer.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		if (currentLine.size() > 0) {
+			finishLine();
+			lastLineUnterminated = true;
+		}
+		closeSpill();
+	}
+
+	private void closeSpill() {
+		if (spill == null) {
+			return;
+		}
+
+		try {
+			spill.close();
+		} catch (IOException e) {
+			LOGGER.warn("Could not close output copy", e);
+			spillFailed = true;
+		}
+		spill = null;
+	}
+
+	/**
+	 * @return true if writing to or closing the spill stream failed at some point, meaning that it
+	 * 	doesn't contain the full output
+	 */
+	public synchronized boolean hasSpillFailed() {
+		return spillFailed;
+	}
+
+	/**
+	 * @return the total amount of complete lines written so far, including lines that are no longer
+	 * 	kept. This is the absolute index of the next line.
+	 */
+	public synchronized int getLineCount() {
+		return firstLineIndex + lines.size();
+	}
+
+	/**
+	 * @return the amount of lines that were dropped to stay within the size limit
+	 */
+	public synchronized int getDroppedLineCount() {
+		return firstLineIndex;
+	}
+
+	/**
+	 * Returns the kept lines starting at an absolute line index. Takes time proportional to the
+	 * amount of returned lines, not the amount of kept lines.
+	 *
+	 * @param offset the absolute index of the first line to return
+	 * @param maxLines how many lines to return at most. If there are more lines, only the most
+	 * 	recent ones are returned.
+	 * @return the lines. If some of the requested lines are no longer kept or there are too many of
+	 * 	them, the offset of the first returned line is larger than the requested offset.
+	 */
+	public synchronized LinesWithOffset getLinesSince(int offset, int maxLines) {
+		int lineCount = getLineCount();
+		int start = Math.max(Math.max(offset, firstLineIndex), lineCount - maxLines);
+		int count = Math.max(0, lineCount - start);
+
+		List<String> result = new ArrayList<>(count);
+		Iterator<String> iterator = lines.descendingIterator();
+		for (int i = 0; i < count; i++) {
+			result.add(iterator.next());
+		}
+		Collections.reverse(result);
+
+		return new LinesWithOffset(Math.min(start, lineCount), result);
+	}
+
+	/**
+	 * @param maxLines how many lines to return at most
+	 * @return the most recent kept lines
+	 */
+	public synchronized LinesWithOffset getLastLines(int maxLines) {
+		return getLinesSince(0, maxLines);
+	}
+
+	/**
+	 * @return all kept lines as well as the unfinished last line, separated by newlines
+	 */
+	public synchronized String getString() {
+		StringBuilder builder = new StringBuilder();
+		for (String line : lines) {
+			builder.append(line).append('\n');
+		}
+		if (lastLineUnterminated && builder.length() > 0) {
+			builder.setLength(builder.length() - 1);
+		}
+		builder.append(currentLine.toString(StandardCharsets.UTF_8));
+		return builder.toString();
+	}
+}
@@ -21,14 +21,30 @@ public class TarHelper {
 	 * @throws IOException if an error occurs
 	 */
 	public static void untar(Path tarFile, Path targetDir) throws IOException {
-		try (InputStream fileInput = Files.newInputStream(tarFile);
-			TarArchiveInputStream inputStream = new TarArchiveInputStream(fileInput)) {
+		untar(Files.newInputStream(tarFile), targetDir);
+	}
+
+	/**
+	 * Unpacks a tape archive from a stream. The stream is closed afterwards.
+	 *
+	 * @param tarInput the stream containing the tar file
+	 * @param targetDir the target directory to unpack it to
+	 * @throws IOException if an error occurs
+	 */
+	public static void untar(InputStream tarInput, Path targetDir) throws IOException {
+		try (tarInput;
+			TarArchiveInputStream inputStream = new TarArchiveInputStream(tarInput)) {
 
 			TarArchiveEntry entry;
 			while ((entry = inputStream.getNextTarEntry()) != null) {
 				Path entryPath = targetDir.resolve(Path.of(entry.getName()));
 				if (entry.isDirectory()) {
 					Files.createDirectories(entryPath);
+				} else if (entry.isSymbolicLink()) {
+					if (Files.notExists(entryPath.getParent())) {
+						Files.createDirectories(entryPath.getParent());
+					}
+					Files.createSymbolicLink(entryPath, Path.of(entry.getLinkName()));
 				} else {
 					if (Files.notExists(entryPath.getParent())) {
 						Files.createDirectories(entryPath.getParent());
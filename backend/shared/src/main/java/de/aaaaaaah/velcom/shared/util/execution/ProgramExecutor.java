@@ -1,7 +1,9 @@
 package de.aaaaaaah.velcom.shared.util.execution;
 
+import de.aaaaaaah.velcom.shared.util.LineRingBuffer;
 import de.aaaaaaah.velcom.shared.util.StringOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.CancellationException;
@@ -52,14 +54,47 @@ public class ProgramExecutor {
 	public StreamsProcessOutput<ProgramResult> execute(String... command) {
 		StringOutputStream stdOutStream = new StringOutputStream();
 		StringOutputStream stdErrStream = new StringOutputStream();
+		return execute(
+			stdOutStream, stdOutStream::getString, stdErrStream, stdErrStream::getString, command
+		);
+	}
+
+	/**
+	 * Executes a program using the passed command, only keeping the most recent lines of its standard
+	 * output and standard error. Use this for programs that might print a lot. Each buffer is closed
+	 * once the corresponding stream of the program is closed. If the future is cancelled <em>with
+	 * interruption</em>, the process is forcefully killed.
+	 *
+	 * @param stdOutBuffer the buffer to write standard output to. The result and {@link
+	 * 	StreamsProcessOutput#getCurrentStdOut()} contain only the lines it kept.
+	 * @param stdErrBuffer the buffer to write standard error to. The result and {@link
+	 * 	StreamsProcessOutput#getCurrentStdErr()} contain only the lines it kept.
+	 * @param command the command to execute
+	 * @return a future representing the result
+	 */
+	public StreamsProcessOutput<ProgramResult> execute(LineRingBuffer stdOutBuffer,
+		LineRingBuffer stdErrBuffer, String... command) {
+
+		return execute(
+			stdOutBuffer, stdOutBuffer::getString, stdErrBuffer, stdErrBuffer::getString, command
+		);
+	}
+
+	private StreamsProcessOutput<ProgramResult> execute(OutputStream stdOutStream,
+		Supplier<String> stdOutString, OutputStream stdErrStream, Supplier<String> stdErrString,
+		String[] command) {
 
 		FutureTask<ProgramResult> futureTask = new FutureTask<>(() -> {
 			Instant startTime = Instant.now();
 
 			Process process = new ProcessBuilder(command).start();
 
-			CompletableFuture<String> stdOut = readOutput(stdOutStream, process::getInputStream);
-			CompletableFuture<String> stdErr = readOutput(stdErrStream, process::getErrorStream);
+			CompletableFuture<String> stdOut = readOutput(
+				stdOutStream, stdOutString, process::getInputStream
+			);
+			CompletableFuture<String> stdErr = readOutput(
+				stdErrStream, stdErrString, process::getErrorStream
+			);
 
 			try {
 				int exitCode = process.waitFor();
@@ -91,21 +126,21 @@ public class ProgramExecutor {
 			}
 		});
 
-		return new WaitingFutureTask<>(futureTask, stdOutStream, stdErrStream);
+		return new WaitingFutureTask<>(futureTask, stdOutString, stdErrString);
 	}
 
-	private CompletableFuture<String> readOutput(StringOutputStream output,
+	private CompletableFuture<String> readOutput(OutputStream output, Supplier<String> outputString,
 		UncheckedSupplier<InputStream> input) {
 		return CompletableFuture
 			.supplyAsync(asUnchecked(() -> {
-					try (InputStream inputStream = input.get()) {
+					try (output; InputStream inputStream = input.get()) {
 						inputStream.transferTo(output);
 					}
-					return output.getString();
+					return outputString.get();
 				}),
 				EXECUTOR
 			)
-			.exceptionally(throwable -> output.getString());
+			.exceptionally(throwable -> outputString.get());
 	}
 
 	private <T> Supplier<T> asUnchecked(UncheckedSupplier<T> supplier) {
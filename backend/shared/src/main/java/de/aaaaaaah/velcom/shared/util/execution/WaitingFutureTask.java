@@ -1,12 +1,12 @@
 package de.aaaaaaah.velcom.shared.util.execution;
 
-import de.aaaaaaah.velcom.shared.util.StringOutputStream;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * A future task that waits for the underlying worker to die before returning from get.
@@ -17,11 +17,10 @@ class WaitingFutureTask<T> implements Future<T>, StreamsProcessOutput<T> {
 
 	private final Thread worker;
 	private final FutureTask<T> underlying;
-	private final StringOutputStream stdErr;
-	private final StringOutputStream stdOut;
+	private final Supplier<String> stdErr;
+	private final Supplier<String> stdOut;
 
-	public WaitingFutureTask(FutureTask<T> task, StringOutputStream stdOut,
-		StringOutputStream stdErr) {
+	public WaitingFutureTask(FutureTask<T> task, Supplier<String> stdOut, Supplier<String> stdErr) {
 		this.underlying = task;
 		this.stdOut = stdOut;
 		this.stdErr = stdErr;
@@ -64,11 +63,11 @@ class WaitingFutureTask<T> implements Future<T>, StreamsProcessOutput<T> {
 
 	@Override
 	public String getCurrentStdOut() {
-		return stdOut.getString();
+		return stdOut.get();
 	}
 
 	@Override
 	public String getCurrentStdErr() {
-		return stdErr.getString();
+		return stdErr.get();
 	}
 }
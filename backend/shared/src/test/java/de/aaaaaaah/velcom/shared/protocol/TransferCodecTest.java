@@ -0,0 +1,52 @@
+package de.aaaaaaah.velcom.shared.protocol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class TransferCodecTest {
+
+	@Test
+	void negotiatePicksFirstKnownCodec() {
+		assertThat(TransferCodec.negotiate("zstd, gzip,none")).isEqualTo(TransferCodec.GZIP);
+		assertThat(TransferCodec.negotiate("none,gzip")).isEqualTo(TransferCodec.NONE);
+	}
+
+	@Test
+	void negotiateFallsBackToNone() {
+		assertThat(TransferCodec.negotiate(null)).isEqualTo(TransferCodec.NONE);
+		assertThat(TransferCodec.negotiate("")).isEqualTo(TransferCodec.NONE);
+		assertThat(TransferCodec.negotiate("brotli")).isEqualTo(TransferCodec.NONE);
+	}
+
+	@Test
+	void headerValueRoundTrip() {
+		String headerValue = TransferCodec.toHeaderValue(TransferCodec.GZIP, TransferCodec.NONE);
+
+		assertThat(headerValue).isEqualTo("gzip,none");
+		assertThat(TransferCodec.negotiate(headerValue)).isEqualTo(TransferCodec.GZIP);
+	}
+
+	@ParameterizedTest
+	@EnumSource(TransferCodec.class)
+	void encodeAndDecode(TransferCodec codec) throws IOException {
+		byte[] data = "Hello world! ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		try (OutputStream out = codec.encode(encoded)) {
+			out.write(data);
+		}
+
+		try (InputStream in = codec.decode(new ByteArrayInputStream(encoded.toByteArray()))) {
+			assertThat(in.readAllBytes()).isEqualTo(data);
+		}
+	}
+}
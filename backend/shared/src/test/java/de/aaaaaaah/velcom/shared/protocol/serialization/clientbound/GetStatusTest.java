@@ -21,4 +21,16 @@ class GetStatusTest extends SerializerBasedTest {
 		Optional<GetStatus> result = serializer.deserialize("{}", GetStatus.class);
 		assertTrue(result.isPresent());
 	}
+
+	@Test
+	void serializeStatusPush() {
+		JsonNode tree = serializer.serializeTree(new GetStatus(true));
+		assertEquals(objectMapper.createObjectNode().put("status_push", true), tree);
+	}
+
+	@Test
+	void deserializeStatusPush() {
+		Optional<GetStatus> result = serializer.deserialize("{\"status_push\": true}", GetStatus.class);
+		assertEquals(Optional.of(new GetStatus(true)), result);
+	}
 }
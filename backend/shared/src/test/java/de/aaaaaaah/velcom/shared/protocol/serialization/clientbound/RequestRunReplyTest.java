@@ -1,10 +1,13 @@
 package de.aaaaaaah.velcom.shared.protocol.serialization.clientbound;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import de.aaaaaaah.velcom.shared.protocol.TransferCodec;
 import de.aaaaaaah.velcom.shared.protocol.serialization.SerializerBasedTest;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
@@ -36,4 +39,58 @@ class RequestRunReplyTest extends SerializerBasedTest {
 		);
 	}
 
+	@Test
+	void deserializeWithCodec() throws JsonProcessingException {
+		String json = "{\"bench\": false, \"run\": true, \"run_id\": \"576afdcb-eaf9-46b2-9287-fc3bf8df83df\", \"codec\": \"GZIP\"}";
+		Optional<RequestRunReply> result = serializer.deserialize(json, RequestRunReply.class);
+
+		UUID uuid = UUID.fromString("576afdcb-eaf9-46b2-9287-fc3bf8df83df");
+		assertTrue(result.isPresent());
+		assertEquals(
+			new RequestRunReply(false, null, true, uuid, TransferCodec.GZIP, null),
+			result.get()
+		);
+	}
+
+	@Test
+	void serializeWithoutCodecOmitsField() {
+		String json = serializer.serialize(new RequestRunReply(false, null, false, null)).orElseThrow();
+
+		assertFalse(json.contains("codec"));
+		assertFalse(json.contains("delta"));
+		assertFalse(json.contains("prefetch"));
+	}
+
+	@Test
+	void deserializeWithDelta() throws JsonProcessingException {
+		String json = "{\"bench\": false, \"run\": true, \"run_id\": \"576afdcb-eaf9-46b2-9287-fc3bf8df83df\", \"delta\": {\"base_run_id\": \"0d4f4a3e-7c4b-4a8e-9f0e-2b0c1f6f3c11\", \"deleted_paths\": [\"a.txt\", \"dir/b.txt\"]}}";
+		Optional<RequestRunReply> result = serializer.deserialize(json, RequestRunReply.class);
+
+		UUID uuid = UUID.fromString("576afdcb-eaf9-46b2-9287-fc3bf8df83df");
+		UUID baseUuid = UUID.fromString("0d4f4a3e-7c4b-4a8e-9f0e-2b0c1f6f3c11");
+		assertTrue(result.isPresent());
+		assertEquals(
+			new RequestRunReply(
+				false, null, true, uuid, null,
+				new WorkspaceDelta(baseUuid, List.of("a.txt", "dir/b.txt"))
+			),
+			result.get()
+		);
+	}
+
+	@Test
+	void deserializeWithPrefetchFlags() throws JsonProcessingException {
+		String json = "{\"bench\": false, \"run\": true, \"run_id\": \"576afdcb-eaf9-46b2-9287-fc3bf8df83df\", \"prefetched\": true, \"prefetch_allowed\": true}";
+		Optional<RequestRunReply> result = serializer.deserialize(json, RequestRunReply.class);
+
+		UUID uuid = UUID.fromString("576afdcb-eaf9-46b2-9287-fc3bf8df83df");
+		assertTrue(result.isPresent());
+		assertTrue(result.get().isPrefetched());
+		assertTrue(result.get().isPrefetchAllowed());
+		assertEquals(
+			new RequestRunReply(false, null, true, uuid, null, null, true, true),
+			result.get()
+		);
+	}
+
 }
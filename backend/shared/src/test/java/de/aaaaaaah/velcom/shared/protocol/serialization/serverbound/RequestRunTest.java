@@ -1,11 +1,13 @@
 package de.aaaaaaah.velcom.shared.protocol.serialization.serverbound;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import de.aaaaaaah.velcom.shared.protocol.serialization.SerializerBasedTest;
 import java.util.Optional;
+import java.util.UUID;
 import org.junit.jupiter.api.Test;
 
 class RequestRunTest extends SerializerBasedTest {
@@ -20,5 +22,39 @@ class RequestRunTest extends SerializerBasedTest {
 	void deserializeFromEmptyObject() {
 		Optional<RequestRun> result = serializer.deserialize("{}", RequestRun.class);
 		assertTrue(result.isPresent());
+		assertEquals(Optional.empty(), result.get().getWorkspaceRunId());
+	}
+
+	@Test
+	void roundTripWithWorkspaceRunId() {
+		UUID runId = UUID.fromString("576afdcb-eaf9-46b2-9287-fc3bf8df83df");
+		JsonNode tree = serializer.serializeTree(new RequestRun(runId));
+
+		assertEquals(runId.toString(), tree.get("workspace_run_id").asText());
+		assertEquals(Optional.of(new RequestRun(runId)), serializer.deserialize(tree, RequestRun.class));
+	}
+
+	@Test
+	void roundTripPrefetch() {
+		JsonNode tree = serializer.serializeTree(new RequestRun(null, null, true));
+
+		assertTrue(tree.get("prefetch").asBoolean());
+		assertEquals(
+			Optional.of(new RequestRun(null, null, true)),
+			serializer.deserialize(tree, RequestRun.class)
+		);
+	}
+
+	@Test
+	void roundTripWithPrefetchedRunId() {
+		UUID runId = UUID.fromString("576afdcb-eaf9-46b2-9287-fc3bf8df83df");
+		JsonNode tree = serializer.serializeTree(new RequestRun(null, runId, false));
+
+		assertEquals(runId.toString(), tree.get("prefetched_run_id").asText());
+		assertFalse(tree.has("prefetch"));
+		assertEquals(
+			Optional.of(new RequestRun(null, runId, false)),
+			serializer.deserialize(tree, RequestRun.class)
+		);
 	}
 }
@@ -0,0 +1,46 @@
+package de.aaaaaaah.velcom.shared.protocol.serialization.serverbound;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.aaaaaaah.velcom.shared.protocol.serialization.SerializerBasedTest;
+import de.aaaaaaah.velcom.shared.protocol.serialization.Status;
+import de.aaaaaaah.velcom.shared.util.LinesWithOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class StatusUpdateTest extends SerializerBasedTest {
+
+	@Test
+	void deserializeWithNoOptionals() {
+		String json = "{\"status\": \"IDLE\", \"result_available\": true}";
+		Optional<StatusUpdate> result = serializer.deserialize(json, StatusUpdate.class);
+
+		assertTrue(result.isPresent());
+		assertEquals(new StatusUpdate(Status.IDLE, null, true, null, null), result.get());
+	}
+
+	@Test
+	void deserializeWithAllOptionals() {
+		String json = "{"
+			+ "\"status\": \"RUN\","
+			+ " \"run_id\": \"576afdcb-eaf9-46b2-9287-fc3bf8df83df\","
+			+ " \"result_available\": false,"
+			+ " \"bench_hash\": \"blabla\","
+			+ " \"new_output_lines\": {"
+			+ "   \"first_line_offset\": 20,"
+			+ "   \"lines\": [\"this is a line\"]"
+			+ " }"
+			+ "}";
+		Optional<StatusUpdate> result = serializer.deserialize(json, StatusUpdate.class);
+
+		UUID uuid = UUID.fromString("576afdcb-eaf9-46b2-9287-fc3bf8df83df");
+		assertTrue(result.isPresent());
+		assertEquals(new StatusUpdate(Status.RUN, uuid, false, "blabla", null), result.get());
+		LinesWithOffset lines = result.get().getNewOutputLines().orElseThrow();
+		assertEquals(20, lines.getFirstLineOffset());
+		assertEquals(List.of("this is a line"), lines.getLines());
+	}
+}
@@ -0,0 +1,109 @@
+package de.aaaaaaah.velcom.shared.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LineRingBufferTest {
+
+	private static void write(LineRingBuffer buffer, String text) {
+		buffer.write(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void onlyCompleteLinesAreVisible() {
+		LineRingBuffer buffer = new LineRingBuffer(1024);
+		write(buffer, "first\r\nsec");
+
+		assertEquals(1, buffer.getLineCount());
+		assertEquals(List.of("first"), buffer.getLastLines(10).getLines());
+
+		write(buffer, "ond\nthird");
+		assertEquals(List.of("first", "second"), buffer.getLastLines(10).getLines());
+		assertEquals("first\nsecond\nthird", buffer.getString());
+
+		buffer.close();
+		assertEquals(List.of("first", "second", "third"), buffer.getLastLines(10).getLines());
+		assertEquals("first\nsecond\nthird", buffer.getString());
+	}
+
+	@Test
+	void returnsLinesSinceOffset() {
+		LineRingBuffer buffer = new LineRingBuffer(1024);
+		write(buffer, "a\nb\nc\nd\n");
+
+		LinesWithOffset lines = buffer.getLinesSince(2, 10);
+		assertEquals(2, lines.getFirstLineOffset());
+		assertEquals(List.of("c", "d"), lines.getLines());
+
+		lines = buffer.getLinesSince(1, 2);
+		assertEquals(2, lines.getFirstLineOffset());
+		assertEquals(List.of("c", "d"), lines.getLines());
+
+		lines = buffer.getLinesSince(10, 10);
+		assertEquals(4, lines.getFirstLineOffset());
+		assertEquals(List.of(), lines.getLines());
+	}
+
+	@Test
+	void dropsOldLinesWhenFull() {
+		LineRingBuffer buffer = new LineRingBuffer(8);
+		write(buffer, "aaa\nbbb\nccc\n");
+
+		assertEquals(3, buffer.getLineCount());
+		assertEquals(1, buffer.getDroppedLineCount());
+
+		LinesWithOffset lines = buffer.getLinesSince(0, 10);
+		assertEquals(1, lines.getFirstLineOffset());
+		assertEquals(List.of("bbb", "ccc"), lines.getLines());
+	}
+
+	@Test
+	void truncatesOverlyLongLines() {
+		LineRingBuffer buffer = new LineRingBuffer(4);
+		write(buffer, "abcdefgh\nxy\n");
+
+		assertEquals(2, buffer.getLineCount());
+		assertEquals(List.of("xy"), buffer.getLastLines(10).getLines());
+		assertEquals(1, buffer.getDroppedLineCount());
+	}
+
+	@Test
+	void spillsEverything() {
+		ByteArrayOutputStream spill = new ByteArrayOutputStream();
+		LineRingBuffer buffer = new LineRingBuffer(4, spill);
+		write(buffer, "aaa\nbbb\nccc");
+		buffer.close();
+
+		assertEquals("aaa\nbbb\nccc", spill.toString(StandardCharsets.UTF_8));
+		assertEquals(List.of("ccc"), buffer.getLastLines(10).getLines());
+	}
+
+	@Test
+	void remembersFailedSpill() {
+		ByteArrayOutputStream spill = new ByteArrayOutputStream();
+		LineRingBuffer buffer = new LineRingBuffer(1024, spill);
+		write(buffer, "aaa\n");
+		buffer.close();
+		assertFalse(buffer.hasSpillFailed());
+
+		LineRingBuffer failingBuffer = new LineRingBuffer(1024, new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		});
+		write(failingBuffer, "aaa\nbbb\n");
+		failingBuffer.close();
+
+		assertTrue(failingBuffer.hasSpillFailed());
+		assertEquals(List.of("aaa", "bbb"), failingBuffer.getLastLines(10).getLines());
+	}
+}